@@ -0,0 +1,572 @@
+/**
+ * AttendanceLog - Timestamped record of every check-in, with time-series rollups
+ * Each check-in is one long in a fixed-size ring (the oldest events are overwritten):
+ * epoch second in the high 32 bits (unsigned, good until 2106) and member ID in the low 32
+ *
+ * Every check-in also updates, in constant time:
+ * - visits per hour of the week, all time ("how busy are we at 7am on Mondays")
+ * - visits per hour over the last HOURS hours and per day over the last DAYS days
+ * - the number of members whose last visit fell on each day, for inactivity reports
+ * so occupancy and inactivity reports cost one pass over the buckets, not over events or members.
+ * Hours and days are in the system time zone.
+ *
+ * Check-ins are appended to one of STRIPES small pending buffers, chosen by member ID with the
+ * same spread as MemberRegistry's lock stripes, so concurrent check-ins do not contend on the
+ * log's monitor. A buffer is merged under the log's lock when it fills, and every buffer is
+ * merged before any read, so readers always see every check-in recorded before they started.
+ * A member's check-ins stay in order; check-ins of different members may be merged out of order.
+ *
+ * Every other method is synchronized.
+ */
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+public class AttendanceLog {
+    // Default number of events kept in the ring (8 MB)
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    // Rollup sizes
+    public static final int HOURS_PER_WEEK = 7 * 24;      // Hour-of-week buckets, Monday 00:00 first
+    public static final int HOURS = 8 * HOURS_PER_WEEK;   // Hourly buckets kept (eight weeks)
+    public static final int DAYS = 2 * 366;               // Daily buckets kept (two years)
+
+    // Marks a rollup slot that holds no hour or day yet
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private static final int SECONDS_PER_HOUR = 3600;
+
+    // Pending check-in buffers
+    private static final int STRIPES = 64;            // Buffers (power of two)
+    private static final int PENDING_EVENTS = 256;    // Check-ins a buffer holds before it is merged
+
+    // Event ring
+    private final long[] events;                  // (epoch second << 32) | member ID, oldest overwritten
+    private long recorded;                        // Events recorded since the log was created or restored
+
+    // Rollups
+    private final long[] hourOfWeek;              // Visits per local hour of the week, all time
+    private final int[] hourlyKeys;               // Local epoch hour held by each hourly slot
+    private final int[] hourlyCounts;             // Visits in that hour
+    private final int[] dailyKeys;                // Local epoch day held by each daily slot
+    private final int[] dailyCounts;              // Visits on that day
+
+    // Last-visit histogram
+    private int[] lastVisitCounts;                // Members whose last visit was on day lastVisitBase + i
+    private int lastVisitBase;                    // Epoch day of lastVisitCounts[0]
+    private int members;                          // Members added, visited or not
+    private int visitedMembers;                   // Members with at least one visit
+
+    // Time zone offset cache (offsets change at most once an hour)
+    private final ZoneId zone;                    // Zone used for hours and days
+    private long offsetHour;                      // UTC epoch hour the cached offset belongs to
+    private int offsetSeconds;                    // Zone offset during that hour
+
+    // Check-ins not yet merged (lock order: this, then a buffer)
+    private final PendingVisits[] pending;
+
+    /**
+     * Check-ins recorded into one stripe and not yet merged into the ring and rollups
+     */
+    private static final class PendingVisits {
+        final int[] memberIds = new int[PENDING_EVENTS];
+        final long[] times = new long[PENDING_EVENTS];
+        final long[] previousVisits = new long[PENDING_EVENTS];
+        int size;                                 // Check-ins held (guarded by this buffer)
+    }
+
+    /**
+     * Receives events from forEachEvent
+     */
+    public interface VisitConsumer {
+        /**
+         * @param memberId Member who checked in
+         * @param timeMillis Check-in time (epoch milliseconds, truncated to the second)
+         */
+        void accept(int memberId, long timeMillis);
+    }
+
+    /**
+     * Creates an empty log keeping DEFAULT_CAPACITY events, in the system time zone
+     */
+    public AttendanceLog() {
+        this(DEFAULT_CAPACITY, ZoneId.systemDefault());
+    }
+
+    /**
+     * Creates an empty log
+     *
+     * @param capacity Number of most recent events to keep
+     * @param zone Time zone for hour and day buckets
+     */
+    public AttendanceLog(int capacity, ZoneId zone) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.events = new long[capacity];
+        this.hourOfWeek = new long[HOURS_PER_WEEK];
+        this.hourlyKeys = new int[HOURS];
+        this.hourlyCounts = new int[HOURS];
+        this.dailyKeys = new int[DAYS];
+        this.dailyCounts = new int[DAYS];
+        this.lastVisitCounts = new int[0];
+        this.zone = zone;
+        this.offsetHour = Long.MIN_VALUE;
+        this.pending = new PendingVisits[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            pending[i] = new PendingVisits();
+        }
+        Arrays.fill(hourlyKeys, EMPTY);
+        Arrays.fill(dailyKeys, EMPTY);
+    }
+
+    /**
+     * Records a check-in and moves the member to the bucket of its new last-visit day
+     * Only appends to the member's pending buffer; the log's lock is taken when the buffer is full
+     *
+     * @param memberId Member who checked in
+     * @param timeMillis Check-in time (epoch milliseconds)
+     * @param previousVisit The member's previous last visit (epoch milliseconds), 0 if none
+     */
+    public void record(int memberId, long timeMillis, long previousVisit) {
+        int h = memberId * 0x9E3779B9;
+        PendingVisits buffer = pending[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        while (true) {
+            synchronized (buffer) {
+                int i = buffer.size;
+                if (i < PENDING_EVENTS) {
+                    buffer.memberIds[i] = memberId;
+                    buffer.times[i] = timeMillis;
+                    buffer.previousVisits[i] = previousVisit;
+                    buffer.size = i + 1;
+                    return;
+                }
+            }
+            synchronized (this) {
+                merge(buffer);
+            }
+        }
+    }
+
+    /**
+     * Applies one check-in to the ring, the rollups and the last-visit histogram
+     * Caller must hold this log's lock
+     *
+     * @param memberId Member who checked in
+     * @param timeMillis Check-in time (epoch milliseconds)
+     * @param previousVisit The member's previous last visit (epoch milliseconds), 0 if none
+     */
+    private void apply(int memberId, long timeMillis, long previousVisit) {
+        long second = Math.floorDiv(timeMillis, 1000);
+        events[(int) (recorded % events.length)] = (second << 32) | (memberId & 0xFFFFFFFFL);
+        recorded++;
+
+        long localSecond = toLocal(second);
+        int hour = (int) Math.floorDiv(localSecond, SECONDS_PER_HOUR);
+        int day = Math.floorDiv(hour, 24);
+        hourOfWeek[Math.floorMod(day + 3, 7) * 24 + Math.floorMod(hour, 24)]++;   // 1970/01/01 was a Thursday
+        bump(hourlyKeys, hourlyCounts, hour, 1);
+        bump(dailyKeys, dailyCounts, day, 1);
+
+        if (previousVisit != 0) {
+            addLastVisit(epochDayOf(previousVisit), -1);
+        } else {
+            visitedMembers++;
+        }
+        addLastVisit(day, 1);
+    }
+
+    /**
+     * Counts a member in the last-visit histogram, e.g. when it is registered or loaded
+     *
+     * @param lastVisit The member's last visit (epoch milliseconds), 0 if none
+     */
+    public synchronized void addMember(long lastVisit) {
+        flush();
+        members++;
+        if (lastVisit != 0) {
+            visitedMembers++;
+            addLastVisit(epochDayOf(lastVisit), 1);
+        }
+    }
+
+    /**
+     * Empties the last-visit histogram before the members are replaced
+     * Events and rollups are kept
+     */
+    public synchronized void clearMembers() {
+        flush();
+        lastVisitCounts = new int[0];
+        members = 0;
+        visitedMembers = 0;
+    }
+
+    /**
+     * Drops every event and rollup; the last-visit histogram is kept
+     */
+    public synchronized void clearHistory() {
+        flush();
+        recorded = 0;
+        Arrays.fill(hourOfWeek, 0);
+        Arrays.fill(hourlyKeys, EMPTY);
+        Arrays.fill(hourlyCounts, 0);
+        Arrays.fill(dailyKeys, EMPTY);
+        Arrays.fill(dailyCounts, 0);
+    }
+
+    /**
+     * @return Number of check-ins recorded, including those no longer in the ring
+     */
+    public synchronized long getRecordedCount() {
+        flush();
+        return recorded;
+    }
+
+    /**
+     * @return Number of events still held in the ring
+     */
+    public synchronized int getRetainedCount() {
+        flush();
+        return (int) Math.min(recorded, events.length);
+    }
+
+    /**
+     * Visits the retained events in the order they were recorded
+     * Scans the whole ring; use the rollups for counts
+     *
+     * @param fromMillis Earliest check-in time to include (epoch milliseconds)
+     * @param toMillis Check-in time to stop before (epoch milliseconds)
+     * @param consumer Receives each matching event
+     */
+    public synchronized void forEachEvent(long fromMillis, long toMillis, VisitConsumer consumer) {
+        flush();
+        int retained = (int) Math.min(recorded, events.length);
+        long first = recorded - retained;
+        for (long i = first; i < recorded; i++) {
+            long event = events[(int) (i % events.length)];
+            long timeMillis = (event >>> 32) * 1000;
+            if (timeMillis >= fromMillis && timeMillis < toMillis) {
+                consumer.accept((int) event, timeMillis);
+            }
+        }
+    }
+
+    /**
+     * All-time visits in one hour of the week
+     *
+     * @param dayOfWeek ISO day of the week (1 = Monday ... 7 = Sunday)
+     * @param hour Hour of the day (0-23)
+     * @return Number of check-ins in that hour, over every week recorded
+     */
+    public synchronized long countHourOfWeek(int dayOfWeek, int hour) {
+        flush();
+        if (dayOfWeek < 1 || dayOfWeek > 7 || hour < 0 || hour > 23) {
+            throw new IllegalArgumentException("Invalid day of week or hour");
+        }
+        return hourOfWeek[(dayOfWeek - 1) * 24 + hour];
+    }
+
+    /**
+     * Copies the all-time visits per hour of the week
+     *
+     * @param into Receives HOURS_PER_WEEK counts, Monday 00:00 first
+     */
+    public synchronized void hourOfWeekCounts(long[] into) {
+        flush();
+        System.arraycopy(hourOfWeek, 0, into, 0, HOURS_PER_WEEK);
+    }
+
+    /**
+     * Visits in each hour of one day
+     * Hours older than the hourly retention (HOURS) read as zero
+     *
+     * @param epochDay Local date as an epoch day
+     * @param into Receives 24 counts, midnight first
+     */
+    public synchronized void hourlyCounts(int epochDay, int[] into) {
+        flush();
+        for (int h = 0; h < 24; h++) {
+            into[h] = count(hourlyKeys, hourlyCounts, epochDay * 24 + h);
+        }
+    }
+
+    /**
+     * Visits on consecutive days
+     * Days older than the daily retention (DAYS) read as zero
+     *
+     * @param fromEpochDay First local date as an epoch day
+     * @param into Receives one count per day (into.length days)
+     */
+    public synchronized void dailyCounts(int fromEpochDay, int[] into) {
+        flush();
+        for (int i = 0; i < into.length; i++) {
+            into[i] = count(dailyKeys, dailyCounts, fromEpochDay + i);
+        }
+    }
+
+    /**
+     * @param epochDay Local date as an epoch day
+     * @return Visits on that day (zero if older than DAYS)
+     */
+    public synchronized int countOnDay(int epochDay) {
+        flush();
+        return count(dailyKeys, dailyCounts, epochDay);
+    }
+
+    /**
+     * Counts members who have not visited on or after a day, including those who never visited
+     *
+     * @param epochDay Local date as an epoch day
+     * @return Number of inactive members
+     */
+    public synchronized int countInactiveSince(int epochDay) {
+        flush();
+        int count = members - visitedMembers;
+        int end = Math.min(lastVisitCounts.length, Math.max(0, epochDay - lastVisitBase));
+        for (int i = 0; i < end; i++) {
+            count += lastVisitCounts[i];
+        }
+        return count;
+    }
+
+    /**
+     * Groups members by days since their last visit
+     * Bucket i holds members last seen between thresholds[i - 1] (inclusive) and thresholds[i]
+     * (exclusive) days before today; the next bucket holds those seen thresholds[n - 1] or more
+     * days ago, and the final bucket those who never visited
+     *
+     * @param today Local date as an epoch day
+     * @param thresholds Ascending day counts, e.g. {7, 30, 90}
+     * @return thresholds.length + 2 member counts
+     */
+    public synchronized int[] inactivityHistogram(int today, int[] thresholds) {
+        flush();
+        int[] buckets = new int[thresholds.length + 2];
+        for (int i = 0; i < lastVisitCounts.length; i++) {
+            if (lastVisitCounts[i] == 0) {
+                continue;
+            }
+            int daysAgo = today - (lastVisitBase + i);
+            int bucket = 0;
+            while (bucket < thresholds.length && daysAgo >= thresholds[bucket]) {
+                bucket++;
+            }
+            buckets[bucket] += lastVisitCounts[i];
+        }
+        buckets[thresholds.length + 1] = members - visitedMembers;
+        return buckets;
+    }
+
+    /**
+     * Converts a timestamp to the local date used by the day buckets
+     *
+     * @param timeMillis Epoch milliseconds
+     * @return Local date as an epoch day
+     */
+    public synchronized int epochDayOf(long timeMillis) {
+        return (int) Math.floorDiv(toLocal(Math.floorDiv(timeMillis, 1000)), 24 * SECONDS_PER_HOUR);
+    }
+
+    /**
+     * Encodes the events and rollups (not the last-visit histogram, which is rebuilt from members)
+     * Layout: long recorded, int retained, retained events oldest first, HOURS_PER_WEEK longs,
+     * then the used hourly and daily slots as an int count followed by (key, count) pairs
+     *
+     * @return Buffer positioned at the start of the encoded bytes
+     */
+    public synchronized ByteBuffer encode() {
+        flush();
+        int retained = (int) Math.min(recorded, events.length);
+        int hours = used(hourlyKeys);
+        int days = used(dailyKeys);
+        ByteBuffer out = ByteBuffer.allocate(8 + 4 + retained * 8 + HOURS_PER_WEEK * 8
+                + 4 + hours * 8 + 4 + days * 8);
+        out.putLong(recorded).putInt(retained);
+        for (long i = recorded - retained; i < recorded; i++) {
+            out.putLong(events[(int) (i % events.length)]);
+        }
+        for (long count : hourOfWeek) {
+            out.putLong(count);
+        }
+        putSlots(out, hourlyKeys, hourlyCounts, hours);
+        putSlots(out, dailyKeys, dailyCounts, days);
+        return out.flip();
+    }
+
+    /**
+     * Replaces the events and rollups with ones produced by encode
+     * If the encoded log holds more events than this ring, only the newest are kept
+     *
+     * @param in Encoded log, positioned at its start
+     */
+    public synchronized void restore(ByteBuffer in) {
+        flush();
+        clearHistory();
+        long total = in.getLong();
+        int retained = in.getInt();
+        int skip = Math.max(0, retained - events.length);
+        in.position(in.position() + skip * 8);
+        recorded = total - (retained - skip);
+        for (int i = skip; i < retained; i++) {
+            events[(int) (recorded % events.length)] = in.getLong();
+            recorded++;
+        }
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            hourOfWeek[i] = in.getLong();
+        }
+        getSlots(in, hourlyKeys, hourlyCounts);
+        getSlots(in, dailyKeys, dailyCounts);
+    }
+
+    /**
+     * Replaces the events and rollups with a copy of another log's, e.g. one read from a snapshot
+     * The last-visit histogram is kept, as with restore
+     *
+     * @param source Log to copy
+     */
+    public void copyHistoryFrom(AttendanceLog source) {
+        restore(source.encode());
+    }
+
+    /**
+     * Merges every pending check-in
+     * Caller must hold this log's lock
+     */
+    private void flush() {
+        for (PendingVisits buffer : pending) {
+            merge(buffer);
+        }
+    }
+
+    /**
+     * Merges one buffer's check-ins and empties it
+     * Caller must hold this log's lock
+     *
+     * @param buffer Buffer to merge
+     */
+    private void merge(PendingVisits buffer) {
+        synchronized (buffer) {
+            for (int i = 0; i < buffer.size; i++) {
+                apply(buffer.memberIds[i], buffer.times[i], buffer.previousVisits[i]);
+            }
+            buffer.size = 0;
+        }
+    }
+
+    /**
+     * Converts an epoch second to local seconds using the cached zone offset
+     *
+     * @param second UTC epoch second
+     * @return The same instant as seconds since the local epoch
+     */
+    private long toLocal(long second) {
+        long hour = Math.floorDiv(second, SECONDS_PER_HOUR);
+        if (hour != offsetHour) {
+            offsetSeconds = zone.getRules().getOffset(Instant.ofEpochSecond(hour * SECONDS_PER_HOUR)).getTotalSeconds();
+            offsetHour = hour;
+        }
+        return second + offsetSeconds;
+    }
+
+    /**
+     * Adds to the member count of one last-visit day, growing the histogram as needed
+     *
+     * @param day Local epoch day
+     * @param delta +1 or -1
+     */
+    private void addLastVisit(int day, int delta) {
+        if (lastVisitCounts.length == 0) {
+            lastVisitCounts = new int[64];
+            lastVisitBase = day - 32;
+        }
+        if (day < lastVisitBase || day >= lastVisitBase + lastVisitCounts.length) {
+            int low = Math.min(day, lastVisitBase);
+            int high = Math.max(day + 1, lastVisitBase + lastVisitCounts.length);
+            int slack = (high - low) / 2 + 1;
+            int newBase = day < lastVisitBase ? low - slack : low;
+            int[] grown = new int[high - newBase + (day < lastVisitBase ? 0 : slack)];
+            System.arraycopy(lastVisitCounts, 0, grown, lastVisitBase - newBase, lastVisitCounts.length);
+            lastVisitCounts = grown;
+            lastVisitBase = newBase;
+        }
+        lastVisitCounts[day - lastVisitBase] += delta;
+    }
+
+    /**
+     * Adds to a ring bucket, resetting the slot if it still holds an older hour or day
+     *
+     * @param keys Hour or day held by each slot
+     * @param counts Count per slot
+     * @param key Hour or day to add to
+     * @param delta Amount to add
+     */
+    private static void bump(int[] keys, int[] counts, int key, int delta) {
+        int slot = Math.floorMod(key, keys.length);
+        if (keys[slot] != key) {
+            if (keys[slot] != EMPTY && keys[slot] > key) {
+                return;                       // Older than the retention window
+            }
+            keys[slot] = key;
+            counts[slot] = 0;
+        }
+        counts[slot] += delta;
+    }
+
+    /**
+     * @param keys Hour or day held by each slot
+     * @param counts Count per slot
+     * @param key Hour or day to read
+     * @return The count for that key, or zero if its slot holds another key
+     */
+    private static int count(int[] keys, int[] counts, int key) {
+        int slot = Math.floorMod(key, keys.length);
+        return keys[slot] == key ? counts[slot] : 0;
+    }
+
+    /**
+     * @param keys Slot keys
+     * @return Number of slots holding a key
+     */
+    private static int used(int[] keys) {
+        int used = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                used++;
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Writes the used slots of a rollup ring
+     *
+     * @param out Destination
+     * @param keys Slot keys
+     * @param counts Slot counts
+     * @param used Number of used slots
+     */
+    private static void putSlots(ByteBuffer out, int[] keys, int[] counts, int used) {
+        out.putInt(used);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                out.putInt(keys[i]).putInt(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads slots written by putSlots into a rollup ring
+     *
+     * @param in Source
+     * @param keys Slot keys (cleared)
+     * @param counts Slot counts (cleared)
+     */
+    private static void getSlots(ByteBuffer in, int[] keys, int[] counts) {
+        int used = in.getInt();
+        for (int i = 0; i < used; i++) {
+            int key = in.getInt();
+            bump(keys, counts, key, in.getInt());
+        }
+    }
+}
@@ -0,0 +1,736 @@
+/**
+ * BranchRouter - Member registry partitioned into one shard per gym branch
+ * Each branch is a complete MemberRegistry with its own ID index, locks, attendance log, totals
+ * and snapshot/journal files, so branches check in members without sharing a lock or an fsync,
+ * and checkpointing a branch costs time in proportion to that branch alone.
+ * A member's branch is chosen from its location when it is added, by a mapping the caller
+ * supplies (see byLocation). Locations are free text, so the router never turns an unknown
+ * location into a branch of its own, and at most MAX_BRANCHES branches can exist.
+ *
+ * The router keeps a member ID -> shard table, so a member of any branch can be looked up,
+ * checked in or take a payment by ID at any other branch. Member IDs, phone numbers and emails
+ * (case-insensitively) are unique across all branches: the router keeps phone -> ID and
+ * email -> ID tables too, so findByPhone / findByEmail go straight to the owning branch.
+ *
+ * Concurrency: the route tables and the shard list are guarded by a read/write lock held only
+ * to find or reserve a route. It is never held while calling into a shard, so it never waits
+ * on a shard's locks or journal. An add reserves its ID, phone and email together first and
+ * releases the reservations if the branch rejects the member. A new branch is created (manifest written, journal opened)
+ * under a separate creation lock and only then published under the route lock, so routing to
+ * existing branches carries on while it is set up.
+ *
+ * Persistence (optional): shard n lives in <directory>/branch-<n>.snap and branch-<n>.journal;
+ * branches.txt lists the branch names in shard order.
+ */
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+public class BranchRouter implements AutoCloseable {
+    // Branch for members whose location is empty or not in the location map
+    public static final String DEFAULT_BRANCH = "main";
+
+    // Most branches a router will create
+    public static final int MAX_BRANCHES = 64;
+
+    // Persistence file names
+    private static final String MANIFEST = "branches.txt";
+    private static final String SHARD_PREFIX = "branch-";
+
+    // Route value for IDs that belong to no shard
+    private static final int NO_SHARD = -1;
+
+    // Shards (guarded by routeLock)
+    private final ArrayList<MemberRegistry> shards;        // Shard registries in creation order
+    private final ArrayList<String> branchNames;          // Branch name of each shard
+    private final HashMap<String, Integer> branchShards;  // Branch name -> shard number
+    private final IntIntMap routes;                       // Member ID -> shard number (reserved during an add)
+    private final HashMap<String, Integer> phoneOwners;   // Phone number -> member ID (reserved during an add)
+    private final HashMap<String, Integer> emailOwners;   // Lower-cased email -> member ID (reserved during an add)
+
+    private final ReentrantReadWriteLock routeLock;       // Guards the fields above
+    private final Object createLock;                      // Lets one thread create a branch at a time
+    private final Function<String, String> branchOf;      // Member location -> branch name
+    private final Path directory;                         // Persistence directory, null if in memory only
+
+    /**
+     * Creates an in-memory router
+     *
+     * @param branchOf Maps a member's location to one of a bounded set of branch names (see byLocation)
+     */
+    public BranchRouter(Function<String, String> branchOf) {
+        this(null, branchOf);
+    }
+
+    /**
+     * Creates an empty router
+     *
+     * @param directory Directory for per-branch snapshot and journal files, or null for none
+     * @param branchOf Maps a member's location to its branch name
+     */
+    private BranchRouter(Path directory, Function<String, String> branchOf) {
+        this.shards = new ArrayList<>();
+        this.branchNames = new ArrayList<>();
+        this.branchShards = new HashMap<>();
+        this.routes = new IntIntMap(1024, NO_SHARD);
+        this.phoneOwners = new HashMap<>();
+        this.emailOwners = new HashMap<>();
+        this.routeLock = new ReentrantReadWriteLock();
+        this.createLock = new Object();
+        this.branchOf = branchOf;
+        this.directory = directory;
+    }
+
+    /**
+     * Opens a persistent router, restoring every branch listed in the directory
+     * Branches are recovered in parallel, each from its own snapshot and journal
+     *
+     * @param directory Directory holding branches.txt and the branch files (created if missing)
+     * @param branchOf Maps a member's location to one of a bounded set of branch names (see byLocation)
+     * @return Router with every branch restored and journaling
+     * @throws IOException If a branch cannot be restored
+     */
+    public static BranchRouter open(Path directory, Function<String, String> branchOf) throws IOException {
+        Files.createDirectories(directory);
+        BranchRouter router = new BranchRouter(directory, branchOf);
+        Path manifest = directory.resolve(MANIFEST);
+        List<String> names = Files.exists(manifest)
+                ? Files.readAllLines(manifest, StandardCharsets.UTF_8) : new ArrayList<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(names.size(), Runtime.getRuntime().availableProcessors())), runnable -> {
+                    Thread thread = new Thread(runnable, "branch-recover");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            List<Future<MemberRegistry>> recovered = new ArrayList<>(names.size());
+            for (int n = 0; n < names.size(); n++) {
+                int shard = n;
+                recovered.add(pool.submit(() -> router.recoverShard(shard)));
+            }
+            for (int n = 0; n < names.size(); n++) {
+                router.addShard(names.get(n), recovered.get(n).get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Branch recovery interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error restoring branch: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // IDs, phones and emails are unique across branches; if files disagree, the first branch keeps them
+        for (int n = 0; n < router.shards.size(); n++) {
+            int shard = n;
+            router.shards.get(n).forEachMember(member -> {
+                if (!router.routes.containsKey(member.getId())) {
+                    router.routes.put(member.getId(), shard);
+                    if (member.getPhone() != null) {
+                        router.phoneOwners.putIfAbsent(member.getPhone(), member.getId());
+                    }
+                    if (member.getEmail() != null) {
+                        router.emailOwners.putIfAbsent(emailKey(member.getEmail()), member.getId());
+                    }
+                }
+            });
+        }
+        return router;
+    }
+
+    /**
+     * Builds a branch mapping from a fixed table of locations
+     * Locations are matched trimmed, lower-cased and with runs of spaces collapsed, so
+     * "Kathmandu", " kathmandu " and "KATHMANDU" are one location; any other location,
+     * including an empty one, goes to DEFAULT_BRANCH
+     *
+     * @param branches Location -> branch name (copied)
+     * @return Mapping to pass to the constructor or open
+     */
+    public static Function<String, String> byLocation(Map<String, String> branches) {
+        HashMap<String, String> table = new HashMap<>();
+        for (Map.Entry<String, String> entry : branches.entrySet()) {
+            table.put(normalizeLocation(entry.getKey()), entry.getValue());
+        }
+        return location -> table.getOrDefault(normalizeLocation(location), DEFAULT_BRANCH);
+    }
+
+    /**
+     * @param location Member's location (may be null)
+     * @return The location trimmed, lower-cased and with runs of spaces collapsed ("" if null)
+     */
+    private static String normalizeLocation(String location) {
+        if (location == null) {
+            return "";
+        }
+        return location.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a member to its branch, creating the branch on first use
+     *
+     * @param member Member to add
+     * @return MemberRegistry.ADD_OK or the ADD_* code explaining the rejection;
+     *         ADD_BRANCH_UNAVAILABLE if the branch would exceed MAX_BRANCHES or its files could not be created
+     */
+    public byte tryAddMember(GymMember member) {
+        int id = member.getId();
+        String phone = member.getPhone();
+        String email = member.getEmail() == null ? null : emailKey(member.getEmail());
+        routeLock.readLock().lock();
+        try {
+            // Checked again below; this avoids creating a branch for nothing
+            byte clash = checkUnique(id, phone, email);
+            if (clash != MemberRegistry.ADD_OK) {
+                return clash;
+            }
+        } finally {
+            routeLock.readLock().unlock();
+        }
+        int shardNumber = shardFor(branchOf.apply(member.getLocation()));
+        if (shardNumber == NO_SHARD) {
+            return MemberRegistry.ADD_BRANCH_UNAVAILABLE;
+        }
+        MemberRegistry shard;
+        routeLock.writeLock().lock();
+        try {
+            byte clash = checkUnique(id, phone, email);
+            if (clash != MemberRegistry.ADD_OK) {
+                return clash;
+            }
+            routes.put(id, shardNumber);
+            if (phone != null) {
+                phoneOwners.put(phone, id);
+            }
+            if (email != null) {
+                emailOwners.put(email, id);
+            }
+            shard = shards.get(shardNumber);
+        } finally {
+            routeLock.writeLock().unlock();
+        }
+
+        byte result = shard.tryAddMember(member);
+        if (result != MemberRegistry.ADD_OK && result != MemberRegistry.ADD_NOT_DURABLE) {    // Not durable is still added
+            routeLock.writeLock().lock();
+            try {
+                routes.remove(id);
+                if (phone != null) {
+                    phoneOwners.remove(phone);
+                }
+                if (email != null) {
+                    emailOwners.remove(email);
+                }
+            } finally {
+                routeLock.writeLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a member to its branch, creating the branch on first use
+     *
+     * @param member Member to add
+     * @return true if added, false if the ID, phone or email is taken in any branch or the branch is unavailable
+     */
+    public boolean addMember(GymMember member) {
+        return tryAddMember(member) == MemberRegistry.ADD_OK;
+    }
+
+    /**
+     * @param id Member ID
+     * @return Registry of the member's branch, or null if no branch has the ID
+     */
+    public MemberRegistry registryFor(int id) {
+        routeLock.readLock().lock();
+        try {
+            int shard = routes.get(id);
+            return shard == NO_SHARD ? null : shards.get(shard);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id Member ID
+     * @return Name of the member's branch, or null if no branch has the ID
+     */
+    public String getBranchOf(int id) {
+        routeLock.readLock().lock();
+        try {
+            int shard = routes.get(id);
+            return shard == NO_SHARD ? null : branchNames.get(shard);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param branch Branch name as returned by getBranches
+     * @return The branch's registry (for branch-local work such as a front desk), or null
+     */
+    public MemberRegistry getBranch(String branch) {
+        routeLock.readLock().lock();
+        try {
+            Integer shard = branchShards.get(branch);
+            return shard == null ? null : shards.get(shard);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Branch names in the order the branches were created
+     */
+    public List<String> getBranches() {
+        routeLock.readLock().lock();
+        try {
+            return new ArrayList<>(branchNames);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of members across all branches
+     */
+    public int size() {
+        int total = 0;
+        for (MemberRegistry shard : snapshotShards()) {
+            total += shard.size();
+        }
+        return total;
+    }
+
+    /**
+     * Finds a member of any branch by ID
+     *
+     * @param id Member ID
+     * @return The member, or null if no branch has the ID
+     */
+    public GymMember findMember(int id) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? null : shard.findMember(id);
+    }
+
+    /**
+     * Finds a member of any branch by phone number
+     *
+     * @param phone Phone number
+     * @return The member holding the number, or null
+     */
+    public GymMember findByPhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        return findOwner(phoneOwners, phone);
+    }
+
+    /**
+     * Finds a member of any branch by email (case-insensitive)
+     *
+     * @param email Email address
+     * @return The member holding the email, or null
+     */
+    public GymMember findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        return findOwner(emailOwners, emailKey(email));
+    }
+
+    /**
+     * @param owners Phone or email table
+     * @param key Phone number or lower-cased email
+     * @return The member the key belongs to, or null (also while its add is still in progress)
+     */
+    private GymMember findOwner(HashMap<String, Integer> owners, String key) {
+        Integer id;
+        routeLock.readLock().lock();
+        try {
+            id = owners.get(key);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+        return id == null ? null : findMember(id);
+    }
+
+    /**
+     * Activates a member of any branch
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String activateMembership(int id) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.activateMembership(id);
+    }
+
+    /**
+     * Deactivates a member of any branch
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String deactivateMembership(int id) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.deactivateMembership(id);
+    }
+
+    /**
+     * Checks in a member of any branch; only that member's branch is locked
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String markAttendance(int id) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.markAttendance(id);
+    }
+
+    /**
+     * Checks in a batch of members from any branches
+     * The IDs are grouped by branch and each branch processes its group as one batch,
+     * so each branch's journal is synced once (grouping makes one pass per branch)
+     *
+     * @param ids Member IDs in arrival order
+     * @param results Receives a MemberRegistry.CHECKIN_* code per ID (at least ids.length long)
+     * @return Number of successful check-ins
+     */
+    public int markAttendanceBatch(int[] ids, byte[] results) {
+        List<MemberRegistry> current;
+        int[] shardOf = new int[ids.length];
+        routeLock.readLock().lock();
+        try {
+            current = new ArrayList<>(shards);
+            for (int i = 0; i < ids.length; i++) {
+                shardOf[i] = routes.get(ids[i]);
+            }
+        } finally {
+            routeLock.readLock().unlock();
+        }
+
+        int accepted = 0;
+        int[] groupIds = new int[ids.length];
+        int[] groupPositions = new int[ids.length];
+        byte[] groupResults = new byte[ids.length];
+        for (int shard = NO_SHARD; shard < current.size(); shard++) {
+            int count = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (shardOf[i] == shard) {
+                    groupIds[count] = ids[i];
+                    groupPositions[count++] = i;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            if (shard == NO_SHARD) {
+                Arrays.fill(groupResults, 0, count, MemberRegistry.CHECKIN_NOT_FOUND);
+            } else {
+                accepted += current.get(shard).markAttendanceBatch(groupIds, 0, count, groupResults);
+            }
+            for (int i = 0; i < count; i++) {
+                results[groupPositions[i]] = groupResults[i];
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Upgrades the plan of a regular member of any branch
+     *
+     * @param id Member ID
+     * @param newPlan Plan to switch to
+     * @return Status message
+     */
+    public String upgradePlan(int id, String newPlan) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.upgradePlan(id, newPlan);
+    }
+
+    /**
+     * Records a payment for a premium member of any branch
+     *
+     * @param id Member ID
+     * @param amountMinor Amount being paid in paise
+     * @return Status message
+     */
+    public String payDueAmountMinor(int id, long amountMinor) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.payDueAmountMinor(id, amountMinor);
+    }
+
+    /**
+     * Calculates the discount of a premium member of any branch
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String calculateDiscount(int id) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.calculateDiscount(id);
+    }
+
+    /**
+     * Reverts a regular member of any branch
+     *
+     * @param id Member ID
+     * @param removalReason Why the membership is being reverted (required)
+     * @return Status message
+     */
+    public String revertRegularMember(int id, String removalReason) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.revertRegularMember(id, removalReason);
+    }
+
+    /**
+     * Reverts a premium member of any branch
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String revertPremiumMember(int id) {
+        MemberRegistry shard = registryFor(id);
+        return shard == null ? MemberRegistry.MEMBER_NOT_FOUND : shard.revertPremiumMember(id);
+    }
+
+    /**
+     * Writes one branch's snapshot and clears the journal records it covers
+     * Only that branch's members are written, and other branches keep running undisturbed
+     *
+     * @param branch Branch name
+     * @return Number of members written
+     * @throws IOException If the snapshot cannot be written
+     * @throws IllegalStateException If the router is not persistent
+     */
+    public int checkpoint(String branch) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("Branch router has no directory");
+        }
+        int shard;
+        MemberRegistry registry;
+        routeLock.readLock().lock();
+        try {
+            Integer number = branchShards.get(branch);
+            if (number == null) {
+                return 0;
+            }
+            shard = number;
+            registry = shards.get(shard);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+        return registry.getJournal().checkpoint(registry, snapshotFile(shard));
+    }
+
+    /**
+     * Checkpoints every branch, one after another
+     *
+     * @return Number of members written
+     * @throws IOException If a snapshot cannot be written
+     */
+    public int checkpointAll() throws IOException {
+        int total = 0;
+        for (String branch : getBranches()) {
+            total += checkpoint(branch);
+        }
+        return total;
+    }
+
+    /**
+     * Flushes and closes every branch journal
+     *
+     * @throws IOException If a journal cannot be closed cleanly
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (MemberRegistry shard : snapshotShards()) {
+            MemberJournal journal = shard.getJournal();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    failure = failure == null ? e : failure;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Checks a new member's ID, phone and email against every branch
+     * Caller must hold the route lock
+     *
+     * @param id Member ID
+     * @param phone Phone number (may be null)
+     * @param email Lower-cased email (may be null)
+     * @return MemberRegistry.ADD_OK or the ADD_DUPLICATE_* code of the first clash
+     */
+    private byte checkUnique(int id, String phone, String email) {
+        if (routes.containsKey(id)) {
+            return MemberRegistry.ADD_DUPLICATE_ID;
+        }
+        if (phone != null && phoneOwners.containsKey(phone)) {
+            return MemberRegistry.ADD_DUPLICATE_PHONE;
+        }
+        if (email != null && emailOwners.containsKey(email)) {
+            return MemberRegistry.ADD_DUPLICATE_EMAIL;
+        }
+        return MemberRegistry.ADD_OK;
+    }
+
+    /**
+     * @param email Email address
+     * @return Key under which the email is reserved (lower case, as MemberRegistry indexes it)
+     */
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds or creates the shard for a branch
+     * Caller must not hold the route lock: a new branch is set up under the creation lock
+     * and published under the route write lock only once its journal is running
+     *
+     * @param branch Branch name
+     * @return Shard number, or NO_SHARD if MAX_BRANCHES branches already exist or the branch's
+     *         files could not be created
+     */
+    private int shardFor(String branch) {
+        Integer shard = findShard(branch);
+        if (shard != null) {
+            return shard;
+        }
+        synchronized (createLock) {
+            List<String> names;
+            int number;
+            routeLock.readLock().lock();
+            try {
+                shard = branchShards.get(branch);
+                if (shard != null) {
+                    return shard;
+                }
+                number = shards.size();       // Stable: shards are only added under the creation lock
+                if (number >= MAX_BRANCHES) {
+                    return NO_SHARD;
+                }
+                names = new ArrayList<>(branchNames);
+            } finally {
+                routeLock.readLock().unlock();
+            }
+
+            MemberRegistry registry = new MemberRegistry();
+            if (directory != null) {
+                try {
+                    // Listed before its files exist, so a crash can never leave unlisted branch files behind
+                    names.add(branch);
+                    writeManifest(names);
+                    registry = recoverShard(number);
+                } catch (IOException e) {
+                    System.err.println("Could not create branch " + branch + ": " + e.getMessage());
+                    return NO_SHARD;
+                }
+            }
+
+            routeLock.writeLock().lock();
+            try {
+                addShard(branch, registry);
+            } finally {
+                routeLock.writeLock().unlock();
+            }
+            return number;
+        }
+    }
+
+    /**
+     * @param branch Branch name
+     * @return The branch's shard number, or null if it has not been created
+     */
+    private Integer findShard(String branch) {
+        routeLock.readLock().lock();
+        try {
+            return branchShards.get(branch);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Registers a shard under the next shard number
+     *
+     * @param branch Branch name
+     * @param registry Shard registry
+     */
+    private void addShard(String branch, MemberRegistry registry) {
+        branchShards.put(branch, shards.size());
+        branchNames.add(branch);
+        shards.add(registry);
+    }
+
+    /**
+     * Restores one shard from its files and attaches its journal
+     *
+     * @param shard Shard number
+     * @return The restored registry
+     * @throws IOException If the shard's files are corrupt or cannot be opened
+     */
+    private MemberRegistry recoverShard(int shard) throws IOException {
+        MemberRegistry registry = new MemberRegistry();
+        MemberJournal.recover(registry, snapshotFile(shard), directory.resolve(SHARD_PREFIX + shard + ".journal"));
+        registry.buildLookupIndexes();
+        return registry;
+    }
+
+    /**
+     * @param shard Shard number
+     * @return The shard's snapshot file
+     */
+    private Path snapshotFile(int shard) {
+        return directory.resolve(SHARD_PREFIX + shard + ".snap");
+    }
+
+    /**
+     * Replaces the manifest with the given branch names, one per line in shard order
+     *
+     * @param names Branch names
+     * @throws IOException If the manifest cannot be written
+     */
+    private void writeManifest(List<String> names) throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temp, names, StandardCharsets.UTF_8);
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return Copy of the shard list, for fan-out calls made without the route lock
+     */
+    private List<MemberRegistry> snapshotShards() {
+        routeLock.readLock().lock();
+        try {
+            return new ArrayList<>(shards);
+        } finally {
+            routeLock.readLock().unlock();
+        }
+    }
+}
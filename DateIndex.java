@@ -0,0 +1,186 @@
+/**
+ * DateIndex - Sorted index of (date key, member ID) pairs for range queries
+ * Each entry is packed into one long (key in the high 32 bits, ID in the low 32 bits) and kept
+ * in a sorted primitive array, so a range is found with two binary searches and walked in place
+ * New entries collect in a small unsorted buffer and are merged in by seal() before the next query
+ *
+ * Not thread-safe; MemberRegistry guards it with its structure lock.
+ */
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+public class DateIndex {
+    // Sorted entries
+    private long[] sorted;                // Packed entries in ascending order
+    private int sortedSize;               // Number of sorted entries in use
+
+    // Entries added since the last seal()
+    private long[] pending;               // Packed entries in insertion order
+    private int pendingSize;              // Number of pending entries
+
+    /**
+     * Creates an empty index
+     */
+    public DateIndex() {
+        this.sorted = new long[16];
+        this.pending = new long[16];
+    }
+
+    /**
+     * Adds an entry; it becomes visible to queries after the next seal()
+     *
+     * @param key Date key (epoch day, month-day key, ...)
+     * @param id Member ID
+     */
+    public void add(int key, int id) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        pending[pendingSize++] = pack(key, id);
+    }
+
+    /**
+     * @return true if entries were added since the last seal()
+     */
+    public boolean needsSeal() {
+        return pendingSize > 0;
+    }
+
+    /**
+     * Sorts the pending entries and merges them into the sorted array
+     * Costs O(p log p + n) for p pending entries, so bulk additions are merged once
+     */
+    public void seal() {
+        if (pendingSize == 0) {
+            return;
+        }
+        Arrays.sort(pending, 0, pendingSize);
+
+        int total = sortedSize + pendingSize;
+        long[] target = sorted;
+        if (total > sorted.length) {
+            target = new long[Math.max(total, sorted.length * 2)];
+            System.arraycopy(sorted, 0, target, 0, sortedSize);
+        }
+
+        // Merge from the back so the sorted entries can be shifted in place
+        int a = sortedSize - 1;
+        int b = pendingSize - 1;
+        for (int out = total - 1; b >= 0; out--) {
+            if (a >= 0 && target[a] > pending[b]) {
+                target[out] = target[a--];
+            } else {
+                target[out] = pending[b--];
+            }
+        }
+        sorted = target;
+        sortedSize = total;
+        pendingSize = 0;
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void clear() {
+        sortedSize = 0;
+        pendingSize = 0;
+    }
+
+    /**
+     * @return Number of entries, including pending ones
+     */
+    public int size() {
+        return sortedSize + pendingSize;
+    }
+
+    /**
+     * Counts entries whose key lies in a range; requires seal() since the last add
+     *
+     * @param fromKey Smallest key (inclusive)
+     * @param toKey Largest key (inclusive)
+     * @return Number of entries in the range
+     */
+    public int count(int fromKey, int toKey) {
+        if (fromKey > toKey) {
+            return 0;
+        }
+        return lowerBound(toKey + 1L) - lowerBound(fromKey);
+    }
+
+    /**
+     * Copies the member IDs of a page of entries in a key range, ordered by key then ID
+     * Requires seal() since the last add
+     *
+     * @param fromKey Smallest key (inclusive)
+     * @param toKey Largest key (inclusive)
+     * @param skip Number of matching entries to skip
+     * @param into Array to fill; filled up to its length or the end of the range
+     * @param offset Position in the array to start filling
+     * @return Number of IDs copied
+     */
+    public int collect(int fromKey, int toKey, int skip, int[] into, int offset) {
+        if (fromKey > toKey) {
+            return 0;
+        }
+        int start = lowerBound(fromKey) + skip;
+        int end = lowerBound(toKey + 1L);
+        int count = Math.max(0, Math.min(into.length - offset, end - start));
+        for (int i = 0; i < count; i++) {
+            into[offset + i] = (int) sorted[start + i];
+        }
+        return count;
+    }
+
+    /**
+     * Visits the member ID of every entry in a key range, ordered by key then ID
+     * Requires seal() since the last add
+     *
+     * @param fromKey Smallest key (inclusive)
+     * @param toKey Largest key (inclusive)
+     * @param action Callback receiving each member ID
+     */
+    public void forEach(int fromKey, int toKey, IntConsumer action) {
+        if (fromKey > toKey) {
+            return;
+        }
+        int end = lowerBound(toKey + 1L);
+        for (int i = lowerBound(fromKey); i < end; i++) {
+            action.accept((int) sorted[i]);
+        }
+    }
+
+    /**
+     * Finds the first sorted entry whose key is at least the given key
+     *
+     * @param key Key to search for (long so that Integer.MAX_VALUE + 1 can be passed)
+     * @return Position of that entry, or sortedSize if there is none
+     */
+    private int lowerBound(long key) {
+        if (key > Integer.MAX_VALUE) {
+            return sortedSize;
+        }
+        long target = (long) (int) key << 32;
+        int low = 0;
+        int high = sortedSize;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Packs a key and ID so that packed values sort by key first
+     *
+     * @param key Date key
+     * @param id Member ID
+     * @return Packed entry
+     */
+    private static long pack(int key, int id) {
+        return (long) key << 32 | (id & 0xFFFFFFFFL);
+    }
+}
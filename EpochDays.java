@@ -0,0 +1,207 @@
+/**
+ * EpochDays - Dates packed as a single int: days since 1970/01/01 (same epoch as java.time)
+ * Parses and formats the YYYY/MM/DD strings used throughout the system without allocating,
+ * and converts back to year, month and day with plain integer arithmetic
+ */
+public final class EpochDays {
+    // Returned by parse() for text that is not a real calendar date
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    // Days from 0000/03/01 to 1970/01/01 in the proleptic Gregorian calendar
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    // Days in a 400-year Gregorian cycle
+    private static final int DAYS_PER_ERA = 146097;
+
+    /**
+     * Not instantiable; use the static methods
+     */
+    private EpochDays() {
+    }
+
+    /**
+     * Parses a YYYY/MM/DD date (fields may omit leading zeros; years above 9999 are rejected)
+     *
+     * @param text Date text, may be null
+     * @return Epoch day, or INVALID if the text is not a real calendar date
+     */
+    public static int parse(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        int year = 0;
+        int month = 0;
+        int field = 0;          // 0 = year, 1 = month, 2 = day
+        int value = 0;
+        int digits = 0;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 9) {
+                    return INVALID;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c == '/' && digits > 0 && field < 2) {
+                if (field == 0) {
+                    year = value;
+                } else {
+                    month = value;
+                }
+                field++;
+                value = 0;
+                digits = 0;
+            } else {
+                return INVALID;
+            }
+        }
+        if (field != 2 || digits == 0) {
+            return INVALID;
+        }
+        int day = value;
+        if (year > 9999 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        return of(year, month, day);
+    }
+
+    /**
+     * Converts a calendar date to its epoch day
+     *
+     * @param year Year
+     * @param month Month (1-12)
+     * @param day Day of month (1-31)
+     * @return Days since 1970/01/01
+     */
+    public static int of(int year, int month, int day) {
+        // Count from March so the leap day is the last day of the (shifted) year
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * @param epochDay Days since 1970/01/01
+     * @return Calendar year
+     */
+    public static int year(int epochDay) {
+        return civil(epochDay) >> 9;
+    }
+
+    /**
+     * @param epochDay Days since 1970/01/01
+     * @return Month (1-12)
+     */
+    public static int month(int epochDay) {
+        return (civil(epochDay) >> 5) & 0xF;
+    }
+
+    /**
+     * @param epochDay Days since 1970/01/01
+     * @return Day of month (1-31)
+     */
+    public static int dayOfMonth(int epochDay) {
+        return civil(epochDay) & 0x1F;
+    }
+
+    /**
+     * Returns a key that orders dates by month and day, ignoring the year
+     * Used to find birthdays in a window; 29 February sorts between 28 February and 1 March
+     *
+     * @param epochDay Days since 1970/01/01
+     * @return month * 32 + day of month (33 to 415)
+     */
+    public static int monthDayKey(int epochDay) {
+        return civil(epochDay) & 0x1FF;
+    }
+
+    /**
+     * Calculates age in whole years on a given date
+     *
+     * @param dobDay Date of birth as an epoch day
+     * @param onDay Date to measure age at as an epoch day
+     * @return Completed years between the two dates
+     */
+    public static int ageAt(int dobDay, int onDay) {
+        int dob = civil(dobDay);
+        int on = civil(onDay);
+        int age = (on >> 9) - (dob >> 9);
+        if ((on & 0x1FF) < (dob & 0x1FF)) {
+            age--;
+        }
+        return age;
+    }
+
+    /**
+     * @return Today's date as an epoch day, in the system time zone
+     */
+    public static int today() {
+        return (int) java.time.LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Formats an epoch day as YYYY/MM/DD
+     *
+     * @param epochDay Days since 1970/01/01
+     * @return Zero-padded date text
+     */
+    public static String format(int epochDay) {
+        int packed = civil(epochDay);
+        int year = packed >> 9;
+        int month = (packed >> 5) & 0xF;
+        int day = packed & 0x1F;
+        char[] chars = new char[10];
+        chars[0] = (char) ('0' + year / 1000 % 10);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '/';
+        chars[5] = (char) ('0' + month / 10);
+        chars[6] = (char) ('0' + month % 10);
+        chars[7] = '/';
+        chars[8] = (char) ('0' + day / 10);
+        chars[9] = (char) ('0' + day % 10);
+        return new String(chars);
+    }
+
+    /**
+     * @param year Year
+     * @param month Month (1-12)
+     * @return Number of days in that month
+     */
+    public static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean isLeapYear = (year % 4 == 0 && year % 100 != 0) || (year % 400 == 0);
+                return isLeapYear ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Converts an epoch day to year, month and day packed as year << 9 | month << 5 | day
+     *
+     * @param epochDay Days since 1970/01/01
+     * @return Packed calendar date
+     */
+    private static int civil(int epochDay) {
+        int z = epochDay + DAYS_0000_TO_1970;
+        int era = (z >= 0 ? z : z - (DAYS_PER_ERA - 1)) / DAYS_PER_ERA;
+        int dayOfEra = z - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 9 | month << 5 | day;
+    }
+}
@@ -9,13 +9,21 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.management.JMException;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 
 public class GymGUI extends JFrame implements ActionListener {
-    // Collection to store all gym members
-    private ArrayList<GymMember> gymMembers;
+    // Service layer holding all gym members
+    private MemberRegistry registry;
 
     // Text fields for member information input
     private JTextField txtId, txtName, txtLocation, txtPhone, txtEmail, txtDob, txtMembershipStartDate;
@@ -41,6 +49,36 @@ public class GymGUI extends JFrame implements ActionListener {
     private JButton btnMarkAttendance, btnUpgradePlan, btnCalculateDiscount;
     private JButton btnRevertRegularMember, btnRevertPremiumMember;
     private JButton btnPayDueAmount, btnDisplay, btnClear, btnSaveToFile, btnReadFromFile;
+    private JButton btnSaveSnapshot, btnLoadSnapshot, btnImportCsv, btnFindMember, btnVisitReport;
+    private JButton btnFinanceSummary, btnPostPayments, btnLeaderboard, btnUpgradeCandidates;
+
+    // Search-as-you-type by member name
+    private static final int SEARCH_DELAY_MS = 250;       // Pause in typing before a search starts
+    private static final int SEARCH_RESULTS = 20;         // Matches shown in the results list
+    private JLabel lblSearchName, lblSearchResults;
+    private JTextField txtSearchName;
+    private JComboBox<String> cbSearchResults;            // "ID - Name" of each match, best first
+    private int[] searchResultIds = new int[0];           // Member ID per entry of cbSearchResults
+    private boolean updatingSearchResults;                // Suppresses selection events while refilling
+    private Timer searchTimer;                            // Debounces typing in txtSearchName
+    private NameSearchWorker searchWorker;                // Search in progress, null if none
+
+    // Visit report
+    private static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+    private static final int[] INACTIVITY_DAYS = {7, 30, 90};  // Bucket limits for days since last visit
+    private static final java.time.format.DateTimeFormatter VISIT_FORMAT =
+            java.time.format.DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm");
+
+    // Payment history shown by Find by Phone/Email
+    private static final int PAYMENTS_SHOWN = 10;         // Most recent ledger entries listed
+
+    // Loyalty leaderboard
+    private static final int LEADERS_SHOWN = 10;          // Members listed per board
+    private static final int RIVAL_RANGE = 50;            // Points either side of the entered member
+    private static final int RIVALS_SHOWN = 5;            // Nearby members listed
+
+    // Upgrade candidates listed by the Upgrade Candidates report
+    private static final int CANDIDATES_SHOWN = 20;
 
     /**
      * Constructor - Initializes the main GUI window and sets up all components
@@ -51,6 +89,8 @@ public class GymGUI extends JFrame implements ActionListener {
         initializeComponents();
         setupLayout();
         addActionListeners();
+        restoreMembers();
+        startMetrics();
         pack();  // Adjust frame size to fit all components
         setLocationRelativeTo(null);  // Center on screen
         setVisible(true);
@@ -78,6 +118,8 @@ public class GymGUI extends JFrame implements ActionListener {
         lblPremiumPrice = new JLabel("Premium plan price: ");
         lblRegularPrice = new JLabel("Regular plan price: ");
         lblDiscountPrice = new JLabel("Discount: ");
+        lblSearchName = new JLabel("Search Name: ");
+        lblSearchResults = new JLabel("Matches: ");
 
         // Initialize text fields
         txtId = new JTextField(10);
@@ -93,6 +135,7 @@ public class GymGUI extends JFrame implements ActionListener {
         txtPaidAmount = new JTextField(10);
         txtRemovalReason = new JTextField(10);
         txtTrainerName = new JTextField(10);
+        txtSearchName = new JTextField(10);
 
         // Initialize non-editable text fields
         neTxtRegularPlanPrice = new JTextField("4500", 10);
@@ -112,6 +155,8 @@ public class GymGUI extends JFrame implements ActionListener {
         // Initialize combo box
         String[] plans = {"Basic", "Standard", "Deluxe"};
         cbPlan = new JComboBox<>(plans);
+        cbSearchResults = new JComboBox<>();
+        cbSearchResults.setPrototypeDisplayValue("000000 - Firstname Lastname");
 
         // Initialize buttons
         btnAddRegularMember = new JButton("Add Regular Member");
@@ -128,9 +173,18 @@ public class GymGUI extends JFrame implements ActionListener {
         btnClear = new JButton("Clear");
         btnSaveToFile = new JButton("Save to File");
         btnReadFromFile = new JButton("Read from File");
-
-        // Initialize ArrayList
-        gymMembers = new ArrayList<>();
+        btnSaveSnapshot = new JButton("Save Snapshot");
+        btnLoadSnapshot = new JButton("Load Snapshot");
+        btnImportCsv = new JButton("Import CSV");
+        btnFindMember = new JButton("Find by Phone/Email");
+        btnVisitReport = new JButton("Visit Report");
+        btnFinanceSummary = new JButton("Finance Summary");
+        btnPostPayments = new JButton("Post Payments");
+        btnLeaderboard = new JButton("Loyalty Leaderboard");
+        btnUpgradeCandidates = new JButton("Upgrade Candidates");
+
+        // Initialize member registry
+        registry = new MemberRegistry();
 
         // Add focus listeners for date fields
         txtDob.addFocusListener(new FocusListener() {
@@ -168,6 +222,26 @@ public class GymGUI extends JFrame implements ActionListener {
                 }
             }
         });
+
+        // Restart the debounce timer on every edit; the search runs once typing pauses
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> startNameSearch());
+        searchTimer.setRepeats(false);
+        txtSearchName.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
     }
 
     /**
@@ -189,6 +263,16 @@ public class GymGUI extends JFrame implements ActionListener {
         btnClear.addActionListener(this);
         btnSaveToFile.addActionListener(this);
         btnReadFromFile.addActionListener(this);
+        btnSaveSnapshot.addActionListener(this);
+        btnLoadSnapshot.addActionListener(this);
+        btnImportCsv.addActionListener(this);
+        btnFindMember.addActionListener(this);
+        btnVisitReport.addActionListener(this);
+        btnFinanceSummary.addActionListener(this);
+        btnPostPayments.addActionListener(this);
+        btnLeaderboard.addActionListener(this);
+        btnUpgradeCandidates.addActionListener(this);
+        cbSearchResults.addActionListener(this);
     }
 
     /**
@@ -201,21 +285,11 @@ public class GymGUI extends JFrame implements ActionListener {
     public void actionPerformed(ActionEvent e) {
         try {
             if (e.getSource() == btnAddPremiumMember) {
-                if (validateInputForPremium()) {
-                    if (isDuplicateId(Integer.parseInt(txtId.getText()))) {
-                        JOptionPane.showMessageDialog(null, "Member ID already exists!");
-                        return;
-                    }
-                    addPremiumMember();
+                if (validateInputForPremium() && addPremiumMember()) {
                     JOptionPane.showMessageDialog(null, "Premium member added successfully");
                 }
             } else if (e.getSource() == btnAddRegularMember) {
-                if (validateInputForRegular()) {
-                    if (isDuplicateId(Integer.parseInt(txtId.getText()))) {
-                        JOptionPane.showMessageDialog(null, "Member ID already exists!");
-                        return;
-                    }
-                    addRegularMember();
+                if (validateInputForRegular() && addRegularMember()) {
                     JOptionPane.showMessageDialog(null, "Regular member added successfully");
                 }
             } else if (e.getSource() == btnDisplay) {
@@ -258,6 +332,26 @@ public class GymGUI extends JFrame implements ActionListener {
                 saveToFile();
             } else if (e.getSource() == btnReadFromFile) {
                 readFromFile();
+            } else if (e.getSource() == btnSaveSnapshot) {
+                saveSnapshot();
+            } else if (e.getSource() == btnLoadSnapshot) {
+                loadSnapshot();
+            } else if (e.getSource() == btnImportCsv) {
+                importCsv();
+            } else if (e.getSource() == btnFindMember) {
+                findMemberByContact();
+            } else if (e.getSource() == btnVisitReport) {
+                showVisitReport();
+            } else if (e.getSource() == btnFinanceSummary) {
+                showFinanceSummary();
+            } else if (e.getSource() == btnPostPayments) {
+                postPayments();
+            } else if (e.getSource() == btnLeaderboard) {
+                showLeaderboard();
+            } else if (e.getSource() == btnUpgradeCandidates) {
+                showUpgradeCandidates();
+            } else if (e.getSource() == cbSearchResults) {
+                selectSearchResult();
             }
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(null, "Please enter valid numeric values");
@@ -266,20 +360,6 @@ public class GymGUI extends JFrame implements ActionListener {
         }
     }
 
-    /**
-     * Checks if a member ID already exists in the system
-     * @param id The ID to check for duplicates
-     * @return true if ID exists, false otherwise
-     */
-    private boolean isDuplicateId(int id) {
-        for (GymMember member : gymMembers) {
-            if (member.getId() == id) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Validates member ID input
      * Ensures ID field is not empty and contains a valid number
@@ -319,244 +399,742 @@ public class GymGUI extends JFrame implements ActionListener {
     }
 
     /**
-     * Validates date format and checks if it's a valid date
-     * Supports YYYY/MM/DD format and includes leap year validation
-     * @param date The date string to validate
-     * @return true if date is valid, false otherwise
+     * Saves member details to a file
+     * Creates backup of existing file
+     * Formats data in a tabulated structure
+     * Runs on a background worker with a cancellable progress dialog
      */
-    private boolean validateDate(String date) {
-        try {
-            if (date.equals("YYYY/MM/DD")) {
-                return false;
-            }
+    private void saveToFile() {
+        // Check if there are members to save
+        if (registry.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "No members to save to file");
+            return;
+        }
 
-            String[] parts = date.split("/");
-            if (parts.length != 3) {
-                return false;
-            }
+        btnSaveToFile.setEnabled(false);
+        ProgressMonitor monitor = new ProgressMonitor(this, "Saving member details...", null, 0, 100);
+        SaveWorker worker = new SaveWorker(new File("MemberDetails.txt"), monitor);
+        worker.execute();
+    }
 
-            int year = Integer.parseInt(parts[0]);
-            int month = Integer.parseInt(parts[1]);
-            int day = Integer.parseInt(parts[2]);
-
-            if (month < 1 || month > 12) return false;
-            if (day < 1 || day > 31) return false;
-            if (year < 1900 || year > 2025) return false;
-
-            // Check days in month
-            if (month == 4 || month == 6 || month == 9 || month == 11) {
-                if (day > 30) return false;
-            } else if (month == 2) {
-                boolean isLeapYear = (year % 4 == 0 && year % 100 != 0) || (year % 400 == 0);
-                if (isLeapYear && day > 29) return false;
-                if (!isLeapYear && day > 28) return false;
-            }
+    /**
+     * Reads and displays member details from file
+     * Creates separate tables for Regular and Premium members
+     * Rows appear in the tables as they are parsed on a background worker
+     */
+    private void readFromFile() {
+        File file = new File("MemberDetails.txt");
+        if (!file.exists()) {
+            JOptionPane.showMessageDialog(null, "No member details file found");
+            return;
+        }
 
-            return true;
-        } catch (Exception e) {
-            return false;
+        // Create main frame with a better title
+        JFrame frame = new JFrame("Member Details from File");
+        frame.setLayout(new GridLayout(2, 1, 0, 10));  // 2 rows, 1 column, 10px vertical gap
+
+        // Create panels for Regular and Premium members
+        JPanel regularPanel = new JPanel(new BorderLayout());
+        JPanel premiumPanel = new JPanel(new BorderLayout());
+        regularPanel.setBorder(BorderFactory.createTitledBorder("Regular Members"));
+        premiumPanel.setBorder(BorderFactory.createTitledBorder("Premium Members"));
+
+        // Create table models for both types
+        DefaultTableModel regularModel = new DefaultTableModel(
+                new String[]{"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
+                        "Start Date", "Plan", "Price", "Status"}, 0);
+
+        DefaultTableModel premiumModel = new DefaultTableModel(
+                new String[]{"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
+                        "Start Date", "Trainer", "Price", "Status", "Full Pay", "Paid", "Remaining", "Discount"}, 0);
+
+        // Create tables with the models
+        JTable regularTable = new JTable(regularModel);
+        JTable premiumTable = new JTable(premiumModel);
+
+        // Set table properties for better readability
+        regularTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        premiumTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+
+        // Set column widths
+        int[] regularWidths = {50, 100, 100, 100, 150, 70, 100, 100, 100, 100, 70};
+        int[] premiumWidths = {50, 100, 100, 100, 150, 70, 100, 100, 100, 100, 70, 70, 100, 100, 100};
+
+        for (int i = 0; i < regularTable.getColumnCount(); i++) {
+            regularTable.getColumnModel().getColumn(i).setPreferredWidth(regularWidths[i]);
+        }
+        for (int i = 0; i < premiumTable.getColumnCount(); i++) {
+            premiumTable.getColumnModel().getColumn(i).setPreferredWidth(premiumWidths[i]);
         }
+
+        // Add tables to scroll panes
+        JScrollPane regularScrollPane = new JScrollPane(regularTable);
+        JScrollPane premiumScrollPane = new JScrollPane(premiumTable);
+
+        // Add scroll panes to panels
+        regularPanel.add(regularScrollPane, BorderLayout.CENTER);
+        premiumPanel.add(premiumScrollPane, BorderLayout.CENTER);
+
+        // Add panels to frame
+        frame.add(regularPanel);
+        frame.add(premiumPanel);
+
+        // Set frame properties
+        frame.setSize(1200, 600);
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
+
+        // Parse the file in the background, filling the tables as rows arrive
+        btnReadFromFile.setEnabled(false);
+        ProgressMonitor monitor = new ProgressMonitor(frame, "Reading member details...", null, 0, 100);
+        ReadWorker worker = new ReadWorker(file, regularModel, premiumModel, monitor);
+        worker.execute();
     }
 
     /**
-     * Saves member details to a file
-     * Creates backup of existing file
-     * Formats data in a tabulated structure
-     * Handles file operation errors
+     * Imports members in bulk from a CSV file chosen by the user
+     * Rows are validated with the same rules as the form; rejected rows are written
+     * to an error file next to the CSV with the reason for each
+     * Runs on a background worker with a cancellable progress dialog
      */
-    private void saveToFile() {
-        // Check if there are members to save
-        if (gymMembers.isEmpty()) {
-            JOptionPane.showMessageDialog(null, "No members to save to file");
+    private void importCsv() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Import members from CSV");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
             return;
         }
 
-        try {
-            // Create file object and handle backup if file exists
-            File file = new File("MemberDetails.txt");
-            if (file.exists()) {
-                File backup = new File("MemberDetails_backup.txt");
-                if (backup.exists()) {
-                    backup.delete();
+        File file = chooser.getSelectedFile();
+        btnImportCsv.setEnabled(false);
+        ProgressMonitor monitor = new ProgressMonitor(this, "Importing members from " + file.getName() + "...", null, 0, 100);
+        ImportWorker worker = new ImportWorker(file, monitor);
+        worker.execute();
+    }
+
+    /**
+     * Posts a file of premium payments chosen by the user
+     * Each line is checked with the same rules as "Pay Due Amount"; rejected lines are written
+     * to an error file next to the payment file with the reason for each
+     * Runs on a background worker with a cancellable progress dialog
+     */
+    private void postPayments() {
+        JFileChooser chooser = new JFileChooser(new File("."));
+        chooser.setDialogTitle("Post payments from CSV (" + PaymentFileImporter.HEADER + ")");
+        chooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File file = chooser.getSelectedFile();
+        btnPostPayments.setEnabled(false);
+        ProgressMonitor monitor = new ProgressMonitor(this, "Posting payments from " + file.getName() + "...", null, 0, 100);
+        PaymentWorker worker = new PaymentWorker(file, monitor);
+        worker.execute();
+    }
+
+    /**
+     * SaveWorker - Writes the text export off the Event Dispatch Thread
+     * Takes a copy of the member list up front and reads each member under its registry lock,
+     * so check-ins and payments made during the save are safe and each row is consistent
+     * Writes to a temporary file first; the existing export is only replaced if the save completes
+     */
+    private class SaveWorker extends SwingWorker<Integer, Void> {
+        private final File file;                  // Destination export file
+        private final ProgressMonitor monitor;    // Progress dialog with Cancel button
+
+        /**
+         * @param file Destination export file
+         * @param monitor Progress dialog to update
+         */
+        SaveWorker(File file, ProgressMonitor monitor) {
+            this.file = file;
+            this.monitor = monitor;
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    monitor.setProgress((Integer) evt.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(false);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Formats every member into a temporary file, then swaps it into place
+         *
+         * @return Number of members written
+         * @throws IOException If the file cannot be written
+         */
+        @Override
+        protected Integer doInBackground() throws IOException {
+            long start = MemberMetrics.start();
+            try {
+                List<GymMember> gymMembers = registry.getMembers();
+                File temp = new File(file.getPath() + ".tmp");
+
+                MemberTextExporter exporter = new MemberTextExporter(registry);
+                int total = gymMembers.size();
+                MemberTextExporter.Result result = exporter.export(gymMembers, temp.toPath(), written -> {
+                    setProgress((int) (written * 100L / total));
+                    return !isCancelled();
+                });
+
+                if (result.cancelled || isCancelled()) {
+                    temp.delete();
+                    return 0;
                 }
-                file.renameTo(backup);
-            }
 
-            // Create new file writer
-            FileWriter writer = new FileWriter(file);
-
-            // Write header with proper tabulation
-            String headerFormat = "%-6s  %-20s  %-20s  %-12s  %-30s  %-8s  %-12s  %-20s  %-10s  %-15s  %-15s  %-15s  %-12s  %-15s  %-15s  %-15s\n";
-            writer.write(String.format(headerFormat,
-                    "ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
-                    "Start Date", "Type", "Plan/Trainer", "Price", "Status",
-                    "Full Pay", "Paid Amount", "Remaining", "Discount"));
-
-            // Add a line of dashes for visual separation
-            writer.write("-".repeat(250) + "\n");
-
-            // Write member details with same format
-            String dataFormat = "%-6d  %-20s  %-20s  %-12s  %-30s  %-8s  %-12s  %-20s  %-10s  %-15s  %-15s  %-15s  %-12s  %-15s  %-15s  %-15s\n";
-
-            for (GymMember member : gymMembers) {
-                String type = "";
-                String planOrTrainer = "";
-                String price = "";
-                String fullPayment = "N/A";
-                String paidAmount = "N/A";
-                String remainingAmount = "N/A";
-                String discountAmount = "N/A";
-
-                if (member instanceof RegularMember) {
-                    RegularMember rm = (RegularMember) member;
-                    type = "Regular";
-                    planOrTrainer = rm.getPlan();
-                    price = String.format("Rs. %.2f", rm.getPrice());
-                } else if (member instanceof PremiumMember) {
-                    PremiumMember pm = (PremiumMember) member;
-                    type = "Premium";
-                    planOrTrainer = pm.getPersonalTrainer();
-                    price = String.format("Rs. %.2f", pm.getPremiumCharge());
-                    fullPayment = String.valueOf(pm.isFullPayment());
-                    paidAmount = String.format("Rs. %.2f", pm.getPaidAmount());
-                    remainingAmount = String.format("Rs. %.2f", (pm.getPremiumCharge() - pm.getPaidAmount()));
-                    discountAmount = String.format("Rs. %.2f", pm.getDiscountAmount());
+                // Keep the previous export as a backup, then move the new one into place
+                if (file.exists()) {
+                    File backup = new File("MemberDetails_backup.txt");
+                    if (backup.exists()) {
+                        backup.delete();
+                    }
+                    file.renameTo(backup);
+                }
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Could not replace " + file.getName());
                 }
+                return gymMembers.size();
+            } finally {
+                MemberMetrics.record(MemberMetrics.SAVE_FILE, start);
+            }
+        }
 
-                writer.write(String.format(dataFormat,
-                        member.getId(),
-                        member.getName(),
-                        member.getLocation(),
-                        member.getPhone(),
-                        member.getEmail(),
-                        member.getGender(),
-                        member.getDob(),
-                        member.getMembershipStartDate(),
-                        type,
-                        planOrTrainer,
-                        price,
-                        member.isActive() ? "Active" : "Inactive",
-                        fullPayment,
-                        paidAmount,
-                        remainingAmount,
-                        discountAmount));
+        /**
+         * Reports the result once the save finishes or is cancelled
+         */
+        @Override
+        protected void done() {
+            monitor.close();
+            btnSaveToFile.setEnabled(true);
+            if (isCancelled()) {
+                JOptionPane.showMessageDialog(null, "Save cancelled. The previous file was left unchanged.");
+                return;
             }
+            try {
+                get();
+                JOptionPane.showMessageDialog(null, "Member details saved to file successfully.\nLocation: " + file.getAbsolutePath());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SecurityException) {
+                    JOptionPane.showMessageDialog(null, "Error: No permission to write to file. Please check file permissions.");
+                } else if (cause instanceof IOException) {
+                    JOptionPane.showMessageDialog(null, "Error saving to file: " + cause.getMessage() + "\nPlease make sure the file is not open in another program.");
+                } else {
+                    JOptionPane.showMessageDialog(null, "Unexpected error while saving: " + cause.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
-            // Add a closing line
-            writer.write("-".repeat(250) + "\n");
+    /**
+     * ReadWorker - Parses the text export off the Event Dispatch Thread
+     * Publishes rows in chunks so the tables fill in while the file is still being read
+     */
+    private class ReadWorker extends SwingWorker<Void, String[]> {
+        private static final int REGULAR_COLUMNS = 12;    // Columns in a Regular row of the export
+        private static final int PREMIUM_COLUMNS = 16;    // Columns in a Premium row of the export
+
+        private final File file;                          // Export file to parse
+        private final DefaultTableModel regularModel;     // Table receiving regular members
+        private final DefaultTableModel premiumModel;     // Table receiving premium members
+        private final ProgressMonitor monitor;            // Progress dialog with Cancel button
+
+        /**
+         * @param file Export file to parse
+         * @param regularModel Table model for regular members
+         * @param premiumModel Table model for premium members
+         * @param monitor Progress dialog to update
+         */
+        ReadWorker(File file, DefaultTableModel regularModel, DefaultTableModel premiumModel, ProgressMonitor monitor) {
+            this.file = file;
+            this.regularModel = regularModel;
+            this.premiumModel = premiumModel;
+            this.monitor = monitor;
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    monitor.setProgress((Integer) evt.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(false);
+                    }
+                }
+            });
+        }
 
-            writer.close();
-            JOptionPane.showMessageDialog(null, "Member details saved to file successfully.\nLocation: " + file.getAbsolutePath());
+        /**
+         * Splits each line into columns and publishes it, reporting progress by bytes read
+         * Member rows with too few columns stop the read so done() can report the file as damaged
+         *
+         * @return Nothing
+         * @throws IOException If the file cannot be read
+         * @throws IllegalArgumentException If a Regular or Premium row is missing columns
+         */
+        @Override
+        protected Void doInBackground() throws IOException {
+            long start = MemberMetrics.start();
+            try {
+                long fileSize = Math.max(1, file.length());
+                long bytesRead = 0;
+
+                try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                    // Skip header and separator lines
+                    reader.readLine(); // Skip header
+                    reader.readLine(); // Skip separator line
+
+                    String line;
+                    int lineNumber = 2;
+                    while (!isCancelled() && (line = reader.readLine()) != null && !line.startsWith("-")) {
+                        bytesRead += line.length() + 1;
+                        lineNumber++;
+                        String[] data = line.trim().split("\\s{2,}"); // Split by 2 or more spaces
+                        if (data.length >= 10) {
+                            int required = data[8].equals("Regular") ? REGULAR_COLUMNS
+                                    : data[8].equals("Premium") ? PREMIUM_COLUMNS : 0;
+                            if (data.length < required) {
+                                throw new IllegalArgumentException("Line " + lineNumber + " has " + data.length
+                                        + " columns, expected " + required);
+                            }
+                            publish(data);
+                        }
+                        setProgress((int) Math.min(100, bytesRead * 100 / fileSize));
+                    }
+                }
+                return null;
+            } finally {
+                MemberMetrics.record(MemberMetrics.READ_FILE, start);
+            }
+        }
+
+        /**
+         * Adds a chunk of parsed rows to the tables on the Event Dispatch Thread
+         *
+         * @param rows Rows parsed since the last call
+         */
+        @Override
+        protected void process(List<String[]> rows) {
+            for (String[] data : rows) {
+                // Check if it's a Regular or Premium member (column counts were checked when parsed)
+                if (data[8].equals("Regular")) {
+                    regularModel.addRow(new Object[]{
+                            data[0], data[1], data[2], data[3], data[4],
+                            data[5], data[6], data[7], data[9], data[10], data[11]
+                    });
+                } else if (data[8].equals("Premium")) {
+                    premiumModel.addRow(new Object[]{
+                            data[0], data[1], data[2], data[3], data[4],
+                            data[5], data[6], data[7], data[9], data[10], data[11],
+                            data[12], data[13], data[14], data[15]
+                    });
+                }
+            }
+        }
 
-        } catch (SecurityException e) {
-            JOptionPane.showMessageDialog(null, "Error: No permission to write to file. Please check file permissions.");
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error saving to file: " + e.getMessage() + "\nPlease make sure the file is not open in another program.");
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, "Unexpected error while saving: " + e.getMessage());
+        /**
+         * Reports read errors once parsing finishes
+         */
+        @Override
+        protected void done() {
+            monitor.close();
+            btnReadFromFile.setEnabled(true);
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    JOptionPane.showMessageDialog(null, "Error reading from file: " + cause.getMessage());
+                } else {
+                    JOptionPane.showMessageDialog(null, "Error processing file data: " + cause.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
     /**
-     * Reads and displays member details from file
-     * Creates separate tables for Regular and Premium members
-     * Formats data in an organized view
+     * ImportWorker - Runs a bulk CSV import off the Event Dispatch Thread
+     * Progress is measured in bytes of the CSV consumed; cancelling stops after the current
+     * chunk and keeps the members already imported
      */
-    private void readFromFile() {
-        try {
-            File file = new File("MemberDetails.txt");
-            if (!file.exists()) {
-                JOptionPane.showMessageDialog(null, "No member details file found");
+    private class ImportWorker extends SwingWorker<MemberCsvImporter.Result, Void> {
+        private final File file;                  // CSV file to import
+        private final File errorFile;             // Receives rejected rows
+        private final ProgressMonitor monitor;    // Progress dialog with Cancel button
+
+        /**
+         * @param file CSV file to import
+         * @param monitor Progress dialog to update
+         */
+        ImportWorker(File file, ProgressMonitor monitor) {
+            this.file = file;
+            this.errorFile = new File(file.getPath() + ".errors.csv");
+            this.monitor = monitor;
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    monitor.setProgress((Integer) evt.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(false);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Streams the CSV through the importer
+         *
+         * @return Import counts
+         * @throws IOException If the CSV cannot be read or the error file cannot be written
+         */
+        @Override
+        protected MemberCsvImporter.Result doInBackground() throws IOException {
+            long start = MemberMetrics.start();
+            try {
+                long fileSize = Math.max(1, file.length());
+                errorFile.delete();
+                MemberCsvImporter importer = new MemberCsvImporter(registry);
+                return importer.importFile(file.toPath(), errorFile.toPath(), (bytesRead, imported, rejected) -> {
+                    setProgress((int) Math.min(100, bytesRead * 100 / fileSize));
+                    return !isCancelled();
+                });
+            } finally {
+                MemberMetrics.record(MemberMetrics.IMPORT_CSV, start);
+            }
+        }
+
+        /**
+         * Reports the import counts once the import finishes
+         */
+        @Override
+        protected void done() {
+            monitor.close();
+            btnImportCsv.setEnabled(true);
+            if (isCancelled()) {
+                JOptionPane.showMessageDialog(null, "Import cancelled. Members imported before cancelling were kept.");
                 return;
             }
+            try {
+                MemberCsvImporter.Result result = get();
+                String message = result.imported + " members imported";
+                if (result.rejected > 0) {
+                    message += "\n" + result.rejected + " rows rejected, see " + errorFile.getAbsolutePath();
+                }
+                JOptionPane.showMessageDialog(null, message);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    JOptionPane.showMessageDialog(null, "Error importing file: " + cause.getMessage());
+                } else {
+                    JOptionPane.showMessageDialog(null, "Unexpected error while importing: " + cause.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
 
-            BufferedReader reader = new BufferedReader(new FileReader(file));
-
-            // Skip header and separator lines
-            reader.readLine(); // Skip header
-            reader.readLine(); // Skip separator line
-
-            // Create main frame with a better title
-            JFrame frame = new JFrame("Member Details from File");
-            frame.setLayout(new GridLayout(2, 1, 0, 10));  // 2 rows, 1 column, 10px vertical gap
-
-            // Create panels for Regular and Premium members
-            JPanel regularPanel = new JPanel(new BorderLayout());
-            JPanel premiumPanel = new JPanel(new BorderLayout());
-            regularPanel.setBorder(BorderFactory.createTitledBorder("Regular Members"));
-            premiumPanel.setBorder(BorderFactory.createTitledBorder("Premium Members"));
-
-            // Create table models for both types
-            DefaultTableModel regularModel = new DefaultTableModel(
-                    new String[]{"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
-                            "Start Date", "Plan", "Price", "Status"}, 0);
-
-            DefaultTableModel premiumModel = new DefaultTableModel(
-                    new String[]{"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
-                            "Start Date", "Trainer", "Price", "Status", "Full Pay", "Paid", "Remaining", "Discount"}, 0);
-
-            String line;
-            while ((line = reader.readLine()) != null && !line.startsWith("-")) {
-                String[] data = line.trim().split("\\s{2,}"); // Split by 2 or more spaces
-
-                // Check if it's a Regular or Premium member
-                if (data.length >= 10) {
-                    if (data[8].equals("Regular")) {
-                        regularModel.addRow(new Object[]{
-                                data[0], data[1], data[2], data[3], data[4],
-                                data[5], data[6], data[7], data[9], data[10], data[11]
-                        });
-                    } else if (data[8].equals("Premium")) {
-                        premiumModel.addRow(new Object[]{
-                                data[0], data[1], data[2], data[3], data[4],
-                                data[5], data[6], data[7], data[9], data[10], data[11],
-                                data[12], data[13], data[14], data[15]
-                        });
+    /**
+     * PaymentWorker - Posts a payment file off the Event Dispatch Thread
+     * Progress is measured in bytes of the file consumed; cancelling stops after the current
+     * batch and keeps the payments already posted
+     */
+    private class PaymentWorker extends SwingWorker<PaymentFileImporter.Result, Void> {
+        private final File file;                  // Payment file to post
+        private final File errorFile;             // Receives rejected lines
+        private final ProgressMonitor monitor;    // Progress dialog with Cancel button
+
+        /**
+         * @param file Payment file to post
+         * @param monitor Progress dialog to update
+         */
+        PaymentWorker(File file, ProgressMonitor monitor) {
+            this.file = file;
+            this.errorFile = new File(file.getPath() + ".errors.csv");
+            this.monitor = monitor;
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    monitor.setProgress((Integer) evt.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(false);
                     }
                 }
+            });
+        }
+
+        /**
+         * Streams the file through the importer
+         *
+         * @return Posting counts
+         * @throws IOException If the file cannot be read or the error file cannot be written
+         */
+        @Override
+        protected PaymentFileImporter.Result doInBackground() throws IOException {
+            long fileSize = Math.max(1, file.length());
+            errorFile.delete();
+            PaymentFileImporter importer = new PaymentFileImporter(registry);
+            return importer.importFile(file.toPath(), errorFile.toPath(), (bytesRead, posted, rejected) -> {
+                setProgress((int) Math.min(100, bytesRead * 100 / fileSize));
+                return !isCancelled();
+            });
+        }
+
+        /**
+         * Reports the posting counts once the file is done
+         */
+        @Override
+        protected void done() {
+            monitor.close();
+            btnPostPayments.setEnabled(true);
+            if (isCancelled()) {
+                JOptionPane.showMessageDialog(null, "Posting cancelled. Payments posted before cancelling were kept.");
+                return;
+            }
+            try {
+                PaymentFileImporter.Result result = get();
+                String message = String.format("%d payments posted (Rs. %.2f)", result.posted, result.postedMinor / 100.0);
+                if (result.rejected > 0) {
+                    message += "\n" + result.rejected + " lines rejected, see " + errorFile.getAbsolutePath();
+                }
+                JOptionPane.showMessageDialog(null, message);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    JOptionPane.showMessageDialog(null, "Error posting payments: " + cause.getMessage());
+                } else {
+                    JOptionPane.showMessageDialog(null, "Unexpected error while posting payments: " + cause.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            reader.close();
+        }
+    }
 
-            // Create tables with the models
-            JTable regularTable = new JTable(regularModel);
-            JTable premiumTable = new JTable(premiumModel);
+    /**
+     * Restores members from the last snapshot plus the journal of later changes
+     * Every change from then on is journaled so nothing is lost if the program stops
+     * Runs on a background worker so the window opens at once; the action buttons stay
+     * disabled until recovery finishes, so nothing is changed before the journal is attached
+     */
+    private void restoreMembers() {
+        setActionsEnabled(false);
+        new RecoveryWorker(new File("MemberDetails.snap"), new File("MemberDetails.journal")).execute();
+    }
 
-            // Set table properties for better readability
-            regularTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
-            premiumTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+    /**
+     * Enables or disables every action button
+     *
+     * @param enabled true to enable the buttons
+     */
+    private void setActionsEnabled(boolean enabled) {
+        JButton[] buttons = {btnAddRegularMember, btnAddPremiumMember, btnActivateMembership, btnDeactivateMembership,
+                btnMarkAttendance, btnUpgradePlan, btnCalculateDiscount, btnRevertRegularMember, btnRevertPremiumMember,
+                btnPayDueAmount, btnDisplay, btnClear, btnSaveToFile, btnReadFromFile, btnSaveSnapshot, btnLoadSnapshot,
+                btnImportCsv, btnFindMember, btnVisitReport, btnFinanceSummary, btnPostPayments, btnLeaderboard,
+                btnUpgradeCandidates};
+        for (JButton button : buttons) {
+            button.setEnabled(enabled);
+        }
+    }
 
-            // Set column widths
-            int[] regularWidths = {50, 100, 100, 100, 150, 70, 100, 100, 100, 100, 70};
-            int[] premiumWidths = {50, 100, 100, 100, 150, 70, 100, 100, 100, 100, 70, 70, 100, 100, 100};
+    /**
+     * RecoveryWorker - Loads the snapshot and replays the journal off the Event Dispatch Thread
+     */
+    private class RecoveryWorker extends SwingWorker<Void, Void> {
+        private final File snapshotFile;          // Last snapshot, may be missing
+        private final File journalFile;           // Journal of changes since the snapshot
+
+        /**
+         * @param snapshotFile Last snapshot, may be missing
+         * @param journalFile Journal of changes since the snapshot
+         */
+        RecoveryWorker(File snapshotFile, File journalFile) {
+            this.snapshotFile = snapshotFile;
+            this.journalFile = journalFile;
+        }
 
-            for (int i = 0; i < regularTable.getColumnCount(); i++) {
-                regularTable.getColumnModel().getColumn(i).setPreferredWidth(regularWidths[i]);
-            }
-            for (int i = 0; i < premiumTable.getColumnCount(); i++) {
-                premiumTable.getColumnModel().getColumn(i).setPreferredWidth(premiumWidths[i]);
+        /**
+         * Restores the members and attaches the journal
+         *
+         * @return Nothing
+         * @throws IOException If the snapshot or journal cannot be read or the journal opened
+         */
+        @Override
+        protected Void doInBackground() throws IOException {
+            MemberJournal.recover(registry, snapshotFile.toPath(), journalFile.toPath());
+            buildLookupIndexesInBackground();
+            return null;
+        }
+
+        /**
+         * Re-enables the buttons and reports a failed recovery
+         */
+        @Override
+        protected void done() {
+            setActionsEnabled(true);
+            try {
+                get();
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(null, "Error restoring saved members: " + e.getCause().getMessage()
+                        + "\nChanges in this session will not be journaled.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }
+    }
+
+    /**
+     * Builds the registry's phone, email and name indexes on a background thread after a load
+     * Check-ins work meanwhile; a lookup or add made before it finishes waits for the build
+     */
+    private void buildLookupIndexesInBackground() {
+        Thread builder = new Thread(registry::buildLookupIndexes, "lookup-index-build");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    /**
+     * Publishes operation metrics over JMX and appends a metrics report to
+     * MemberMetrics.log every minute
+     */
+    private void startMetrics() {
+        try {
+            MemberMetrics.registerMBeans();
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBeans: " + e.getMessage());
+        }
+        MemberMetrics.startDump(new File("MemberMetrics.log").toPath(), 60);
+    }
 
-            // Add tables to scroll panes
-            JScrollPane regularScrollPane = new JScrollPane(regularTable);
-            JScrollPane premiumScrollPane = new JScrollPane(premiumTable);
+    /**
+     * Saves every member, including attendance and payment details, to the binary snapshot
+     * Unlike the text export this keeps all fields so members can be fully reloaded
+     * Journal records covered by the new snapshot are discarded
+     * Runs on a background worker so a large registry does not freeze the window
+     */
+    private void saveSnapshot() {
+        if (registry.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "No members to save to snapshot");
+            return;
+        }
+
+        btnSaveSnapshot.setEnabled(false);
+        btnLoadSnapshot.setEnabled(false);
+        new SnapshotSaveWorker(new File("MemberDetails.snap")).execute();
+    }
 
-            // Add scroll panes to panels
-            regularPanel.add(regularScrollPane, BorderLayout.CENTER);
-            premiumPanel.add(premiumScrollPane, BorderLayout.CENTER);
+    /**
+     * Replaces the current members with those stored in the binary snapshot
+     * Runs on a background worker so a large snapshot does not freeze the window
+     */
+    private void loadSnapshot() {
+        File file = new File("MemberDetails.snap");
+        if (!file.exists()) {
+            JOptionPane.showMessageDialog(null, "No member snapshot found");
+            return;
+        }
+
+        btnSaveSnapshot.setEnabled(false);
+        btnLoadSnapshot.setEnabled(false);
+        new SnapshotLoadWorker(file).execute();
+    }
 
-            // Add panels to frame
-            frame.add(regularPanel);
-            frame.add(premiumPanel);
+    /**
+     * SnapshotSaveWorker - Writes the binary snapshot (or a journal checkpoint) off the Event Dispatch Thread
+     */
+    private class SnapshotSaveWorker extends SwingWorker<Integer, Void> {
+        private final File file;                  // Snapshot file to replace
+
+        /**
+         * @param file Snapshot file to replace
+         */
+        SnapshotSaveWorker(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Checkpoints through the journal if one is attached, otherwise writes the snapshot directly
+         *
+         * @return Number of members written
+         * @throws IOException If the journal cannot be rotated or the snapshot written
+         */
+        @Override
+        protected Integer doInBackground() throws IOException {
+            MemberJournal journal = registry.getJournal();
+            return journal != null ? journal.checkpoint(registry, file.toPath())
+                    : MemberSnapshot.write(registry, file.toPath());
+        }
+
+        /**
+         * Reports the result once the snapshot is written
+         */
+        @Override
+        protected void done() {
+            btnSaveSnapshot.setEnabled(true);
+            btnLoadSnapshot.setEnabled(true);
+            try {
+                int count = get();
+                JOptionPane.showMessageDialog(null, count + " members saved to snapshot.\nLocation: " + file.getAbsolutePath());
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(null, "Error saving snapshot: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * SnapshotLoadWorker - Reads the binary snapshot and replaces the registry's members off the Event Dispatch Thread
+     */
+    private class SnapshotLoadWorker extends SwingWorker<Integer, Void> {
+        private final File file;                  // Snapshot file to load
+
+        /**
+         * @param file Snapshot file to load
+         */
+        SnapshotLoadWorker(File file) {
+            this.file = file;
+        }
 
-            // Set frame properties
-            frame.setSize(1200, 600);
-            frame.setLocationRelativeTo(null);
-            frame.setVisible(true);
+        /**
+         * Replaces the members and drops the journal records the snapshot makes obsolete
+         *
+         * @return Number of members loaded
+         * @throws IOException If the snapshot is corrupt or the journal cannot be truncated
+         */
+        @Override
+        protected Integer doInBackground() throws IOException {
+            // Members now match the snapshot exactly, so older journal records no longer apply;
+            // the registry drops them in the same step so background imports are not lost
+            // Read into a fresh log and ledger; the registry installs them with the members under its write lock
+            AttendanceLog visits = new AttendanceLog();
+            PaymentLedger payments = new PaymentLedger();
+            int count = registry.replaceMembersFromSnapshot(MemberSnapshot.read(file.toPath(), visits, payments),
+                    visits, payments);
+            buildLookupIndexesInBackground();
+            return count;
+        }
 
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(null, "Error reading from file: " + e.getMessage());
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, "Error processing file data: " + e.getMessage());
+        /**
+         * Reports the result once the snapshot is loaded
+         */
+        @Override
+        protected void done() {
+            btnSaveSnapshot.setEnabled(true);
+            btnLoadSnapshot.setEnabled(true);
+            try {
+                int count = get();
+                JOptionPane.showMessageDialog(null, count + " members loaded from snapshot");
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(null, "Error loading snapshot: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -568,7 +1146,7 @@ public class GymGUI extends JFrame implements ActionListener {
     private boolean validateInputForRegular() {
         if (!validateBasicFields()) return false;
         if (txtReferralSource.getText().isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Please enter referral source");
+            JOptionPane.showMessageDialog(null, MemberValidator.REFERRAL_SOURCE_REQUIRED);
             return false;
         }
         return true;
@@ -582,7 +1160,7 @@ public class GymGUI extends JFrame implements ActionListener {
     private boolean validateInputForPremium() {
         if (!validateBasicFields()) return false;
         if (txtTrainerName.getText().isEmpty()) {
-            JOptionPane.showMessageDialog(null, "Please enter trainer name");
+            JOptionPane.showMessageDialog(null, MemberValidator.TRAINER_NAME_REQUIRED);
             return false;
         }
         return true;
@@ -600,74 +1178,14 @@ public class GymGUI extends JFrame implements ActionListener {
      * @return true if all basic fields are valid, false otherwise
      */
     private boolean validateBasicFields() {
-        if (txtId.getText().isEmpty() || txtName.getText().isEmpty() ||
-                txtLocation.getText().isEmpty() || txtPhone.getText().isEmpty() ||
-                txtEmail.getText().isEmpty() || (!rbMale.isSelected() && !rbFemale.isSelected()) ||
-                txtDob.getText().isEmpty() || txtDob.getText().equals("YYYY/MM/DD") ||
-                txtMembershipStartDate.getText().isEmpty() || txtMembershipStartDate.getText().equals("YYYY/MM/DD")) {
-            JOptionPane.showMessageDialog(null, "Please fill all required fields");
-            return false;
-        }
-
-        // Validate ID
-        try {
-            Integer.parseInt(txtId.getText());
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(null, "Invalid ID format");
-            return false;
-        }
-
-        // Validate phone
-        if (!validatePhoneNumber(txtPhone.getText())) {
-            JOptionPane.showMessageDialog(null, "Invalid phone number format");
-            return false;
-        }
-
-        // Validate email
-        if (!ValidateEmail(txtEmail.getText())) {
-            JOptionPane.showMessageDialog(null, "Invalid email format");
-            return false;
-        }
-
-        // Validate DOB
-        if (!validateDate(txtDob.getText())) {
-            JOptionPane.showMessageDialog(null, "Invalid Date of Birth format (YYYY/MM/DD)");
-            return false;
-        }
-
-        // Validate Membership Start Date
-        if (!validateDate(txtMembershipStartDate.getText())) {
-            JOptionPane.showMessageDialog(null, "Invalid Membership Start Date format (YYYY/MM/DD)");
-            return false;
-        }
-
-        // Validate age requirement (at least 10 years between DOB and membership start)
-        try {
-            String[] dobParts = txtDob.getText().split("/");
-            String[] msdParts = txtMembershipStartDate.getText().split("/");
-
-            int dobYear = Integer.parseInt(dobParts[0]);
-            int msdYear = Integer.parseInt(msdParts[0]);
-            int dobMonth = Integer.parseInt(dobParts[1]);
-            int msdMonth = Integer.parseInt(msdParts[1]);
-            int dobDay = Integer.parseInt(dobParts[2]);
-            int msdDay = Integer.parseInt(msdParts[2]);
-
-            // Calculate age at membership start
-            int age = msdYear - dobYear;
-            if (msdMonth < dobMonth || (msdMonth == dobMonth && msdDay < dobDay)) {
-                age--;
-            }
-
-            if (age < 10) {
-                JOptionPane.showMessageDialog(null, "Member must be at least 10 years old to start membership");
-                return false;
-            }
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(null, "Error calculating age requirement");
+        String gender = rbMale.isSelected() ? "Male" : rbFemale.isSelected() ? "Female" : "";
+        String error = MemberValidator.validateBasicFields(txtId.getText(), txtName.getText(),
+                txtLocation.getText(), txtPhone.getText(), txtEmail.getText(), gender,
+                txtDob.getText(), txtMembershipStartDate.getText());
+        if (error != null) {
+            JOptionPane.showMessageDialog(null, error);
             return false;
         }
-
         return true;
     }
 
@@ -769,6 +1287,16 @@ public class GymGUI extends JFrame implements ActionListener {
         gymGbc.gridx = 3;
         inputPanel.add(neTxtPremiumPlanPrice, gymGbc);
 
+        gymGbc.gridx = 0;
+        gymGbc.gridy = 8;
+        inputPanel.add(lblSearchName, gymGbc);
+        gymGbc.gridx = 1;
+        inputPanel.add(txtSearchName, gymGbc);
+        gymGbc.gridx = 2;
+        inputPanel.add(lblSearchResults, gymGbc);
+        gymGbc.gridx = 3;
+        inputPanel.add(cbSearchResults, gymGbc);
+
         //Creating new panel for buttons
         JPanel buttonPanel = new JPanel();
         buttonPanel.setLayout(new GridBagLayout());
@@ -811,6 +1339,30 @@ public class GymGUI extends JFrame implements ActionListener {
         buttonPanel.add(btnSaveToFile, btnGbc);
         btnGbc.gridx = 1;
         buttonPanel.add(btnClear, btnGbc);
+        btnGbc.gridx = 2;
+        buttonPanel.add(btnSaveSnapshot, btnGbc);
+
+        btnGbc.gridx = 0;
+        btnGbc.gridy = 5;
+        buttonPanel.add(btnLoadSnapshot, btnGbc);
+        btnGbc.gridx = 1;
+        buttonPanel.add(btnImportCsv, btnGbc);
+        btnGbc.gridx = 2;
+        buttonPanel.add(btnFindMember, btnGbc);
+
+        btnGbc.gridx = 0;
+        btnGbc.gridy = 6;
+        buttonPanel.add(btnFinanceSummary, btnGbc);
+        btnGbc.gridx = 1;
+        buttonPanel.add(btnVisitReport, btnGbc);
+        btnGbc.gridx = 2;
+        buttonPanel.add(btnPostPayments, btnGbc);
+
+        btnGbc.gridx = 0;
+        btnGbc.gridy = 7;
+        buttonPanel.add(btnLeaderboard, btnGbc);
+        btnGbc.gridx = 1;
+        buttonPanel.add(btnUpgradeCandidates, btnGbc);
 
         //creating a frame and adding panel to the frame
         setLayout(new GridLayout(2, 1));
@@ -820,10 +1372,12 @@ public class GymGUI extends JFrame implements ActionListener {
 
     /**
      * Creates a new regular member with the current input values
-     * Adds the member to the gymMembers collection
-     * Clears input fields after successful addition
+     * Adds the member to the member registry
+     * Clears input fields after successful addition; on failure shows why and keeps them filled
+     *
+     * @return true if the member was added
      */
-    private void addRegularMember() {
+    private boolean addRegularMember() {
         try {
             int id = Integer.parseInt(txtId.getText());
             String name = txtName.getText();
@@ -837,19 +1391,27 @@ public class GymGUI extends JFrame implements ActionListener {
 
             RegularMember newMember = new RegularMember(id, name, location, phone, email,
                     gender, dob, membershipStartDate, referralSource);
-            gymMembers.add(newMember);
+            byte result = registry.tryAddMember(newMember);
+            if (result != MemberRegistry.ADD_OK) {
+                JOptionPane.showMessageDialog(null, MemberRegistry.addResultMessage(result));
+                return false;
+            }
             clearFields();
+            return true;
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter valid numeric values");
+            return false;
         }
     }
 
     /**
      * Creates a new premium member with the current input values
-     * Adds the member to the gymMembers collection
-     * Clears input fields after successful addition
+     * Adds the member to the member registry
+     * Clears input fields after successful addition; on failure shows why and keeps them filled
+     *
+     * @return true if the member was added
      */
-    private void addPremiumMember() {
+    private boolean addPremiumMember() {
         try {
             int id = Integer.parseInt(txtId.getText());
             String name = txtName.getText();
@@ -863,10 +1425,337 @@ public class GymGUI extends JFrame implements ActionListener {
 
             PremiumMember newMember = new PremiumMember(id, name, location, phone, email,
                     gender, dob, membershipStartDate, trainerName);
-            gymMembers.add(newMember);
+            byte result = registry.tryAddMember(newMember);
+            if (result != MemberRegistry.ADD_OK) {
+                JOptionPane.showMessageDialog(null, MemberRegistry.addResultMessage(result));
+                return false;
+            }
             clearFields();
+            return true;
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter valid numeric values");
+            return false;
+        }
+    }
+
+    /**
+     * Looks up a member by the phone number (or, if empty, the email) in the form
+     * Shows the member's details and fills in the ID field for follow-up operations
+     */
+    private void findMemberByContact() {
+        String phone = txtPhone.getText();
+        String email = txtEmail.getText();
+        if (phone.isEmpty() && email.isEmpty()) {
+            JOptionPane.showMessageDialog(null, "Please enter a phone number or email to search");
+            return;
+        }
+
+        GymMember found = !phone.isEmpty() ? registry.findByPhone(phone) : registry.findByEmail(email);
+        if (found == null) {
+            JOptionPane.showMessageDialog(null, MemberRegistry.MEMBER_NOT_FOUND);
+            return;
+        }
+
+        String[] details = new String[1];
+        registry.readMember(found, member -> details[0] = "ID: " + member.getId()
+                + "\nName: " + member.getName()
+                + "\nType: " + (member instanceof PremiumMember ? "Premium" : "Regular")
+                + "\nPhone: " + member.getPhone()
+                + "\nEmail: " + member.getEmail()
+                + "\nStatus: " + (member.isActive() ? "Active" : "Inactive")
+                + "\nAttendance: " + member.getAttendance()
+                + "\nLast visit: " + formatVisit(member.getLastVisit()));
+        if (found instanceof PremiumMember) {
+            details[0] += "\n" + formatPayments(found.getId());
+        }
+        txtId.setText(String.valueOf(found.getId()));
+        JOptionPane.showMessageDialog(null, details[0]);
+    }
+
+    /**
+     * Lists a premium member's most recent payment ledger entries, newest first
+     *
+     * @param id Premium member ID
+     * @return Multi-line payment history
+     */
+    private String formatPayments(int id) {
+        StringBuilder history = new StringBuilder("Payments:");
+        int[] shown = new int[1];
+        registry.getPaymentLedger().forEachEntry(id, (entry, amountMinor, timeMillis, kind) -> {
+            if (shown[0]++ < PAYMENTS_SHOWN) {
+                String label = kind == PaymentLedger.KIND_REVERSAL ? "reversal"
+                        : kind == PaymentLedger.KIND_OPENING ? "opening balance" : "payment";
+                history.append(String.format("%n  %s  %-15s Rs. %,.2f",
+                        timeMillis == 0 ? "-" : formatVisit(timeMillis), label, amountMinor / 100.0));
+            }
+        });
+        if (shown[0] == 0) {
+            history.append(" none");
+        } else if (shown[0] > PAYMENTS_SHOWN) {
+            history.append(String.format("%n  ... %d older entries", shown[0] - PAYMENTS_SHOWN));
+        }
+        return history.toString();
+    }
+
+    /**
+     * Shows plan revenue per tier, premium payments and discounts from the registry's running totals
+     */
+    private void showFinanceSummary() {
+        RevenueTotals.Summary summary = registry.getFinanceSummary();
+        StringBuilder report = new StringBuilder("Regular plans:\n");
+        for (int tier = 0; tier < RevenueTotals.TIERS; tier++) {
+            if (tier == RevenueTotals.TIER_OTHER && summary.getTierMembers(tier) == 0) {
+                continue;
+            }
+            report.append(String.format("  %-9s %6d members   Rs. %,.2f%n", RevenueTotals.tierName(tier),
+                    summary.getTierMembers(tier), summary.getTierRevenue(tier)));
+        }
+        report.append(String.format("  Total plan revenue: Rs. %,.2f%n", summary.getPlanRevenue()));
+        report.append(String.format("%nPremium (%d members, %d fully paid):%n",
+                summary.getPremiumMembers(), summary.getFullyPaidMembers()));
+        report.append(String.format("  Charged: Rs. %,.2f%n", summary.getPremiumCharged()));
+        report.append(String.format("  Collected: Rs. %,.2f%n", summary.getPremiumCollected()));
+        report.append(String.format("  Outstanding: Rs. %,.2f%n", summary.getPremiumOutstanding()));
+        report.append(String.format("  Discounts granted: Rs. %,.2f (%d members)",
+                summary.getDiscountsGranted(), summary.getDiscountedMembers()));
+        JOptionPane.showMessageDialog(null, report.toString());
+    }
+
+    /**
+     * Shows the top members by loyalty points overall and per membership type
+     * If the ID field holds a registered member, also shows their rank and the members within
+     * RIVAL_RANGE points of them; every figure comes from the registry's leaderboard, not a sort
+     */
+    private void showLeaderboard() {
+        LoyaltyLeaderboard board = registry.getLoyaltyLeaderboard();
+        StringBuilder report = new StringBuilder();
+        String[] titles = {"Overall", "Regular", "Premium"};
+        int[] boards = {LoyaltyLeaderboard.ALL, LoyaltyLeaderboard.REGULAR, LoyaltyLeaderboard.PREMIUM};
+        int[] leaders = new int[LEADERS_SHOWN];
+        for (int b = 0; b < boards.length; b++) {
+            report.append(b == 0 ? "" : "\n").append(titles[b]).append(" (")
+                    .append(board.size(boards[b])).append(" members):\n");
+            int count = board.getTop(boards[b], 0, leaders);
+            for (int i = 0; i < count; i++) {
+                appendLeader(report, board, leaders[i], boards[b]);
+            }
+        }
+
+        String idText = txtId.getText().trim();
+        if (!idText.isEmpty()) {
+            int id = Integer.parseInt(idText);
+            GymMember member = registry.findMember(id);
+            if (member == null) {
+                report.append("\nMember ").append(id).append(": not found");
+            } else {
+                int typeBoard = member instanceof PremiumMember ? LoyaltyLeaderboard.PREMIUM : LoyaltyLeaderboard.REGULAR;
+                report.append(String.format("%nMember %d (%s): %d points, rank %d of %d overall, %d of %d %s%n",
+                        id, member.getName(), board.getPoints(id),
+                        board.rankOf(id, LoyaltyLeaderboard.ALL), board.size(LoyaltyLeaderboard.ALL),
+                        board.rankOf(id, typeBoard), board.size(typeBoard), titles[typeBoard].toLowerCase()));
+                int[] rivals = new int[RIVALS_SHOWN];
+                int count = board.getWithin(id, RIVAL_RANGE, LoyaltyLeaderboard.ALL, rivals);
+                report.append(String.format("Within %d points: %d members%n", RIVAL_RANGE,
+                        board.countWithin(id, RIVAL_RANGE, LoyaltyLeaderboard.ALL)));
+                for (int i = 0; i < count; i++) {
+                    appendLeader(report, board, rivals[i], LoyaltyLeaderboard.ALL);
+                }
+            }
+        }
+        JOptionPane.showMessageDialog(null, report.toString());
+    }
+
+    /**
+     * Shows how many regular members can be offered an upgrade (active, at their attendance limit,
+     * still on the basic plan) and lists the first CANDIDATES_SHOWN of them, read from the registry's
+     * upgrade feed rather than a scan
+     */
+    private void showUpgradeCandidates() {
+        UpgradeEligibilityFeed feed = registry.getUpgradeFeed();
+        int[] ids = new int[CANDIDATES_SHOWN];
+        int count = feed.getCandidates(0, ids);
+        StringBuilder report = new StringBuilder("Upgrade candidates: ").append(feed.size());
+        for (int i = 0; i < count; i++) {
+            GymMember member = registry.findMember(ids[i]);
+            report.append(String.format("%n  %-24s (%d)  %s", member == null ? "?" : member.getName(), ids[i],
+                    member == null ? "" : member.getPhone()));
+        }
+        if (feed.size() > count) {
+            report.append(String.format("%n  ... %d more", feed.size() - count));
+        }
+        JOptionPane.showMessageDialog(null, report.toString());
+    }
+
+    /**
+     * Appends one "rank. name (ID) points" line of the leaderboard
+     *
+     * @param report Report being built
+     * @param board Leaderboard
+     * @param id Member ID
+     * @param which Board the rank is taken from
+     */
+    private void appendLeader(StringBuilder report, LoyaltyLeaderboard board, int id, int which) {
+        GymMember member = registry.findMember(id);
+        report.append(String.format("  %4d. %-24s (%d)  %,d points%n", board.rankOf(id, which),
+                member == null ? "?" : member.getName(), id, board.getPoints(id)));
+    }
+
+    /**
+     * Shows visits today and over the last week, the busiest hours of the week and how long
+     * members have stayed away; every figure is read from the attendance log's rollups
+     */
+    private void showVisitReport() {
+        AttendanceLog log = registry.getAttendanceLog();
+        int today = EpochDays.today();
+        StringBuilder report = new StringBuilder();
+        report.append("Visits today: ").append(log.countOnDay(today)).append('\n');
+
+        int[] days = new int[7];
+        log.dailyCounts(today - 6, days);
+        report.append("\nLast 7 days:\n");
+        for (int i = 0; i < days.length; i++) {
+            int day = today - 6 + i;
+            report.append("  ").append(DAY_NAMES[Math.floorMod(day + 3, 7)]).append(' ')
+                    .append(EpochDays.format(day)).append(": ").append(days[i]).append('\n');
+        }
+
+        // Three busiest hours of the week, all time
+        long[] week = new long[AttendanceLog.HOURS_PER_WEEK];
+        log.hourOfWeekCounts(week);
+        report.append("\nBusiest hours (all time):\n");
+        for (int rank = 0; rank < 3; rank++) {
+            int best = 0;
+            for (int h = 1; h < week.length; h++) {
+                if (week[h] > week[best]) {
+                    best = h;
+                }
+            }
+            if (week[best] == 0) {
+                break;
+            }
+            report.append(String.format("  %s %02d:00  %d visits%n", DAY_NAMES[best / 24], best % 24, week[best]));
+            week[best] = 0;
+        }
+
+        int[] inactive = log.inactivityHistogram(today, INACTIVITY_DAYS);
+        report.append("\nMembers by last visit:\n");
+        report.append("  Within ").append(INACTIVITY_DAYS[0]).append(" days: ").append(inactive[0]).append('\n');
+        for (int i = 1; i < INACTIVITY_DAYS.length; i++) {
+            report.append("  ").append(INACTIVITY_DAYS[i - 1]).append('-').append(INACTIVITY_DAYS[i] - 1)
+                    .append(" days ago: ").append(inactive[i]).append('\n');
+        }
+        report.append("  ").append(INACTIVITY_DAYS[INACTIVITY_DAYS.length - 1]).append("+ days ago: ")
+                .append(inactive[INACTIVITY_DAYS.length]).append('\n');
+        report.append("  Never: ").append(inactive[INACTIVITY_DAYS.length + 1]);
+        JOptionPane.showMessageDialog(null, report.toString());
+    }
+
+    /**
+     * @param lastVisit Check-in time (epoch milliseconds), 0 if none
+     * @return Local date and time of the visit, or "Never"
+     */
+    private static String formatVisit(long lastVisit) {
+        if (lastVisit == 0) {
+            return "Never";
+        }
+        return VISIT_FORMAT.format(java.time.Instant.ofEpochMilli(lastVisit).atZone(java.time.ZoneId.systemDefault()));
+    }
+
+    /**
+     * Starts a name search for the text in the search field, replacing any search still running
+     * Called by the debounce timer on the Event Dispatch Thread
+     */
+    private void startNameSearch() {
+        if (searchWorker != null) {
+            searchWorker.cancel(false);
+        }
+        String query = txtSearchName.getText();
+        if (query.trim().isEmpty()) {
+            searchWorker = null;
+            showSearchResults(new int[0], new String[0]);
+            return;
+        }
+        searchWorker = new NameSearchWorker(query);
+        searchWorker.execute();
+    }
+
+    /**
+     * Replaces the entries of the results list without selecting a member
+     *
+     * @param ids Member ID per entry
+     * @param labels Text per entry
+     */
+    private void showSearchResults(int[] ids, String[] labels) {
+        updatingSearchResults = true;
+        try {
+            searchResultIds = ids;
+            cbSearchResults.setModel(new DefaultComboBoxModel<>(labels));
+            cbSearchResults.setSelectedIndex(-1);
+        } finally {
+            updatingSearchResults = false;
+        }
+    }
+
+    /**
+     * Fills in the ID field with the member picked from the results list
+     */
+    private void selectSearchResult() {
+        int selected = cbSearchResults.getSelectedIndex();
+        if (!updatingSearchResults && selected >= 0 && selected < searchResultIds.length) {
+            txtId.setText(String.valueOf(searchResultIds[selected]));
+        }
+    }
+
+    /**
+     * NameSearchWorker - Looks up member names off the Event Dispatch Thread
+     * Results are shown only if the search field still holds the query they were computed for,
+     * so a slow search never overwrites the results of newer typing
+     */
+    private class NameSearchWorker extends SwingWorker<String[], Void> {
+        private final String query;               // Search field text when the search started
+        private final int[] ids;                  // Matching member IDs, best first
+
+        /**
+         * @param query Text to search for
+         */
+        NameSearchWorker(String query) {
+            this.query = query;
+            this.ids = new int[SEARCH_RESULTS];
+        }
+
+        /**
+         * Queries the name index and reads each match's name
+         *
+         * @return "ID - Name" label per match
+         */
+        @Override
+        protected String[] doInBackground() {
+            int count = registry.searchByName(query, ids);
+            String[] labels = new String[count];
+            for (int i = 0; i < count; i++) {
+                GymMember found = registry.findMember(ids[i]);
+                labels[i] = ids[i] + " - " + (found == null ? "" : found.getName());
+            }
+            return labels;
+        }
+
+        /**
+         * Shows the matches if this is still the latest search
+         */
+        @Override
+        protected void done() {
+            if (isCancelled() || searchWorker != this || !query.equals(txtSearchName.getText())) {
+                return;
+            }
+            searchWorker = null;
+            try {
+                String[] labels = get();
+                showSearchResults(Arrays.copyOf(ids, labels.length), labels);
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(null, "Error searching names: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -877,14 +1766,7 @@ public class GymGUI extends JFrame implements ActionListener {
     private void activateMembership() {
         try {
             int id = Integer.parseInt(txtId.getText());
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    member.activateMembership();
-                    JOptionPane.showMessageDialog(null, "Membership activated successfully");
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(null, "Member not found");
+            JOptionPane.showMessageDialog(null, registry.activateMembership(id));
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
         }
@@ -897,14 +1779,7 @@ public class GymGUI extends JFrame implements ActionListener {
     private void deactivateMembership() {
         try {
             int id = Integer.parseInt(txtId.getText());
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    member.deactivateMembership();
-                    JOptionPane.showMessageDialog(null, "Membership deactivated successfully");
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(null, "Member not found");
+            JOptionPane.showMessageDialog(null, registry.deactivateMembership(id));
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
         }
@@ -918,25 +1793,7 @@ public class GymGUI extends JFrame implements ActionListener {
     private void markAttendance() {
         try {
             int id = Integer.parseInt(txtId.getText());
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    if (member.isActive()) {
-                        if (member instanceof RegularMember) {
-                            RegularMember regularMember = (RegularMember) member;
-                            if (regularMember.getAttendance() >= regularMember.getAttendanceLimit()) {
-                                JOptionPane.showMessageDialog(null, "Attendance limit of 30 visits reached");
-                                return;
-                            }
-                        }
-                        member.markAttendance();
-                        JOptionPane.showMessageDialog(null, "Attendance marked successfully");
-                    } else {
-                        JOptionPane.showMessageDialog(null, "Member is not active");
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(null, "Member not found");
+            JOptionPane.showMessageDialog(null, registry.markAttendance(id));
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
         }
@@ -951,24 +1808,7 @@ public class GymGUI extends JFrame implements ActionListener {
         try {
             int id = Integer.parseInt(txtId.getText());
             String newPlan = (String) cbPlan.getSelectedItem();
-
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    if (member instanceof RegularMember) {
-                        RegularMember regularMember = (RegularMember) member;
-                        if (regularMember.isActive()) {
-                            String result = regularMember.upgradePlan(newPlan);
-                            JOptionPane.showMessageDialog(null, result);
-                        } else {
-                            JOptionPane.showMessageDialog(null, "Member must be active to upgrade plan");
-                        }
-                    } else {
-                        JOptionPane.showMessageDialog(null, "Only regular members can upgrade plans");
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(null, "Member not found");
+            JOptionPane.showMessageDialog(null, registry.upgradePlan(id, newPlan));
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
         }
@@ -982,27 +1822,12 @@ public class GymGUI extends JFrame implements ActionListener {
     private void calculateDiscount() {
         try {
             int id = Integer.parseInt(txtId.getText());
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    try {
-                        // First try to cast as RegularMember to demonstrate proper type checking
-                        RegularMember regularMember = (RegularMember) member;
-                        JOptionPane.showMessageDialog(null, "Regular members are not eligible for discounts");
-                        neTxtDiscountPrice.setText("");
-                    } catch (ClassCastException e) {
-                        // If casting to RegularMember fails, try PremiumMember
-                        if (member instanceof PremiumMember) {
-                            PremiumMember premiumMember = (PremiumMember) member;
-                            String result = premiumMember.calculateDiscount();
-                            JOptionPane.showMessageDialog(null, result);
-                            neTxtDiscountPrice.setText(String.format("Rs. %.2f", premiumMember.getDiscountAmount()));
-                        }
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(null, "Member not found");
-            neTxtDiscountPrice.setText("");
+            String result = registry.calculateDiscount(id);
+            JOptionPane.showMessageDialog(null, result);
+
+            // Only premium members have a discount to show
+            double discount = registry.getDiscountAmount(id);
+            neTxtDiscountPrice.setText(discount >= 0 ? String.format("Rs. %.2f", discount) : "");
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
             neTxtDiscountPrice.setText("");
@@ -1027,6 +1852,7 @@ public class GymGUI extends JFrame implements ActionListener {
         txtPaidAmount.setText("");
         txtRemovalReason.setText("");
         txtTrainerName.setText("");
+        txtSearchName.setText("");
         neTxtDiscountPrice.setText("");
         genderGroup.clearSelection();
         cbPlan.setSelectedIndex(0);
@@ -1035,26 +1861,14 @@ public class GymGUI extends JFrame implements ActionListener {
     /**
      * Displays all members in a tabulated format
      * Creates separate tables for Regular and Premium members
-     * Shows relevant information for each member type
+     * Tables read rows lazily from the registry and refresh every second while open
      */
     private void displayMembers() {
-        if (gymMembers.isEmpty()) {
+        if (registry.isEmpty()) {
             JOptionPane.showMessageDialog(null, "No members to display");
             return;
         }
-
-        // Create lists to separate Regular and Premium members
-        ArrayList<RegularMember> regularMembers = new ArrayList<>();
-        ArrayList<PremiumMember> premiumMembers = new ArrayList<>();
-
-        // Separate members by type
-        for (GymMember member : gymMembers) {
-            if (member instanceof RegularMember) {
-                regularMembers.add((RegularMember) member);
-            } else if (member instanceof PremiumMember) {
-                premiumMembers.add((PremiumMember) member);
-            }
-        }
+        long start = MemberMetrics.start();
 
         // Create main frame
         JFrame frame = new JFrame("Member Details");
@@ -1063,60 +1877,16 @@ public class GymGUI extends JFrame implements ActionListener {
         // Create Regular Members panel
         JPanel regularPanel = new JPanel(new BorderLayout());
         regularPanel.setBorder(BorderFactory.createTitledBorder("Regular Members"));
-
-        String[] regularColumnNames = {"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
-                "Start Date", "Plan", "Status", "Attendance", "Points", "Referral Source"};
-        Object[][] regularData = new Object[regularMembers.size()][regularColumnNames.length];
-
-        for (int i = 0; i < regularMembers.size(); i++) {
-            RegularMember member = regularMembers.get(i);
-            regularData[i][0] = member.getId();
-            regularData[i][1] = member.getName();
-            regularData[i][2] = member.getLocation();
-            regularData[i][3] = member.getPhone();
-            regularData[i][4] = member.getEmail();
-            regularData[i][5] = member.getGender();
-            regularData[i][6] = member.getDob();
-            regularData[i][7] = member.getMembershipStartDate();
-            regularData[i][8] = member.getPlan();
-            regularData[i][9] = member.isActive() ? "Active" : "Inactive";
-            regularData[i][10] = member.getAttendance();
-            regularData[i][11] = member.getLoyaltyPoints();
-            regularData[i][12] = member.getReferralSource();
-        }
-
-        JTable regularTable = new JTable(regularData, regularColumnNames);
+        MemberTableModel regularModel = new MemberTableModel(registry, false);
+        JTable regularTable = new JTable(regularModel);
         JScrollPane regularScrollPane = new JScrollPane(regularTable);
         regularPanel.add(regularScrollPane, BorderLayout.CENTER);
 
         // Create Premium Members panel
         JPanel premiumPanel = new JPanel(new BorderLayout());
         premiumPanel.setBorder(BorderFactory.createTitledBorder("Premium Members"));
-
-        String[] premiumColumnNames = {"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
-                "Start Date", "Trainer", "Status", "Attendance", "Points", "Paid Amount", "Full Payment", "Discount"};
-        Object[][] premiumData = new Object[premiumMembers.size()][premiumColumnNames.length];
-
-        for (int i = 0; i < premiumMembers.size(); i++) {
-            PremiumMember member = premiumMembers.get(i);
-            premiumData[i][0] = member.getId();
-            premiumData[i][1] = member.getName();
-            premiumData[i][2] = member.getLocation();
-            premiumData[i][3] = member.getPhone();
-            premiumData[i][4] = member.getEmail();
-            premiumData[i][5] = member.getGender();
-            premiumData[i][6] = member.getDob();
-            premiumData[i][7] = member.getMembershipStartDate();
-            premiumData[i][8] = member.getPersonalTrainer();
-            premiumData[i][9] = member.isActive() ? "Active" : "Inactive";
-            premiumData[i][10] = member.getAttendance();
-            premiumData[i][11] = member.getLoyaltyPoints();
-            premiumData[i][12] = String.format("Rs. %.2f", member.getPaidAmount());
-            premiumData[i][13] = member.isFullPayment() ? "Yes" : "No";
-            premiumData[i][14] = String.format("Rs. %.2f", member.getDiscountAmount());
-        }
-
-        JTable premiumTable = new JTable(premiumData, premiumColumnNames);
+        MemberTableModel premiumModel = new MemberTableModel(registry, true);
+        JTable premiumTable = new JTable(premiumModel);
         JScrollPane premiumScrollPane = new JScrollPane(premiumTable);
         premiumPanel.add(premiumScrollPane, BorderLayout.CENTER);
 
@@ -1124,10 +1894,25 @@ public class GymGUI extends JFrame implements ActionListener {
         frame.add(regularPanel);
         frame.add(premiumPanel);
 
+        // Keep the tables current while the window is open
+        Timer refreshTimer = new Timer(1000, evt -> {
+            regularModel.refresh();
+            premiumModel.refresh();
+        });
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                refreshTimer.stop();
+            }
+        });
+        refreshTimer.start();
+
         // Set frame properties
         frame.setSize(1200, 600);
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+        MemberMetrics.record(MemberMetrics.DISPLAY, start);
     }
 
     /**
@@ -1138,25 +1923,12 @@ public class GymGUI extends JFrame implements ActionListener {
     private void revertRegularMember() {
         try {
             int id = Integer.parseInt(txtId.getText());
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    if (member instanceof RegularMember) {
-                        RegularMember regularMember = (RegularMember) member;
-                        String removalReason = txtRemovalReason.getText();
-                        if (removalReason.isEmpty()) {
-                            JOptionPane.showMessageDialog(null, "Please enter removal reason");
-                            return;
-                        }
-                        String result = regularMember.revertRegularMember(removalReason);
-                        JOptionPane.showMessageDialog(null, result);
-                        clearFields();
-                    } else {
-                        JOptionPane.showMessageDialog(null, "This member is not a Regular Member");
-                    }
-                    return;
-                }
+            String[] message = new String[1];
+            byte result = registry.tryRevertRegularMember(id, txtRemovalReason.getText(), message);
+            JOptionPane.showMessageDialog(null, message[0]);
+            if (result == MemberRegistry.CHANGE_OK) {
+                clearFields();
             }
-            JOptionPane.showMessageDialog(null, "Member not found");
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
         }
@@ -1169,20 +1941,12 @@ public class GymGUI extends JFrame implements ActionListener {
     private void revertPremiumMember() {
         try {
             int id = Integer.parseInt(txtId.getText());
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    if (member instanceof PremiumMember) {
-                        PremiumMember premiumMember = (PremiumMember) member;
-                        String result = premiumMember.revertPremiumMember();
-                        JOptionPane.showMessageDialog(null, result);
-                        clearFields();
-                    } else {
-                        JOptionPane.showMessageDialog(null, "This member is not a Premium Member");
-                    }
-                    return;
-                }
+            String[] message = new String[1];
+            byte result = registry.tryRevertPremiumMember(id, message);
+            JOptionPane.showMessageDialog(null, message[0]);
+            if (result == MemberRegistry.CHANGE_OK) {
+                clearFields();
             }
-            JOptionPane.showMessageDialog(null, "Member not found");
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter a valid member ID");
         }
@@ -1197,54 +1961,27 @@ public class GymGUI extends JFrame implements ActionListener {
         try {
             int id = Integer.parseInt(txtId.getText());
             double amount = Double.parseDouble(txtPaidAmount.getText());
-
-            for (GymMember member : gymMembers) {
-                if (member.getId() == id) {
-                    if (member instanceof PremiumMember) {
-                        PremiumMember premiumMember = (PremiumMember) member;
-                        String result = premiumMember.payDueAmount(amount);
-                        JOptionPane.showMessageDialog(null, result);
-                    } else {
-                        JOptionPane.showMessageDialog(null, "Only premium members can pay due amounts");
-                    }
-                    return;
-                }
-            }
-            JOptionPane.showMessageDialog(null, "Member not found");
+            JOptionPane.showMessageDialog(null, registry.payDueAmount(id, amount));
         } catch (NumberFormatException e) {
             JOptionPane.showMessageDialog(null, "Please enter valid numeric values");
         }
     }
 
-    /**
-     * Validates phone number format
-     * Ensures number is exactly 10 digits
-     * @param phoneNumber The phone number to validate
-     * @return true if format is valid, false otherwise
-     */
-    private boolean validatePhoneNumber(String phoneNumber) {
-        String phonePattern = "^\\d{10}$";
-        return phoneNumber.matches(phonePattern);
-    }
-
-    /**
-     * Validates email address format
-     * Checks for proper email structure (username@domain.tld)
-     * @param email The email address to validate
-     * @return true if format is valid, false otherwise
-     */
-    private boolean ValidateEmail(String email) {
-        String emailPattern = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        return email.matches(emailPattern);
-    }
-
     /**
      * Main method to launch the application
      * Sets up system look and feel
      * Creates GUI on the Event Dispatch Thread
-     * @param args Command line arguments (not used)
+     * With "--server [port]" starts the headless HTTP API (GymServer) instead
+     * @param args Command line arguments
+     * @throws IOException If server mode cannot restore the members or bind its port
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // "--server [port]" runs the headless HTTP API instead of the window
+        if (args.length > 0 && args[0].equals("--server")) {
+            GymServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
         // Use SwingUtilities to ensure GUI is created on Event Dispatch Thread
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -10,14 +10,22 @@ public abstract class GymMember {
     protected String location;            // Residential address
     protected String phone;               // Contact number (10 digits)
     protected String email;               // Email address
-    protected String gender;              // Member's gender
+    protected int genderCode;             // Member's gender as a MemberSymbols code
     protected String dob;                 // Date of birth (YYYY/MM/DD)
     protected String membershipStartDate; // Membership start date (YYYY/MM/DD)
+    protected int dobEpochDay;            // Date of birth as days since 1970/01/01 (EpochDays.INVALID if unparsable)
+    protected int startEpochDay;          // Membership start as days since 1970/01/01 (EpochDays.INVALID if unparsable)
+
+    // Location, DOB and start date of a member loaded from a snapshot stay in the mapped file
+    // until first read; the volatile write of null publishes the decoded strings
+    protected volatile MemberSnapshot.ColdSection coldSection; // Section holding them, null once decoded
+    protected int coldOffset;             // Offset of this member's strings in coldSection
 
     // Member activity tracking
     protected int attendance;             // Number of gym visits
     protected int loyaltyPoints;          // Points earned through attendance
     protected boolean active;             // Current membership status
+    protected volatile long lastVisit;    // Time of the latest check-in (epoch milliseconds), 0 if never
 
     /**
      * Constructor for creating a new gym member
@@ -36,12 +44,14 @@ public abstract class GymMember {
                      String gender, String dob, String membershipStartDate) {
         this.id = id;
         this.name = name;
-        this.location = location;
+        this.location = MemberSymbols.internLocation(location);
         this.phone = phone;
         this.email = email;
-        this.gender = gender;
+        this.genderCode = MemberSymbols.encode(gender);
         this.dob = dob;
         this.membershipStartDate = membershipStartDate;
+        this.dobEpochDay = EpochDays.parse(dob);                  // Parsed once for date queries
+        this.startEpochDay = EpochDays.parse(membershipStartDate);
         this.attendance = 0;      // Initialize with zero visits
         this.loyaltyPoints = 0;   // Initialize with zero points
         this.active = false;      // Membership inactive by default
@@ -66,6 +76,7 @@ public abstract class GymMember {
      * @return Member's residential address
      */
     public String getLocation() {
+        loadColdFields();
         return location;
     }
 
@@ -87,13 +98,21 @@ public abstract class GymMember {
      * @return Member's gender
      */
     public String getGender() {
-        return gender;
+        return MemberSymbols.decode(genderCode);
+    }
+
+    /**
+     * @return Member's gender as a MemberSymbols code, for integer comparisons in filters
+     */
+    public int getGenderCode() {
+        return genderCode;
     }
 
     /**
      * @return Member's date of birth
      */
     public String getDob() {
+        loadColdFields();
         return dob;
     }
 
@@ -101,9 +120,24 @@ public abstract class GymMember {
      * @return Date when membership started
      */
     public String getMembershipStartDate() {
+        loadColdFields();
         return membershipStartDate;
     }
 
+    /**
+     * @return Date of birth as days since 1970/01/01, or EpochDays.INVALID if it is not a real date
+     */
+    public int getDobEpochDay() {
+        return dobEpochDay;
+    }
+
+    /**
+     * @return Membership start date as days since 1970/01/01, or EpochDays.INVALID if it is not a real date
+     */
+    public int getStartEpochDay() {
+        return startEpochDay;
+    }
+
     /**
      * @return Number of times member has visited the gym
      */
@@ -125,6 +159,13 @@ public abstract class GymMember {
         return active;
     }
 
+    /**
+     * @return Time of the latest check-in (epoch milliseconds), 0 if the member never visited
+     */
+    public long getLastVisit() {
+        return lastVisit;
+    }
+
     /**
      * Abstract method for marking member attendance
      * Each member type implements its own attendance rules:
@@ -160,22 +201,90 @@ public abstract class GymMember {
         this.active = false;
     }
 
+    /**
+     * Restores tracking statistics saved in a snapshot
+     * Used when reloading members so counters survive a restart
+     *
+     * @param attendance Number of recorded visits
+     * @param loyaltyPoints Loyalty points earned so far
+     * @param active Whether the membership is active
+     */
+    void restoreActivity(int attendance, int loyaltyPoints, boolean active) {
+        this.attendance = attendance;
+        this.loyaltyPoints = loyaltyPoints;
+        this.active = active;
+    }
+
+    /**
+     * Sets the time of the latest check-in
+     * Called by the registry when attendance is marked or replayed, and when loading a snapshot
+     *
+     * @param time Check-in time (epoch milliseconds), 0 for never
+     * @return The previous last visit
+     */
+    long recordVisit(long time) {
+        long previous = lastVisit;
+        lastVisit = time;
+        return previous;
+    }
+
+    /**
+     * Leaves location, DOB and start date in a snapshot section to be decoded on first access
+     * The parsed dates are restored directly, so date indexes work without decoding anything
+     *
+     * @param section Mapped snapshot section holding the strings
+     * @param offset Offset of this member's strings in the section
+     * @param dobEpochDay Date of birth as an epoch day
+     * @param startEpochDay Membership start date as an epoch day
+     */
+    void restoreColdFields(MemberSnapshot.ColdSection section, int offset, int dobEpochDay, int startEpochDay) {
+        this.dobEpochDay = dobEpochDay;
+        this.startEpochDay = startEpochDay;
+        this.coldOffset = offset;
+        this.coldSection = section;
+    }
+
+    /**
+     * Stores the strings decoded from the snapshot section and drops the section reference
+     *
+     * @param location Residential address
+     * @param dob Date of birth (YYYY/MM/DD)
+     * @param membershipStartDate Membership start date (YYYY/MM/DD)
+     */
+    void setColdFields(String location, String dob, String membershipStartDate) {
+        this.location = MemberSymbols.internLocation(location);
+        this.dob = dob;
+        this.membershipStartDate = membershipStartDate;
+        this.coldSection = null;
+    }
+
+    /**
+     * Decodes location, DOB and start date from the snapshot if not done yet
+     * Threads racing here decode the same immutable strings, so no lock is needed
+     */
+    private void loadColdFields() {
+        MemberSnapshot.ColdSection section = coldSection;
+        if (section != null) {
+            section.load(this, coldOffset);
+        }
+    }
+
     /**
      * Displays detailed member information
      * Shows all member attributes in a formatted output
      * Used for debugging and verification purposes
      */
     public void display() {
-        System.out.println("Member ID: " + id);
-        System.out.println("Name: " + name);
-        System.out.println("Location: " + location);
-        System.out.println("Phone: " + phone);
-        System.out.println("Email: " + email);
-        System.out.println("Gender: " + gender);
-        System.out.println("Date of Birth: " + dob);
-        System.out.println("Membership Start Date: " + membershipStartDate);
-        System.out.println("Attendance: " + attendance);
-        System.out.println("Loyalty Points: " + loyaltyPoints);
-        System.out.println("Active Status: " + (active ? "Active" : "Inactive"));
+        System.out.println("Member ID: " + getId());
+        System.out.println("Name: " + getName());
+        System.out.println("Location: " + getLocation());
+        System.out.println("Phone: " + getPhone());
+        System.out.println("Email: " + getEmail());
+        System.out.println("Gender: " + getGender());
+        System.out.println("Date of Birth: " + getDob());
+        System.out.println("Membership Start Date: " + getMembershipStartDate());
+        System.out.println("Attendance: " + getAttendance());
+        System.out.println("Loyalty Points: " + getLoyaltyPoints());
+        System.out.println("Active Status: " + (isActive() ? "Active" : "Inactive"));
     }
 }
@@ -0,0 +1,774 @@
+/**
+ * GymServer - Headless HTTP/JSON front end to the member registry for kiosks and the mobile app
+ * Built on the JDK's com.sun.net.httpserver; each request runs on its own virtual thread when
+ * the JDK provides them (21+) and on a large fixed pool of platform threads otherwise.
+ * Handlers block on the registry and its journal fsync, so concurrent requests share
+ * group commits instead of queuing behind each other.
+ *
+ * Endpoints (request and response bodies are JSON objects):
+ *   GET  /health                      {"status":"ok","members":n}
+ *   GET  /members/{id}                Member details
+ *   GET  /members?phone=|email=|name= Lookup by phone, email, or name search (up to 20 matches)
+ *   POST /members                     Register a member: type, id, name, location, phone, email,
+ *                                     gender, dob, membershipStartDate, referralSource or trainer
+ *   POST /members/{id}/activate       Activate the membership (also /deactivate)
+ *   POST /members/{id}/check-in       Mark attendance
+ *   POST /members/{id}/payments       {"amount": 2500.50} rupees, at most two decimal places
+ *   POST /members/{id}/upgrade        {"plan": "Deluxe"}
+ *   POST /members/{id}/revert         {"reason": "..."} (reason required for regular members)
+ *   GET  /upgrade-candidates?skip=&limit= Regular members who can be offered an upgrade
+ *   GET  /upgrade-candidates/stream   Server-sent events: every current candidate, then each change
+ * Operation responses are {"message": "...", "member": {...}} with status 200, 404 (no such
+ * member), 409 (rejected in the member's current state), 503 (the journal can no longer be
+ * written, so nothing was changed), 500 (the change was applied but its journal write failed,
+ * so it will not survive a restart) or 400 (malformed request). The status comes from the
+ * registry's result code for the operation, never from its message text.
+ *
+ * Uses the same MemberDetails.snap / MemberDetails.journal files as the GUI, so run one or the other.
+ */
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+
+public class GymServer {
+    public static final int DEFAULT_PORT = 8080;
+
+    // Connection and request limits
+    private static final int BACKLOG = 4096;                // Pending connections the OS may queue
+    private static final int MAX_BODY_BYTES = 16 * 1024;    // Larger request bodies are rejected
+    private static final int MAX_NAME_MATCHES = 20;         // Results returned by a name search
+    private static final int FALLBACK_THREADS = 1024;       // Request threads when virtual threads are unavailable
+    private static final int DEFAULT_CANDIDATES = 1000;     // Upgrade candidates listed when no limit is given
+    private static final int MAX_CANDIDATES = 100_000;      // Largest limit accepted
+    private static final long HEARTBEAT_MILLIS = 15_000;    // Idle time before a stream sends a keep-alive comment
+
+    // Field order of a POST /members body, matching MemberCsvImporter's columns
+    private static final String[] MEMBER_FIELDS = {"type", "id", "name", "location", "phone", "email", "gender",
+            "dob", "membershipStartDate", "referralSourceOrTrainer"};
+
+    private final MemberRegistry registry;    // Registry serving every request
+    private final HttpServer server;          // Underlying JDK HTTP server
+    private final ExecutorService executor;   // One task per request
+
+    /**
+     * Status and JSON body of a response
+     */
+    private static final class Response {
+        final int status;                     // HTTP status
+        final String body;                    // JSON body
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Thrown by a handler to end the request with an error status
+     */
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;                     // HTTP status to send
+
+        RequestException(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /**
+     * Creates a server bound to a port; call start to accept requests
+     *
+     * @param registry Registry to serve
+     * @param port TCP port (0 picks a free port)
+     * @throws IOException If the port cannot be bound
+     */
+    public GymServer(MemberRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        // Small JSON replies otherwise sit behind Nagle's algorithm waiting for a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Starts accepting requests
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given time for running ones to finish
+     *
+     * @param delaySeconds Seconds to wait for running requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return Port the server is bound to
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates the request executor: a new virtual thread per task if the JDK has them,
+     * otherwise a fixed pool of FALLBACK_THREADS daemon threads
+     * Looked up reflectively so the project still compiles and runs on JDK 17
+     *
+     * @return Executor for request handlers
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // JDK without virtual threads, or with them only as a disabled preview
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "gym-http");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Runs the server until the process is stopped
+     * Restores members from MemberDetails.snap and MemberDetails.journal first, and closes the
+     * journal cleanly on shutdown
+     *
+     * @param args Optional port (default DEFAULT_PORT)
+     * @throws IOException If the members cannot be restored or the port cannot be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        MemberRegistry registry = new MemberRegistry();
+        MemberJournal journal = MemberJournal.recover(registry, new File("MemberDetails.snap").toPath(),
+                new File("MemberDetails.journal").toPath());
+        Thread builder = new Thread(registry::buildLookupIndexes, "lookup-index-build");
+        builder.setDaemon(true);
+        builder.start();
+
+        try {
+            MemberMetrics.registerMBeans();
+        } catch (JMException e) {
+            System.err.println("Could not register metrics MBeans: " + e.getMessage());
+        }
+        MemberMetrics.startDump(new File("MemberMetrics.log").toPath(), 60);
+
+        GymServer server = new GymServer(registry, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(2);
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal: " + e.getMessage());
+            }
+        }, "gym-server-shutdown"));
+        server.start();
+        System.out.println("Gym server listening on port " + server.getPort() + " with " + registry.size() + " members");
+    }
+
+    /**
+     * Routes one request and writes its response
+     *
+     * @param exchange Request and response
+     */
+    private void handle(HttpExchange exchange) {
+        long start = MemberMetrics.start();
+        try (exchange) {
+            Response response;
+            try {
+                response = route(exchange);
+                if (response == null) {
+                    return;                   // Streamed; the handler already wrote the response
+                }
+            } catch (RequestException e) {
+                response = new Response(e.status, "{\"error\":" + jsonString(e.getMessage()) + "}");
+            } catch (RuntimeException e) {
+                response = new Response(500, "{\"error\":" + jsonString(String.valueOf(e.getMessage())) + "}");
+            }
+            byte[] bytes = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // Client went away; nothing left to report to it
+        } finally {
+            MemberMetrics.record(MemberMetrics.HTTP_REQUEST, start);
+        }
+    }
+
+    /**
+     * Dispatches a request by method and path
+     *
+     * @param exchange Request
+     * @return Response to send
+     * @throws RequestException If the request is malformed or names an unknown resource
+     * @throws IOException If the request body cannot be read
+     */
+    private Response route(HttpExchange exchange) throws RequestException, IOException {
+        String method = exchange.getRequestMethod();
+        String[] path = exchange.getRequestURI().getPath().split("/");   // "", "members", id, action
+        if (path.length == 2 && path[1].equals("health")) {
+            requireMethod(method, "GET");
+            return new Response(200, "{\"status\":\"ok\",\"members\":" + registry.size() + "}");
+        }
+        if (path.length >= 2 && path[1].equals("upgrade-candidates")) {
+            requireMethod(method, "GET");
+            if (path.length == 2) {
+                return new Response(200, upgradeCandidates(parseQuery(exchange.getRequestURI().getRawQuery())));
+            }
+            if (path.length == 3 && path[2].equals("stream")) {
+                streamUpgradeCandidates(exchange);
+                return null;
+            }
+            throw new RequestException(404, "Unknown path");
+        }
+        if (path.length < 2 || !path[1].equals("members") || path.length > 4) {
+            throw new RequestException(404, "Unknown path");
+        }
+        if (path.length == 2) {
+            if (method.equals("POST")) {
+                return addMember(readBody(exchange));
+            }
+            requireMethod(method, "GET");
+            return new Response(200, findMembers(parseQuery(exchange.getRequestURI().getRawQuery())));
+        }
+
+        int id;
+        try {
+            id = Integer.parseInt(path[2]);
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "Member ID must be a whole number");
+        }
+        if (path.length == 3) {
+            requireMethod(method, "GET");
+            GymMember member = registry.findMember(id);
+            if (member == null) {
+                throw new RequestException(404, MemberRegistry.MEMBER_NOT_FOUND);
+            }
+            return new Response(200, memberJson(member));
+        }
+
+        requireMethod(method, "POST");
+        String[] message = new String[1];
+        switch (path[3]) {
+            case "activate":
+                return result(changeStatus(registry.tryActivateMembership(id, message)), message[0], id);
+            case "deactivate":
+                return result(changeStatus(registry.tryDeactivateMembership(id, message)), message[0], id);
+            case "check-in": {
+                byte code = registry.tryMarkAttendance(id, message);
+                return result(status(code, MemberRegistry.CHECKIN_NOT_FOUND, MemberRegistry.CHECKIN_JOURNAL_UNAVAILABLE,
+                        MemberRegistry.CHECKIN_NOT_DURABLE), message[0], id);
+            }
+            case "payments": {
+                String amount = readBody(exchange).get("amount");
+                long amountMinor = amount == null ? -1 : PaymentFileImporter.parseMinor(amount);
+                if (amountMinor < 0) {
+                    throw new RequestException(400, "amount must be in rupees with at most two decimal places");
+                }
+                byte code = registry.tryPayDueAmountMinor(id, amountMinor, message);
+                return result(status(code, MemberRegistry.PAYMENT_NOT_FOUND, MemberRegistry.PAYMENT_JOURNAL_UNAVAILABLE,
+                        MemberRegistry.PAYMENT_NOT_DURABLE), message[0], id);
+            }
+            case "upgrade": {
+                String plan = readBody(exchange).get("plan");
+                if (plan == null || plan.isEmpty()) {
+                    throw new RequestException(400, "plan is required");
+                }
+                byte code = registry.tryUpgradePlan(id, plan, message);
+                return result(status(code, MemberRegistry.UPGRADE_NOT_FOUND, MemberRegistry.UPGRADE_JOURNAL_UNAVAILABLE,
+                        MemberRegistry.UPGRADE_NOT_DURABLE), message[0], id);
+            }
+            case "revert": {
+                GymMember member = registry.findMember(id);
+                if (member == null) {
+                    return result(404, MemberRegistry.MEMBER_NOT_FOUND, id);
+                }
+                if (member instanceof PremiumMember) {
+                    return result(changeStatus(registry.tryRevertPremiumMember(id, message)), message[0], id);
+                }
+                String reason = readBody(exchange).get("reason");
+                return result(changeStatus(registry.tryRevertRegularMember(id, reason, message)), message[0], id);
+            }
+            default:
+                throw new RequestException(404, "Unknown action " + path[3]);
+        }
+    }
+
+    /**
+     * Registers a member from a JSON body, validated like a CSV import row
+     *
+     * @param fields Request body fields
+     * @return Operation response
+     */
+    private Response addMember(Map<String, String> fields) {
+        List<String> row = new ArrayList<>(MEMBER_FIELDS.length);
+        for (String name : MEMBER_FIELDS) {
+            String value = fields.get(name);
+            if (value == null && name.equals("referralSourceOrTrainer")) {
+                value = fields.containsKey("trainer") ? fields.get("trainer") : fields.get("referralSource");
+            }
+            row.add(value == null ? "" : value.trim());
+        }
+        Object parsed = MemberCsvImporter.toMember(row);
+        if (parsed instanceof String) {
+            return new Response(400, "{\"message\":" + jsonString((String) parsed) + "}");
+        }
+        GymMember member = (GymMember) parsed;
+        byte added = registry.tryAddMember(member);
+        if (added != MemberRegistry.ADD_OK) {
+            int status = status(added, (byte) -1, MemberRegistry.ADD_JOURNAL_UNAVAILABLE, MemberRegistry.ADD_NOT_DURABLE);
+            return new Response(status, "{\"message\":" + jsonString(MemberRegistry.addResultMessage(added)) + "}");
+        }
+        return result(200, "Member added successfully", member.getId());
+    }
+
+    /**
+     * Looks members up by phone, email or name
+     *
+     * @param query Decoded query parameters
+     * @return JSON object with a "members" array
+     * @throws RequestException If no search parameter is given
+     */
+    private String findMembers(Map<String, String> query) throws RequestException {
+        StringBuilder out = new StringBuilder("{\"members\":[");
+        if (query.containsKey("phone") || query.containsKey("email")) {
+            GymMember member = query.containsKey("phone")
+                    ? registry.findByPhone(query.get("phone")) : registry.findByEmail(query.get("email"));
+            if (member != null) {
+                out.append(memberJson(member));
+            }
+        } else if (query.containsKey("name")) {
+            int[] ids = new int[MAX_NAME_MATCHES];
+            int found = registry.searchByName(query.get("name"), ids);
+            for (int i = 0; i < found; i++) {
+                GymMember member = registry.findMember(ids[i]);
+                if (member != null) {
+                    out.append(i > 0 ? "," : "").append(memberJson(member));
+                }
+            }
+        } else {
+            throw new RequestException(400, "Give phone, email or name");
+        }
+        return out.append("]}").toString();
+    }
+
+    /**
+     * Lists current upgrade candidates (active regular members at their attendance limit, still on basic)
+     *
+     * @param query Decoded query parameters: optional skip and limit
+     * @return JSON object with the candidate count and an "ids" array
+     * @throws RequestException If skip or limit is not a valid number
+     */
+    private String upgradeCandidates(Map<String, String> query) throws RequestException {
+        int skip;
+        int limit;
+        try {
+            skip = Integer.parseInt(query.getOrDefault("skip", "0"));
+            limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_CANDIDATES)));
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "skip and limit must be whole numbers");
+        }
+        if (skip < 0 || limit < 0 || limit > MAX_CANDIDATES) {
+            throw new RequestException(400, "limit must be between 0 and " + MAX_CANDIDATES);
+        }
+        UpgradeEligibilityFeed feed = registry.getUpgradeFeed();
+        int[] ids = new int[limit];
+        int count = feed.getCandidates(skip, ids);
+        StringBuilder out = new StringBuilder("{\"count\":").append(feed.size()).append(",\"ids\":[");
+        for (int i = 0; i < count; i++) {
+            out.append(i > 0 ? "," : "").append(ids[i]);
+        }
+        return out.append("]}").toString();
+    }
+
+    /**
+     * Streams upgrade-candidate changes as server-sent events until the client disconnects
+     * Each event is {"id": n, "candidate": true|false}; the stream starts with every current
+     * candidate. Blocks the request thread for the life of the stream.
+     *
+     * @param exchange Request to answer
+     * @throws IOException If the response headers cannot be sent
+     */
+    private void streamUpgradeCandidates(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        UpgradeEligibilityFeed.Subscription subscription = registry.getUpgradeFeed().subscribe((id, candidate) -> {
+            byte[] event = ("data: {\"id\":" + id + ",\"candidate\":" + candidate + "}\n\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            try {
+                synchronized (out) {
+                    out.write(event);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);    // Ends the subscription
+            }
+        });
+        try {
+            // Heartbeats find a closed connection even when no changes are flowing
+            while (!subscription.awaitClosed(HEARTBEAT_MILLIS)) {
+                synchronized (out) {
+                    out.write(": keep-alive\n\n".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();       // Server is stopping
+        } finally {
+            subscription.close();
+        }
+    }
+
+    /**
+     * Builds an operation response with the member's state after the operation
+     *
+     * @param status HTTP status chosen from the registry's result code
+     * @param message Status message from the registry
+     * @param id Member ID
+     * @return Response with the member's current state
+     */
+    private Response result(int status, String message, int id) {
+        StringBuilder out = new StringBuilder("{\"message\":").append(jsonString(message));
+        GymMember member = registry.findMember(id);
+        if (member != null) {
+            out.append(",\"member\":").append(memberJson(member));
+        }
+        return new Response(status, out.append('}').toString());
+    }
+
+    /**
+     * Maps a registry result code to an HTTP status
+     * Every registry code family uses 0 for success; any other code but the three given is a
+     * rejection in the member's current state
+     *
+     * @param code Result code returned by the registry
+     * @param notFound The family's "no such member" code
+     * @param journalUnavailable The family's "journal refused the change" code
+     * @param notDurable The family's "applied but not saved" code
+     * @return 200, 404, 503, 500 or 409
+     */
+    private static int status(byte code, byte notFound, byte journalUnavailable, byte notDurable) {
+        if (code == 0) {
+            return 200;
+        }
+        if (code == notFound) {
+            return 404;
+        }
+        if (code == notDurable) {
+            return 500;
+        }
+        return code == journalUnavailable ? 503 : 409;
+    }
+
+    /**
+     * @param code CHANGE_* code from activate, deactivate or a revert
+     * @return HTTP status for the code
+     */
+    private static int changeStatus(byte code) {
+        return status(code, MemberRegistry.CHANGE_NOT_FOUND, MemberRegistry.CHANGE_JOURNAL_UNAVAILABLE,
+                MemberRegistry.CHANGE_NOT_DURABLE);
+    }
+
+    /**
+     * Serialises a member, reading its fields under the registry's member lock
+     *
+     * @param member Member to serialise
+     * @return JSON object
+     */
+    private String memberJson(GymMember member) {
+        StringBuilder out = new StringBuilder(512);
+        registry.readMember(member, m -> {
+            out.append("{\"id\":").append(m.getId())
+                    .append(",\"type\":").append(m instanceof PremiumMember ? "\"premium\"" : "\"regular\"")
+                    .append(",\"name\":").append(jsonString(m.getName()))
+                    .append(",\"location\":").append(jsonString(m.getLocation()))
+                    .append(",\"phone\":").append(jsonString(m.getPhone()))
+                    .append(",\"email\":").append(jsonString(m.getEmail()))
+                    .append(",\"gender\":").append(jsonString(m.getGender()))
+                    .append(",\"dob\":").append(jsonString(m.getDob()))
+                    .append(",\"membershipStartDate\":").append(jsonString(m.getMembershipStartDate()))
+                    .append(",\"active\":").append(m.isActive())
+                    .append(",\"attendance\":").append(m.getAttendance())
+                    .append(",\"loyaltyPoints\":").append(m.getLoyaltyPoints())
+                    .append(",\"lastVisit\":").append(m.getLastVisit());
+            if (m instanceof PremiumMember) {
+                PremiumMember pm = (PremiumMember) m;
+                out.append(",\"trainer\":").append(jsonString(pm.getPersonalTrainer()))
+                        .append(",\"premiumCharge\":").append(rupees(pm.getPremiumChargeMinor()))
+                        .append(",\"paid\":").append(rupees(pm.getPaidMinor()))
+                        .append(",\"remaining\":").append(rupees(pm.getRemainingMinor()))
+                        .append(",\"fullPayment\":").append(pm.isFullPayment())
+                        .append(",\"discount\":").append(pm.getDiscountAmount());
+            } else {
+                RegularMember rm = (RegularMember) m;
+                out.append(",\"plan\":").append(jsonString(rm.getPlan()))
+                        .append(",\"price\":").append(rm.getPrice())
+                        .append(",\"referralSource\":").append(jsonString(rm.getReferralSource()))
+                        .append(",\"eligibleForUpgrade\":").append(rm.isEligibleForUpgrade())
+                        .append(",\"removalReason\":").append(jsonString(rm.getRemovalReason()));
+            }
+            out.append('}');
+        });
+        return out.toString();
+    }
+
+    /**
+     * @param minor Amount in paise
+     * @return The amount in rupees as an exact decimal, e.g. "2500.05"
+     */
+    private static String rupees(long minor) {
+        long abs = Math.abs(minor);
+        return (minor < 0 ? "-" : "") + abs / 100 + "." + (abs % 100 < 10 ? "0" : "") + abs % 100;
+    }
+
+    /**
+     * Quotes a string as a JSON value
+     *
+     * @param value String to quote (null becomes null)
+     * @return JSON string literal
+     */
+    static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    /**
+     * @param method Request method
+     * @param expected Method the resource accepts
+     * @throws RequestException If they differ
+     */
+    private static void requireMethod(String method, String expected) throws RequestException {
+        if (!method.equals(expected)) {
+            throw new RequestException(405, "Use " + expected);
+        }
+    }
+
+    /**
+     * Reads a request body holding one flat JSON object
+     *
+     * @param exchange Request
+     * @return Field values as strings (numbers and booleans as written, null values omitted)
+     * @throws RequestException If the body is too large or not a flat JSON object
+     * @throws IOException If the body cannot be read
+     */
+    private static Map<String, String> readBody(HttpExchange exchange) throws RequestException, IOException {
+        byte[] bytes;
+        try (InputStream in = exchange.getRequestBody()) {
+            bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new RequestException(413, "Request body too large");
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, String> fields = parseObject(text);
+        if (fields == null) {
+            throw new RequestException(400, "Body must be a JSON object of strings, numbers and booleans");
+        }
+        return fields;
+    }
+
+    /**
+     * Parses a flat JSON object (no nested objects or arrays)
+     *
+     * @param text JSON text
+     * @return Field values as strings, or null if the text is not a flat object
+     */
+    static Map<String, String> parseObject(String text) {
+        Map<String, String> fields = new HashMap<>();
+        int[] pos = {skipSpaces(text, 0)};
+        if (pos[0] >= text.length() || text.charAt(pos[0]++) != '{') {
+            return null;
+        }
+        pos[0] = skipSpaces(text, pos[0]);
+        if (pos[0] < text.length() && text.charAt(pos[0]) == '}') {
+            return skipSpaces(text, pos[0] + 1) == text.length() ? fields : null;
+        }
+        while (true) {
+            String key = parseString(text, pos);
+            pos[0] = skipSpaces(text, pos[0]);
+            if (key == null || pos[0] >= text.length() || text.charAt(pos[0]++) != ':') {
+                return null;
+            }
+            pos[0] = skipSpaces(text, pos[0]);
+            if (pos[0] >= text.length()) {
+                return null;
+            }
+            String value;
+            if (text.charAt(pos[0]) == '"') {
+                value = parseString(text, pos);
+                if (value == null) {
+                    return null;
+                }
+            } else {
+                int end = pos[0];
+                while (end < text.length() && ",} \t\r\n".indexOf(text.charAt(end)) < 0) {
+                    end++;
+                }
+                value = text.substring(pos[0], end);
+                if (value.isEmpty() || value.charAt(0) == '{' || value.charAt(0) == '[') {
+                    return null;
+                }
+                pos[0] = end;
+                if (value.equals("null")) {
+                    value = null;
+                }
+            }
+            if (value != null) {
+                fields.put(key, value);
+            }
+            pos[0] = skipSpaces(text, pos[0]);
+            if (pos[0] >= text.length()) {
+                return null;
+            }
+            char c = text.charAt(pos[0]++);
+            if (c == '}') {
+                return skipSpaces(text, pos[0]) == text.length() ? fields : null;
+            }
+            if (c != ',') {
+                return null;
+            }
+            pos[0] = skipSpaces(text, pos[0]);
+        }
+    }
+
+    /**
+     * Parses a JSON string literal
+     *
+     * @param text JSON text
+     * @param pos Position of the opening quote; moved past the closing quote
+     * @return The decoded string, or null if malformed
+     */
+    private static String parseString(String text, int[] pos) {
+        int i = pos[0];
+        if (i >= text.length() || text.charAt(i) != '"') {
+            return null;
+        }
+        StringBuilder out = new StringBuilder();
+        i++;
+        while (i < text.length()) {
+            char c = text.charAt(i++);
+            if (c == '"') {
+                pos[0] = i;
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            if (i >= text.length()) {
+                return null;
+            }
+            char escape = text.charAt(i++);
+            switch (escape) {
+                case 'n': out.append('\n'); break;
+                case 't': out.append('\t'); break;
+                case 'r': out.append('\r'); break;
+                case 'b': out.append('\b'); break;
+                case 'f': out.append('\f'); break;
+                case 'u':
+                    if (i + 4 > text.length()) {
+                        return null;
+                    }
+                    try {
+                        out.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    i += 4;
+                    break;
+                default:
+                    out.append(escape);   // \" \\ \/
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param text Text
+     * @param pos Start position
+     * @return First position at or after pos that is not whitespace
+     */
+    private static int skipSpaces(String text, int pos) {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Decodes a URL query string
+     *
+     * @param rawQuery Raw query (may be null)
+     * @return Parameter values by name (the first occurrence wins)
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.putIfAbsent(name, value);
+        }
+        return query;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * IntIntMap - Primitive int to int hash map
+ * Uses the same open-addressing layout as MemberIndex, with no boxing of keys or values
+ * Used to map member IDs to row numbers, shard numbers and similar small values
+ */
+public class IntIntMap {
+    // Sentinel marking an unused slot
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+
+    // Table is resized once it is more than this fraction full
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Parallel hash table arrays
+    private int[] keys;                   // Keys, EMPTY_KEY for free slots
+    private int[] values;                 // Values stored alongside their keys
+    private int mask;                     // keys.length - 1 (capacity is a power of two)
+
+    // Bookkeeping
+    private final int missingValue;       // Returned by get() for absent keys
+    private int size;                     // Number of entries
+    private int resizeThreshold;          // Size at which the table doubles
+    private boolean hasEmptyKey;          // Whether EMPTY_KEY itself is stored
+    private int emptyKeyValue;            // Value stored under EMPTY_KEY
+
+    /**
+     * Creates an empty map
+     *
+     * @param expectedSize Number of entries the map should hold before growing
+     * @param missingValue Value returned by get() for keys that are not present
+     */
+    public IntIntMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        int capacity = 16;
+        int wanted = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        while (capacity < wanted && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * @return Number of entries in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the value stored under a key
+     *
+     * @param key Key to look for
+     * @return The stored value, or the missing value given at construction
+     */
+    public int get(int key) {
+        if (key == EMPTY_KEY) {
+            return hasEmptyKey ? emptyKeyValue : missingValue;
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            int k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+            if (k == EMPTY_KEY) {
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Checks whether a key is present
+     *
+     * @param key Key to look for
+     * @return true if the key has a value
+     */
+    public boolean containsKey(int key) {
+        if (key == EMPTY_KEY) {
+            return hasEmptyKey;
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            int k = keys[slot];
+            if (k == key) {
+                return true;
+            }
+            if (k == EMPTY_KEY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Stores a value under a key, replacing any existing value
+     *
+     * @param key Key to store under
+     * @param value Value to store
+     */
+    public void put(int key, int value) {
+        if (key == EMPTY_KEY) {
+            if (!hasEmptyKey) {
+                hasEmptyKey = true;
+                size++;
+            }
+            emptyKeyValue = value;
+            return;
+        }
+        int slot = mix(key) & mask;
+        while (true) {
+            int k = keys[slot];
+            if (k == key) {
+                values[slot] = value;
+                return;
+            }
+            if (k == EMPTY_KEY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > resizeThreshold) {
+                    resize(keys.length << 1);
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes a key, moving later entries of its probe run back so lookups still find them
+     *
+     * @param key Key to remove
+     * @return The value that was stored, or the missing value if the key was absent
+     */
+    public int remove(int key) {
+        if (key == EMPTY_KEY) {
+            if (!hasEmptyKey) {
+                return missingValue;
+            }
+            hasEmptyKey = false;
+            size--;
+            return emptyKeyValue;
+        }
+        int slot = mix(key) & mask;
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY_KEY) {
+                return missingValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int removed = values[slot];
+        size--;
+
+        // Backward-shift deletion: refill the hole with any later entry whose home slot is at or before it
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY_KEY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY_KEY;
+        return removed;
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void clear() {
+        java.util.Arrays.fill(keys, EMPTY_KEY);
+        hasEmptyKey = false;
+        size = 0;
+    }
+
+    /**
+     * Doubles the table and re-inserts every entry
+     *
+     * @param newCapacity New table capacity (power of two)
+     */
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty table arrays of the given capacity
+     *
+     * @param capacity Table capacity (power of two)
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        java.util.Arrays.fill(keys, EMPTY_KEY);
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Scrambles the key bits so sequential keys spread across the table
+     *
+     * @param key Key
+     * @return Well-distributed hash of the key
+     */
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,492 @@
+/**
+ * LoyaltyLeaderboard - Members ranked by loyalty points, kept up to date on every change
+ * Holds three boards: every member, regular members only and premium members only.
+ * Each board counts members per point value in a Fenwick (binary indexed) tree and keeps the
+ * members holding each value in a bucket, so
+ * - a member's points changing is one bucket move plus two O(log P) tree updates,
+ * - "rank of member X" and "how many members within N points of X" are O(log P) tree sums,
+ * - "top K" and "members near X" jump between non-empty point values with O(log P) tree
+ *   searches and read only the members they return,
+ * where P is the highest point value on the board. Nothing is ever sorted.
+ *
+ * Ranks are competition ranks: 1 + the number of members with strictly more points, so tied
+ * members share a rank. Tied members are listed in no particular order.
+ *
+ * Point updates are appended to one of STRIPES small pending buffers, chosen by member ID with
+ * the same spread as MemberRegistry's lock stripes, so concurrent check-ins do not contend on the
+ * board's monitor. A buffer is merged under the board's lock when it fills, and every buffer is
+ * merged before any other method runs, so reads always see every update made before they started.
+ *
+ * Every other method is synchronized; MemberRegistry updates the board inside a member's stripe lock.
+ */
+import java.util.Arrays;
+
+public class LoyaltyLeaderboard {
+    // Board selectors
+    public static final int ALL = 0;              // Every member
+    public static final int REGULAR = 1;          // Regular members only
+    public static final int PREMIUM = 2;          // Premium members only
+    private static final int BOARDS = 3;
+
+    // Initial number of point values a board covers (grows by doubling)
+    private static final int INITIAL_POINTS = 256;
+
+    // Pending update buffers
+    private static final int STRIPES = 64;            // Buffers (power of two)
+    private static final int PENDING_UPDATES = 256;   // Updates a buffer holds before it is merged
+
+    // Members, by dense slot number
+    private final IntIntMap slots;                // Member ID -> slot, -1 if not on the board
+    private int[] ids;                            // Member ID in each slot
+    private int[] points;                         // Current points of each slot's member
+    private byte[] types;                         // REGULAR or PREMIUM for each slot
+    private int slotCount;                        // Slots in use
+
+    private final Board[] boards;                 // Indexed by ALL, REGULAR, PREMIUM
+
+    // Updates not yet merged (lock order: this, then a buffer)
+    private final PendingUpdates[] pending;
+
+    /**
+     * Point updates made in one stripe and not yet merged into the boards
+     */
+    private static final class PendingUpdates {
+        final int[] ids = new int[PENDING_UPDATES];
+        final int[] points = new int[PENDING_UPDATES];
+        int size;                                 // Updates held (guarded by this buffer)
+    }
+
+    /**
+     * One ranking: a Fenwick tree of member counts per point value and the members at each value
+     */
+    private static final class Board {
+        int[] tree;                   // Fenwick tree over point values (1-based, tree[0] unused)
+        int[][] buckets;              // Slots of the members holding each point value
+        int[] bucketSizes;            // Slots in use in each bucket
+        int[] positions;              // Slot -> index in its bucket
+        int size;                     // Members on this board
+
+        Board() {
+            reset();
+        }
+
+        /**
+         * Empties the board
+         */
+        void reset() {
+            tree = new int[INITIAL_POINTS + 1];
+            buckets = new int[INITIAL_POINTS][];
+            bucketSizes = new int[INITIAL_POINTS];
+            positions = new int[16];
+            size = 0;
+        }
+
+        /**
+         * @return Number of point values covered (a power of two)
+         */
+        int capacity() {
+            return bucketSizes.length;
+        }
+
+        /**
+         * Adds a member at a point value
+         *
+         * @param slot Member slot (not on this board)
+         * @param value Point value
+         */
+        void insert(int slot, int value) {
+            if (value >= capacity()) {
+                grow(value);
+            }
+            int[] bucket = buckets[value];
+            if (bucket == null) {
+                bucket = buckets[value] = new int[4];
+            } else if (bucketSizes[value] == bucket.length) {
+                bucket = buckets[value] = Arrays.copyOf(bucket, bucket.length * 2);
+            }
+            if (slot >= positions.length) {
+                positions = Arrays.copyOf(positions, Math.max(slot + 1, positions.length * 2));
+            }
+            positions[slot] = bucketSizes[value];
+            bucket[bucketSizes[value]++] = slot;
+            addCount(value, 1);
+            size++;
+        }
+
+        /**
+         * Removes a member from its point value, moving the bucket's last member into its place
+         *
+         * @param slot Member slot (on this board)
+         * @param value The member's current point value
+         */
+        void remove(int slot, int value) {
+            int[] bucket = buckets[value];
+            int position = positions[slot];
+            int last = bucket[--bucketSizes[value]];
+            bucket[position] = last;
+            positions[last] = position;
+            addCount(value, -1);
+            size--;
+        }
+
+        /**
+         * Widens the board to cover a point value, rebuilding the tree from the bucket sizes
+         *
+         * @param value Highest point value that must fit
+         */
+        void grow(int value) {
+            int capacity = capacity();
+            while (capacity <= value) {
+                capacity <<= 1;
+            }
+            buckets = Arrays.copyOf(buckets, capacity);
+            bucketSizes = Arrays.copyOf(bucketSizes, capacity);
+            tree = new int[capacity + 1];
+            for (int v = 0; v < capacity; v++) {
+                if (bucketSizes[v] != 0) {
+                    addCount(v, bucketSizes[v]);
+                }
+            }
+        }
+
+        /**
+         * @param value Point value
+         * @param delta Change in the number of members at that value
+         */
+        void addCount(int value, int delta) {
+            for (int i = value + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        /**
+         * @param value Point value
+         * @return Members with at most that many points
+         */
+        int countAtMost(int value) {
+            if (value < 0) {
+                return 0;
+            }
+            if (value >= capacity()) {
+                return size;
+            }
+            int count = 0;
+            for (int i = value + 1; i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+
+        /**
+         * Finds the lowest point value v with countAtMost(v) >= target by descending the tree
+         *
+         * @param target Member count, between 1 and size
+         * @return That point value
+         */
+        int valueAtCount(int target) {
+            int position = 0;
+            for (int step = capacity(); step > 0; step >>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] < target) {
+                    position = next;
+                    target -= tree[next];
+                }
+            }
+            return position;              // Tree index position + 1 holds this value
+        }
+
+        /**
+         * @param value Point value
+         * @return The highest point value below it that some member holds, or -1 if none
+         */
+        int nextLower(int value) {
+            int below = countAtMost(value - 1);
+            return below == 0 ? -1 : valueAtCount(below);
+        }
+    }
+
+    /**
+     * Creates an empty leaderboard
+     */
+    public LoyaltyLeaderboard() {
+        this.slots = new IntIntMap(16, -1);
+        this.ids = new int[16];
+        this.points = new int[16];
+        this.types = new byte[16];
+        this.boards = new Board[BOARDS];
+        for (int b = 0; b < BOARDS; b++) {
+            boards[b] = new Board();
+        }
+        this.pending = new PendingUpdates[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            pending[i] = new PendingUpdates();
+        }
+    }
+
+    /**
+     * Puts a member on the overall board and the board for its type
+     * A member already on the board just has its points updated
+     *
+     * @param id Member ID
+     * @param type REGULAR or PREMIUM
+     * @param memberPoints The member's loyalty points
+     */
+    public synchronized void add(int id, int type, int memberPoints) {
+        flush();
+        if (slots.containsKey(id)) {
+            updateLocked(slots.get(id), memberPoints);
+            return;
+        }
+        if (type != REGULAR && type != PREMIUM) {
+            throw new IllegalArgumentException("Unknown member type " + type);
+        }
+        int slot = slotCount++;
+        if (slot == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            points = Arrays.copyOf(points, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+        int value = Math.max(0, memberPoints);
+        slots.put(id, slot);
+        ids[slot] = id;
+        points[slot] = value;
+        types[slot] = (byte) type;
+        boards[ALL].insert(slot, value);
+        boards[type].insert(slot, value);
+    }
+
+    /**
+     * Moves a member to a new point total; does nothing for members not on the board
+     * Only appends to the member's pending buffer; the board's lock is taken when the buffer is full
+     *
+     * @param id Member ID
+     * @param memberPoints The member's loyalty points now
+     */
+    public void update(int id, int memberPoints) {
+        int h = id * 0x9E3779B9;
+        PendingUpdates buffer = pending[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        while (true) {
+            synchronized (buffer) {
+                int i = buffer.size;
+                if (i < PENDING_UPDATES) {
+                    buffer.ids[i] = id;
+                    buffer.points[i] = memberPoints;
+                    buffer.size = i + 1;
+                    return;
+                }
+            }
+            synchronized (this) {
+                merge(buffer);
+            }
+        }
+    }
+
+    /**
+     * Removes every member
+     */
+    public synchronized void clear() {
+        flush();
+        slots.clear();
+        slotCount = 0;
+        for (Board board : boards) {
+            board.reset();
+        }
+    }
+
+    /**
+     * @param board ALL, REGULAR or PREMIUM
+     * @return Members on that board
+     */
+    public synchronized int size(int board) {
+        flush();
+        return boards[board].size;
+    }
+
+    /**
+     * @param id Member ID
+     * @return The member's points as last recorded, or -1 if the member is not on the board
+     */
+    public synchronized int getPoints(int id) {
+        flush();
+        int slot = slots.get(id);
+        return slot < 0 ? -1 : points[slot];
+    }
+
+    /**
+     * Finds a member's rank: 1 + the number of members on the board with more points
+     *
+     * @param id Member ID
+     * @param board ALL, REGULAR or PREMIUM
+     * @return The rank, or 0 if the member is not on that board
+     */
+    public synchronized int rankOf(int id, int board) {
+        flush();
+        int slot = slotOn(id, board);
+        if (slot < 0) {
+            return 0;
+        }
+        Board b = boards[board];
+        return b.size - b.countAtMost(points[slot]) + 1;
+    }
+
+    /**
+     * Lists members from the top of a board, most points first
+     *
+     * @param board ALL, REGULAR or PREMIUM
+     * @param skip Number of leading members to skip (for paging)
+     * @param into Receives member IDs; at most into.length are written
+     * @return Number of IDs written
+     */
+    public synchronized int getTop(int board, int skip, int[] into) {
+        flush();
+        Board b = boards[board];
+        if (skip < 0 || skip >= b.size || into.length == 0) {
+            return 0;
+        }
+        // The (skip + 1)-th member from the top is the (size - skip)-th from the bottom
+        int value = b.valueAtCount(b.size - skip);
+        int offset = skip - (b.size - b.countAtMost(value));
+        return collect(b, value, -1, offset, -1, into);
+    }
+
+    /**
+     * Counts the other members of a board whose points are within a range of a member's points
+     *
+     * @param id Member ID
+     * @param range Maximum difference in points
+     * @param board ALL, REGULAR or PREMIUM
+     * @return Members with points in [points - range, points + range], not counting the member
+     *         itself; 0 if the member is not on that board
+     */
+    public synchronized int countWithin(int id, int range, int board) {
+        flush();
+        int slot = slotOn(id, board);
+        if (slot < 0) {
+            return 0;
+        }
+        Board b = boards[board];
+        range = Math.max(0, range);
+        long high = Math.min((long) points[slot] + range, Integer.MAX_VALUE);
+        return b.countAtMost((int) high) - b.countAtMost(points[slot] - range - 1) - 1;
+    }
+
+    /**
+     * Lists the other members of a board whose points are within a range of a member's points,
+     * most points first
+     *
+     * @param id Member ID
+     * @param range Maximum difference in points
+     * @param board ALL, REGULAR or PREMIUM
+     * @param into Receives member IDs; at most into.length are written
+     * @return Number of IDs written (0 if the member is not on that board)
+     */
+    public synchronized int getWithin(int id, int range, int board, int[] into) {
+        flush();
+        int slot = slotOn(id, board);
+        if (slot < 0 || into.length == 0) {
+            return 0;
+        }
+        Board b = boards[board];
+        range = Math.max(0, range);
+        int low = Math.max(0, points[slot] - range);
+        long high = Math.min((long) points[slot] + range, Integer.MAX_VALUE);
+        int atMost = b.countAtMost((int) high);
+        if (atMost == 0) {
+            return 0;
+        }
+        return collect(b, b.valueAtCount(atMost), low, 0, slot, into);
+    }
+
+    /**
+     * Merges every pending update
+     * Caller must hold this board's lock
+     */
+    private void flush() {
+        for (PendingUpdates buffer : pending) {
+            merge(buffer);
+        }
+    }
+
+    /**
+     * Applies one buffer's updates in order and empties it; updates for members not on the
+     * board are dropped
+     * Caller must hold this board's lock
+     *
+     * @param buffer Buffer to merge
+     */
+    private void merge(PendingUpdates buffer) {
+        synchronized (buffer) {
+            for (int i = 0; i < buffer.size; i++) {
+                int slot = slots.get(buffer.ids[i]);
+                if (slot >= 0) {
+                    updateLocked(slot, buffer.points[i]);
+                }
+            }
+            buffer.size = 0;
+        }
+    }
+
+    /**
+     * Copies members into an array, walking point values downwards
+     *
+     * @param b Board to read
+     * @param value Highest point value to start at (held by at least one member)
+     * @param low Lowest point value to include, or -1 for no limit
+     * @param offset Members of the first value to skip
+     * @param excludeSlot Slot to leave out, or -1
+     * @param into Receives member IDs
+     * @return Number of IDs written
+     */
+    private int collect(Board b, int value, int low, int offset, int excludeSlot, int[] into) {
+        int written = 0;
+        while (value >= 0 && value >= low) {
+            int[] bucket = b.buckets[value];
+            for (int i = offset; i < b.bucketSizes[value]; i++) {
+                if (bucket[i] != excludeSlot) {
+                    into[written++] = ids[bucket[i]];
+                    if (written == into.length) {
+                        return written;
+                    }
+                }
+            }
+            offset = 0;
+            value = b.nextLower(value);
+        }
+        return written;
+    }
+
+    /**
+     * @param id Member ID
+     * @param board ALL, REGULAR or PREMIUM
+     * @return The member's slot if it is on that board, otherwise -1
+     */
+    private int slotOn(int id, int board) {
+        int slot = slots.get(id);
+        if (slot < 0 || (board != ALL && types[slot] != board)) {
+            return -1;
+        }
+        return slot;
+    }
+
+    /**
+     * Moves a slot to a new point value on the overall board and its type's board
+     *
+     * @param slot Member slot
+     * @param memberPoints New points
+     */
+    private void updateLocked(int slot, int memberPoints) {
+        int value = Math.max(0, memberPoints);
+        int old = points[slot];
+        if (value == old) {
+            return;
+        }
+        Board all = boards[ALL];
+        Board typed = boards[types[slot]];
+        all.remove(slot, old);
+        typed.remove(slot, old);
+        points[slot] = value;
+        all.insert(slot, value);
+        typed.insert(slot, value);
+    }
+}
@@ -0,0 +1,445 @@
+/**
+ * MemberCsvImporter - Bulk import of members from a CSV file
+ * Streams the file in chunks of lines; chunks are parsed and validated in parallel on a worker pool
+ * while the reader moves on, then committed to the registry in file order, one batch per chunk
+ * Rows that fail validation or reuse an existing ID, phone or email are written to an error file
+ *
+ * Expected columns (a header row starting with "type" is skipped):
+ *   type,id,name,location,phone,email,gender,dob,membershipStartDate,referralSourceOrTrainer
+ * type is Regular or Premium; the last column is the referral source (regular) or trainer (premium)
+ * Fields may be quoted with double quotes; a doubled quote inside a quoted field is a literal quote
+ */
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class MemberCsvImporter {
+    // Column layout
+    public static final String HEADER = "type,id,name,location,phone,email,gender,dob,membershipStartDate,referralSourceOrTrainer";
+    private static final int FIELD_COUNT = 10;
+
+    // Rejection messages not covered by MemberValidator or MemberRegistry
+    private static final String UNKNOWN_TYPE = "Member type must be Regular or Premium";
+    private static final String UNKNOWN_GENDER = "Gender must be Male or Female";
+
+    // Default number of lines handed to a worker at a time
+    public static final int DEFAULT_CHUNK_LINES = 4096;
+
+    private final MemberRegistry registry;    // Registry receiving the imported members
+    private final int chunkLines;             // Lines per parallel work unit
+    private final int parallelism;            // Number of parsing threads
+
+    /**
+     * Receives progress after each chunk is committed and can cancel the import
+     */
+    public interface Progress {
+        /**
+         * @param bytesRead Bytes of the CSV file consumed so far
+         * @param imported Members added so far
+         * @param rejected Rows rejected so far
+         * @return false to stop the import after the current chunk
+         */
+        boolean update(long bytesRead, int imported, int rejected);
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static final class Result {
+        public final int imported;        // Members added to the registry
+        public final int rejected;        // Rows written to the error file
+        public final boolean cancelled;   // Whether the import stopped before the end of the file
+
+        Result(int imported, int rejected, boolean cancelled) {
+            this.imported = imported;
+            this.rejected = rejected;
+            this.cancelled = cancelled;
+        }
+    }
+
+    /**
+     * Chunk of consecutive lines and, once parsed, the member or error for each line
+     */
+    private static final class Chunk {
+        final long firstLine;             // 1-based line number of lines[0]
+        final String[] lines;             // Raw lines
+        final GymMember[] members;        // Parsed member, or null if the line was rejected or blank
+        final String[] errors;            // Rejection reason, or null
+
+        Chunk(long firstLine, String[] lines) {
+            this.firstLine = firstLine;
+            this.lines = lines;
+            this.members = new GymMember[lines.length];
+            this.errors = new String[lines.length];
+        }
+    }
+
+    /**
+     * Creates an importer using one parsing thread per available processor
+     *
+     * @param registry Registry receiving the imported members
+     */
+    public MemberCsvImporter(MemberRegistry registry) {
+        this(registry, DEFAULT_CHUNK_LINES, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an importer
+     *
+     * @param registry Registry receiving the imported members
+     * @param chunkLines Lines per parallel work unit
+     * @param parallelism Number of parsing threads
+     */
+    public MemberCsvImporter(MemberRegistry registry, int chunkLines, int parallelism) {
+        this.registry = registry;
+        this.chunkLines = Math.max(1, chunkLines);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Imports every valid row of a CSV file
+     * At most two chunks per thread are held in memory, so files of any size stream through.
+     * Chunks are committed in file order, so when an ID appears twice the first row wins.
+     * Members committed before a cancellation or error stay in the registry.
+     *
+     * @param csvFile File to import
+     * @param errorFile File receiving rejected rows; only created if a row is rejected
+     * @param progress Progress callback, or null
+     * @return Import counts
+     * @throws IOException If the CSV cannot be read or the error file cannot be written
+     */
+    public Result importFile(Path csvFile, Path errorFile, Progress progress) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "csv-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+        ErrorLog errors = new ErrorLog(errorFile);
+        int[] counts = new int[2];      // imported, rejected
+        boolean cancelled = false;
+
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(csvFile));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            long lineNumber = 1;
+            boolean firstLine = true;
+            List<String> lines = new ArrayList<>(chunkLines);
+            String line;
+            while (!cancelled && (line = reader.readLine()) != null) {
+                if (firstLine) {
+                    firstLine = false;
+                    if (line.regionMatches(true, 0, "type", 0, 4)) {
+                        lineNumber++;
+                        continue;
+                    }
+                }
+                lines.add(line);
+                if (lines.size() == chunkLines) {
+                    inFlight.add(submit(pool, lineNumber, lines));
+                    lineNumber += lines.size();
+                    lines.clear();
+                    if (inFlight.size() >= maxInFlight) {
+                        commit(inFlight.poll(), errors, counts);
+                        cancelled = progress != null && !progress.update(in.count, counts[0], counts[1]);
+                    }
+                }
+            }
+            if (!cancelled && !lines.isEmpty()) {
+                inFlight.add(submit(pool, lineNumber, lines));
+            }
+            while (!cancelled && !inFlight.isEmpty()) {
+                commit(inFlight.poll(), errors, counts);
+                cancelled = progress != null && !progress.update(in.count, counts[0], counts[1]);
+            }
+        } finally {
+            pool.shutdownNow();
+            errors.close();
+        }
+        return new Result(counts[0], counts[1], cancelled);
+    }
+
+    /**
+     * Hands a copy of the buffered lines to the pool for parsing
+     *
+     * @param pool Parsing pool
+     * @param firstLine Line number of the first buffered line
+     * @param lines Buffered lines
+     * @return Future completing with the parsed chunk
+     */
+    private Future<Chunk> submit(ExecutorService pool, long firstLine, List<String> lines) {
+        Chunk chunk = new Chunk(firstLine, lines.toArray(new String[0]));
+        return pool.submit(() -> parse(chunk));
+    }
+
+    /**
+     * Adds a parsed chunk's valid members to the registry and logs its rejected rows
+     *
+     * @param future Future of the parsed chunk
+     * @param errors Error log
+     * @param counts Running imported and rejected counts
+     * @throws IOException If parsing failed or the error file cannot be written
+     */
+    private void commit(Future<Chunk> future, ErrorLog errors, int[] counts) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error parsing CSV: " + e.getCause(), e.getCause());
+        }
+
+        List<GymMember> batch = new ArrayList<>(chunk.lines.length);
+        for (GymMember member : chunk.members) {
+            if (member != null) {
+                batch.add(member);
+            }
+        }
+        byte[] results = new byte[batch.size()];
+        counts[0] += registry.addMembers(batch, results);
+
+        int next = 0;
+        for (int i = 0; i < chunk.lines.length; i++) {
+            String error = chunk.errors[i];
+            if (chunk.members[i] != null) {
+                error = MemberRegistry.addResultMessage(results[next++]);
+            }
+            if (error != null) {
+                errors.write(chunk.firstLine + i, error, chunk.lines[i]);
+                counts[1]++;
+            }
+        }
+    }
+
+    /**
+     * Parses and validates every line of a chunk; runs on a pool thread
+     *
+     * @param chunk Chunk to fill in
+     * @return The same chunk
+     */
+    private static Chunk parse(Chunk chunk) {
+        for (int i = 0; i < chunk.lines.length; i++) {
+            String line = chunk.lines[i];
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            List<String> fields = splitLine(line);
+            if (fields == null) {
+                chunk.errors[i] = "Unterminated quoted field";
+                continue;
+            }
+            if (fields.size() != FIELD_COUNT) {
+                chunk.errors[i] = "Expected " + FIELD_COUNT + " fields but found " + fields.size();
+                continue;
+            }
+            Object parsed = toMember(fields);
+            if (parsed instanceof String) {
+                chunk.errors[i] = (String) parsed;
+            } else {
+                chunk.members[i] = (GymMember) parsed;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Validates one row's fields and builds the member
+     * Also used by GymServer for members registered over HTTP
+     *
+     * @param f Row fields in column order
+     * @return The new member, or the rejection message
+     */
+    static Object toMember(List<String> f) {
+        String type = f.get(0);
+        String gender = f.get(6);
+        if (gender.equalsIgnoreCase("male")) {
+            gender = "Male";
+        } else if (gender.equalsIgnoreCase("female")) {
+            gender = "Female";
+        } else if (!gender.isEmpty()) {
+            return UNKNOWN_GENDER;
+        }
+
+        String error = MemberValidator.validateBasicFields(f.get(1), f.get(2), f.get(3), f.get(4), f.get(5),
+                gender, f.get(7), f.get(8));
+        if (error != null) {
+            return error;
+        }
+
+        int id = Integer.parseInt(f.get(1));
+        String extra = f.get(9);
+        if (type.equalsIgnoreCase("regular")) {
+            if (extra.isEmpty()) {
+                return MemberValidator.REFERRAL_SOURCE_REQUIRED;
+            }
+            return new RegularMember(id, f.get(2), f.get(3), f.get(4), f.get(5), gender, f.get(7), f.get(8), extra);
+        } else if (type.equalsIgnoreCase("premium")) {
+            if (extra.isEmpty()) {
+                return MemberValidator.TRAINER_NAME_REQUIRED;
+            }
+            return new PremiumMember(id, f.get(2), f.get(3), f.get(4), f.get(5), gender, f.get(7), f.get(8), extra);
+        }
+        return UNKNOWN_TYPE;
+    }
+
+    /**
+     * Splits one CSV line into trimmed fields
+     *
+     * @param line CSV line
+     * @return Fields, or null if a quoted field is not closed
+     */
+    static List<String> splitLine(String line) {
+        List<String> fields = new ArrayList<>(FIELD_COUNT);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        int length = line.length();
+        while (true) {
+            // Skip leading spaces, then read a quoted or plain field
+            while (i < length && line.charAt(i) == ' ') {
+                i++;
+            }
+            field.setLength(0);
+            if (i < length && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= length) {
+                        return null;
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < length && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                while (i < length && line.charAt(i) != ',') {
+                    i++;
+                }
+                fields.add(field.toString());
+            } else {
+                int end = line.indexOf(',', i);
+                if (end < 0) {
+                    end = length;
+                }
+                fields.add(line.substring(i, end).trim());
+                i = end;
+            }
+            if (i >= length) {
+                return fields;
+            }
+            i++;    // Skip the comma
+        }
+    }
+
+    /**
+     * Quotes a value for the error file if it contains a comma, quote or line break
+     *
+     * @param value Value to write
+     * @return CSV-safe value
+     */
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * ErrorLog - Lazily created CSV of rejected rows (line, error, original record)
+     * Also used by PaymentFileImporter
+     */
+    static final class ErrorLog {
+        private final Path file;          // Destination file
+        private BufferedWriter writer;    // Opened on the first rejected row
+
+        ErrorLog(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * @param lineNumber Line number of the rejected row in the CSV file
+         * @param error Rejection reason
+         * @param record Original line
+         * @throws IOException If the file cannot be written
+         */
+        void write(long lineNumber, String error, String record) throws IOException {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+                writer.write("line,error,record");
+                writer.newLine();
+            }
+            writer.write(Long.toString(lineNumber));
+            writer.write(',');
+            writer.write(quote(error));
+            writer.write(',');
+            writer.write(quote(record));
+            writer.newLine();
+        }
+
+        /**
+         * @throws IOException If the file cannot be flushed
+         */
+        void close() throws IOException {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * CountingInputStream - Tracks how many bytes have been read, for progress reporting
+     * Also used by PaymentFileImporter
+     */
+    static final class CountingInputStream extends FilterInputStream {
+        long count;                       // Bytes read so far
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
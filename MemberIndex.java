@@ -0,0 +1,194 @@
+/**
+ * MemberIndex - Primitive-keyed hash index from member ID to GymMember
+ * Uses open addressing with linear probing over parallel int/object arrays
+ * Avoids boxing the ID so lookups cost the same regardless of member count
+ */
+public class MemberIndex {
+    // Sentinel marking an unused slot (member IDs are stored as-is otherwise)
+    private static final int EMPTY_KEY = Integer.MIN_VALUE;
+
+    // Table is resized once it is more than this fraction full
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Parallel hash table arrays
+    private int[] keys;                   // Member IDs, EMPTY_KEY for free slots
+    private GymMember[] values;           // Members stored alongside their IDs
+    private int mask;                     // keys.length - 1 (capacity is a power of two)
+
+    // Bookkeeping
+    private int size;                     // Number of members in the index
+    private int resizeThreshold;          // Size at which the table doubles
+    private GymMember emptyKeyMember;     // Member whose ID equals EMPTY_KEY, if any
+
+    /**
+     * Creates an empty index sized for a small gym
+     */
+    public MemberIndex() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty index able to hold the expected number of members without resizing
+     *
+     * @param expectedMembers Number of members the index should hold before growing
+     */
+    public MemberIndex(int expectedMembers) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedMembers, 1) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+
+    /**
+     * @return Number of members in the index
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the index holds no members
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Checks whether a member with the given ID is indexed
+     *
+     * @param id Member ID to look for
+     * @return true if the ID is present, false otherwise
+     */
+    public boolean contains(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Looks up a member by ID
+     *
+     * @param id Member ID to look for
+     * @return The member with that ID, or null if not found
+     */
+    public GymMember get(int id) {
+        if (id == EMPTY_KEY) {
+            return emptyKeyMember;
+        }
+        int slot = mix(id) & mask;
+        while (true) {
+            int key = keys[slot];
+            if (key == id) {
+                return values[slot];
+            }
+            if (key == EMPTY_KEY) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds or replaces the member stored under the member's own ID
+     *
+     * @param member Member to index
+     * @return The member previously stored under that ID, or null if none
+     */
+    public GymMember put(GymMember member) {
+        int id = member.getId();
+        if (id == EMPTY_KEY) {
+            GymMember previous = emptyKeyMember;
+            emptyKeyMember = member;
+            if (previous == null) {
+                size++;
+            }
+            return previous;
+        }
+
+        int slot = mix(id) & mask;
+        while (true) {
+            int key = keys[slot];
+            if (key == id) {
+                GymMember previous = values[slot];
+                values[slot] = member;
+                return previous;
+            }
+            if (key == EMPTY_KEY) {
+                keys[slot] = id;
+                values[slot] = member;
+                if (++size > resizeThreshold) {
+                    resize(keys.length << 1);
+                }
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes every member from the index
+     */
+    public void clear() {
+        java.util.Arrays.fill(keys, EMPTY_KEY);
+        java.util.Arrays.fill(values, null);
+        emptyKeyMember = null;
+        size = 0;
+    }
+
+    /**
+     * Doubles the table and re-inserts every stored member
+     *
+     * @param newCapacity New table capacity (power of two)
+     */
+    private void resize(int newCapacity) {
+        int[] oldKeys = keys;
+        GymMember[] oldValues = values;
+        allocate(newCapacity);
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int slot = mix(key) & mask;
+                while (keys[slot] != EMPTY_KEY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Allocates empty table arrays of the given capacity
+     *
+     * @param capacity Table capacity (power of two)
+     */
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        java.util.Arrays.fill(keys, EMPTY_KEY);
+        values = new GymMember[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Scrambles the ID bits so sequential IDs spread across the table
+     *
+     * @param id Member ID
+     * @return Well-distributed hash of the ID
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Rounds up to the next power of two, with a minimum table size of 16
+     *
+     * @param n Requested capacity
+     * @return Power-of-two capacity of at least n
+     */
+    private static int tableSizeFor(int n) {
+        int capacity = 16;
+        while (capacity < n && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,705 @@
+/**
+ * MemberJournal - Append-only write-ahead journal of member mutations
+ * Every change made through MemberRegistry is appended as a small record and
+ * made durable by a background thread that fsyncs once per batch (group commit)
+ * On startup the journal is replayed on top of the last snapshot
+ *
+ * Each record stores the values the operation left behind (not a delta), so replaying
+ * a record that the snapshot already contains simply rewrites the same values.
+ * Check-in records carry the visit time as their timestamp; replay adds a visit to the
+ * attendance log only if it is later than the member's restored last visit. Ledger records
+ * carry their entry number; replay posts an entry only if the restored ledger lacks it.
+ * A checkpoint rotates the journal to a ".prev" file, writes the snapshot, then
+ * deletes ".prev"; recovery replays ".prev" (if a checkpoint was interrupted)
+ * followed by the live journal.
+ *
+ * Record layout (big-endian):
+ *   int body length, int CRC32 of body,
+ *   body: byte op, long timestamp (epoch millis), int member ID, op-specific payload
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class MemberJournal implements AutoCloseable {
+    // Operation codes
+    static final byte OP_ADD = 1;             // New member: type + constructor fields
+    static final byte OP_ACTIVE = 2;          // Active flag
+    static final byte OP_ATTENDANCE = 3;      // Attendance, loyalty points, upgrade eligibility (timestamp = visit time)
+    static final byte OP_PLAN = 4;            // Regular plan and price
+    static final byte OP_PAYMENT = 5;         // Premium paid amount as a double (older journals only)
+    static final byte OP_DISCOUNT = 6;        // Premium discount amount
+    static final byte OP_REVERT_REGULAR = 7;  // Regular revert with removal reason
+    static final byte OP_REVERT_PREMIUM = 8;  // Premium revert
+    static final byte OP_LEDGER = 9;          // Payment ledger entry and resulting paid amount (timestamp = posting time)
+
+    // Member type tags used by OP_ADD
+    private static final byte TYPE_REGULAR = 1;
+    private static final byte TYPE_PREMIUM = 2;
+
+    // Record framing
+    private static final int HEADER_SIZE = 8;             // Body length + CRC
+    private static final int MAX_BODY_SIZE = 1 << 20;     // Sanity limit when replaying
+
+    // Journal files
+    private final Path file;                  // Live journal
+    private final Path previousFile;          // Journal rotated out by an unfinished checkpoint
+    private FileChannel channel;              // Append channel for the live journal
+
+    // Group commit state (guarded by this)
+    private ByteBuffer pending;               // Records waiting for the next batch
+    private ByteBuffer spare;                 // Buffer swapped in while a batch is written
+    private final CRC32 crc;                  // Reused record checksum
+    private long appendedSeq;                 // Sequence number of the last appended record
+    private long durableSeq;                  // Sequence number of the last fsynced record
+    private boolean flushing;                 // Whether the flusher is writing a batch
+    private boolean closed;                   // Whether close() was called
+    private IOException failure;              // First write failure, reported to waiters
+
+    private final Thread flusher;             // Background group-commit thread
+    private final Object checkpointLock;      // Lets one checkpoint rotate and write the snapshot at a time
+
+    /**
+     * Opens (or creates) the journal for appending
+     * Call replay first so a torn record at the end is cut off before new records follow it
+     *
+     * @param file Live journal file
+     * @throws IOException If the file cannot be opened
+     */
+    public MemberJournal(Path file) throws IOException {
+        this.file = file;
+        this.previousFile = file.resolveSibling(file.getFileName() + ".prev");
+        this.channel = openForAppend(file);
+        this.pending = ByteBuffer.allocate(64 * 1024);
+        this.spare = ByteBuffer.allocate(64 * 1024);
+        this.crc = new CRC32();
+        this.checkpointLock = new Object();
+        this.flusher = new Thread(this::flushLoop, "member-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Restores members from the snapshot and journal files, then starts journaling
+     * Loads the snapshot (if any), replays any rotated and live journal records on top,
+     * and attaches a new journal to the registry
+     *
+     * @param registry Registry to fill (normally empty)
+     * @param snapshotFile Snapshot written by the last checkpoint
+     * @param journalFile Live journal file
+     * @return The journal now attached to the registry
+     * @throws IOException If the snapshot is corrupt or the files cannot be opened
+     */
+    public static MemberJournal recover(MemberRegistry registry, Path snapshotFile, Path journalFile) throws IOException {
+        if (Files.exists(snapshotFile)) {
+            AttendanceLog visits = new AttendanceLog();
+            PaymentLedger payments = new PaymentLedger();
+            registry.replaceMembers(MemberSnapshot.read(snapshotFile, visits, payments), visits, payments);
+        }
+        Path previous = journalFile.resolveSibling(journalFile.getFileName() + ".prev");
+        replay(previous, registry);
+        replay(journalFile, registry);
+
+        MemberJournal journal = new MemberJournal(journalFile);
+        registry.setJournal(journal);
+        return journal;
+    }
+
+    /**
+     * Writes a new snapshot and discards the journal records it covers
+     * Records appended while the snapshot is being written stay in the new journal
+     * Checkpoints run one at a time, so a second rotate cannot fold records into ".prev"
+     * while the first snapshot is still being written
+     *
+     * @param registry Registry to snapshot
+     * @param snapshotFile Snapshot file to replace
+     * @return Number of members written
+     * @throws IOException If the journal cannot be rotated or the snapshot written
+     */
+    public int checkpoint(MemberRegistry registry, Path snapshotFile) throws IOException {
+        synchronized (checkpointLock) {
+            rotate();
+            int count = MemberSnapshot.write(registry, snapshotFile);
+            Files.deleteIfExists(previousFile);
+            return count;
+        }
+    }
+
+    /**
+     * Drops every journal record, e.g. after the registry was replaced from a snapshot
+     * Only call this once the registry contents match the snapshot on disk
+     *
+     * @throws IOException If the journal files cannot be truncated
+     */
+    public synchronized void discardAll() throws IOException {
+        awaitIdle();
+        channel.truncate(0);
+        channel.force(true);
+        Files.deleteIfExists(previousFile);
+    }
+
+    /**
+     * Tells a caller whether a record appended now can still become durable
+     * Check this before applying a mutation: after a write failure the flusher stops for good
+     *
+     * @return false once the journal is closed or a write has failed
+     */
+    public synchronized boolean isWritable() {
+        return !closed && failure == null;
+    }
+
+    /**
+     * Journals a newly added member
+     *
+     * @param member Member that was added
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logAdd(GymMember member) {
+        int start = beginRecord(OP_ADD, member.getId());
+        boolean premium = member instanceof PremiumMember;
+        pending.put(premium ? TYPE_PREMIUM : TYPE_REGULAR);
+        putString(member.getName());
+        putString(member.getLocation());
+        putString(member.getPhone());
+        putString(member.getEmail());
+        putString(member.getGender());
+        putString(member.getDob());
+        putString(member.getMembershipStartDate());
+        putString(premium ? ((PremiumMember) member).getPersonalTrainer() : ((RegularMember) member).getReferralSource());
+        return endRecord(start);
+    }
+
+    /**
+     * Journals an activate or deactivate
+     *
+     * @param member Member whose status changed
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logActive(GymMember member) {
+        int start = beginRecord(OP_ACTIVE, member.getId());
+        pending.put((byte) (member.isActive() ? 1 : 0));
+        return endRecord(start);
+    }
+
+    /**
+     * Journals a check-in
+     *
+     * @param member Member who attended
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logAttendance(GymMember member) {
+        int start = beginRecord(OP_ATTENDANCE, member.getId(), member.getLastVisit());
+        pending.putInt(member.getAttendance());
+        pending.putInt(member.getLoyaltyPoints());
+        boolean eligible = member instanceof RegularMember && ((RegularMember) member).isEligibleForUpgrade();
+        pending.put((byte) (eligible ? 1 : 0));
+        return endRecord(start);
+    }
+
+    /**
+     * Journals a plan upgrade
+     *
+     * @param member Regular member whose plan changed
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logPlan(RegularMember member) {
+        int start = beginRecord(OP_PLAN, member.getId());
+        pending.putDouble(member.getPrice());
+        putString(member.getPlan());
+        return endRecord(start);
+    }
+
+    /**
+     * Journals a payment ledger entry with the member's paid amount after it
+     *
+     * @param member Premium member the entry belongs to
+     * @param entry Entry number in the ledger
+     * @param amountMinor Entry amount in paise
+     * @param time Posting time (epoch milliseconds)
+     * @param kind PaymentLedger.KIND_* code
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logLedgerEntry(PremiumMember member, int entry, long amountMinor, long time, byte kind) {
+        int start = beginRecord(OP_LEDGER, member.getId(), time);
+        pending.putInt(entry);
+        pending.put(kind);
+        pending.putLong(amountMinor);
+        pending.putLong(member.getPaidMinor());
+        return endRecord(start);
+    }
+
+    /**
+     * Journals a discount calculation
+     *
+     * @param member Premium member whose discount was calculated
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logDiscount(PremiumMember member) {
+        int start = beginRecord(OP_DISCOUNT, member.getId());
+        pending.putDouble(member.getDiscountAmount());
+        return endRecord(start);
+    }
+
+    /**
+     * Journals a regular member revert
+     *
+     * @param member Regular member that was reverted
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logRevertRegular(RegularMember member) {
+        int start = beginRecord(OP_REVERT_REGULAR, member.getId());
+        putString(member.getRemovalReason());
+        return endRecord(start);
+    }
+
+    /**
+     * Journals a premium member revert
+     *
+     * @param member Premium member that was reverted
+     * @return Sequence number to pass to awaitDurable
+     */
+    public synchronized long logRevertPremium(PremiumMember member) {
+        int start = beginRecord(OP_REVERT_PREMIUM, member.getId());
+        return endRecord(start);
+    }
+
+    /**
+     * Blocks until the record with the given sequence number has been fsynced
+     * Records appended by other threads in the meantime share the same fsync
+     *
+     * @param seq Sequence number returned by one of the log methods (0 returns at once)
+     * @throws UncheckedIOException If the journal could not be written
+     */
+    public synchronized void awaitDurable(long seq) {
+        boolean interrupted = false;
+        while (durableSeq < seq && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (durableSeq < seq) {
+            throw new UncheckedIOException("Member journal write failed", failure);
+        }
+    }
+
+    /**
+     * Flushes outstanding records and stops the background thread
+     *
+     * @throws IOException If the journal cannot be closed cleanly
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Applies every intact record in a journal file to the registry
+     * Stops at the first torn or corrupt record and truncates the file there
+     *
+     * @param journalFile Journal file to replay (missing files are ignored)
+     * @param registry Registry to apply the records to
+     * @return Number of records applied
+     * @throws IOException If the file cannot be read
+     */
+    public static int replay(Path journalFile, MemberRegistry registry) throws IOException {
+        if (!Files.exists(journalFile)) {
+            return 0;
+        }
+
+        int applied = 0;
+        try (FileChannel in = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(256 * 1024);
+            buffer.limit(0);
+            CRC32 checksum = new CRC32();
+            long goodOffset = 0;
+
+            while (true) {
+                if (!fill(in, buffer, HEADER_SIZE)) {
+                    break;
+                }
+                int length = buffer.getInt();
+                int expectedCrc = buffer.getInt();
+                if (length <= 0 || length > MAX_BODY_SIZE) {
+                    break;
+                }
+                if (buffer.capacity() < length) {
+                    ByteBuffer larger = ByteBuffer.allocate(length);
+                    larger.put(buffer).flip();
+                    buffer = larger;
+                }
+                if (!fill(in, buffer, length)) {
+                    break;
+                }
+
+                checksum.reset();
+                checksum.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                if ((int) checksum.getValue() != expectedCrc) {
+                    break;
+                }
+
+                ByteBuffer body = buffer.slice();
+                body.limit(length);
+                buffer.position(buffer.position() + length);
+                apply(body, registry);
+                goodOffset += HEADER_SIZE + length;
+                applied++;
+            }
+
+            // Cut off a torn tail so new records are not appended after garbage
+            if (in.size() > goodOffset) {
+                in.truncate(goodOffset);
+                in.force(true);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Applies one record body to the registry
+     *
+     * @param body Record body positioned at the op code
+     * @param registry Registry to update
+     */
+    private static void apply(ByteBuffer body, MemberRegistry registry) {
+        byte op = body.get();
+        long timestamp = body.getLong();
+        int id = body.getInt();
+
+        if (op == OP_ADD) {
+            byte type = body.get();
+            String name = getString(body);
+            String location = getString(body);
+            String phone = getString(body);
+            String email = getString(body);
+            String gender = getString(body);
+            String dob = getString(body);
+            String startDate = getString(body);
+            String extra = getString(body);
+            if (!registry.containsId(id)) {
+                registry.restoreMember(type == TYPE_PREMIUM
+                        ? new PremiumMember(id, name, location, phone, email, gender, dob, startDate, extra)
+                        : new RegularMember(id, name, location, phone, email, gender, dob, startDate, extra));
+            }
+            return;
+        }
+
+        GymMember member = registry.findMember(id);
+        if (member == null) {
+            return;                           // Record for a member the snapshot never saw
+        }
+
+        switch (op) {
+            case OP_ACTIVE:
+                registry.restoreActive(member, body.get() != 0);
+                break;
+            case OP_ATTENDANCE: {
+                int attendance = body.getInt();
+                int loyaltyPoints = body.getInt();
+                boolean eligible = body.get() != 0;
+                if (member instanceof RegularMember) {
+                    RegularMember rm = (RegularMember) member;
+                    rm.restoreRegularState(eligible, rm.getPlan(), rm.getPrice(), rm.getRemovalReason());
+                }
+                registry.restoreVisit(member, timestamp, attendance, loyaltyPoints);   // Also re-checks the upgrade feed
+                break;
+            }
+            case OP_PLAN: {
+                double price = body.getDouble();
+                String plan = getString(body);
+                if (member instanceof RegularMember) {
+                    RegularMember rm = (RegularMember) member;
+                    registry.restoreState(rm, () -> rm.restoreRegularState(rm.isEligibleForUpgrade(), plan, price,
+                            rm.getRemovalReason()));
+                }
+                break;
+            }
+            case OP_PAYMENT: {
+                double paidAmount = body.getDouble();
+                if (member instanceof PremiumMember) {
+                    registry.restorePaidAmount((PremiumMember) member, Math.round(paidAmount * 100), timestamp);
+                }
+                break;
+            }
+            case OP_LEDGER: {
+                int entry = body.getInt();
+                byte kind = body.get();
+                long amountMinor = body.getLong();
+                long paidAfter = body.getLong();
+                if (member instanceof PremiumMember) {
+                    registry.restoreLedgerEntry((PremiumMember) member, entry, amountMinor, timestamp, kind, paidAfter);
+                }
+                break;
+            }
+            case OP_DISCOUNT: {
+                double discountAmount = body.getDouble();
+                if (member instanceof PremiumMember) {
+                    PremiumMember pm = (PremiumMember) member;
+                    registry.restoreState(pm, () -> pm.restorePaymentState(pm.getPaidMinor(), discountAmount));
+                }
+                break;
+            }
+            case OP_REVERT_REGULAR: {
+                String reason = getString(body);
+                if (member instanceof RegularMember) {
+                    RegularMember rm = (RegularMember) member;
+                    registry.restoreState(rm, () -> rm.revertRegularMember(reason));
+                }
+                break;
+            }
+            case OP_REVERT_PREMIUM:
+                if (member instanceof PremiumMember) {
+                    registry.revertPremiumMember(id);    // Through the registry so the trainer roster follows
+                }
+                break;
+            default:
+                break;                        // Unknown op from a newer version; skip it
+        }
+    }
+
+    /**
+     * Starts a record in the pending buffer, leaving room for the header
+     *
+     * @param op Operation code
+     * @param id Member ID
+     * @return Buffer offset where the record starts
+     */
+    private int beginRecord(byte op, int id) {
+        return beginRecord(op, id, System.currentTimeMillis());
+    }
+
+    /**
+     * Starts a record with a given timestamp, e.g. the check-in time the registry recorded
+     *
+     * @param op Operation code
+     * @param id Member ID
+     * @param timestamp Record time (epoch milliseconds)
+     * @return Buffer offset where the record starts
+     */
+    private int beginRecord(byte op, int id, long timestamp) {
+        if (closed) {
+            throw new IllegalStateException("Member journal is closed");
+        }
+        ensureCapacity(HEADER_SIZE + 1 + 8 + 4 + 64);
+        int start = pending.position();
+        pending.position(start + HEADER_SIZE);
+        pending.put(op);
+        pending.putLong(timestamp);
+        pending.putInt(id);
+        return start;
+    }
+
+    /**
+     * Fills in the record header and hands the record to the flusher
+     *
+     * @param start Buffer offset returned by beginRecord
+     * @return Sequence number of the record
+     */
+    private long endRecord(int start) {
+        int end = pending.position();
+        int length = end - start - HEADER_SIZE;
+        crc.reset();
+        crc.update(pending.array(), pending.arrayOffset() + start + HEADER_SIZE, length);
+        pending.putInt(start, length);
+        pending.putInt(start + 4, (int) crc.getValue());
+        notifyAll();
+        return ++appendedSeq;
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string into the pending buffer
+     *
+     * @param value String to write (null is written as empty)
+     */
+    private void putString(String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        ensureCapacity(4 + bytes.length);
+        pending.putInt(bytes.length);
+        pending.put(bytes);
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from a record body
+     *
+     * @param body Record body
+     * @return The decoded string
+     */
+    private static String getString(ByteBuffer body) {
+        int length = body.getInt();
+        String value = new String(body.array(), body.arrayOffset() + body.position(), length, StandardCharsets.UTF_8);
+        body.position(body.position() + length);
+        return value;
+    }
+
+    /**
+     * Grows the pending buffer if fewer than the given bytes are free
+     *
+     * @param bytes Bytes about to be written
+     */
+    private void ensureCapacity(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+
+    /**
+     * Background loop: swaps out the pending buffer, writes it and fsyncs once per batch
+     */
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer batch;
+            FileChannel target;
+            long batchSeq;
+            synchronized (this) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Keep running until close() is called
+                    }
+                }
+                if (pending.position() == 0) {
+                    return;                   // Closed and fully drained
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchSeq = appendedSeq;
+                target = channel;
+                flushing = true;
+            }
+
+            IOException error = null;
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    target.write(batch);
+                }
+                target.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+            batch.clear();
+
+            synchronized (this) {
+                flushing = false;
+                if (error != null) {
+                    failure = error;          // Later records are still accepted; awaitDurable reports the failure
+                } else {
+                    durableSeq = batchSeq;
+                }
+                notifyAll();
+                if (error != null) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits (holding the monitor between checks) until every appended record is durable
+     *
+     * @throws IOException If the flusher failed
+     */
+    private void awaitIdle() throws IOException {
+        while ((pending.position() > 0 || flushing) && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for journal flush", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Moves the live journal aside to ".prev" and starts an empty one
+     * If an earlier checkpoint left a ".prev" behind, the live records are appended to it
+     *
+     * @throws IOException If the files cannot be moved or reopened
+     */
+    private synchronized void rotate() throws IOException {
+        awaitIdle();
+        channel.close();
+        if (Files.exists(previousFile)) {
+            try (FileChannel src = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel dst = FileChannel.open(previousFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long position = 0;
+                long size = src.size();
+                while (position < size) {
+                    position += src.transferTo(position, size - position, dst);
+                }
+                dst.force(true);
+            }
+            Files.delete(file);
+        } else {
+            Files.move(file, previousFile);
+        }
+        channel = openForAppend(file);
+    }
+
+    /**
+     * Opens a journal file for appending, creating it if needed
+     *
+     * @param path Journal file
+     * @return Channel positioned at the end of the file
+     * @throws IOException If the file cannot be opened
+     */
+    private static FileChannel openForAppend(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least the given bytes
+     *
+     * @param in Channel to read from
+     * @param buffer Buffer in read mode
+     * @param bytes Bytes required
+     * @return false if the file ended first
+     * @throws IOException If reading fails
+     */
+    private static boolean fill(FileChannel in, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (in.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
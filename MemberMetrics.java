@@ -0,0 +1,484 @@
+/**
+ * MemberMetrics - Call counts and latency histograms for every member operation
+ * Each operation keeps a total and a maximum time plus a histogram with one bucket per power
+ * of two nanoseconds (whose sum is the call count), all in LongAdders so concurrent recording
+ * never contends
+ * Recording costs two System.nanoTime() calls and a few adds; nothing is allocated
+ *
+ * Snapshots are available through JMX (domain "GymManagement") and as a plain-text report
+ * that can be appended to a file periodically.
+ * All methods are static and safe to call from any thread.
+ */
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public final class MemberMetrics {
+    // Operations (index into the statistics table)
+    public static final int ADD_MEMBER = 0;
+    public static final int ADD_BATCH = 1;
+    public static final int ACTIVATE = 2;
+    public static final int DEACTIVATE = 3;
+    public static final int CHECK_IN = 4;
+    public static final int CHECK_IN_BATCH = 5;
+    public static final int UPGRADE = 6;
+    public static final int DISCOUNT = 7;
+    public static final int PAYMENT = 8;
+    public static final int REVERT_REGULAR = 9;
+    public static final int REVERT_PREMIUM = 10;
+    public static final int NAME_SEARCH = 11;
+    public static final int JOURNAL_SYNC = 12;
+    public static final int SNAPSHOT_WRITE = 13;
+    public static final int SNAPSHOT_READ = 14;
+    public static final int SAVE_FILE = 15;
+    public static final int READ_FILE = 16;
+    public static final int IMPORT_CSV = 17;
+    public static final int DISPLAY = 18;
+    public static final int PAYMENT_BATCH = 19;
+    public static final int HTTP_REQUEST = 20;
+
+    // Operation names used in reports and JMX object names
+    private static final String[] NAMES = {
+            "addMember", "addBatch", "activate", "deactivate", "checkIn", "checkInBatch", "upgrade",
+            "discount", "payment", "revertRegular", "revertPremium", "nameSearch", "journalSync",
+            "snapshotWrite", "snapshotRead", "saveFile", "readFile", "importCsv", "display",
+            "paymentBatch", "httpRequest"
+    };
+
+    // Histogram buckets: bucket b counts durations in [2^(b-1), 2^b) ns; the last is open-ended
+    public static final int BUCKETS = 40;
+
+    // Report timestamp format
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // JMX domain for the registered MXBeans
+    public static final String JMX_DOMAIN = "GymManagement";
+
+    // Statistics per operation
+    private static final Stats[] STATS = new Stats[NAMES.length];
+
+    // Periodic report writer, null if not running
+    private static ScheduledExecutorService dumper;
+
+    static {
+        for (int i = 0; i < STATS.length; i++) {
+            STATS[i] = new Stats();
+        }
+    }
+
+    /**
+     * Not instantiable; use the static methods
+     */
+    private MemberMetrics() {
+    }
+
+    /**
+     * Live statistics for one operation
+     */
+    private static final class Stats {
+        final LongAdder totalNanos = new LongAdder();                     // Sum of durations
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0); // Longest duration
+        final LongAdder[] buckets = new LongAdder[BUCKETS];               // Log2 histogram
+
+        Stats() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * @return Start time to pass to record() when the operation finishes
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records one call of an operation that started at the given time
+     *
+     * @param operation Operation constant (ADD_MEMBER, CHECK_IN, ...)
+     * @param startNanos Value returned by start() when the operation began
+     */
+    public static void record(int operation, long startNanos) {
+        recordNanos(operation, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records one call of an operation with a known duration
+     *
+     * @param operation Operation constant (ADD_MEMBER, CHECK_IN, ...)
+     * @param nanos Duration in nanoseconds
+     */
+    public static void recordNanos(int operation, long nanos) {
+        Stats stats = STATS[operation];
+        long duration = Math.max(0, nanos);
+        stats.totalNanos.add(duration);
+        stats.maxNanos.accumulate(duration);
+        stats.buckets[bucketOf(duration)].increment();
+    }
+
+    /**
+     * Takes a consistent-enough copy of one operation's statistics
+     * Counters are read one after another, so a snapshot taken under load may be off by the
+     * calls recorded while it was being read
+     *
+     * @param operation Operation constant
+     * @return Copy of the statistics
+     */
+    public static Snapshot snapshot(int operation) {
+        Stats stats = STATS[operation];
+        long[] histogram = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = stats.buckets[i].sum();
+            count += histogram[i];
+        }
+        return new Snapshot(NAMES[operation], count, stats.totalNanos.sum(), stats.maxNanos.get(), histogram);
+    }
+
+    /**
+     * Clears the statistics of every operation
+     */
+    public static void reset() {
+        for (Stats stats : STATS) {
+            stats.totalNanos.reset();
+            stats.maxNanos.reset();
+            for (LongAdder bucket : stats.buckets) {
+                bucket.reset();
+            }
+        }
+    }
+
+    /**
+     * @return Number of operation constants
+     */
+    public static int operationCount() {
+        return NAMES.length;
+    }
+
+    /**
+     * @param operation Operation constant
+     * @return Name used in reports and JMX
+     */
+    public static String operationName(int operation) {
+        return NAMES[operation];
+    }
+
+    /**
+     * Formats a table of every operation called at least once
+     *
+     * @return Multi-line report with counts and latencies in microseconds
+     */
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append("Gym metrics at ")
+                .append(LocalDateTime.now().format(TIMESTAMP))
+                .append(System.lineSeparator());
+        out.append(String.format(Locale.ROOT, "%-15s %10s %10s %10s %10s %10s %12s%n",
+                "operation", "count", "mean(us)", "p50(us)", "p99(us)", "max(us)", "total(ms)"));
+        for (int i = 0; i < NAMES.length; i++) {
+            Snapshot s = snapshot(i);
+            if (s.count == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.ROOT, "%-15s %10d %10.1f %10.1f %10.1f %10.1f %12.1f%n",
+                    s.name, s.count, s.meanNanos() / 1e3, s.percentileNanos(0.50) / 1e3,
+                    s.percentileNanos(0.99) / 1e3, s.maxNanos / 1e3, s.totalNanos / 1e6));
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends the report to a file every period, on a daemon thread
+     * Replaces any dump already running
+     *
+     * @param file File to append to (created if missing)
+     * @param periodSeconds Seconds between reports
+     */
+    public static synchronized void startDump(Path file, long periodSeconds) {
+        stopDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "member-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                dump(file);
+            } catch (IOException e) {
+                System.err.println("Could not write metrics to " + file + ": " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic dump, if running
+     */
+    public static synchronized void stopDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    /**
+     * Appends the current report to a file
+     *
+     * @param file File to append to (created if missing)
+     * @throws IOException If the file cannot be written
+     */
+    public static void dump(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(report());
+            writer.write(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Registers the MXBeans with the platform MBean server so JConsole/VisualVM can read them
+     * One "GymManagement:type=Metrics" bean gives the report and a reset; one
+     * "GymManagement:type=Operation,name=..." bean per operation gives its statistics
+     * Registering again is harmless
+     *
+     * @throws JMException If a bean cannot be registered
+     */
+    public static void registerMBeans() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, new ObjectName(JMX_DOMAIN + ":type=Metrics"), new MetricsBean());
+        for (int i = 0; i < NAMES.length; i++) {
+            register(server, new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + NAMES[i]), new OperationBean(i));
+        }
+    }
+
+    /**
+     * Registers one bean, ignoring a bean already registered under the name
+     *
+     * @param server MBean server
+     * @param name Object name
+     * @param bean Bean to register
+     * @throws JMException If the bean cannot be registered
+     */
+    private static void register(MBeanServer server, ObjectName name, Object bean) throws JMException {
+        try {
+            server.registerMBean(bean, name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Registered by an earlier call
+        }
+    }
+
+    /**
+     * @param nanos Duration in nanoseconds (not negative)
+     * @return Histogram bucket for the duration
+     */
+    private static int bucketOf(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    /**
+     * Snapshot - Statistics of one operation at one point in time
+     */
+    public static final class Snapshot {
+        public final String name;             // Operation name
+        public final long count;              // Calls recorded
+        public final long totalNanos;         // Sum of durations
+        public final long maxNanos;           // Longest duration
+        private final long[] histogram;       // Calls per log2 bucket
+
+        /**
+         * @param name Operation name
+         * @param count Calls recorded
+         * @param totalNanos Sum of durations
+         * @param maxNanos Longest duration
+         * @param histogram Calls per bucket
+         */
+        Snapshot(String name, long count, long totalNanos, long maxNanos, long[] histogram) {
+            this.name = name;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+        }
+
+        /**
+         * @return Average duration in nanoseconds, 0 if there were no calls
+         */
+        public double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Estimates a percentile from the histogram
+         * Reports the upper edge of the bucket holding the percentile (capped at the maximum),
+         * so the estimate is never low and at most twice the true value
+         *
+         * @param fraction Percentile as a fraction (0.99 for p99)
+         * @return Duration in nanoseconds, 0 if there were no calls
+         */
+        public long percentileNanos(double fraction) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int b = 0; b < histogram.length; b++) {
+                seen += histogram[b];
+                if (seen >= rank) {
+                    long upper = b == 0 ? 0 : (1L << b) - 1;
+                    return Math.min(upper, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * @return Calls per bucket; bucket b holds durations in [2^(b-1), 2^b) ns
+         */
+        public long[] histogram() {
+            return histogram.clone();
+        }
+    }
+
+    /**
+     * Management interface of the summary bean
+     */
+    public interface MetricsMXBean {
+        /**
+         * @return Text report of every operation called at least once
+         */
+        String getReport();
+
+        /**
+         * Clears every operation's statistics
+         */
+        void reset();
+    }
+
+    /**
+     * Management interface of a per-operation bean; times are in microseconds
+     */
+    public interface OperationMXBean {
+        /**
+         * @return Calls recorded
+         */
+        long getCount();
+
+        /**
+         * @return Average duration
+         */
+        double getMeanMicros();
+
+        /**
+         * @return Median duration estimate
+         */
+        double getP50Micros();
+
+        /**
+         * @return 90th percentile duration estimate
+         */
+        double getP90Micros();
+
+        /**
+         * @return 99th percentile duration estimate
+         */
+        double getP99Micros();
+
+        /**
+         * @return Longest duration
+         */
+        double getMaxMicros();
+
+        /**
+         * @return Sum of all durations in milliseconds
+         */
+        double getTotalMillis();
+
+        /**
+         * @return Calls per bucket; bucket b holds durations in [2^(b-1), 2^b) ns
+         */
+        long[] getHistogram();
+    }
+
+    /**
+     * Summary bean exposing the report and reset
+     */
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public String getReport() {
+            return report();
+        }
+
+        @Override
+        public void reset() {
+            MemberMetrics.reset();
+        }
+    }
+
+    /**
+     * Bean exposing one operation's statistics
+     */
+    private static final class OperationBean implements OperationMXBean {
+        private final int operation;          // Operation constant
+
+        OperationBean(int operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public long getCount() {
+            return snapshot(operation).count;
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return snapshot(operation).meanNanos() / 1e3;
+        }
+
+        @Override
+        public double getP50Micros() {
+            return snapshot(operation).percentileNanos(0.50) / 1e3;
+        }
+
+        @Override
+        public double getP90Micros() {
+            return snapshot(operation).percentileNanos(0.90) / 1e3;
+        }
+
+        @Override
+        public double getP99Micros() {
+            return snapshot(operation).percentileNanos(0.99) / 1e3;
+        }
+
+        @Override
+        public double getMaxMicros() {
+            return snapshot(operation).maxNanos / 1e3;
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return snapshot(operation).totalNanos / 1e6;
+        }
+
+        @Override
+        public long[] getHistogram() {
+            return snapshot(operation).histogram();
+        }
+    }
+}
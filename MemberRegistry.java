@@ -0,0 +1,2066 @@
+/**
+ * MemberRegistry - Headless service layer holding all gym members
+ * Provides the add, lookup and membership operations used by the GUI and other clients
+ * Safe to call from several threads at once (kiosks, batch jobs and the Swing EDT)
+ *
+ * Concurrency model:
+ * - The member list and all indexes (ID, phone, email, dates, rosters) are guarded by a
+ *   read/write lock. Adding a member takes the write lock; lookups take the read lock only
+ *   long enough to fetch the reference.
+ * - Each member's state is guarded by one of a fixed set of striped locks chosen by ID.
+ *   Operations on members in different stripes run in parallel without a global lock.
+ * - Members are never removed, so a reference obtained from a lookup stays valid after
+ *   the structure lock is released. A stripe lock is never held while taking the
+ *   structure lock, so the two locks cannot deadlock. Reverting a premium member changes an
+ *   indexed field, so it takes the structure write lock first and then the stripe lock.
+ * - Phone numbers and emails (case-insensitively) are unique among added members.
+ * - Check-ins are also recorded in an AttendanceLog together with each member's last-visit time.
+ *   The log buffers check-ins per stripe and merges them under its own lock when a buffer fills
+ *   or a report reads it, so check-ins in different stripes do not serialize on it.
+ * - Plan prices, payments and discounts are summed in RevenueTotals (its own lock, taken inside
+ *   a stripe lock); every operation that changes them moves the member's contribution in O(1).
+ * - Loyalty points are ranked in a LoyaltyLeaderboard (buffered per stripe like the log, merged
+ *   under its own lock); check-ins and reverts move the member on the board in O(log n).
+ * - Regular members who can be offered an upgrade are kept in an UpgradeEligibilityFeed (its own
+ *   lock, taken inside a stripe lock), re-checked after every change to their activity or plan;
+ *   a check-in only takes that lock when it changes whether the member is a candidate.
+ * - After a bulk load (replaceMembers) the phone, email and name lookup indexes are built
+ *   later, off the lock, by buildLookupIndexes() or the first operation that needs them,
+ *   so check-ins and other ID-based operations can start as soon as the members are listed.
+ *
+ * Every mutating operation and name search is timed into MemberMetrics, as is the wait for
+ * the journal fsync.
+ *
+ * Once the attached journal has failed a write, mutations are refused with JOURNAL_UNAVAILABLE
+ * (or a *_JOURNAL_UNAVAILABLE code) before they touch the member, so memory does not run ahead
+ * of the file. A change whose own fsync fails has already been applied in memory; it reports
+ * NOT_DURABLE (or a *_NOT_DURABLE code) instead, because it stays visible until a restart loses it.
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public class MemberRegistry {
+    // Messages for requests the registry rejects before reaching the member classes
+    public static final String MEMBER_NOT_FOUND = "Member not found";
+    public static final String MEMBER_NOT_ACTIVE = "Member is not active";
+    public static final String ATTENDANCE_LIMIT_REACHED = "Attendance limit of 30 visits reached";
+    public static final String NOT_ACTIVE_FOR_UPGRADE = "Member must be active to upgrade plan";
+    public static final String UPGRADE_REGULAR_ONLY = "Only regular members can upgrade plans";
+    public static final String PAYMENT_PREMIUM_ONLY = "Only premium members can pay due amounts";
+    public static final String DISCOUNT_PREMIUM_ONLY = "Regular members are not eligible for discounts";
+    public static final String NOT_REGULAR_MEMBER = "This member is not a Regular Member";
+    public static final String NOT_PREMIUM_MEMBER = "This member is not a Premium Member";
+    public static final String REMOVAL_REASON_REQUIRED = "Please enter removal reason";
+    public static final String DUPLICATE_ID = "Member ID already exists!";
+    public static final String DUPLICATE_PHONE = "Phone number is already registered to another member";
+    public static final String DUPLICATE_EMAIL = "Email is already registered to another member";
+    public static final String JOURNAL_UNAVAILABLE = "Member journal is unavailable, so the change could not be saved";
+    public static final String NOT_DURABLE = "The change was applied but could not be saved, so it will be lost on restart";
+    public static final String BRANCH_UNAVAILABLE = "The member's branch is at the branch limit or could not be created";
+
+    // Result codes returned by tryAddMember and written by addMembers
+    public static final byte ADD_OK = 0;
+    public static final byte ADD_DUPLICATE_ID = 1;
+    public static final byte ADD_DUPLICATE_PHONE = 2;
+    public static final byte ADD_DUPLICATE_EMAIL = 3;
+    public static final byte ADD_JOURNAL_UNAVAILABLE = 4;
+    public static final byte ADD_NOT_DURABLE = 5;
+    public static final byte ADD_BRANCH_UNAVAILABLE = 6;     // Returned by BranchRouter only
+
+    // Result codes written by markAttendanceBatch
+    public static final byte CHECKIN_OK = 0;
+    public static final byte CHECKIN_NOT_FOUND = 1;
+    public static final byte CHECKIN_INACTIVE = 2;
+    public static final byte CHECKIN_LIMIT_REACHED = 3;
+    public static final byte CHECKIN_JOURNAL_UNAVAILABLE = 4;
+    public static final byte CHECKIN_NOT_DURABLE = 5;
+
+    // Result codes written by postPayments
+    public static final byte PAYMENT_OK = 0;
+    public static final byte PAYMENT_NOT_FOUND = 1;
+    public static final byte PAYMENT_NOT_PREMIUM = 2;
+    public static final byte PAYMENT_ALREADY_PAID = 3;
+    public static final byte PAYMENT_INVALID_AMOUNT = 4;
+    public static final byte PAYMENT_JOURNAL_UNAVAILABLE = 5;
+    public static final byte PAYMENT_NOT_DURABLE = 6;
+
+    // Result codes returned by tryUpgradePlan
+    public static final byte UPGRADE_OK = 0;
+    public static final byte UPGRADE_NOT_FOUND = 1;
+    public static final byte UPGRADE_NOT_REGULAR = 2;
+    public static final byte UPGRADE_INACTIVE = 3;
+    public static final byte UPGRADE_SAME_PLAN = 4;
+    public static final byte UPGRADE_NOT_ELIGIBLE = 5;
+    public static final byte UPGRADE_INVALID_PLAN = 6;
+    public static final byte UPGRADE_JOURNAL_UNAVAILABLE = 7;
+    public static final byte UPGRADE_NOT_DURABLE = 8;
+
+    // Result codes returned by tryActivateMembership, tryDeactivateMembership and the tryRevert methods
+    public static final byte CHANGE_OK = 0;
+    public static final byte CHANGE_NOT_FOUND = 1;
+    public static final byte CHANGE_WRONG_TYPE = 2;           // Not the member type the operation needs
+    public static final byte CHANGE_REASON_REQUIRED = 3;
+    public static final byte CHANGE_JOURNAL_UNAVAILABLE = 4;
+    public static final byte CHANGE_NOT_DURABLE = 5;                 // Applied in memory, lost on restart
+
+    // Paise per rupee, for payments given in rupees
+    private static final int MINOR_UNITS = 100;
+
+    // Number of member lock stripes (power of two)
+    private static final int STRIPES = 64;
+
+    // Member storage
+    private final ArrayList<GymMember> members;           // All members in insertion order
+    private final ArrayList<RegularMember> regularMembers; // Regular members in insertion order
+    private final ArrayList<PremiumMember> premiumMembers; // Premium members in insertion order
+    private final MemberIndex index;                      // ID -> member lookup
+    private final DateIndex startDateIndex;               // Membership start epoch day -> member ID
+    private final DateIndex birthdayIndex;                // Birthday month-day key -> member ID
+    private HashMap<String, GymMember> phoneIndex;        // Phone number -> member (unique)
+    private HashMap<String, GymMember> emailIndex;        // Lower-cased email -> member (unique)
+    private final RosterIndex trainerRosters;             // Personal trainer -> premium member IDs
+    private final RosterIndex referralRosters;            // Referral source -> regular member IDs
+    private NameSearchIndex nameIndex;                    // Name words -> member IDs (prefix and fuzzy)
+    private final AttendanceLog attendanceLog;            // Check-in events, occupancy rollups, last-visit days
+    private final RevenueTotals revenueTotals;            // Plan revenue, premium payments and discounts
+    private final PaymentLedger paymentLedger;            // Every premium payment and reversal, in paise
+    private final LoyaltyLeaderboard loyaltyBoard;        // Members ranked by loyalty points
+    private final UpgradeEligibilityFeed upgradeFeed;     // Active, eligible regular members still on basic
+
+    // Deferred lookup indexes (phone, email, name) after a bulk load
+    private volatile boolean lookupIndexesDeferred;       // Set by replaceMembers until the indexes are built
+    private int loadGeneration;                           // Counts replaceMembers calls
+    private final Object lookupBuildLock;                 // Lets one thread build the indexes at a time
+
+    // Locks
+    private final ReentrantReadWriteLock structureLock;   // Guards members and indexes
+    private final ReentrantLock[] stripes;                // Guard individual member state
+
+    // Persistence
+    private volatile MemberJournal journal;               // Write-ahead journal, null if not persisted
+
+    /**
+     * Creates an empty registry
+     */
+    public MemberRegistry() {
+        this.members = new ArrayList<>();
+        this.regularMembers = new ArrayList<>();
+        this.premiumMembers = new ArrayList<>();
+        this.index = new MemberIndex();
+        this.startDateIndex = new DateIndex();
+        this.birthdayIndex = new DateIndex();
+        this.phoneIndex = new HashMap<>();
+        this.emailIndex = new HashMap<>();
+        this.trainerRosters = new RosterIndex();
+        this.referralRosters = new RosterIndex();
+        this.nameIndex = new NameSearchIndex();
+        this.attendanceLog = new AttendanceLog();
+        this.revenueTotals = new RevenueTotals();
+        this.paymentLedger = new PaymentLedger();
+        this.loyaltyBoard = new LoyaltyLeaderboard();
+        this.upgradeFeed = new UpgradeEligibilityFeed();
+        this.lookupBuildLock = new Object();
+        this.structureLock = new ReentrantReadWriteLock();
+        this.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds a new member unless its ID, phone number or email is already registered
+     *
+     * @param member Member to add
+     * @return true if the member was added, false if the ID, phone or email is already taken
+     */
+    public boolean addMember(GymMember member) {
+        return tryAddMember(member) == ADD_OK;
+    }
+
+    /**
+     * Adds a new member unless its ID, phone number or email is already registered
+     * Each check is a hash lookup, so the cost does not grow with the number of members
+     *
+     * @param member Member to add
+     * @return ADD_OK, the ADD_DUPLICATE_* code of the first clash found, ADD_JOURNAL_UNAVAILABLE or ADD_NOT_DURABLE
+     */
+    public byte tryAddMember(GymMember member) {
+        long start = MemberMetrics.start();
+        try {
+            long seq = 0;
+            buildLookupIndexes();
+            structureLock.writeLock().lock();
+            try {
+                buildLookupIndexesLocked();
+                byte result = checkUnique(member.getId(), member.getPhone(), member.getEmail());
+                if (result != ADD_OK) {
+                    return result;
+                }
+                if (journalUnavailable()) {
+                    return ADD_JOURNAL_UNAVAILABLE;
+                }
+                register(member);
+                if (journal != null) {
+                    seq = journal.logAdd(member);
+                }
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+            return awaitDurable(seq) ? ADD_OK : ADD_NOT_DURABLE;
+        } finally {
+            MemberMetrics.record(MemberMetrics.ADD_MEMBER, start);
+        }
+    }
+
+    /**
+     * Adds a batch of new members under one lock acquisition and one journal flush
+     * Members whose ID, phone or email is already registered (including earlier in the
+     * same batch) are skipped
+     *
+     * @param batch Members to add
+     * @param results Receives ADD_OK, an ADD_DUPLICATE_* code, ADD_JOURNAL_UNAVAILABLE or ADD_NOT_DURABLE
+     *                per member (length >= batch size)
+     * @return Number of members added and made durable
+     */
+    public int addMembers(List<? extends GymMember> batch, byte[] results) {
+        long start = MemberMetrics.start();
+        try {
+            long seq = 0;
+            int count = 0;
+            MemberJournal currentJournal = journal;
+            buildLookupIndexes();
+            structureLock.writeLock().lock();
+            try {
+                buildLookupIndexesLocked();
+                members.ensureCapacity(members.size() + batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    GymMember member = batch.get(i);
+                    results[i] = checkUnique(member.getId(), member.getPhone(), member.getEmail());
+                    if (results[i] != ADD_OK) {
+                        continue;
+                    }
+                    if (currentJournal != null && !currentJournal.isWritable()) {
+                        results[i] = ADD_JOURNAL_UNAVAILABLE;
+                        continue;
+                    }
+                    register(member);
+                    if (currentJournal != null) {
+                        seq = currentJournal.logAdd(member);
+                    }
+                    count++;
+                }
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+            if (!awaitDurable(currentJournal, seq)) {
+                markUnsaved(results, 0, batch.size(), ADD_OK, ADD_NOT_DURABLE);
+                return 0;
+            }
+            return count;
+        } finally {
+            MemberMetrics.record(MemberMetrics.ADD_BATCH, start);
+        }
+    }
+
+    /**
+     * Checks whether a new member's details clash with a registered member
+     * Lets a form report the problem before building the member; tryAddMember checks again
+     *
+     * @param id Member ID
+     * @param phone Phone number
+     * @param email Email address
+     * @return DUPLICATE_ID, DUPLICATE_PHONE or DUPLICATE_EMAIL, or null if there is no clash
+     */
+    public String findConflict(int id, String phone, String email) {
+        lockLookupIndexes();
+        try {
+            return addResultMessage(checkUnique(id, phone, email));
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param result Code returned by tryAddMember or written by addMembers
+     * @return The matching DUPLICATE_* message, JOURNAL_UNAVAILABLE or NOT_DURABLE, or null for ADD_OK
+     */
+    public static String addResultMessage(byte result) {
+        switch (result) {
+            case ADD_JOURNAL_UNAVAILABLE:
+                return JOURNAL_UNAVAILABLE;
+            case ADD_NOT_DURABLE:
+                return NOT_DURABLE;
+            case ADD_BRANCH_UNAVAILABLE:
+                return BRANCH_UNAVAILABLE;
+            case ADD_DUPLICATE_ID:
+                return DUPLICATE_ID;
+            case ADD_DUPLICATE_PHONE:
+                return DUPLICATE_PHONE;
+            case ADD_DUPLICATE_EMAIL:
+                return DUPLICATE_EMAIL;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Adds a member restored from a journal, skipping only duplicate IDs
+     * Phone and email clashes are tolerated so records written before uniqueness was
+     * enforced are not lost; the first member keeps the index entry
+     *
+     * @param member Member to restore
+     * @return true if the member was added
+     */
+    boolean restoreMember(GymMember member) {
+        long seq = 0;
+        structureLock.writeLock().lock();
+        try {
+            if (index.contains(member.getId())) {
+                return false;
+            }
+            register(member);
+            if (journal != null) {
+                seq = journal.logAdd(member);
+            }
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+        awaitDurable(seq);
+        return true;
+    }
+
+    /**
+     * Attaches the write-ahead journal that records every later mutation
+     * Each mutation returns only after its journal record has been fsynced
+     *
+     * @param journal Journal to append to, or null to stop journaling
+     */
+    public void setJournal(MemberJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return The attached journal, or null if mutations are not journaled
+     */
+    public MemberJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Looks up a member by ID
+     * The returned member may be changed concurrently; use the registry operations to mutate it
+     *
+     * @param id Member ID to look for
+     * @return The member, or null if not found
+     */
+    public GymMember findMember(int id) {
+        structureLock.readLock().lock();
+        try {
+            return index.get(id);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a member ID is already registered
+     *
+     * @param id The ID to check
+     * @return true if the ID exists, false otherwise
+     */
+    public boolean containsId(int id) {
+        return findMember(id) != null;
+    }
+
+    /**
+     * @return Number of registered members
+     */
+    public int size() {
+        structureLock.readLock().lock();
+        try {
+            return members.size();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if no members are registered
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return Number of registered regular members
+     */
+    public int getRegularCount() {
+        structureLock.readLock().lock();
+        try {
+            return regularMembers.size();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of registered premium members
+     */
+    public int getPremiumCount() {
+        structureLock.readLock().lock();
+        try {
+            return premiumMembers.size();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches a run of regular members by position without copying the whole list
+     *
+     * @param from Position of the first member (insertion order among regular members)
+     * @param into Array to fill; filled up to its length or the end of the list
+     * @return Number of members copied into the array
+     */
+    public int getRegularMembers(int from, RegularMember[] into) {
+        structureLock.readLock().lock();
+        try {
+            int count = Math.max(0, Math.min(into.length, regularMembers.size() - from));
+            for (int i = 0; i < count; i++) {
+                into[i] = regularMembers.get(from + i);
+            }
+            return count;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches a run of premium members by position without copying the whole list
+     *
+     * @param from Position of the first member (insertion order among premium members)
+     * @param into Array to fill; filled up to its length or the end of the list
+     * @return Number of members copied into the array
+     */
+    public int getPremiumMembers(int from, PremiumMember[] into) {
+        structureLock.readLock().lock();
+        try {
+            int count = Math.max(0, Math.min(into.length, premiumMembers.size() - from));
+            for (int i = 0; i < count; i++) {
+                into[i] = premiumMembers.get(from + i);
+            }
+            return count;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the member list in insertion order
+     * Later additions do not affect the returned list
+     *
+     * @return Snapshot of all registered members
+     */
+    public List<GymMember> getMembers() {
+        structureLock.readLock().lock();
+        try {
+            return new ArrayList<>(members);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every member while holding that member's lock
+     * Each member is seen in a consistent state, but the pass as a whole is not atomic
+     *
+     * @param action Callback invoked for each member in insertion order
+     */
+    public void forEachMember(Consumer<GymMember> action) {
+        for (GymMember member : getMembers()) {
+            readMember(member, action);
+        }
+    }
+
+    /**
+     * Runs a callback on one member while holding that member's lock
+     *
+     * @param member Member obtained from this registry
+     * @param action Callback that reads the member's state
+     */
+    public void readMember(GymMember member, Consumer<GymMember> action) {
+        ReentrantLock lock = lockFor(member.getId());
+        lock.lock();
+        try {
+            action.accept(member);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Looks up a member by phone number
+     *
+     * @param phone Phone number
+     * @return The member, or null if no member has that number
+     */
+    public GymMember findByPhone(String phone) {
+        lockLookupIndexes();
+        try {
+            return phone == null ? null : phoneIndex.get(phone);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up a member by email address, ignoring case
+     *
+     * @param email Email address
+     * @return The member, or null if no member has that email
+     */
+    public GymMember findByEmail(String email) {
+        lockLookupIndexes();
+        try {
+            return email == null ? null : emailIndex.get(emailKey(email));
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches member names as the user types
+     * Members whose name words start with every query word come first (whole words before
+     * partial ones, shorter names before longer), followed by names within one or two typos
+     *
+     * @param query Name or part of a name, in any case
+     * @param into Array receiving member IDs, best match first; its length is the number of results wanted
+     * @return Number of IDs written
+     */
+    public int searchByName(String query, int[] into) {
+        long start = MemberMetrics.start();
+        try {
+            lockLookupIndexes();
+            try {
+                return nameIndex.search(query, into);
+            } finally {
+                structureLock.readLock().unlock();
+            }
+        } finally {
+            MemberMetrics.record(MemberMetrics.NAME_SEARCH, start);
+        }
+    }
+
+    /**
+     * @param trainer Personal trainer's name
+     * @return Number of premium members assigned to that trainer
+     */
+    public int countByTrainer(String trainer) {
+        structureLock.readLock().lock();
+        try {
+            return trainerRosters.count(trainer);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches a page of IDs of premium members assigned to a trainer
+     *
+     * @param trainer Personal trainer's name
+     * @param skip Number of members to skip
+     * @param into Array to fill; filled up to its length or the end of the roster
+     * @return Number of IDs copied into the array
+     */
+    public int getMembersByTrainer(String trainer, int skip, int[] into) {
+        structureLock.readLock().lock();
+        try {
+            return trainerRosters.collect(trainer, skip, into);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Names of every trainer with at least one premium member, sorted
+     */
+    public List<String> getTrainers() {
+        structureLock.readLock().lock();
+        try {
+            return trainerRosters.values();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param referralSource Referral source
+     * @return Number of regular members who came through that source
+     */
+    public int countByReferralSource(String referralSource) {
+        structureLock.readLock().lock();
+        try {
+            return referralRosters.count(referralSource);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches a page of IDs of regular members who came through a referral source
+     *
+     * @param referralSource Referral source
+     * @param skip Number of members to skip
+     * @param into Array to fill; filled up to its length or the end of the roster
+     * @return Number of IDs copied into the array
+     */
+    public int getMembersByReferralSource(String referralSource, int skip, int[] into) {
+        structureLock.readLock().lock();
+        try {
+            return referralRosters.collect(referralSource, skip, into);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Every referral source with at least one regular member, sorted
+     */
+    public List<String> getReferralSources() {
+        structureLock.readLock().lock();
+        try {
+            return referralRosters.values();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts members whose membership started in a date range
+     *
+     * @param fromDay First day of the range as an epoch day (inclusive)
+     * @param toDay Last day of the range as an epoch day (inclusive)
+     * @return Number of members who joined in the range
+     */
+    public int countStartedBetween(int fromDay, int toDay) {
+        lockSealedDates();
+        try {
+            return startDateIndex.count(fromDay, toDay);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches a page of IDs of members whose membership started in a date range
+     * IDs are ordered by start date, then ID
+     *
+     * @param fromDay First day of the range as an epoch day (inclusive)
+     * @param toDay Last day of the range as an epoch day (inclusive)
+     * @param skip Number of matching members to skip
+     * @param into Array to fill; filled up to its length or the end of the range
+     * @return Number of IDs copied into the array
+     */
+    public int getMembersStartedBetween(int fromDay, int toDay, int skip, int[] into) {
+        lockSealedDates();
+        try {
+            return startDateIndex.collect(fromDay, toDay, skip, into, 0);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the IDs of members whose membership started in a date range, ordered by start date
+     * The callback runs under the structure read lock and must not add members
+     *
+     * @param fromDay First day of the range as an epoch day (inclusive)
+     * @param toDay Last day of the range as an epoch day (inclusive)
+     * @param action Callback receiving each member ID
+     */
+    public void forEachStartedBetween(int fromDay, int toDay, IntConsumer action) {
+        lockSealedDates();
+        try {
+            startDateIndex.forEach(fromDay, toDay, action);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts members whose birthday falls in a window of days, ignoring the birth year
+     * The window may cross the end of the year; a window of a year or more matches everyone
+     *
+     * @param fromDay First day of the window as an epoch day (inclusive)
+     * @param toDay Last day of the window as an epoch day (inclusive)
+     * @return Number of members with a birthday in the window
+     */
+    public int countBirthdaysBetween(int fromDay, int toDay) {
+        lockSealedDates();
+        try {
+            if (toDay < fromDay) {
+                return 0;
+            }
+            if (toDay - fromDay >= 365) {
+                return birthdayIndex.size();
+            }
+            int fromKey = EpochDays.monthDayKey(fromDay);
+            int toKey = EpochDays.monthDayKey(toDay);
+            if (fromKey <= toKey) {
+                return birthdayIndex.count(fromKey, toKey);
+            }
+            return birthdayIndex.count(fromKey, Integer.MAX_VALUE) + birthdayIndex.count(Integer.MIN_VALUE, toKey);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the IDs of members whose birthday falls in a window of days, in calendar order
+     * from the start of the window; the callback runs under the structure read lock and must not add members
+     *
+     * @param fromDay First day of the window as an epoch day (inclusive)
+     * @param toDay Last day of the window as an epoch day (inclusive)
+     * @param action Callback receiving each member ID
+     */
+    public void forEachBirthdayBetween(int fromDay, int toDay, IntConsumer action) {
+        lockSealedDates();
+        try {
+            if (toDay < fromDay) {
+                return;
+            }
+            if (toDay - fromDay >= 365) {
+                birthdayIndex.forEach(Integer.MIN_VALUE, Integer.MAX_VALUE, action);
+                return;
+            }
+            int fromKey = EpochDays.monthDayKey(fromDay);
+            int toKey = EpochDays.monthDayKey(toDay);
+            if (fromKey <= toKey) {
+                birthdayIndex.forEach(fromKey, toKey, action);
+            } else {
+                birthdayIndex.forEach(fromKey, Integer.MAX_VALUE, action);
+                birthdayIndex.forEach(Integer.MIN_VALUE, toKey, action);
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the running financial totals without visiting any member
+     *
+     * @return Plan revenue per tier, premium charged/collected/outstanding and discounts granted
+     */
+    public RevenueTotals.Summary getFinanceSummary() {
+        return revenueTotals.summary();
+    }
+
+    /**
+     * @return Log of check-in events with hourly, daily and hour-of-week rollups
+     */
+    public AttendanceLog getAttendanceLog() {
+        return attendanceLog;
+    }
+
+    /**
+     * @return Ledger of every premium payment and reversal (read-only use; the registry posts to it)
+     */
+    public PaymentLedger getPaymentLedger() {
+        return paymentLedger;
+    }
+
+    /**
+     * @return Members ranked by loyalty points, overall and per type (read-only use; the registry updates it)
+     */
+    public LoyaltyLeaderboard getLoyaltyLeaderboard() {
+        return loyaltyBoard;
+    }
+
+    /**
+     * @return Regular members who can be offered an upgrade, with live subscriptions (read-only use)
+     */
+    public UpgradeEligibilityFeed getUpgradeFeed() {
+        return upgradeFeed;
+    }
+
+    /**
+     * Counts members who have not checked in on or after a day, including those who never have
+     * Costs one pass over the last-visit day buckets, independent of the number of members
+     *
+     * @param epochDay Local date as an epoch day
+     * @return Number of inactive members
+     */
+    public int countInactiveSince(int epochDay) {
+        return attendanceLog.countInactiveSince(epochDay);
+    }
+
+    /**
+     * Visits the IDs of members who have not checked in on or after a day, in insertion order
+     * Scans every member; use countInactiveSince when only the number is needed
+     * The callback runs under the structure read lock and must not add members
+     *
+     * @param epochDay Local date as an epoch day
+     * @param action Callback receiving each member ID
+     */
+    public void forEachInactiveSince(int epochDay, IntConsumer action) {
+        structureLock.readLock().lock();
+        try {
+            for (GymMember member : members) {
+                long lastVisit = member.getLastVisit();
+                if (lastVisit == 0 || attendanceLog.epochDayOf(lastVisit) < epochDay) {
+                    action.accept(member.getId());
+                }
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every registered member, e.g. after loading a snapshot
+     * Later entries with an ID already seen are skipped
+     * The phone, email and name indexes are left to buildLookupIndexes(), which the first
+     * lookup or add calls if nobody has yet
+     *
+     * @param loaded Members to register in place of the current ones
+     * @return Number of members registered
+     */
+    public int replaceMembers(List<GymMember> loaded) {
+        structureLock.writeLock().lock();
+        try {
+            members.clear();
+            regularMembers.clear();
+            premiumMembers.clear();
+            index.clear();
+            startDateIndex.clear();
+            birthdayIndex.clear();
+            phoneIndex = new HashMap<>();
+            emailIndex = new HashMap<>();
+            nameIndex = new NameSearchIndex();
+            lookupIndexesDeferred = true;
+            loadGeneration++;
+            trainerRosters.clear();
+            referralRosters.clear();
+            attendanceLog.clearMembers();
+            revenueTotals.clear();
+            loyaltyBoard.clear();
+            upgradeFeed.clear();
+            members.ensureCapacity(loaded.size());
+            for (GymMember member : loaded) {
+                if (!index.contains(member.getId())) {
+                    register(member);
+                }
+            }
+            return members.size();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every registered member, the attendance history and the payment ledger with those
+     * read from a snapshot
+     * The snapshot is read into a fresh log and ledger first, so a corrupt file leaves the live ones
+     * untouched and no check-in or payment is ever recorded into a half-restored one
+     *
+     * @param loaded Members read from the snapshot
+     * @param visits Attendance log read with them
+     * @param payments Ledger read with them
+     * @return Number of members registered
+     */
+    public int replaceMembers(List<GymMember> loaded, AttendanceLog visits, PaymentLedger payments) {
+        structureLock.writeLock().lock();
+        try {
+            attendanceLog.copyHistoryFrom(visits);
+            synchronized (paymentLedger) {
+                paymentLedger.copyFrom(payments);
+            }
+            return replaceMembers(loaded);
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces every registered member, the attendance history and the payment ledger with those
+     * read from a snapshot and drops the journal records the snapshot supersedes, all under the
+     * structure write lock
+     * Adds and batches made before the replace are discarded with the old members; any made
+     * after it (e.g. a background import) are journaled after the truncation and kept
+     *
+     * @param loaded Members read from the snapshot
+     * @param visits Attendance log read with them
+     * @param payments Ledger read with them
+     * @return Number of members registered
+     * @throws IOException If the journal cannot be truncated
+     */
+    public int replaceMembersFromSnapshot(List<GymMember> loaded, AttendanceLog visits, PaymentLedger payments)
+            throws IOException {
+        structureLock.writeLock().lock();
+        try {
+            int count = replaceMembers(loaded, visits, payments);
+            MemberJournal current = journal;
+            if (current != null) {
+                current.discardAll();
+            }
+            return count;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Builds the phone, email and name indexes deferred by replaceMembers
+     * The indexes are built from a copy of the member list without holding the structure lock,
+     * then installed under the write lock, so check-ins keep running meanwhile
+     * Does nothing if the indexes are already built; safe to call from a background thread
+     */
+    public void buildLookupIndexes() {
+        if (!lookupIndexesDeferred) {
+            return;
+        }
+        synchronized (lookupBuildLock) {
+            List<GymMember> listed;
+            int generation;
+            structureLock.readLock().lock();
+            try {
+                if (!lookupIndexesDeferred) {
+                    return;
+                }
+                listed = new ArrayList<>(members);
+                generation = loadGeneration;
+            } finally {
+                structureLock.readLock().unlock();
+            }
+
+            int capacity = (int) (listed.size() / 0.75f) + 1;
+            HashMap<String, GymMember> phones = new HashMap<>(capacity);
+            HashMap<String, GymMember> emails = new HashMap<>(capacity);
+            NameSearchIndex names = new NameSearchIndex();
+            for (GymMember member : listed) {
+                addLookupEntries(member, phones, emails, names);
+            }
+
+            structureLock.writeLock().lock();
+            try {
+                if (!lookupIndexesDeferred || generation != loadGeneration) {
+                    return;               // Already built, or replaced again; the caller retries if needed
+                }
+                for (int i = listed.size(); i < members.size(); i++) {
+                    addLookupEntries(members.get(i), phones, emails, names);
+                }
+                phoneIndex = phones;
+                emailIndex = emails;
+                nameIndex = names;
+                lookupIndexesDeferred = false;
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Activates membership for the member with the specified ID
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String activateMembership(int id) {
+        String[] message = new String[1];
+        setActive(id, true, message);
+        return message[0];
+    }
+
+    /**
+     * Activates membership and reports the outcome as a code
+     *
+     * @param id Member ID
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return CHANGE_OK, CHANGE_NOT_FOUND, CHANGE_JOURNAL_UNAVAILABLE or CHANGE_NOT_DURABLE
+     */
+    public byte tryActivateMembership(int id, String[] message) {
+        return setActive(id, true, message);
+    }
+
+    /**
+     * Deactivates membership for the member with the specified ID
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String deactivateMembership(int id) {
+        String[] message = new String[1];
+        setActive(id, false, message);
+        return message[0];
+    }
+
+    /**
+     * Deactivates membership and reports the outcome as a code
+     *
+     * @param id Member ID
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return CHANGE_OK, CHANGE_NOT_FOUND, CHANGE_JOURNAL_UNAVAILABLE or CHANGE_NOT_DURABLE
+     */
+    public byte tryDeactivateMembership(int id, String[] message) {
+        return setActive(id, false, message);
+    }
+
+    /**
+     * Activates or deactivates a member
+     *
+     * @param id Member ID
+     * @param active true to activate, false to deactivate
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return CHANGE_OK, CHANGE_NOT_FOUND, CHANGE_JOURNAL_UNAVAILABLE or CHANGE_NOT_DURABLE
+     */
+    private byte setActive(int id, boolean active, String[] message) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return reply(CHANGE_NOT_FOUND, MEMBER_NOT_FOUND, message);
+            }
+            long seq = 0;
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                if (journalUnavailable()) {
+                    return reply(CHANGE_JOURNAL_UNAVAILABLE, JOURNAL_UNAVAILABLE, message);
+                }
+                if (active) {
+                    member.activateMembership();
+                } else {
+                    member.deactivateMembership();
+                }
+                refreshUpgradeFeed(member);
+                if (journal != null) {
+                    seq = journal.logActive(member);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!awaitDurable(seq)) {
+                return reply(CHANGE_NOT_DURABLE, NOT_DURABLE, message);
+            }
+            return reply(CHANGE_OK, active ? "Membership activated successfully"
+                    : "Membership deactivated successfully", message);
+        } finally {
+            MemberMetrics.record(active ? MemberMetrics.ACTIVATE : MemberMetrics.DEACTIVATE, start);
+        }
+    }
+
+    /**
+     * Marks attendance for the member with the specified ID
+     * The member must be active, and regular members stop at their attendance limit
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String markAttendance(int id) {
+        String[] message = new String[1];
+        tryMarkAttendance(id, message);
+        return message[0];
+    }
+
+    /**
+     * Marks attendance and reports the outcome as a code
+     *
+     * @param id Member ID
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return A CHECKIN_* code
+     */
+    public byte tryMarkAttendance(int id, String[] message) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return reply(CHECKIN_NOT_FOUND, MEMBER_NOT_FOUND, message);
+            }
+            byte result;
+            long seq = 0;
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                result = journalUnavailable() ? CHECKIN_JOURNAL_UNAVAILABLE : checkIn(member);
+                if (result == CHECKIN_OK && journal != null) {
+                    seq = journal.logAttendance(member);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!awaitDurable(seq)) {
+                result = CHECKIN_NOT_DURABLE;
+            }
+
+            switch (result) {
+                case CHECKIN_JOURNAL_UNAVAILABLE:
+                    return reply(result, JOURNAL_UNAVAILABLE, message);
+                case CHECKIN_NOT_DURABLE:
+                    return reply(result, NOT_DURABLE, message);
+                case CHECKIN_INACTIVE:
+                    return reply(result, MEMBER_NOT_ACTIVE, message);
+                case CHECKIN_LIMIT_REACHED:
+                    return reply(result, ATTENDANCE_LIMIT_REACHED, message);
+                default:
+                    return reply(result, "Attendance marked successfully", message);
+            }
+        } finally {
+            MemberMetrics.record(MemberMetrics.CHECK_IN, start);
+        }
+    }
+
+    /**
+     * Marks attendance for a burst of member IDs in one pass, e.g. a turnstile feed
+     * Applies the same rules as markAttendance and writes one result code per ID
+     * Allocates nothing per check-in; journal records for the whole batch share one fsync
+     *
+     * @param ids Member IDs in arrival order (an ID may repeat)
+     * @param offset Index of the first ID to process
+     * @param length Number of IDs to process
+     * @param results Receives a CHECKIN_* code for each ID, at the same index as in ids
+     * @return Number of successful check-ins
+     */
+    public int markAttendanceBatch(int[] ids, int offset, int length, byte[] results) {
+        long start = MemberMetrics.start();
+        try {
+            int accepted = 0;
+            long seq = 0;
+            MemberJournal currentJournal = journal;
+
+            // Holding the read lock across the batch is safe: stripe locks never wait on it
+            structureLock.readLock().lock();
+            try {
+                for (int i = offset; i < offset + length; i++) {
+                    int id = ids[i];
+                    GymMember member = index.get(id);
+                    if (member == null) {
+                        results[i] = CHECKIN_NOT_FOUND;
+                        continue;
+                    }
+                    ReentrantLock lock = lockFor(id);
+                    lock.lock();
+                    try {
+                        byte result = currentJournal != null && !currentJournal.isWritable()
+                                ? CHECKIN_JOURNAL_UNAVAILABLE : checkIn(member);
+                        results[i] = result;
+                        if (result == CHECKIN_OK) {
+                            accepted++;
+                            if (currentJournal != null) {
+                                seq = currentJournal.logAttendance(member);
+                            }
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } finally {
+                structureLock.readLock().unlock();
+            }
+
+            if (!awaitDurable(currentJournal, seq)) {
+                markUnsaved(results, offset, length, CHECKIN_OK, CHECKIN_NOT_DURABLE);
+                return 0;
+            }
+            return accepted;
+        } finally {
+            MemberMetrics.record(MemberMetrics.CHECK_IN_BATCH, start);
+        }
+    }
+
+    /**
+     * Marks attendance for every ID in the array
+     *
+     * @param ids Member IDs in arrival order
+     * @param results Receives a CHECKIN_* code per ID (at least ids.length long)
+     * @return Number of successful check-ins
+     */
+    public int markAttendanceBatch(int[] ids, byte[] results) {
+        return markAttendanceBatch(ids, 0, ids.length, results);
+    }
+
+    /**
+     * Upgrades the plan of an active regular member
+     *
+     * @param id Member ID
+     * @param newPlan Plan to upgrade to (basic/standard/deluxe)
+     * @return Status message
+     */
+    public String upgradePlan(int id, String newPlan) {
+        String[] message = new String[1];
+        tryUpgradePlan(id, newPlan, message);
+        return message[0];
+    }
+
+    /**
+     * Upgrades the plan of an active regular member and reports the outcome as a code
+     * Rejections decided by RegularMember (same plan, not yet eligible, unknown plan) get
+     * their own codes, checked under the member's lock before the upgrade is attempted
+     *
+     * @param id Member ID
+     * @param newPlan Plan to upgrade to (basic/standard/deluxe)
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return An UPGRADE_* code
+     */
+    public byte tryUpgradePlan(int id, String newPlan, String[] message) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return reply(UPGRADE_NOT_FOUND, MEMBER_NOT_FOUND, message);
+            }
+            if (!(member instanceof RegularMember)) {
+                return reply(UPGRADE_NOT_REGULAR, UPGRADE_REGULAR_ONLY, message);
+            }
+            RegularMember regularMember = (RegularMember) member;
+            byte code;
+            String result;
+            long seq = 0;
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                if (!regularMember.isActive()) {
+                    return reply(UPGRADE_INACTIVE, NOT_ACTIVE_FOR_UPGRADE, message);
+                }
+                if (journalUnavailable()) {
+                    return reply(UPGRADE_JOURNAL_UNAVAILABLE, JOURNAL_UNAVAILABLE, message);
+                }
+                code = upgradeOutcome(regularMember, newPlan);
+                int oldPlan = regularMember.getPlanCode();
+                result = revenueTotals.update(regularMember, () -> regularMember.upgradePlan(newPlan));
+                refreshUpgradeFeed(regularMember);
+                if (journal != null && oldPlan != regularMember.getPlanCode()) {
+                    seq = journal.logPlan(regularMember);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!awaitDurable(seq)) {
+                return reply(UPGRADE_NOT_DURABLE, NOT_DURABLE, message);
+            }
+            return reply(code, result, message);
+        } finally {
+            MemberMetrics.record(MemberMetrics.UPGRADE, start);
+        }
+    }
+
+    /**
+     * Calculates the full-payment discount for a premium member
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String calculateDiscount(int id) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return MEMBER_NOT_FOUND;
+            }
+            if (!(member instanceof PremiumMember)) {
+                return DISCOUNT_PREMIUM_ONLY;
+            }
+            PremiumMember premiumMember = (PremiumMember) member;
+            String result;
+            long seq = 0;
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                if (journalUnavailable()) {
+                    return JOURNAL_UNAVAILABLE;
+                }
+                double oldDiscount = premiumMember.getDiscountAmount();
+                result = revenueTotals.update(premiumMember, premiumMember::calculateDiscount);
+                if (journal != null && oldDiscount != premiumMember.getDiscountAmount()) {
+                    seq = journal.logDiscount(premiumMember);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!awaitDurable(seq)) {
+                return NOT_DURABLE;
+            }
+            return result;
+        } finally {
+            MemberMetrics.record(MemberMetrics.DISCOUNT, start);
+        }
+    }
+
+    /**
+     * Records a payment towards a premium member's charge
+     *
+     * @param id Member ID
+     * @param amount Amount being paid (rounded to the nearest paisa)
+     * @return Status message
+     */
+    public String payDueAmount(int id, double amount) {
+        return payDueAmountMinor(id, Math.round(amount * MINOR_UNITS));
+    }
+
+    /**
+     * Records a payment given in paise and appends it to the payment ledger
+     *
+     * @param id Member ID
+     * @param amountMinor Amount being paid in paise
+     * @return Status message
+     */
+    public String payDueAmountMinor(int id, long amountMinor) {
+        String[] message = new String[1];
+        tryPayDueAmountMinor(id, amountMinor, message);
+        return message[0];
+    }
+
+    /**
+     * Records a payment given in paise and reports the outcome as a code
+     * Uses the same rules and codes as postPayments; the message is PremiumMember's own
+     *
+     * @param id Member ID
+     * @param amountMinor Amount being paid in paise
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return A PAYMENT_* code
+     */
+    public byte tryPayDueAmountMinor(int id, long amountMinor, String[] message) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return reply(PAYMENT_NOT_FOUND, MEMBER_NOT_FOUND, message);
+            }
+            if (!(member instanceof PremiumMember)) {
+                return reply(PAYMENT_NOT_PREMIUM, PAYMENT_PREMIUM_ONLY, message);
+            }
+            PremiumMember premiumMember = (PremiumMember) member;
+            byte code;
+            String result;
+            long seq = 0;
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                if (journalUnavailable()) {
+                    return reply(PAYMENT_JOURNAL_UNAVAILABLE, JOURNAL_UNAVAILABLE, message);
+                }
+                code = premiumMember.isFullPayment() ? PAYMENT_ALREADY_PAID
+                        : amountMinor <= 0 || amountMinor > premiumMember.getRemainingMinor() ? PAYMENT_INVALID_AMOUNT
+                        : PAYMENT_OK;
+                long oldPaid = premiumMember.getPaidMinor();
+                result = revenueTotals.update(premiumMember, () -> premiumMember.payDueAmountMinor(amountMinor));
+                long paid = premiumMember.getPaidMinor() - oldPaid;
+                if (paid != 0) {
+                    seq = postLedgerEntry(premiumMember, paid, PaymentLedger.KIND_PAYMENT, journal);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!awaitDurable(seq)) {
+                return reply(PAYMENT_NOT_DURABLE, NOT_DURABLE, message);
+            }
+            return reply(code, result, message);
+        } finally {
+            MemberMetrics.record(MemberMetrics.PAYMENT, start);
+        }
+    }
+
+    /**
+     * Applies the same rules as payDueAmountMinor to a batch of payments, e.g. a bank payment file
+     * Allocates nothing per payment; journal records for the whole batch share one fsync
+     *
+     * @param ids Member IDs in posting order (an ID may repeat)
+     * @param amountsMinor Amount of each payment in paise, at the same index as in ids
+     * @param offset Index of the first payment to process
+     * @param length Number of payments to process
+     * @param results Receives a PAYMENT_* code for each payment, at the same index as in ids
+     * @return Number of payments posted
+     */
+    public int postPayments(int[] ids, long[] amountsMinor, int offset, int length, byte[] results) {
+        long start = MemberMetrics.start();
+        try {
+            int posted = 0;
+            long seq = 0;
+            MemberJournal currentJournal = journal;
+
+            // Holding the read lock across the batch is safe: stripe locks never wait on it
+            structureLock.readLock().lock();
+            try {
+                for (int i = offset; i < offset + length; i++) {
+                    GymMember member = index.get(ids[i]);
+                    if (member == null) {
+                        results[i] = PAYMENT_NOT_FOUND;
+                        continue;
+                    }
+                    if (!(member instanceof PremiumMember)) {
+                        results[i] = PAYMENT_NOT_PREMIUM;
+                        continue;
+                    }
+                    PremiumMember premiumMember = (PremiumMember) member;
+                    long amount = amountsMinor[i];
+                    ReentrantLock lock = lockFor(ids[i]);
+                    lock.lock();
+                    try {
+                        if (currentJournal != null && !currentJournal.isWritable()) {
+                            results[i] = PAYMENT_JOURNAL_UNAVAILABLE;
+                        } else if (premiumMember.isFullPayment()) {
+                            results[i] = PAYMENT_ALREADY_PAID;
+                        } else if (amount <= 0 || amount > premiumMember.getRemainingMinor()) {
+                            results[i] = PAYMENT_INVALID_AMOUNT;
+                        } else {
+                            revenueTotals.update(premiumMember, () -> premiumMember.payDueAmountMinor(amount));
+                            long entrySeq = postLedgerEntry(premiumMember, amount, PaymentLedger.KIND_PAYMENT,
+                                    currentJournal);
+                            if (entrySeq != 0) {
+                                seq = entrySeq;
+                            }
+                            results[i] = PAYMENT_OK;
+                            posted++;
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } finally {
+                structureLock.readLock().unlock();
+            }
+
+            if (!awaitDurable(currentJournal, seq)) {
+                markUnsaved(results, offset, length, PAYMENT_OK, PAYMENT_NOT_DURABLE);
+                return 0;
+            }
+            return posted;
+        } finally {
+            MemberMetrics.record(MemberMetrics.PAYMENT_BATCH, start);
+        }
+    }
+
+    /**
+     * Posts every payment in the arrays
+     *
+     * @param ids Member IDs in posting order
+     * @param amountsMinor Amount of each payment in paise
+     * @param results Receives a PAYMENT_* code per payment (at least ids.length long)
+     * @return Number of payments posted
+     */
+    public int postPayments(int[] ids, long[] amountsMinor, byte[] results) {
+        return postPayments(ids, amountsMinor, 0, ids.length, results);
+    }
+
+    /**
+     * Turns a postPayments result code into the message shown for a rejected payment
+     *
+     * @param result PAYMENT_* code
+     * @return Message for the code, or null for PAYMENT_OK
+     */
+    public static String paymentResultMessage(byte result) {
+        switch (result) {
+            case PAYMENT_NOT_FOUND:
+                return MEMBER_NOT_FOUND;
+            case PAYMENT_NOT_PREMIUM:
+                return PAYMENT_PREMIUM_ONLY;
+            case PAYMENT_ALREADY_PAID:
+                return "Payment already completed. No due amount.";
+            case PAYMENT_INVALID_AMOUNT:
+                return "Invalid payment amount. Must be between Rs. 0.01 and the remaining amount";
+            case PAYMENT_JOURNAL_UNAVAILABLE:
+                return JOURNAL_UNAVAILABLE;
+            case PAYMENT_NOT_DURABLE:
+                return NOT_DURABLE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reverts a regular member to the initial basic plan
+     *
+     * @param id Member ID
+     * @param removalReason Why the membership is being reverted (required)
+     * @return Status message
+     */
+    public String revertRegularMember(int id, String removalReason) {
+        String[] message = new String[1];
+        tryRevertRegularMember(id, removalReason, message);
+        return message[0];
+    }
+
+    /**
+     * Reverts a regular member and reports the outcome as a code
+     *
+     * @param id Member ID
+     * @param removalReason Why the membership is being reverted (required)
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return CHANGE_OK, CHANGE_NOT_FOUND, CHANGE_WRONG_TYPE, CHANGE_REASON_REQUIRED, CHANGE_JOURNAL_UNAVAILABLE
+     *         or CHANGE_NOT_DURABLE
+     */
+    public byte tryRevertRegularMember(int id, String removalReason, String[] message) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return reply(CHANGE_NOT_FOUND, MEMBER_NOT_FOUND, message);
+            }
+            if (!(member instanceof RegularMember)) {
+                return reply(CHANGE_WRONG_TYPE, NOT_REGULAR_MEMBER, message);
+            }
+            if (removalReason == null || removalReason.isEmpty()) {
+                return reply(CHANGE_REASON_REQUIRED, REMOVAL_REASON_REQUIRED, message);
+            }
+            RegularMember regularMember = (RegularMember) member;
+            String result;
+            long seq = 0;
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                if (journalUnavailable()) {
+                    return reply(CHANGE_JOURNAL_UNAVAILABLE, JOURNAL_UNAVAILABLE, message);
+                }
+                result = revenueTotals.update(regularMember, () -> regularMember.revertRegularMember(removalReason));
+                loyaltyBoard.update(id, regularMember.getLoyaltyPoints());
+                refreshUpgradeFeed(regularMember);
+                if (journal != null) {
+                    seq = journal.logRevertRegular(regularMember);
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (!awaitDurable(seq)) {
+                return reply(CHANGE_NOT_DURABLE, NOT_DURABLE, message);
+            }
+            return reply(CHANGE_OK, result, message);
+        } finally {
+            MemberMetrics.record(MemberMetrics.REVERT_REGULAR, start);
+        }
+    }
+
+    /**
+     * Reverts a premium member, clearing trainer and payment details
+     *
+     * @param id Member ID
+     * @return Status message
+     */
+    public String revertPremiumMember(int id) {
+        String[] message = new String[1];
+        tryRevertPremiumMember(id, message);
+        return message[0];
+    }
+
+    /**
+     * Reverts a premium member and reports the outcome as a code
+     *
+     * @param id Member ID
+     * @param message Receives the status message at index 0, or null if not wanted
+     * @return CHANGE_OK, CHANGE_NOT_FOUND, CHANGE_WRONG_TYPE, CHANGE_JOURNAL_UNAVAILABLE or CHANGE_NOT_DURABLE
+     */
+    public byte tryRevertPremiumMember(int id, String[] message) {
+        long start = MemberMetrics.start();
+        try {
+            GymMember member = findMember(id);
+            if (member == null) {
+                return reply(CHANGE_NOT_FOUND, MEMBER_NOT_FOUND, message);
+            }
+            if (!(member instanceof PremiumMember)) {
+                return reply(CHANGE_WRONG_TYPE, NOT_PREMIUM_MEMBER, message);
+            }
+            PremiumMember premiumMember = (PremiumMember) member;
+            String result;
+            long seq = 0;
+            // The trainer is reset, so the roster is updated in the same critical section
+            structureLock.writeLock().lock();
+            try {
+                ReentrantLock lock = lockFor(id);
+                lock.lock();
+                try {
+                    if (journalUnavailable()) {
+                        return reply(CHANGE_JOURNAL_UNAVAILABLE, JOURNAL_UNAVAILABLE, message);
+                    }
+                    String trainer = premiumMember.getPersonalTrainer();
+                    long paid = premiumMember.getPaidMinor();
+                    result = revenueTotals.update(premiumMember, premiumMember::revertPremiumMember);
+                    trainerRosters.remove(trainer, id);
+                    loyaltyBoard.update(id, premiumMember.getLoyaltyPoints());
+                    if (paid != 0) {
+                        postLedgerEntry(premiumMember, -paid, PaymentLedger.KIND_REVERSAL, journal);
+                    }
+                    if (journal != null) {
+                        seq = journal.logRevertPremium(premiumMember);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                structureLock.writeLock().unlock();
+            }
+            if (!awaitDurable(seq)) {
+                return reply(CHANGE_NOT_DURABLE, NOT_DURABLE, message);
+            }
+            return reply(CHANGE_OK, result, message);
+        } finally {
+            MemberMetrics.record(MemberMetrics.REVERT_PREMIUM, start);
+        }
+    }
+
+    /**
+     * Reads a premium member's discount while holding the member's lock
+     *
+     * @param id Member ID
+     * @return Discount amount, or -1 if the ID is not a premium member
+     */
+    public double getDiscountAmount(int id) {
+        GymMember member = findMember(id);
+        if (!(member instanceof PremiumMember)) {
+            return -1;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            return ((PremiumMember) member).getDiscountAmount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Classifies an upgrade request with the same checks, in the same order, as RegularMember.upgradePlan
+     * Caller must hold the member's stripe lock
+     *
+     * @param member Active regular member
+     * @param newPlan Requested plan
+     * @return UPGRADE_OK or the rejection code
+     */
+    private static byte upgradeOutcome(RegularMember member, String newPlan) {
+        if (newPlan.equalsIgnoreCase(member.getPlan())) {
+            return UPGRADE_SAME_PLAN;
+        }
+        if (!member.isEligibleForUpgrade()) {
+            return UPGRADE_NOT_ELIGIBLE;
+        }
+        if (member.getPlanPrice(newPlan) == -1) {
+            return UPGRADE_INVALID_PLAN;
+        }
+        return UPGRADE_OK;
+    }
+
+    /**
+     * Stores an operation's status message for the caller and passes its code through
+     *
+     * @param code Result code to return
+     * @param text Status message
+     * @param message Receives the message at index 0, or null if not wanted
+     * @return The code
+     */
+    private static byte reply(byte code, String text, String[] message) {
+        if (message != null) {
+            message[0] = text;
+        }
+        return code;
+    }
+
+    /**
+     * Applies the check-in rules to one member
+     * Caller must hold the member's stripe lock
+     *
+     * @param member Member checking in
+     * @return CHECKIN_OK if attendance was marked, otherwise the rejection code
+     */
+    private byte checkIn(GymMember member) {
+        if (!member.isActive()) {
+            return CHECKIN_INACTIVE;
+        }
+        if (member instanceof RegularMember) {
+            RegularMember regularMember = (RegularMember) member;
+            if (regularMember.getAttendance() >= regularMember.getAttendanceLimit()) {
+                return CHECKIN_LIMIT_REACHED;
+            }
+        }
+        boolean wasCandidate = isUpgradeCandidate(member);
+        member.markAttendance();
+        loyaltyBoard.update(member.getId(), member.getLoyaltyPoints());
+        if (isUpgradeCandidate(member) != wasCandidate) {
+            refreshUpgradeFeed(member);     // Most check-ins leave the feed alone, so skip its lock
+        }
+
+        // Keep each member's visit times strictly increasing so journal replay can tell them apart
+        long now = Math.max(System.currentTimeMillis(), member.getLastVisit() + 1);
+        attendanceLog.record(member.getId(), now, member.recordVisit(now));
+        return CHECKIN_OK;
+    }
+
+    /**
+     * Applies member state read back from the journal, keeping the financial totals in step
+     *
+     * @param member Member to change
+     * @param change Update to the member's plan, payment or discount fields
+     */
+    void restoreState(GymMember member, Runnable change) {
+        ReentrantLock lock = lockFor(member.getId());
+        lock.lock();
+        try {
+            revenueTotals.update(member, () -> {
+                change.run();
+                return null;
+            });
+            loyaltyBoard.update(member.getId(), member.getLoyaltyPoints());
+            refreshUpgradeFeed(member);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a ledger entry read back from the journal
+     * The entry is posted only if the restored ledger does not hold it yet (entries are numbered
+     * densely, so a snapshot taken after it was posted already has it); the member's paid amount
+     * is set to the value the entry left behind either way
+     *
+     * @param member Premium member the entry belongs to
+     * @param entry Entry number recorded in the journal
+     * @param amountMinor Entry amount in paise
+     * @param time Posting time (epoch milliseconds)
+     * @param kind PaymentLedger.KIND_* code
+     * @param paidAfter The member's paid amount after the entry, in paise
+     */
+    void restoreLedgerEntry(PremiumMember member, int entry, long amountMinor, long time, byte kind, long paidAfter) {
+        ReentrantLock lock = lockFor(member.getId());
+        lock.lock();
+        try {
+            revenueTotals.update(member, () -> {
+                member.restorePaymentState(paidAfter, member.getDiscountAmount());
+                return null;
+            });
+            if (entry >= paymentLedger.size()) {
+                paymentLedger.post(member.getId(), amountMinor, time, kind);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a paid amount from a journal written before payments had ledger entries
+     * The difference from the current paid amount is posted as one payment
+     *
+     * @param member Premium member who paid
+     * @param paidMinor Paid amount recorded in the journal, in paise
+     * @param time Record time (epoch milliseconds)
+     */
+    void restorePaidAmount(PremiumMember member, long paidMinor, long time) {
+        ReentrantLock lock = lockFor(member.getId());
+        lock.lock();
+        try {
+            long paid = paidMinor - member.getPaidMinor();
+            revenueTotals.update(member, () -> {
+                member.restorePaymentState(paidMinor, member.getDiscountAmount());
+                return null;
+            });
+            if (paid != 0) {
+                paymentLedger.post(member.getId(), paid, time, PaymentLedger.KIND_PAYMENT);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Appends a ledger entry for a change to a member's paid amount and journals it
+     * Posting and journaling happen under the ledger's lock, so entry numbers follow journal order
+     * Caller must hold the member's stripe lock and have already changed the paid amount
+     *
+     * @param member Premium member the amount belongs to
+     * @param amountMinor Change in the paid amount, in paise
+     * @param kind PaymentLedger.KIND_* code
+     * @param currentJournal Journal to append to, or null
+     * @return Journal sequence number to pass to awaitDurable, or 0 if not journaled
+     */
+    private long postLedgerEntry(PremiumMember member, long amountMinor, byte kind, MemberJournal currentJournal) {
+        long time = System.currentTimeMillis();
+        synchronized (paymentLedger) {
+            int entry = paymentLedger.post(member.getId(), amountMinor, time, kind);
+            if (currentJournal != null) {
+                return currentJournal.logLedgerEntry(member, entry, amountMinor, time, kind);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Applies a check-in read back from the journal
+     * Times not later than the member's last visit are already reflected (e.g. in the snapshot)
+     * and are not logged again, so replaying a record twice does not count the visit twice
+     *
+     * @param member Member who checked in
+     * @param time Check-in time recorded in the journal (epoch milliseconds)
+     * @param attendance The member's attendance after the check-in
+     * @param loyaltyPoints The member's loyalty points after the check-in
+     */
+    void restoreVisit(GymMember member, long time, int attendance, int loyaltyPoints) {
+        ReentrantLock lock = lockFor(member.getId());
+        lock.lock();
+        try {
+            if (time > member.getLastVisit()) {
+                attendanceLog.record(member.getId(), time, member.recordVisit(time));
+            }
+            member.restoreActivity(attendance, loyaltyPoints, member.isActive());
+            loyaltyBoard.update(member.getId(), loyaltyPoints);
+            refreshUpgradeFeed(member);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies an activation or deactivation read back from the journal
+     *
+     * @param member Member to change
+     * @param active Whether the membership is active
+     */
+    void restoreActive(GymMember member, boolean active) {
+        ReentrantLock lock = lockFor(member.getId());
+        lock.lock();
+        try {
+            if (active) {
+                member.activateMembership();
+            } else {
+                member.deactivateMembership();
+            }
+            refreshUpgradeFeed(member);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a regular member to the upgrade feed if they are active, eligible and still on the
+     * basic plan, and removes them otherwise; does nothing for premium members
+     * Caller must hold the member's stripe lock (or the structure write lock while registering)
+     *
+     * @param member Member whose activity or plan may have changed
+     */
+    private void refreshUpgradeFeed(GymMember member) {
+        if (member instanceof RegularMember) {
+            upgradeFeed.update(member.getId(), isUpgradeCandidate(member));
+        }
+    }
+
+    /**
+     * Caller must hold the member's stripe lock (or the structure write lock while registering)
+     *
+     * @param member Member to check
+     * @return true if the member is an active, eligible regular member still on the basic plan
+     */
+    private static boolean isUpgradeCandidate(GymMember member) {
+        if (!(member instanceof RegularMember)) {
+            return false;
+        }
+        RegularMember regularMember = (RegularMember) member;
+        return regularMember.isActive() && regularMember.isEligibleForUpgrade()
+                && regularMember.getPlanCode() == RegularMember.BASIC_PLAN_CODE;
+    }
+
+    /**
+     * Adds a member to the list, its type list and every index
+     * Caller must hold the structure write lock and have checked the ID is free
+     * A phone number or email already indexed keeps pointing at the earlier member
+     *
+     * @param member Member to register
+     */
+    private void register(GymMember member) {
+        members.add(member);
+        index.put(member);
+        attendanceLog.addMember(member.getLastVisit());
+        revenueTotals.add(member);
+        loyaltyBoard.add(member.getId(), member instanceof PremiumMember
+                ? LoyaltyLeaderboard.PREMIUM : LoyaltyLeaderboard.REGULAR, member.getLoyaltyPoints());
+        refreshUpgradeFeed(member);
+        if (!lookupIndexesDeferred) {
+            addLookupEntries(member, phoneIndex, emailIndex, nameIndex);
+        }
+        if (member.getStartEpochDay() != EpochDays.INVALID) {
+            startDateIndex.add(member.getStartEpochDay(), member.getId());
+        }
+        if (member.getDobEpochDay() != EpochDays.INVALID) {
+            birthdayIndex.add(EpochDays.monthDayKey(member.getDobEpochDay()), member.getId());
+        }
+        if (member instanceof PremiumMember) {
+            premiumMembers.add((PremiumMember) member);
+            trainerRosters.add(((PremiumMember) member).getPersonalTrainer(), member.getId());
+        } else if (member instanceof RegularMember) {
+            regularMembers.add((RegularMember) member);
+            referralRosters.add(((RegularMember) member).getReferralSource(), member.getId());
+        }
+    }
+
+    /**
+     * Adds a member to the phone, email and name indexes
+     * A phone number or email already indexed keeps pointing at the earlier member
+     *
+     * @param member Member to index
+     * @param phones Phone index
+     * @param emails Email index
+     * @param names Name search index
+     */
+    private static void addLookupEntries(GymMember member, HashMap<String, GymMember> phones,
+                                         HashMap<String, GymMember> emails, NameSearchIndex names) {
+        if (member.getPhone() != null) {
+            phones.putIfAbsent(member.getPhone(), member);
+        }
+        if (member.getEmail() != null) {
+            emails.putIfAbsent(emailKey(member.getEmail()), member);
+        }
+        names.add(member.getId(), member.getName());
+    }
+
+    /**
+     * Builds the deferred lookup indexes in place
+     * Caller must hold the structure write lock; only needed when the members were replaced
+     * between buildLookupIndexes() and taking the lock
+     */
+    private void buildLookupIndexesLocked() {
+        if (!lookupIndexesDeferred) {
+            return;
+        }
+        for (GymMember member : members) {
+            addLookupEntries(member, phoneIndex, emailIndex, nameIndex);
+        }
+        lookupIndexesDeferred = false;
+    }
+
+    /**
+     * Takes the structure read lock once the lookup indexes are built
+     * Callers unlock the read lock when done
+     */
+    private void lockLookupIndexes() {
+        structureLock.readLock().lock();
+        while (lookupIndexesDeferred) {
+            structureLock.readLock().unlock();
+            buildLookupIndexes();
+            structureLock.readLock().lock();
+        }
+    }
+
+    /**
+     * Checks a new member's ID, phone and email against the indexes
+     * Caller must hold the structure lock with the lookup indexes built
+     *
+     * @param id Member ID
+     * @param phone Phone number (may be null)
+     * @param email Email address (may be null)
+     * @return ADD_OK or the ADD_DUPLICATE_* code of the first clash
+     */
+    private byte checkUnique(int id, String phone, String email) {
+        if (index.contains(id)) {
+            return ADD_DUPLICATE_ID;
+        }
+        if (phone != null && phoneIndex.containsKey(phone)) {
+            return ADD_DUPLICATE_PHONE;
+        }
+        if (email != null && emailIndex.containsKey(emailKey(email))) {
+            return ADD_DUPLICATE_EMAIL;
+        }
+        return ADD_OK;
+    }
+
+    /**
+     * @param email Email address
+     * @return Key under which the email is indexed (lower case)
+     */
+    private static String emailKey(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Takes the structure read lock with both date indexes sealed
+     * Members added since the last query are merged in under the write lock first, which
+     * is then downgraded; the caller must release the read lock
+     */
+    private void lockSealedDates() {
+        structureLock.readLock().lock();
+        if (!startDateIndex.needsSeal() && !birthdayIndex.needsSeal()) {
+            return;
+        }
+        structureLock.readLock().unlock();
+        structureLock.writeLock().lock();
+        try {
+            startDateIndex.seal();
+            birthdayIndex.seal();
+            structureLock.readLock().lock();
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for a journal record to become durable, outside any member lock
+     *
+     * @param seq Sequence number from the journal, or 0 if nothing was logged
+     * @return false if the journal failed before the record was written
+     */
+    private boolean awaitDurable(long seq) {
+        return awaitDurable(journal, seq);
+    }
+
+    /**
+     * Waits for a record of the given journal to become durable, outside any member lock
+     *
+     * @param target Journal the record was appended to, or null if not journaled
+     * @param seq Sequence number from the journal, or 0 if nothing was logged
+     * @return false if the journal failed before the record was written
+     */
+    private static boolean awaitDurable(MemberJournal target, long seq) {
+        if (seq == 0 || target == null) {
+            return true;
+        }
+        long start = MemberMetrics.start();
+        try {
+            target.awaitDurable(seq);
+            return true;
+        } catch (UncheckedIOException e) {
+            return false;
+        } finally {
+            MemberMetrics.record(MemberMetrics.JOURNAL_SYNC, start);
+        }
+    }
+
+    /**
+     * Checks the attached journal before a mutation is applied, so a failed journal refuses
+     * changes instead of letting memory run ahead of the file
+     *
+     * @return true if a journal is attached and can no longer be written
+     */
+    private boolean journalUnavailable() {
+        MemberJournal current = journal;
+        return current != null && !current.isWritable();
+    }
+
+    /**
+     * Rewrites the successful results of a batch whose journal flush failed
+     * The changes stay in memory but will not survive a restart
+     *
+     * @param results Result codes written by the batch
+     * @param offset Index of the first result
+     * @param length Number of results
+     * @param ok Code for an applied change
+     * @param notDurable Code reporting a change applied in memory only
+     */
+    private static void markUnsaved(byte[] results, int offset, int length, byte ok, byte notDurable) {
+        for (int i = offset; i < offset + length; i++) {
+            if (results[i] == ok) {
+                results[i] = notDurable;
+            }
+        }
+    }
+
+    /**
+     * Picks the stripe lock guarding a member
+     *
+     * @param id Member ID
+     * @return Lock for that member's stripe
+     */
+    private ReentrantLock lockFor(int id) {
+        int h = id * 0x9E3779B9;
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
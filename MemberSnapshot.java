@@ -0,0 +1,889 @@
+/**
+ * MemberSnapshot - Compact, versioned binary file format for the full member set
+ * Stores every field of RegularMember and PremiumMember, unlike the text export
+ * Writes through a FileChannel with a large reusable buffer; reads by memory-mapping the file
+ *
+ * File layout, version 4 (big-endian):
+ *   int magic ("GYMS"), short version, int member count, then one long length per section
+ *   hot section: one record per member with every field needed to run the gym (see writeMember)
+ *   cold section: location, DOB and start date of each member (see writeColdFields)
+ *   visits section: the registry's AttendanceLog events and rollups (see AttendanceLog.encode)
+ *   payments section: the registry's PaymentLedger entries (see PaymentLedger.encode)
+ * Each section is followed by the CRC32 of its bytes
+ * Strings are stored as an int byte length followed by UTF-8 bytes (-1 for null)
+ *
+ * Loading decodes only the hot section. Cold strings stay in the mapped file and are decoded
+ * the first time a member's getter asks for them, so startup cost does not include them.
+ *
+ * Because a loaded snapshot stays mapped, a save never replaces the file it was read from
+ * (Windows refuses to replace a mapped file). The snapshot path holds a small pointer
+ * (int magic "GYMP", long generation) and each save writes a new data file "<path>.<generation>",
+ * then switches the pointer. Data files no longer named by it are deleted when the OS allows.
+ * A full snapshot found at the path itself (written before pointers) is still read, by copying
+ * it into memory instead of mapping it, so the first save can put a pointer in its place.
+ * Older files are still read: version 3 (no payments section, paid amount as a double),
+ * version 2 (hot and cold sections only, no last-visit time) and version 1 (one record with
+ * every field per member). Their paid amounts become opening-balance ledger entries.
+ */
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+public class MemberSnapshot {
+    // Format identification
+    public static final int MAGIC = 0x47594D53;          // "GYMS"
+    public static final short VERSION = 4;               // Current format version (hot/cold/visits/payments)
+    public static final short VERSION_3 = 3;             // No payments section, still readable
+    public static final short VERSION_2 = 2;             // Hot and cold sections only, still readable
+    public static final short VERSION_1 = 1;             // Original single-section format, still readable
+
+    // Pointer file naming the current data file: magic, generation
+    private static final int POINTER_MAGIC = 0x47594D50;  // "GYMP"
+    private static final int POINTER_SIZE = 4 + 8;
+
+    // Sections of version 2+ files, in file order (version 2 has the first two, version 3 the first three)
+    private static final int SECTION_HOT = 0;
+    private static final int SECTION_COLD = 1;
+    private static final int SECTION_VISITS = 2;
+    private static final int SECTION_PAYMENTS = 3;
+    private static final int SECTIONS = 4;
+
+    // Header: magic, version, member count, then one long length per section
+    private static final int HEADER_PREFIX = 4 + 2 + 4;
+    private static final int HEADER_SIZE = HEADER_PREFIX + 8 * SECTIONS;
+
+    // Paise per rupee, for paid amounts stored as doubles by older versions
+    private static final int MINOR_UNITS = 100;
+
+    // Record type tags
+    private static final byte TYPE_REGULAR = 1;
+    private static final byte TYPE_PREMIUM = 2;
+
+    // I/O buffer size (bytes)
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    // Channel state
+    private final FileChannel channel;    // Channel being read or written
+    private final ByteBuffer buffer;      // Reusable direct I/O buffer
+    private final CRC32 checksum;         // Running checksum over record bytes
+    private int checksumFrom;             // Buffer position where unchecksummed bytes start
+    private long flushed;                 // Bytes written to the channel so far
+
+    /**
+     * Creates a snapshot reader/writer over an open channel
+     *
+     * @param channel File channel to use
+     */
+    private MemberSnapshot(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.checksum = new CRC32();
+    }
+
+    /**
+     * Writes all registry members, the attendance log and the payment ledger to a snapshot file
+     * Data goes to a new generation file and the pointer is switched to it once synced,
+     * so a crash never leaves a half-written snapshot behind and a mapped one is never replaced
+     * The attendance log is captured before the members, so a check-in made while the file is
+     * written can be missing from the saved rollups but is never counted twice after replay.
+     * Ledger entries added after the capture are restored from the journal by entry number.
+     *
+     * @param registry Registry whose members are saved
+     * @param file Destination snapshot file
+     * @return Number of members written
+     * @throws IOException If the file cannot be written
+     */
+    public static int write(MemberRegistry registry, Path file) throws IOException {
+        long start = MemberMetrics.start();
+        try {
+            ByteBuffer visits = registry.getAttendanceLog().encode();
+            ByteBuffer payments = registry.getPaymentLedger().encode();
+            List<GymMember> members = registry.getMembers();
+            long generation = currentGeneration(file) + 1;
+            Path temp = generationFile(file, generation);
+            Path coldTemp = file.resolveSibling(file.getFileName() + ".cold.tmp");
+
+            // The cold section goes to its own file while the hot one is written, then is appended
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 FileChannel coldChannel = FileChannel.open(coldTemp, StandardOpenOption.CREATE,
+                         StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                         StandardOpenOption.DELETE_ON_CLOSE)) {
+                MemberSnapshot writer = new MemberSnapshot(channel);
+                MemberSnapshot coldWriter = new MemberSnapshot(coldChannel);
+                writer.buffer.position(HEADER_SIZE);
+                writer.checksumFrom = HEADER_SIZE;
+
+                // Lock each member only while its record is encoded
+                for (GymMember member : members) {
+                    registry.readMember(member, m -> writer.writeMember(m, coldWriter));
+                }
+
+                writer.writeChecksum();
+                long hotLength = writer.flushed - HEADER_SIZE - 4;
+                coldWriter.writeChecksum();
+                long coldLength = coldWriter.flushed - 4;
+
+                long copied = 0;
+                while (copied < coldWriter.flushed) {
+                    copied += coldChannel.transferTo(copied, coldWriter.flushed - copied, channel);
+                }
+
+                long visitsLength = writeSection(channel, visits);
+                long paymentsLength = writeSection(channel, payments);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putShort(VERSION).putInt(members.size()).putLong(hotLength).putLong(coldLength)
+                        .putLong(visitsLength).putLong(paymentsLength);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+
+            writePointer(file, generation);
+            deleteOldGenerations(file, generation);
+            return members.size();
+        } finally {
+            MemberMetrics.record(MemberMetrics.SNAPSHOT_WRITE, start);
+        }
+    }
+
+    /**
+     * Reads every member stored in a snapshot file
+     *
+     * @param file Snapshot file to read
+     * @return Members in the order they were saved
+     * @throws IOException If the file is missing, truncated, corrupt or of an unknown version
+     */
+    public static List<GymMember> read(Path file) throws IOException {
+        return read(file, null, null);
+    }
+
+    /**
+     * Reads every member stored in a snapshot file and restores the attendance log and payment
+     * ledger saved with them
+     * Files older than version 3 carry no attendance log, so the log's history is cleared; files
+     * older than version 4 carry no ledger, so each paid amount becomes an opening-balance entry
+     *
+     * @param file Snapshot file to read
+     * @param visits Attendance log to restore, or null to skip it
+     * @param payments Payment ledger to restore, or null to skip it
+     * @return Members in the order they were saved
+     * @throws IOException If the file is missing, truncated, corrupt or of an unknown version
+     */
+    public static List<GymMember> read(Path file, AttendanceLog visits, PaymentLedger payments) throws IOException {
+        long start = MemberMetrics.start();
+        try {
+            long generation = currentGeneration(file);
+            if (generation > 0) {
+                return readFile(generationFile(file, generation), true, visits, payments);
+            }
+            return readFile(file, false, visits, payments);
+        } finally {
+            MemberMetrics.record(MemberMetrics.SNAPSHOT_READ, start);
+        }
+    }
+
+    /**
+     * Reads one snapshot data file
+     *
+     * @param file Data file to read
+     * @param map true to leave version 2+ sections mapped, false to copy them into memory
+     *            (for a file that a later save will replace in place)
+     * @param visits Attendance log to restore, or null to skip it
+     * @param payments Payment ledger to restore, or null to skip it
+     * @return Members in the order they were saved
+     * @throws IOException If the file is missing, truncated, corrupt or of an unknown version
+     */
+    private static List<GymMember> readFile(Path file, boolean map, AttendanceLog visits, PaymentLedger payments)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemberSnapshot reader = new MemberSnapshot(channel);
+            reader.buffer.limit(0);
+
+            reader.ensureReadable(6);
+            if (reader.buffer.getInt() != MAGIC) {
+                throw new IOException("Not a member snapshot file: " + file);
+            }
+            short version = reader.buffer.getShort();
+            if (version >= VERSION_2 && version <= VERSION) {
+                return readMapped(channel, file, version, map, visits, payments);
+            }
+            if (version != VERSION_1) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            if (visits != null) {
+                visits.clearHistory();
+            }
+
+            reader.ensureReadable(4);
+            int count = reader.buffer.getInt();
+            reader.checksumFrom = reader.buffer.position();
+
+            List<GymMember> members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                members.add(reader.readMember());
+            }
+
+            reader.updateChecksum();
+            reader.ensureReadable(4);
+            if (reader.buffer.getInt() != (int) reader.checksum.getValue()) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            if (payments != null) {
+                postOpeningBalances(members, payments);
+            }
+            return members;
+        }
+    }
+
+    /**
+     * Reads a version 2, 3 or 4 snapshot by mapping it into memory
+     * Verifies the section checksums, decodes the hot section into members, leaves the
+     * cold section mapped for the members to decode on demand, and restores the attendance log
+     * and payment ledger
+     *
+     * @param channel Open channel positioned anywhere
+     * @param file Snapshot file (for messages)
+     * @param version Format version from the header
+     * @param map false to read the sections into heap buffers instead of mapping them
+     * @param visits Attendance log to restore, or null to skip it
+     * @param payments Payment ledger to restore, or null to skip it
+     * @return Members in the order they were saved
+     * @throws IOException If the file is truncated or corrupt
+     */
+    private static List<GymMember> readMapped(FileChannel channel, Path file, short version, boolean map,
+                                              AttendanceLog visits, PaymentLedger payments) throws IOException {
+        int sections = version == VERSION_2 ? 2 : version == VERSION_3 ? 3 : SECTIONS;
+        int headerSize = HEADER_PREFIX + 8 * sections;
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new EOFException("Snapshot file is truncated");
+            }
+        }
+        header.flip().position(6);
+        int count = header.getInt();
+        long[] lengths = new long[sections];
+        long expectedSize = headerSize;
+        for (int i = 0; i < sections; i++) {
+            lengths[i] = header.getLong();
+            if (lengths[i] < 0) {
+                throw new EOFException("Snapshot file is truncated: " + file);
+            }
+            if (lengths[i] > Integer.MAX_VALUE - 4) {
+                throw new IOException("Snapshot section larger than 2 GB: " + file);
+            }
+            expectedSize += lengths[i] + 4;
+        }
+        if (count < 0 || channel.size() != expectedSize) {
+            throw new EOFException("Snapshot file is truncated: " + file);
+        }
+
+        // Map and check every section; the mappings stay valid after the channel is closed
+        ByteBuffer[] mapped = new ByteBuffer[sections];
+        long offset = headerSize;
+        for (int i = 0; i < sections; i++) {
+            mapped[i] = map ? channel.map(FileChannel.MapMode.READ_ONLY, offset, lengths[i] + 4)
+                    : readSection(channel, offset, (int) lengths[i] + 4);
+            verifyChecksum(mapped[i], (int) lengths[i], file);
+            mapped[i].limit((int) lengths[i]);
+            offset += lengths[i] + 4;
+        }
+
+        if (visits != null) {
+            if (sections > SECTION_VISITS) {
+                try {
+                    visits.restore(mapped[SECTION_VISITS]);
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    throw new IOException("Snapshot attendance log is corrupt: " + file);
+                }
+            } else {
+                visits.clearHistory();
+            }
+        }
+
+        ColdSection coldSection = new ColdSection(mapped[SECTION_COLD].slice());
+        ByteBuffer hot = mapped[SECTION_HOT];
+        byte[] scratch = new byte[256];
+        List<GymMember> members = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                members.add(readMappedMember(hot, coldSection, scratch, version));
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot record is corrupt: " + file);
+        }
+
+        if (payments != null) {
+            if (sections > SECTION_PAYMENTS) {
+                try {
+                    payments.restore(mapped[SECTION_PAYMENTS]);
+                } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+                    throw new IOException("Snapshot payment ledger is corrupt: " + file);
+                }
+            } else {
+                postOpeningBalances(members, payments);
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Starts a ledger for members read from a file that has none
+     * Each premium member's paid amount becomes one opening-balance entry, so the ledger
+     * sum matches the paid amount from the start
+     *
+     * @param members Members just read
+     * @param payments Ledger to fill (cleared first)
+     */
+    private static void postOpeningBalances(List<GymMember> members, PaymentLedger payments) {
+        payments.clear();
+        for (GymMember member : members) {
+            if (member instanceof PremiumMember && ((PremiumMember) member).getPaidMinor() != 0) {
+                payments.post(member.getId(), ((PremiumMember) member).getPaidMinor(), 0, PaymentLedger.KIND_OPENING);
+            }
+        }
+    }
+
+    /**
+     * Decodes one hot record written by writeMember
+     *
+     * @param hot Mapped hot section, positioned at the record
+     * @param coldSection Cold section the member's strings stay in
+     * @param scratch Reusable byte array for string decoding
+     * @param version Format version (version 2 records have no last-visit time, and versions
+     *                before 4 store the paid amount as a double with a full-payment flag)
+     * @return The reconstructed member
+     * @throws IOException If the record has an unknown type
+     */
+    private static GymMember readMappedMember(ByteBuffer hot, ColdSection coldSection, byte[] scratch,
+                                              short version) throws IOException {
+        byte type = hot.get();
+        int id = hot.getInt();
+        int coldOffset = hot.getInt();
+        int dobEpochDay = hot.getInt();
+        int startEpochDay = hot.getInt();
+        long lastVisit = version >= VERSION_3 ? hot.getLong() : 0;
+        String name = getString(hot, scratch);
+        String phone = getString(hot, scratch);
+        String email = getString(hot, scratch);
+        String gender = getString(hot, scratch);          // Coded through MemberSymbols by the constructor
+        int attendance = hot.getInt();
+        int loyaltyPoints = hot.getInt();
+        boolean active = hot.get() != 0;
+
+        GymMember member;
+        if (type == TYPE_PREMIUM) {
+            String trainer = getString(hot, scratch);
+            long paidMinor;
+            if (version >= VERSION) {
+                paidMinor = hot.getLong();
+            } else {
+                hot.get();                                   // Full-payment flag, implied by the amount
+                paidMinor = Math.round(hot.getDouble() * MINOR_UNITS);
+            }
+            double discountAmount = hot.getDouble();
+            PremiumMember pm = new PremiumMember(id, name, null, phone, email, gender, null, null, trainer);
+            pm.restorePaymentState(paidMinor, discountAmount);
+            member = pm;
+        } else if (type == TYPE_REGULAR) {
+            String referralSource = getString(hot, scratch);
+            String plan = getString(hot, scratch);
+            String removalReason = getString(hot, scratch);
+            double price = hot.getDouble();
+            boolean eligible = hot.get() != 0;
+            RegularMember rm = new RegularMember(id, name, null, phone, email, gender, null, null, referralSource);
+            rm.restoreRegularState(eligible, plan, price, removalReason);
+            member = rm;
+        } else {
+            throw new IOException("Unknown member record type " + type);
+        }
+        member.restoreActivity(attendance, loyaltyPoints, active);
+        member.recordVisit(lastVisit);
+        member.restoreColdFields(coldSection, coldOffset, dobEpochDay, startEpochDay);
+        return member;
+    }
+
+    /**
+     * Encodes one member: its hot record here and its cold strings in the cold section
+     * Hot record layout: type, id, cold offset, DOB and start epoch days, last-visit time, name,
+     * phone, email, gender, activity counters, then type-specific fields
+     *
+     * @param member Member to encode
+     * @param cold Writer for the cold section
+     */
+    private void writeMember(GymMember member, MemberSnapshot cold) {
+        try {
+            long coldOffset = cold.flushed + cold.buffer.position();
+            if (coldOffset > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot cold section larger than 2 GB");
+            }
+            cold.writeColdFields(member);
+
+            ensureWritable(1 + 4 + 4 + 4 + 4 + 8);
+            buffer.put(member instanceof PremiumMember ? TYPE_PREMIUM : TYPE_REGULAR);
+            buffer.putInt(member.getId());
+            buffer.putInt((int) coldOffset);
+            buffer.putInt(member.getDobEpochDay());
+            buffer.putInt(member.getStartEpochDay());
+            buffer.putLong(member.getLastVisit());
+            writeString(member.getName());
+            writeString(member.getPhone());
+            writeString(member.getEmail());
+            writeString(member.getGender());
+
+            ensureWritable(4 + 4 + 1);
+            buffer.putInt(member.getAttendance());
+            buffer.putInt(member.getLoyaltyPoints());
+            buffer.put((byte) (member.isActive() ? 1 : 0));
+
+            if (member instanceof PremiumMember) {
+                PremiumMember pm = (PremiumMember) member;
+                writeString(pm.getPersonalTrainer());
+                ensureWritable(8 + 8);
+                buffer.putLong(pm.getPaidMinor());
+                buffer.putDouble(pm.getDiscountAmount());
+            } else {
+                RegularMember rm = (RegularMember) member;
+                writeString(rm.getReferralSource());
+                writeString(rm.getPlan());
+                writeString(rm.getRemovalReason());
+                ensureWritable(8 + 1);
+                buffer.putDouble(rm.getPrice());
+                buffer.put((byte) (rm.isEligibleForUpgrade() ? 1 : 0));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a member's location, DOB and start date to the cold section
+     * A member whose strings are still undecoded in a loaded snapshot is copied byte for byte,
+     * so saving does not decode them
+     *
+     * @param member Member to encode
+     * @throws IOException If flushing the buffer fails
+     */
+    private void writeColdFields(GymMember member) throws IOException {
+        ColdSection section = member.coldSection;
+        if (section != null) {
+            ByteBuffer record = section.record(member.coldOffset);
+            while (record.hasRemaining()) {
+                ensureWritable(1);
+                int chunk = Math.min(buffer.remaining(), record.remaining());
+                ByteBuffer part = record.slice().limit(chunk);
+                buffer.put(part);
+                record.position(record.position() + chunk);
+            }
+            return;
+        }
+        writeString(member.getLocation());
+        writeString(member.getDob());
+        writeString(member.getMembershipStartDate());
+    }
+
+    /**
+     * Decodes one member record written by writeMember
+     *
+     * @return The reconstructed member
+     * @throws IOException If the record is truncated or has an unknown type
+     */
+    private GymMember readMember() throws IOException {
+        ensureReadable(1 + 4);
+        byte type = buffer.get();
+        int id = buffer.getInt();
+        String name = readString();
+        String location = readString();
+        String phone = readString();
+        String email = readString();
+        String gender = readString();
+        String dob = readString();
+        String startDate = readString();
+
+        ensureReadable(4 + 4 + 1);
+        int attendance = buffer.getInt();
+        int loyaltyPoints = buffer.getInt();
+        boolean active = buffer.get() != 0;
+
+        GymMember member;
+        if (type == TYPE_PREMIUM) {
+            String trainer = readString();
+            ensureReadable(1 + 8 + 8);
+            buffer.get();                                    // Full-payment flag, implied by the amount
+            long paidMinor = Math.round(buffer.getDouble() * MINOR_UNITS);
+            double discountAmount = buffer.getDouble();
+            PremiumMember pm = new PremiumMember(id, name, location, phone, email, gender, dob, startDate, trainer);
+            pm.restorePaymentState(paidMinor, discountAmount);
+            member = pm;
+        } else if (type == TYPE_REGULAR) {
+            String referralSource = readString();
+            String plan = readString();
+            String removalReason = readString();
+            ensureReadable(8 + 1);
+            double price = buffer.getDouble();
+            boolean eligible = buffer.get() != 0;
+            RegularMember rm = new RegularMember(id, name, location, phone, email, gender, dob, startDate, referralSource);
+            rm.restoreRegularState(eligible, plan, price, removalReason);
+            member = rm;
+        } else {
+            throw new IOException("Unknown member record type " + type);
+        }
+        member.restoreActivity(attendance, loyaltyPoints, active);
+        return member;
+    }
+
+    /**
+     * Appends the checksum of everything written so far and flushes
+     *
+     * @throws IOException If the channel write fails
+     */
+    private void writeChecksum() throws IOException {
+        updateChecksum();
+        ensureWritable(4);
+        buffer.putInt((int) checksum.getValue());
+        checksumFrom = buffer.position();
+        flush();
+    }
+
+    /**
+     * Writes an encoded section followed by its CRC32
+     *
+     * @param channel Destination, positioned after the previous section
+     * @param section Encoded bytes (consumed)
+     * @return Length of the section without the checksum
+     * @throws IOException If writing fails
+     */
+    private static long writeSection(FileChannel channel, ByteBuffer section) throws IOException {
+        long length = section.remaining();
+        CRC32 crc = new CRC32();
+        crc.update(section.duplicate());
+        ByteBuffer checksum = ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip();
+        while (section.hasRemaining()) {
+            channel.write(section);
+        }
+        while (checksum.hasRemaining()) {
+            channel.write(checksum);
+        }
+        return length;
+    }
+
+    /**
+     * Copies a section into a heap buffer, for files that must not stay mapped
+     *
+     * @param channel Open snapshot channel
+     * @param offset File offset of the section
+     * @param length Section length including its checksum
+     * @return Buffer holding the section
+     * @throws IOException If the file ends early
+     */
+    private static ByteBuffer readSection(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer section = ByteBuffer.allocate(length);
+        while (section.hasRemaining()) {
+            if (channel.read(section, offset + section.position()) < 0) {
+                throw new EOFException("Snapshot file is truncated");
+            }
+        }
+        return section.flip();
+    }
+
+    /**
+     * Reads the generation named by a snapshot pointer
+     *
+     * @param file Snapshot path
+     * @return The current generation, or 0 if the path is missing or holds a pre-pointer snapshot
+     * @throws IOException If the file cannot be read
+     */
+    private static long currentGeneration(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer pointer = ByteBuffer.allocate(POINTER_SIZE);
+            while (pointer.hasRemaining() && channel.read(pointer) >= 0) {
+                // Keep reading until the pointer is complete or the file ends
+            }
+            pointer.flip();
+            if (pointer.remaining() < POINTER_SIZE || pointer.getInt() != POINTER_MAGIC) {
+                return 0;
+            }
+            long generation = pointer.getLong();
+            if (generation <= 0) {
+                throw new IOException("Snapshot pointer is corrupt: " + file);
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * @param file Snapshot path
+     * @param generation Generation number
+     * @return Data file of that generation
+     */
+    private static Path generationFile(Path file, long generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+
+    /**
+     * Points the snapshot path at a generation, replacing the old pointer atomically
+     *
+     * @param file Snapshot path
+     * @param generation Generation whose data file is complete and synced
+     * @throws IOException If the pointer cannot be written
+     */
+    private static void writePointer(Path file, long generation) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer pointer = ByteBuffer.allocate(POINTER_SIZE).putInt(POINTER_MAGIC).putLong(generation).flip();
+            while (pointer.hasRemaining()) {
+                channel.write(pointer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the data files of earlier generations
+     * A file still mapped by loaded members cannot be deleted on Windows; it is retried on the next save
+     *
+     * @param file Snapshot path
+     * @param current Generation the pointer now names
+     * @throws IOException If the directory cannot be listed
+     */
+    private static void deleteOldGenerations(Path file, long current) throws IOException {
+        String prefix = file.getFileName() + ".";
+        Path directory = file.toAbsolutePath().getParent();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path entry : entries) {
+                String suffix = entry.getFileName().toString().substring(prefix.length());
+                if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)
+                        || suffix.equals(Long.toString(current))) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(entry);
+                } catch (IOException e) {
+                    // Still mapped by a loaded snapshot; removed by a later save
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the CRC32 stored after a mapped section
+     *
+     * @param section Mapped section followed by its 4-byte checksum
+     * @param length Length of the section without the checksum
+     * @param file Snapshot file (for messages)
+     * @throws IOException If the checksum does not match
+     */
+    private static void verifyChecksum(ByteBuffer section, int length, Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(section.duplicate().limit(length));
+        if (section.getInt(length) != (int) crc.getValue()) {
+            throw new IOException("Snapshot checksum mismatch: " + file);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from a mapped section
+     *
+     * @param source Section positioned at the string
+     * @param scratch Reusable byte array (used when the string fits)
+     * @return The decoded string, or null if a null was written
+     */
+    private static String getString(ByteBuffer source, byte[] scratch) {
+        int length = source.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        source.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a length-prefixed UTF-8 string
+     *
+     * @param value String to write (may be null)
+     * @throws IOException If flushing the buffer fails
+     */
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            ensureWritable(4);
+            buffer.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureWritable(4);
+        buffer.putInt(bytes.length);
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensureWritable(1);
+            int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string
+     *
+     * @return The decoded string, or null if a null was written
+     * @throws IOException If the file ends early
+     */
+    private String readString() throws IOException {
+        ensureReadable(4);
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            ensureReadable(1);
+            int chunk = Math.min(buffer.remaining(), length - offset);
+            buffer.get(bytes, offset, chunk);
+            offset += chunk;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes room for the given number of bytes, flushing the buffer if needed
+     *
+     * @param bytes Bytes about to be written (at most the buffer size)
+     * @throws IOException If flushing fails
+     */
+    private void ensureWritable(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes buffered bytes to the channel, folding them into the checksum first
+     *
+     * @throws IOException If the channel write fails
+     */
+    private void flush() throws IOException {
+        updateChecksum();
+        buffer.flip();
+        flushed += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        checksumFrom = 0;
+    }
+
+    /**
+     * Makes sure the given number of bytes can be read from the buffer
+     *
+     * @param bytes Bytes about to be read (at most the buffer size)
+     * @throws IOException If the file ends before that many bytes are available
+     */
+    private void ensureReadable(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        updateChecksum();
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Snapshot file is truncated");
+            }
+        }
+        buffer.flip();
+        checksumFrom = 0;
+    }
+
+    /**
+     * Folds bytes between checksumFrom and the current position into the checksum
+     */
+    private void updateChecksum() {
+        int position = buffer.position();
+        if (position > checksumFrom) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(checksumFrom).limit(position);
+            checksum.update(slice);
+        }
+        checksumFrom = position;
+    }
+
+    /**
+     * ColdSection - Mapped snapshot bytes holding members' location, DOB and start date
+     * Members loaded from the snapshot keep a reference and an offset until first access
+     * Reads use absolute positions only, so any number of threads can decode at once
+     */
+    static final class ColdSection {
+        private final ByteBuffer data;    // Read-only mapped cold section
+
+        /**
+         * @param data Mapped cold section (without its checksum)
+         */
+        ColdSection(ByteBuffer data) {
+            this.data = data;
+        }
+
+        /**
+         * Decodes a member's strings and stores them in the member
+         *
+         * @param member Member whose strings to load
+         * @param offset Offset of its record in the section
+         */
+        void load(GymMember member, int offset) {
+            int dobAt = next(offset);
+            int startAt = next(dobAt);
+            member.setColdFields(stringAt(offset), stringAt(dobAt), stringAt(startAt));
+        }
+
+        /**
+         * @param offset Offset of a member's record
+         * @return A buffer over exactly that record's bytes
+         */
+        ByteBuffer record(int offset) {
+            int end = next(next(next(offset)));
+            return data.duplicate().position(offset).limit(end);
+        }
+
+        /**
+         * @param position Offset of a length-prefixed string
+         * @return Offset just after it
+         */
+        private int next(int position) {
+            return position + 4 + Math.max(0, data.getInt(position));
+        }
+
+        /**
+         * @param position Offset of a length-prefixed string
+         * @return The decoded string, or null if a null was written
+         */
+        private String stringAt(int position) {
+            int length = data.getInt(position);
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            data.get(position + 4, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
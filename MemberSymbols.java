@@ -0,0 +1,94 @@
+/**
+ * MemberSymbols - Process-wide dictionaries for the strings that repeat across members
+ * Gender and regular plan are closed vocabularies (validated on entry), so members store them
+ * as int codes from one shared StringDictionary; the usual getters decode a code back to the
+ * single canonical String for that value, and plan checks compare codes instead of strings.
+ *
+ * Locations, referral sources and trainer names repeat for most gyms but are free text, so they
+ * stay String fields and are interned through dictionaries capped at MAX_LOCATIONS and
+ * MAX_TEXTS values: members with the same value share one instance, and once a cap is reached
+ * new values are simply kept unshared, so no dictionary grows without bound.
+ *
+ * Codes are assigned in first-seen order and are only meaningful within this process; snapshots
+ * and exports store the strings.
+ */
+public final class MemberSymbols {
+    // Most distinct locations shared before new ones are kept per member
+    public static final int MAX_LOCATIONS = 1 << 16;
+
+    // Most distinct referral sources and trainer names shared before new ones are kept per member
+    public static final int MAX_TEXTS = 1 << 16;
+
+    private static final StringDictionary CODES = new StringDictionary();
+    private static final StringDictionary LOCATIONS = new StringDictionary(MAX_LOCATIONS);
+    private static final StringDictionary TEXTS = new StringDictionary(MAX_TEXTS);
+
+    /**
+     * Not instantiable; use the static methods
+     */
+    private MemberSymbols() {
+    }
+
+    /**
+     * @param value Gender or plan (may be null)
+     * @return The value's code, assigned the first time it is seen (StringDictionary.NULL_CODE for null)
+     */
+    public static int encode(String value) {
+        return CODES.encode(value);
+    }
+
+    /**
+     * @param code Code returned by encode
+     * @return The canonical string, or null for StringDictionary.NULL_CODE
+     */
+    public static String decode(int code) {
+        return CODES.decode(code);
+    }
+
+    /**
+     * Looks up a value's code for a filter without adding it
+     *
+     * @param value Value to look for
+     * @return Its code, or StringDictionary.NULL_CODE if no member has ever held it
+     */
+    public static int codeOf(String value) {
+        return CODES.codeOf(value);
+    }
+
+    /**
+     * @param location Location text (may be null)
+     * @return The shared instance equal to it, or location itself once MAX_LOCATIONS are held
+     */
+    public static String internLocation(String location) {
+        return LOCATIONS.intern(location);
+    }
+
+    /**
+     * @param text Referral source or trainer name (may be null)
+     * @return The shared instance equal to it, or text itself once MAX_TEXTS are held
+     */
+    public static String internText(String text) {
+        return TEXTS.intern(text);
+    }
+
+    /**
+     * @return Number of distinct coded values (genders and plans)
+     */
+    public static int codeCount() {
+        return CODES.size();
+    }
+
+    /**
+     * @return Number of distinct shared locations
+     */
+    public static int locationCount() {
+        return LOCATIONS.size();
+    }
+
+    /**
+     * @return Number of distinct shared referral sources and trainer names
+     */
+    public static int textCount() {
+        return TEXTS.size();
+    }
+}
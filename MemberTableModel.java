@@ -0,0 +1,208 @@
+/**
+ * MemberTableModel - Lazy table model showing Regular or Premium members from the registry
+ * Cells are read from the registry only when the table asks for them, so opening the
+ * Display window costs the same for 100 or a million members
+ * Only a few small blocks of rows around the visible viewport are cached
+ */
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+
+public class MemberTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    // Column headers for each member type
+    private static final String[] REGULAR_COLUMNS = {"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
+            "Start Date", "Plan", "Status", "Attendance", "Points", "Referral Source"};
+    private static final String[] PREMIUM_COLUMNS = {"ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
+            "Start Date", "Trainer", "Status", "Attendance", "Points", "Paid Amount", "Full Payment", "Discount"};
+
+    // Cache shape
+    private static final int BLOCK_ROWS = 128;    // Rows fetched from the registry at a time
+    private static final int CACHED_BLOCKS = 4;   // Blocks kept (a screen plus scrolling slack)
+
+    // Source data
+    private final MemberRegistry registry;        // Registry the rows come from
+    private final boolean premium;                // true for premium members, false for regular
+    private final String[] columns;               // Column headers for this member type
+    private int rowCount;                         // Row count as of the last refresh
+
+    // Block cache (row values already formatted for display)
+    private final int[] blockStarts;              // First row of each cached block, -1 if empty
+    private final Object[][][] blocks;            // Cached cell values per block
+    private int nextVictim;                       // Round-robin slot replaced on the next miss
+    private final GymMember[] fetchBuffer;        // Reused buffer for registry fetches
+
+    /**
+     * Creates a model over one member type
+     *
+     * @param registry Registry to read members from
+     * @param premium true to show premium members, false to show regular members
+     */
+    public MemberTableModel(MemberRegistry registry, boolean premium) {
+        this.registry = registry;
+        this.premium = premium;
+        this.columns = premium ? PREMIUM_COLUMNS : REGULAR_COLUMNS;
+        this.blockStarts = new int[CACHED_BLOCKS];
+        this.blocks = new Object[CACHED_BLOCKS][][];
+        this.fetchBuffer = premium ? new PremiumMember[BLOCK_ROWS] : new RegularMember[BLOCK_ROWS];
+        Arrays.fill(blockStarts, -1);
+        this.rowCount = currentRowCount();
+    }
+
+    /**
+     * @return Number of members of this type as of the last refresh
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * @return Number of columns for this member type
+     */
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param column Column index
+     * @return Header for the column
+     */
+    @Override
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    /**
+     * @param column Column index
+     * @return Integer for numeric columns so they render right-aligned, String otherwise
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return (column == 0 || column == 10 || column == 11) ? Integer.class : String.class;
+    }
+
+    /**
+     * Returns a cell value, loading the surrounding block of rows if it is not cached
+     *
+     * @param row Row index
+     * @param column Column index
+     * @return Display value for the cell
+     */
+    @Override
+    public Object getValueAt(int row, int column) {
+        int start = row - (row % BLOCK_ROWS);
+        for (int i = 0; i < CACHED_BLOCKS; i++) {
+            if (blockStarts[i] == start) {
+                Object[] values = blocks[i][row - start];
+                return values == null ? null : values[column];
+            }
+        }
+        int slot = loadBlock(start);
+        Object[] values = blocks[slot][row - start];
+        return values == null ? null : values[column];
+    }
+
+    /**
+     * Drops cached rows and picks up new members and changed values
+     * Fires row events instead of a full data change, so the table keeps its selection and scroll
+     * position; only the cached blocks (which hold every row on screen) are repainted
+     */
+    public void refresh() {
+        int oldCount = rowCount;
+        int newCount = currentRowCount();
+        int[] stale = blockStarts.clone();
+        Arrays.fill(blockStarts, -1);
+        rowCount = newCount;
+
+        if (newCount < oldCount) {
+            fireTableRowsDeleted(newCount, oldCount - 1);    // Only after a snapshot load replaces the members
+        }
+        int kept = Math.min(oldCount, newCount);
+        for (int start : stale) {
+            if (start >= 0 && start < kept) {
+                fireTableRowsUpdated(start, Math.min(start + BLOCK_ROWS, kept) - 1);
+            }
+        }
+        if (newCount > oldCount) {
+            fireTableRowsInserted(oldCount, newCount - 1);
+        }
+    }
+
+    /**
+     * @return Current number of members of this type in the registry
+     */
+    private int currentRowCount() {
+        return premium ? registry.getPremiumCount() : registry.getRegularCount();
+    }
+
+    /**
+     * Fetches one block of members and formats their cells into a cache slot
+     *
+     * @param start First row of the block
+     * @return Cache slot now holding the block
+     */
+    private int loadBlock(int start) {
+        int count = premium
+                ? registry.getPremiumMembers(start, (PremiumMember[]) fetchBuffer)
+                : registry.getRegularMembers(start, (RegularMember[]) fetchBuffer);
+
+        int slot = nextVictim;
+        nextVictim = (nextVictim + 1) % CACHED_BLOCKS;
+        Object[][] block = blocks[slot];
+        if (block == null) {
+            block = new Object[BLOCK_ROWS][];
+            blocks[slot] = block;
+        }
+
+        for (int i = 0; i < BLOCK_ROWS; i++) {
+            if (i < count) {
+                Object[] values = block[i];
+                if (values == null) {
+                    values = new Object[columns.length];
+                    block[i] = values;
+                }
+                Object[] target = values;
+                registry.readMember(fetchBuffer[i], member -> fillRow(member, target));
+                fetchBuffer[i] = null;
+            } else {
+                block[i] = null;
+            }
+        }
+        blockStarts[slot] = start;
+        return slot;
+    }
+
+    /**
+     * Formats one member's cells, matching the columns of the original Display tables
+     *
+     * @param member Member to format
+     * @param values Row array to fill
+     */
+    private void fillRow(GymMember member, Object[] values) {
+        values[0] = member.getId();
+        values[1] = member.getName();
+        values[2] = member.getLocation();
+        values[3] = member.getPhone();
+        values[4] = member.getEmail();
+        values[5] = member.getGender();
+        values[6] = member.getDob();
+        values[7] = member.getMembershipStartDate();
+        values[9] = member.isActive() ? "Active" : "Inactive";
+        values[10] = member.getAttendance();
+        values[11] = member.getLoyaltyPoints();
+
+        if (member instanceof PremiumMember) {
+            PremiumMember pm = (PremiumMember) member;
+            values[8] = pm.getPersonalTrainer();
+            values[12] = String.format("Rs. %.2f", pm.getPaidAmount());
+            values[13] = pm.isFullPayment() ? "Yes" : "No";
+            values[14] = String.format("Rs. %.2f", pm.getDiscountAmount());
+        } else {
+            RegularMember rm = (RegularMember) member;
+            values[8] = rm.getPlan();
+            values[12] = rm.getReferralSource();
+        }
+    }
+}
@@ -0,0 +1,622 @@
+/**
+ * MemberTextExporter - Streams the fixed-width MemberDetails.txt export to a file
+ * Produces exactly the bytes of formatting every member with FORMAT_ROW through a FileWriter, but
+ * pads columns and prints amounts by hand into reusable char and byte buffers, so a member costs
+ * no format-string parsing and no garbage. Output goes through a FileChannel in large writes.
+ *
+ * Members are formatted in chunks; with more than one thread, chunks are formatted in parallel
+ * on a worker pool and written in list order, like MemberCsvImporter's parsing. Each member is
+ * read under its registry lock, so every row is consistent while check-ins continue.
+ *
+ * Byte-identical output relies on matching what String.format would do:
+ * - the default charset encodes the text, with the same replacement for unmappable characters;
+ * - numbers use ASCII digits and '.', so in a locale whose digits or decimal separator differ
+ *   every row goes through String.format (formatLine) instead;
+ * - an amount that is not a whole number of paise (e.g. an unrounded discount) is printed with
+ *   String.format, which rounds its shortest decimal form half-up.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+public class MemberTextExporter {
+    // Column layout of MemberDetails.txt
+    public static final String FORMAT_HEADER = "%-6s  %-20s  %-20s  %-12s  %-30s  %-8s  %-12s  %-20s  %-10s  %-15s  %-15s  %-15s  %-12s  %-15s  %-15s  %-15s\n";
+    public static final String FORMAT_ROW = "%-6d  %-20s  %-20s  %-12s  %-30s  %-8s  %-12s  %-20s  %-10s  %-15s  %-15s  %-15s  %-12s  %-15s  %-15s  %-15s\n";
+    private static final String SEPARATOR = "-".repeat(250) + "\n";
+
+    // Column widths, in FORMAT_ROW order, and the gap between columns
+    private static final int[] WIDTHS = {6, 20, 20, 12, 30, 8, 12, 20, 10, 15, 15, 15, 12, 15, 15, 15};
+    private static final String GAP = "  ";
+
+    // Constant columns, each with its leading gap and padding
+    private static final String REGULAR = column("Regular", 8);
+    private static final String PREMIUM = column("Premium", 8);
+    private static final String ACTIVE = column("Active", 11);
+    private static final String INACTIVE = column("Inactive", 11);
+    private static final String FULL_PAID = column("true", 12);
+    private static final String NOT_FULL_PAID = column("false", 12);
+    private static final String NO_PAYMENTS = column("N/A", 12) + column("N/A", 13) + column("N/A", 14)
+            + column("N/A", 15);
+
+    // Default number of members handed to a worker at a time
+    public static final int DEFAULT_CHUNK_MEMBERS = 4096;
+
+    // Initial size of a chunk's encoded bytes (grows for long rows)
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    // Characters formatted before they are encoded
+    private static final int CHAR_BUFFER = 1 << 16;
+
+    // Room reserved for an amount column beyond its width ("Rs. " and the longest printed amount)
+    private static final int AMOUNT_CHARS = 32;
+
+    // Largest amount printed by hand; at and above it a double no longer resolves whole paise safely
+    private static final double MAX_EXACT_RUPEES = 1e12;
+
+    private final MemberRegistry registry;    // Registry whose locks guard each member, or null
+    private final int chunkMembers;           // Members per parallel work unit
+    private final int parallelism;            // Number of formatting threads
+    private final Charset charset;            // Encoding of the file (the default, as FileWriter uses)
+    private final boolean asciiNumbers;       // Whether the format locale prints numbers as ASCII
+
+    /**
+     * Receives progress after each chunk is written and can cancel the export
+     */
+    public interface Progress {
+        /**
+         * @param written Members written so far
+         * @return false to stop the export after the current chunk
+         */
+        boolean update(int written);
+    }
+
+    /**
+     * Outcome of an export
+     */
+    public static final class Result {
+        public final int written;         // Member rows written
+        public final boolean cancelled;   // Whether the export stopped before the last member
+
+        Result(int written, boolean cancelled) {
+            this.written = written;
+            this.cancelled = cancelled;
+        }
+    }
+
+    /**
+     * Creates an exporter using one formatting thread per available processor
+     *
+     * @param registry Registry whose member locks are taken while formatting, or null for unshared members
+     */
+    public MemberTextExporter(MemberRegistry registry) {
+        this(registry, DEFAULT_CHUNK_MEMBERS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an exporter
+     *
+     * @param registry Registry whose member locks are taken while formatting, or null for unshared members
+     * @param chunkMembers Members per parallel work unit
+     * @param parallelism Number of formatting threads (1 formats on the calling thread)
+     */
+    public MemberTextExporter(MemberRegistry registry, int chunkMembers, int parallelism) {
+        this.registry = registry;
+        this.chunkMembers = Math.max(1, chunkMembers);
+        this.parallelism = Math.max(1, parallelism);
+        this.charset = Charset.defaultCharset();
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        this.asciiNumbers = symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+    }
+
+    /**
+     * Writes the header, one row per member and the closing line, replacing the file
+     * At most two chunks per thread are held in memory, so any number of members streams through.
+     *
+     * @param members Members in export order
+     * @param file Destination file (created or truncated)
+     * @param progress Progress callback, or null
+     * @return Rows written and whether the export was cancelled (a cancelled file is incomplete)
+     * @throws IOException If the file cannot be written
+     */
+    public Result export(List<GymMember> members, Path file, Progress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Chunk edges = new Chunk();
+            edges.append(String.format(FORMAT_HEADER, "ID", "Name", "Location", "Phone", "Email", "Gender", "DOB",
+                    "Start Date", "Type", "Plan/Trainer", "Price", "Status", "Full Pay", "Paid Amount",
+                    "Remaining", "Discount"));
+            edges.append(SEPARATOR);
+            edges.writeTo(channel);
+
+            int written = parallelism == 1
+                    ? exportSerial(members, channel, progress)
+                    : exportParallel(members, channel, progress);
+            boolean cancelled = written < members.size();
+            if (!cancelled) {
+                edges.append(SEPARATOR);
+                edges.writeTo(channel);
+            }
+            return new Result(written, cancelled);
+        }
+    }
+
+    /**
+     * Formats a member with String.format: the reference for the export's row layout
+     *
+     * @param member Member to format
+     * @return The fixed-width row, ending in a newline
+     */
+    public static String formatLine(GymMember member) {
+        String type = "";
+        String planOrTrainer = "";
+        String price = "";
+        String fullPayment = "N/A";
+        String paidAmount = "N/A";
+        String remainingAmount = "N/A";
+        String discountAmount = "N/A";
+
+        if (member instanceof RegularMember) {
+            RegularMember rm = (RegularMember) member;
+            type = "Regular";
+            planOrTrainer = rm.getPlan();
+            price = String.format("Rs. %.2f", rm.getPrice());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember pm = (PremiumMember) member;
+            type = "Premium";
+            planOrTrainer = pm.getPersonalTrainer();
+            price = String.format("Rs. %.2f", pm.getPremiumCharge());
+            fullPayment = String.valueOf(pm.isFullPayment());
+            paidAmount = String.format("Rs. %.2f", pm.getPaidAmount());
+            remainingAmount = String.format("Rs. %.2f", pm.getRemainingMinor() / 100.0);
+            discountAmount = String.format("Rs. %.2f", pm.getDiscountAmount());
+        }
+
+        return String.format(FORMAT_ROW,
+                member.getId(),
+                member.getName(),
+                member.getLocation(),
+                member.getPhone(),
+                member.getEmail(),
+                member.getGender(),
+                member.getDob(),
+                member.getMembershipStartDate(),
+                type,
+                planOrTrainer,
+                price,
+                member.isActive() ? "Active" : "Inactive",
+                fullPayment,
+                paidAmount,
+                remainingAmount,
+                discountAmount);
+    }
+
+    /**
+     * @param text Column text
+     * @param column Column index into WIDTHS
+     * @return The gap before the column and the text left-justified to the column width
+     */
+    private static String column(String text, int column) {
+        return GAP + text + " ".repeat(Math.max(0, WIDTHS[column] - text.length()));
+    }
+
+    /**
+     * Formats and writes chunks one after another on the calling thread
+     *
+     * @param members Members in export order
+     * @param channel Destination
+     * @param progress Progress callback, or null
+     * @return Rows written
+     * @throws IOException If the file cannot be written
+     */
+    private int exportSerial(List<GymMember> members, FileChannel channel, Progress progress) throws IOException {
+        Chunk chunk = new Chunk();
+        int total = members.size();
+        for (int from = 0; from < total; from += chunkMembers) {
+            int to = Math.min(total, from + chunkMembers);
+            format(chunk, members, from, to);
+            chunk.writeTo(channel);
+            if (progress != null && !progress.update(to) && to < total) {
+                return to;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Formats chunks on a worker pool and writes them in list order as they complete
+     *
+     * @param members Members in export order
+     * @param channel Destination
+     * @param progress Progress callback, or null
+     * @return Rows written
+     * @throws IOException If formatting fails or the file cannot be written
+     */
+    private int exportParallel(List<GymMember> members, FileChannel channel, Progress progress) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "text-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        ArrayDeque<Chunk> free = new ArrayDeque<>();
+        int maxInFlight = parallelism * 2;
+        int total = members.size();
+        int submitted = 0;
+        int written = 0;
+        try {
+            while (written < total) {
+                while (submitted < total && inFlight.size() < maxInFlight) {
+                    Chunk chunk = free.isEmpty() ? new Chunk() : free.poll();
+                    int from = submitted;
+                    int to = Math.min(total, from + chunkMembers);
+                    inFlight.add(pool.submit(() -> format(chunk, members, from, to)));
+                    submitted = to;
+                }
+                Chunk chunk = await(inFlight.poll());
+                written += chunk.rows;
+                chunk.writeTo(channel);
+                free.add(chunk);
+                if (progress != null && !progress.update(written) && written < total) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return written;
+    }
+
+    /**
+     * @param future Future of a formatted chunk
+     * @return The chunk
+     * @throws IOException If formatting failed or the wait was interrupted
+     */
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error formatting members: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Formats a range of members into a chunk, each under its registry lock
+     *
+     * @param chunk Chunk to fill (emptied first)
+     * @param members Members in export order
+     * @param from Index of the first member
+     * @param to Index after the last member
+     * @return The chunk
+     */
+    private Chunk format(Chunk chunk, List<GymMember> members, int from, int to) {
+        chunk.rows = to - from;
+        for (int i = from; i < to; i++) {
+            if (registry != null) {
+                registry.readMember(members.get(i), chunk.appender);
+            } else {
+                chunk.appendMember(members.get(i));
+            }
+        }
+        chunk.finish();
+        return chunk;
+    }
+
+    /**
+     * Chunk - Reusable buffers for a run of rows: characters are formatted into a small char
+     * array and encoded into a byte buffer that is written out in one go
+     * Package-private so the benchmark harness can format single rows
+     */
+    final class Chunk {
+        final Consumer<GymMember> appender = this::appendMember;  // Reused for registry.readMember
+        private final char[] chars = new char[CHAR_BUFFER];       // Formatted, not yet encoded
+        private final CharBuffer charView = CharBuffer.wrap(chars);
+        private final char[] digits = new char[20];               // Scratch for printing numbers
+        private final CharsetEncoder encoder;
+        private ByteBuffer bytes = ByteBuffer.allocate(CHUNK_BYTES);   // Encoded rows
+        private int length;                                       // Chars in use
+        int rows;                                                 // Members in the chunk
+
+        Chunk() {
+            this.encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        /**
+         * Appends one member's row
+         *
+         * @param member Member to format
+         */
+        void appendMember(GymMember member) {
+            if (!asciiNumbers) {
+                append(formatLine(member));
+                return;
+            }
+            appendId(member.getId());
+            appendColumn(member.getName(), 1);
+            appendColumn(member.getLocation(), 2);
+            appendColumn(member.getPhone(), 3);
+            appendColumn(member.getEmail(), 4);
+            appendColumn(member.getGender(), 5);
+            appendColumn(member.getDob(), 6);
+            appendColumn(member.getMembershipStartDate(), 7);
+            if (member instanceof RegularMember) {
+                RegularMember rm = (RegularMember) member;
+                append(REGULAR);
+                appendColumn(rm.getPlan(), 9);
+                appendAmount(rm.getPrice(), 10);
+                append(member.isActive() ? ACTIVE : INACTIVE);
+                append(NO_PAYMENTS);
+            } else if (member instanceof PremiumMember) {
+                PremiumMember pm = (PremiumMember) member;
+                append(PREMIUM);
+                appendColumn(pm.getPersonalTrainer(), 9);
+                appendAmount(pm.getPremiumCharge(), 10);
+                append(member.isActive() ? ACTIVE : INACTIVE);
+                append(pm.isFullPayment() ? FULL_PAID : NOT_FULL_PAID);
+                appendAmount(pm.getPaidAmount(), 13);
+                appendAmount(pm.getRemainingMinor() / 100.0, 14);
+                appendAmount(pm.getDiscountAmount(), 15);
+            } else {
+                appendColumn("", 8);
+                appendColumn("", 9);
+                appendColumn("", 10);
+                append(member.isActive() ? ACTIVE : INACTIVE);
+                append(NO_PAYMENTS);
+            }
+            append('\n');
+        }
+
+        /**
+         * Appends the ID column (%-6d)
+         *
+         * @param id Member ID
+         */
+        private void appendId(int id) {
+            reserve(digits.length + WIDTHS[0]);
+            int start = printLong(id);
+            int count = digits.length - start;
+            System.arraycopy(digits, start, chars, length, count);
+            length += count;
+            pad(count, WIDTHS[0]);
+        }
+
+        /**
+         * Appends the gap and a left-justified text column (%-Ns, null printed as "null")
+         *
+         * @param value Column text
+         * @param column Column index into WIDTHS
+         */
+        private void appendColumn(String value, int column) {
+            String text = value == null ? "null" : value;
+            int width = WIDTHS[column];
+            int needed = GAP.length() + Math.max(text.length(), width);
+            if (needed > chars.length / 2) {
+                // Longer than the buffer can promise to hold: copy in pieces
+                append(GAP);
+                append(text);
+                for (int i = text.length(); i < width; i++) {
+                    append(' ');
+                }
+                return;
+            }
+            reserve(needed);
+            chars[length++] = ' ';
+            chars[length++] = ' ';
+            text.getChars(0, text.length(), chars, length);
+            length += text.length();
+            pad(text.length(), width);
+        }
+
+        /**
+         * Appends the gap and an amount column ("Rs. %.2f" in a %-Ns column)
+         *
+         * @param amount Amount in rupees
+         * @param column Column index into WIDTHS
+         */
+        private void appendAmount(double amount, int column) {
+            long paise = Math.round(amount * 100);
+            boolean exact = Math.abs(amount) < MAX_EXACT_RUPEES && paise / 100.0 == amount
+                    && Double.doubleToRawLongBits(amount) != Double.doubleToRawLongBits(-0.0);
+            if (!exact) {
+                appendColumn(String.format("Rs. %.2f", amount), column);
+                return;
+            }
+            reserve(GAP.length() + WIDTHS[column] + AMOUNT_CHARS);
+            int begin = length;
+            chars[length++] = ' ';
+            chars[length++] = ' ';
+            chars[length++] = 'R';
+            chars[length++] = 's';
+            chars[length++] = '.';
+            chars[length++] = ' ';
+            if (paise < 0) {
+                chars[length++] = '-';
+            }
+            // Print |paise| with at least three digits, then insert the decimal point
+            int start = printLong(Math.abs(paise));
+            while (digits.length - start < 3) {
+                digits[--start] = '0';
+            }
+            int whole = digits.length - start - 2;
+            System.arraycopy(digits, start, chars, length, whole);
+            length += whole;
+            chars[length++] = '.';
+            chars[length++] = digits[digits.length - 2];
+            chars[length++] = digits[digits.length - 1];
+            pad(length - begin - GAP.length(), WIDTHS[column]);
+        }
+
+        /**
+         * Prints a number right-aligned into the digits scratch array
+         *
+         * @param value Number to print
+         * @return Index of its first character
+         */
+        private int printLong(long value) {
+            int at = digits.length;
+            long rest = Math.abs(value);
+            do {
+                digits[--at] = (char) ('0' + rest % 10);
+                rest /= 10;
+            } while (rest != 0);
+            if (value < 0) {
+                digits[--at] = '-';
+            }
+            return at;
+        }
+
+        /**
+         * Appends spaces to left-justify a value in its column; the caller has reserved room
+         *
+         * @param used Characters already printed for the value
+         * @param width Column width
+         */
+        private void pad(int used, int width) {
+            if (used < width) {
+                Arrays.fill(chars, length, length + width - used, ' ');
+                length += width - used;
+            }
+        }
+
+        /**
+         * Makes room for characters, encoding the buffer if it is too full
+         *
+         * @param count Characters about to be written (at most half the buffer)
+         */
+        private void reserve(int count) {
+            if (chars.length - length < count) {
+                encode(false);
+            }
+        }
+
+        /**
+         * @param c Character to append
+         */
+        private void append(char c) {
+            if (length == chars.length) {
+                encode(false);
+            }
+            chars[length++] = c;
+        }
+
+        /**
+         * @param text Text to append
+         */
+        void append(String text) {
+            int done = 0;
+            while (done < text.length()) {
+                if (length == chars.length) {
+                    encode(false);
+                }
+                int count = Math.min(text.length() - done, chars.length - length);
+                text.getChars(done, done + count, chars, length);
+                length += count;
+                done += count;
+            }
+        }
+
+        /**
+         * Encodes the buffered characters into the byte buffer, growing it as needed
+         * A surrogate pair split by a full char buffer stays buffered until its second half arrives
+         *
+         * @param endOfInput Whether no more characters follow in this chunk
+         */
+        private void encode(boolean endOfInput) {
+            charView.limit(length).position(0);
+            while (true) {
+                CoderResult result = encoder.encode(charView, bytes, endOfInput);
+                if (result.isOverflow()) {
+                    growBytes();
+                } else {
+                    break;
+                }
+            }
+            if (endOfInput) {
+                while (encoder.flush(bytes).isOverflow()) {
+                    growBytes();
+                }
+                encoder.reset();
+            }
+            int left = charView.remaining();
+            System.arraycopy(chars, charView.position(), chars, 0, left);
+            length = left;
+        }
+
+        /**
+         * Doubles the byte buffer, keeping its contents
+         */
+        private void growBytes() {
+            ByteBuffer grown = ByteBuffer.allocate(bytes.capacity() * 2);
+            bytes.flip();
+            grown.put(bytes);
+            bytes = grown;
+        }
+
+        /**
+         * Encodes everything formatted so far; the chunk is then ready to write
+         */
+        void finish() {
+            encode(true);
+        }
+
+        /**
+         * @return Bytes encoded so far
+         */
+        int byteCount() {
+            return bytes.position();
+        }
+
+        /**
+         * Finishes the chunk, writes its bytes and empties it for reuse
+         *
+         * @param channel Destination
+         * @throws IOException If the write fails
+         */
+        void writeTo(FileChannel channel) throws IOException {
+            finish();
+            bytes.flip();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            bytes.clear();
+        }
+
+        /**
+         * Empties the chunk without writing it
+         */
+        void clear() {
+            length = 0;
+            bytes.clear();
+            encoder.reset();
+        }
+    }
+
+    /**
+     * @return A chunk for formatting rows outside an export (used by the benchmark harness)
+     */
+    Chunk newChunk() {
+        return new Chunk();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * MemberValidator - Validation rules for new member details
+ * Shared by the GUI form and the bulk CSV importer so both accept exactly the same input
+ * All methods are static, stateless and safe to call from any thread
+ */
+import java.util.regex.Pattern;
+
+public final class MemberValidator {
+    // Input formats
+    private static final Pattern PHONE_PATTERN = Pattern.compile("^\\d{10}$");
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$");
+    public static final String DATE_PLACEHOLDER = "YYYY/MM/DD";
+
+    // Minimum age (in whole years) at membership start
+    public static final int MINIMUM_AGE = 10;
+
+    // Accepted range of years for dates
+    public static final int MINIMUM_YEAR = 1900;
+    public static final int MAXIMUM_YEAR = 2025;
+
+    // Messages for the type-specific required fields
+    public static final String REFERRAL_SOURCE_REQUIRED = "Please enter referral source";
+    public static final String TRAINER_NAME_REQUIRED = "Please enter trainer name";
+
+    /**
+     * Not instantiable; use the static methods
+     */
+    private MemberValidator() {
+    }
+
+    /**
+     * Validates all basic member information fields
+     * Includes validation for:
+     * - Required fields are not empty
+     * - ID is numeric
+     * - Phone number format
+     * - Email format
+     * - Date formats
+     * - Age requirement (minimum 10 years)
+     *
+     * @param id Member ID as entered
+     * @param name Member's full name
+     * @param location Member's residential address
+     * @param phone Contact number
+     * @param email Email address
+     * @param gender Selected gender (empty if none)
+     * @param dob Date of birth (YYYY/MM/DD)
+     * @param membershipStartDate Membership start date (YYYY/MM/DD)
+     * @return null if every field is valid, otherwise the message describing the first problem
+     */
+    public static String validateBasicFields(String id, String name, String location, String phone, String email,
+                                             String gender, String dob, String membershipStartDate) {
+        if (isBlank(id) || isBlank(name) || isBlank(location) || isBlank(phone) || isBlank(email)
+                || isBlank(gender) || isBlank(dob) || dob.equals(DATE_PLACEHOLDER)
+                || isBlank(membershipStartDate) || membershipStartDate.equals(DATE_PLACEHOLDER)) {
+            return "Please fill all required fields";
+        }
+
+        // Validate ID
+        try {
+            Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return "Invalid ID format";
+        }
+
+        // Validate phone
+        if (!validatePhoneNumber(phone)) {
+            return "Invalid phone number format";
+        }
+
+        // Validate email
+        if (!validateEmail(email)) {
+            return "Invalid email format";
+        }
+
+        // Validate DOB
+        int dobDay = parseDate(dob);
+        if (dobDay == EpochDays.INVALID) {
+            return "Invalid Date of Birth format (YYYY/MM/DD)";
+        }
+
+        // Validate Membership Start Date
+        int startDay = parseDate(membershipStartDate);
+        if (startDay == EpochDays.INVALID) {
+            return "Invalid Membership Start Date format (YYYY/MM/DD)";
+        }
+
+        // Validate age requirement (at least 10 years between DOB and membership start)
+        if (EpochDays.ageAt(dobDay, startDay) < MINIMUM_AGE) {
+            return "Member must be at least 10 years old to start membership";
+        }
+
+        return null;
+    }
+
+    /**
+     * Validates date format and checks if it's a valid date
+     * Supports YYYY/MM/DD format and includes leap year validation
+     *
+     * @param date The date string to validate
+     * @return true if date is valid, false otherwise
+     */
+    public static boolean validateDate(String date) {
+        return parseDate(date) != EpochDays.INVALID;
+    }
+
+    /**
+     * Parses a YYYY/MM/DD date in the accepted range (years 1900 to 2025)
+     *
+     * @param date The date string to parse
+     * @return The date as an epoch day, or EpochDays.INVALID if it is not a valid date
+     */
+    public static int parseDate(String date) {
+        int day = EpochDays.parse(date);
+        if (day == EpochDays.INVALID) {
+            return EpochDays.INVALID;
+        }
+        int year = EpochDays.year(day);
+        return year < MINIMUM_YEAR || year > MAXIMUM_YEAR ? EpochDays.INVALID : day;
+    }
+
+    /**
+     * Validates phone number format
+     * Ensures number is exactly 10 digits
+     *
+     * @param phoneNumber The phone number to validate
+     * @return true if format is valid, false otherwise
+     */
+    public static boolean validatePhoneNumber(String phoneNumber) {
+        return PHONE_PATTERN.matcher(phoneNumber).matches();
+    }
+
+    /**
+     * Validates email address format
+     * Checks for proper email structure (username@domain.tld)
+     *
+     * @param email The email address to validate
+     * @return true if format is valid, false otherwise
+     */
+    public static boolean validateEmail(String email) {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    /**
+     * @param value Field value
+     * @return true if the value is null or empty
+     */
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,607 @@
+/**
+ * NameSearchIndex - Prefix and fuzzy search over member names
+ * Names are normalized to lower-case letters and digits split into words, and every word is
+ * broken into padded trigrams ("  r", " ra", "ram", "am ") over a 37-symbol alphabet, so each
+ * trigram is a small int used directly as an array index into its posting list of member slots
+ *
+ * A query first looks for names where every query word is the start of a name word, by
+ * intersecting the posting lists from the shortest one. If that finds fewer matches than
+ * requested, names sharing enough trigrams are ranked by edit distance to catch typos.
+ * Candidate scanning is capped, so a query costs the same on millions of members.
+ *
+ * Not thread-safe for writers; MemberRegistry adds under its structure write lock and
+ * searches under the read lock (searches do not modify the index).
+ */
+import java.util.Arrays;
+
+public class NameSearchIndex {
+    // Alphabet: 0 = word boundary, 1-26 = a-z, 27-36 = 0-9
+    private static final int SYMBOLS = 37;
+    private static final int TRIGRAMS = SYMBOLS * SYMBOLS * SYMBOLS;
+
+    // Search budgets
+    private static final int PREFIX_SCAN_LIMIT = 16_384;     // Entries of the shortest list checked for prefix matches
+    private static final int PREFIX_MATCH_LIMIT = 128;       // Prefix matches ranked before the scan stops
+    private static final int FUZZY_SCAN_LIMIT = 8_192;       // Posting entries read to find fuzzy candidates
+    private static final int FUZZY_VERIFY_LIMIT = 512;       // Candidates checked with edit distance
+    private static final int MAX_QUERY_LENGTH = 64;          // Longer queries are truncated
+
+    // Ranks (lower is better); fuzzy matches rank FUZZY_RANK + edit distance
+    private static final int EXACT_RANK = 0;
+    private static final int PREFIX_RANK = 1;
+    private static final int FUZZY_RANK = 2;
+
+    // Indexed members, by slot
+    private int[] ids;                    // Member ID per slot
+    private String[] names;               // Normalized name per slot (words separated by one space)
+    private int size;                     // Number of slots in use
+
+    // Posting lists: slots containing each trigram, in ascending slot order
+    private final int[][] postings;
+    private final int[] postingSizes;
+
+    /**
+     * Creates an empty index
+     */
+    public NameSearchIndex() {
+        this.ids = new int[16];
+        this.names = new String[16];
+        this.postings = new int[TRIGRAMS][];
+        this.postingSizes = new int[TRIGRAMS];
+    }
+
+    /**
+     * Indexes a member's name
+     *
+     * @param id Member ID
+     * @param name Member's name (may be null)
+     */
+    public void add(int id, String name) {
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            names = Arrays.copyOf(names, size * 2);
+        }
+        int slot = size++;
+        ids[slot] = id;
+        names[slot] = normalized;
+
+        // Slots only grow, so appending keeps every posting list sorted; skip repeats of this slot
+        int length = normalized.length();
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i <= length; i++) {
+            int c = i < length ? code(normalized.charAt(i)) : 0;
+            int trigram = (a * SYMBOLS + b) * SYMBOLS + c;
+            int[] list = postings[trigram];
+            int listSize = postingSizes[trigram];
+            if (listSize == 0 || list[listSize - 1] != slot) {
+                if (list == null) {
+                    list = postings[trigram] = new int[4];
+                } else if (listSize == list.length) {
+                    list = postings[trigram] = Arrays.copyOf(list, listSize + (listSize >> 1) + 1);
+                }
+                list[listSize] = slot;
+                postingSizes[trigram] = listSize + 1;
+            }
+
+            // Each word starts afresh with two boundary symbols
+            a = c == 0 ? 0 : b;
+            b = c;
+        }
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void clear() {
+        Arrays.fill(postings, null);
+        Arrays.fill(postingSizes, 0);
+        ids = new int[16];
+        names = new String[16];
+        size = 0;
+    }
+
+    /**
+     * @return Number of indexed names
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the members whose names best match a query
+     * Exact word matches come first, then word-prefix matches (shorter names first), then
+     * names within a small edit distance; ties keep insertion order
+     *
+     * @param query Text typed by the user
+     * @param into Array receiving member IDs, best first; its length is the number of results wanted
+     * @return Number of IDs written
+     */
+    public int search(String query, int[] into) {
+        String q = normalize(query);
+        if (q.length() > MAX_QUERY_LENGTH) {
+            q = q.substring(0, MAX_QUERY_LENGTH).trim();
+        }
+        int limit = into.length;
+        if (q.isEmpty() || limit == 0 || size == 0) {
+            return 0;
+        }
+
+        TopK top = new TopK(limit);
+        searchPrefix(q, top);
+        if (top.count < limit) {
+            searchFuzzy(q, top);
+        }
+        for (int i = 0; i < top.count; i++) {
+            into[i] = ids[top.slots[i]];
+        }
+        return top.count;
+    }
+
+    /**
+     * Adds names in which every query word starts a name word
+     *
+     * @param q Normalized query
+     * @param top Results collected so far
+     */
+    private void searchPrefix(String q, TopK top) {
+        // Words may be incomplete, so end-of-word trigrams are left out
+        int[] trigrams = queryTrigrams(q, false);
+        if (trigrams.length == 0) {
+            return;
+        }
+        sortByListSize(trigrams);
+        int shortest = trigrams[0];
+        int[] first = postings[shortest];
+        int firstSize = Math.min(postingSizes[shortest], PREFIX_SCAN_LIMIT);
+        if (first == null) {
+            return;
+        }
+
+        int[] cursors = new int[trigrams.length];
+        int matches = 0;
+        outer:
+        for (int i = 0; i < firstSize; i++) {
+            int slot = first[i];
+            for (int t = 1; t < trigrams.length; t++) {
+                int position = advance(postings[trigrams[t]], postingSizes[trigrams[t]], cursors[t], slot);
+                cursors[t] = position;
+                if (position >= postingSizes[trigrams[t]]) {
+                    break outer;              // A list ran out; no later slot can match
+                }
+                if (postings[trigrams[t]][position] != slot) {
+                    continue outer;
+                }
+            }
+            int rank = prefixRank(q, names[slot]);
+            if (rank >= 0) {
+                top.offer(slot, rank, names[slot].length());
+                if (++matches == PREFIX_MATCH_LIMIT) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds names sharing enough trigrams with the query and within a small edit distance
+     *
+     * @param q Normalized query
+     * @param top Results collected so far
+     */
+    private void searchFuzzy(String q, TopK top) {
+        int maxEdits = maxEdits(q);
+        if (maxEdits == 0) {
+            return;
+        }
+        int[] trigrams = queryTrigrams(q, true);
+        sortByListSize(trigrams);
+        int total = trigrams.length;
+
+        // Each edit changes at most three trigrams, so a match shares at least `needed` of them,
+        // and therefore at least one of the `scanLists` rarest ones
+        int needed = Math.max(1, total - 3 * maxEdits);
+        int scanLists = total - needed + 1;
+        int nonEmpty = 0;
+        for (int t = 0; t < scanLists; t++) {
+            if (postingSizes[trigrams[t]] > 0) {
+                nonEmpty++;
+            }
+        }
+        if (nonEmpty == 0) {
+            return;
+        }
+
+        // Collect candidates from the start of each of those lists, counting hits per slot
+        int perList = FUZZY_SCAN_LIMIT / nonEmpty;
+        IntIntMap counts = new IntIntMap(1024, 0);
+        int[] candidates = new int[256];
+        int candidateCount = 0;
+        for (int t = 0; t < scanLists; t++) {
+            int[] list = postings[trigrams[t]];
+            int listSize = Math.min(postingSizes[trigrams[t]], perList);
+            for (int i = 0; i < listSize; i++) {
+                int slot = list[i];
+                int count = counts.get(slot);
+                if (count == 0) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                    }
+                    candidates[candidateCount++] = slot;
+                }
+                counts.put(slot, count + 1);
+            }
+        }
+
+        // Verify the candidates that hit the most lists first
+        int[] histogram = new int[scanLists + 1];
+        for (int i = 0; i < candidateCount; i++) {
+            histogram[counts.get(candidates[i])]++;
+        }
+        int minHits = 1;
+        int kept = 0;
+        for (int c = scanLists; c >= 1; c--) {
+            kept += histogram[c];
+            if (kept >= FUZZY_VERIFY_LIMIT) {
+                minHits = c;
+                break;
+            }
+        }
+
+        int[] row = new int[MAX_QUERY_LENGTH + 2];
+        int[] previous = new int[MAX_QUERY_LENGTH + 2];
+        int verified = 0;
+        for (int i = 0; i < candidateCount && verified < FUZZY_VERIFY_LIMIT; i++) {
+            int slot = candidates[i];
+            int hits = counts.get(slot);
+            if (hits < minHits || top.contains(slot)) {
+                continue;
+            }
+
+            // Look the slot up in the remaining, longer lists until it has enough hits
+            for (int t = scanLists; t < total && hits < needed && hits + total - t >= needed; t++) {
+                int[] list = postings[trigrams[t]];
+                int listSize = postingSizes[trigrams[t]];
+                int position = advance(list, listSize, 0, slot);
+                if (position < listSize && list[position] == slot) {
+                    hits++;
+                }
+            }
+            if (hits < needed) {
+                continue;
+            }
+            verified++;
+            int distance = wordDistance(q, names[slot], maxEdits, row, previous);
+            if (distance <= maxEdits) {
+                top.offer(slot, FUZZY_RANK + distance, names[slot].length());
+            }
+        }
+    }
+
+    /**
+     * Checks that every query word starts some word of the name
+     *
+     * @param q Normalized query
+     * @param name Normalized name
+     * @return EXACT_RANK if every query word equals a name word, PREFIX_RANK if each starts one, else -1
+     */
+    private static int prefixRank(String q, String name) {
+        int rank = EXACT_RANK;
+        int start = 0;
+        while (start < q.length()) {
+            int end = q.indexOf(' ', start);
+            if (end < 0) {
+                end = q.length();
+            }
+            int best = -1;
+            int nameStart = 0;
+            while (nameStart < name.length()) {
+                int nameEnd = name.indexOf(' ', nameStart);
+                if (nameEnd < 0) {
+                    nameEnd = name.length();
+                }
+                int wordLength = end - start;
+                if (nameEnd - nameStart >= wordLength && name.regionMatches(nameStart, q, start, wordLength)) {
+                    best = nameEnd - nameStart == wordLength ? EXACT_RANK : PREFIX_RANK;
+                    if (best == EXACT_RANK) {
+                        break;
+                    }
+                }
+                nameStart = nameEnd + 1;
+            }
+            if (best < 0) {
+                return -1;
+            }
+            rank = Math.max(rank, best);
+            start = end + 1;
+        }
+        return rank;
+    }
+
+    /**
+     * Sums, over the query words, the edit distance to the closest name word
+     *
+     * @param q Normalized query
+     * @param name Normalized name
+     * @param maxEdits Distance beyond which the exact value does not matter
+     * @param row Scratch row of at least query length + 2
+     * @param previous Scratch row of at least query length + 2
+     * @return Total distance, or a value above maxEdits
+     */
+    private static int wordDistance(String q, String name, int maxEdits, int[] row, int[] previous) {
+        int total = 0;
+        int start = 0;
+        while (start < q.length()) {
+            int end = q.indexOf(' ', start);
+            if (end < 0) {
+                end = q.length();
+            }
+            int best = maxEdits + 1;
+            int nameStart = 0;
+            while (nameStart < name.length() && best > 0) {
+                int nameEnd = name.indexOf(' ', nameStart);
+                if (nameEnd < 0) {
+                    nameEnd = name.length();
+                }
+                best = Math.min(best, distance(q, start, end, name, nameStart, nameEnd, best - 1, row, previous));
+                nameStart = nameEnd + 1;
+            }
+            total += best;
+            if (total > maxEdits) {
+                return total;
+            }
+            start = end + 1;
+        }
+        return total;
+    }
+
+    /**
+     * Levenshtein distance between two substrings, stopping early once it exceeds a bound
+     *
+     * @param a First string
+     * @param aStart Start of the first substring
+     * @param aEnd End of the first substring (exclusive)
+     * @param b Second string
+     * @param bStart Start of the second substring
+     * @param bEnd End of the second substring (exclusive)
+     * @param bound Largest distance of interest
+     * @param row Scratch row of at least first length + 1
+     * @param previous Scratch row of at least first length + 1
+     * @return The distance, or bound + 1 if it is larger than bound
+     */
+    private static int distance(String a, int aStart, int aEnd, String b, int bStart, int bEnd,
+                                int bound, int[] row, int[] previous) {
+        int aLength = aEnd - aStart;
+        int bLength = bEnd - bStart;
+        if (Math.abs(aLength - bLength) > bound) {
+            return bound + 1;
+        }
+        for (int i = 0; i <= aLength; i++) {
+            previous[i] = i;
+        }
+        for (int j = 1; j <= bLength; j++) {
+            row[0] = j;
+            int rowMin = j;
+            char bc = b.charAt(bStart + j - 1);
+            for (int i = 1; i <= aLength; i++) {
+                int cost = a.charAt(aStart + i - 1) == bc ? 0 : 1;
+                int value = Math.min(Math.min(row[i - 1] + 1, previous[i] + 1), previous[i - 1] + cost);
+                row[i] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+        }
+        return Math.min(previous[aLength], bound + 1);
+    }
+
+    /**
+     * @param q Normalized query
+     * @return Typos tolerated for the query: none for short queries, then one, then two
+     */
+    private static int maxEdits(String q) {
+        int letters = 0;
+        for (int i = 0; i < q.length(); i++) {
+            if (q.charAt(i) != ' ') {
+                letters++;
+            }
+        }
+        return letters <= 3 ? 0 : letters <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Lists the distinct trigrams of a normalized query
+     *
+     * @param q Normalized query
+     * @param wordEnds Whether to include end-of-word trigrams (false treats every word as a prefix)
+     * @return Trigram codes
+     */
+    private static int[] queryTrigrams(String q, boolean wordEnds) {
+        int length = q.length();
+        int[] trigrams = new int[length + 1];
+        int count = 0;
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i <= length; i++) {
+            int c = i < length ? code(q.charAt(i)) : 0;
+            if (c != 0 || wordEnds) {
+                int trigram = (a * SYMBOLS + b) * SYMBOLS + c;
+                boolean seen = false;
+                for (int t = 0; t < count; t++) {
+                    if (trigrams[t] == trigram) {
+                        seen = true;
+                        break;
+                    }
+                }
+                if (!seen) {
+                    trigrams[count++] = trigram;
+                }
+            }
+            a = c == 0 ? 0 : b;
+            b = c;
+        }
+        return Arrays.copyOf(trigrams, count);
+    }
+
+    /**
+     * Sorts trigram codes by the length of their posting lists, shortest first
+     *
+     * @param trigrams Trigram codes (few, so insertion sort)
+     */
+    private void sortByListSize(int[] trigrams) {
+        for (int i = 1; i < trigrams.length; i++) {
+            int t = trigrams[i];
+            int j = i - 1;
+            while (j >= 0 && postingSizes[trigrams[j]] > postingSizes[t]) {
+                trigrams[j + 1] = trigrams[j];
+                j--;
+            }
+            trigrams[j + 1] = t;
+        }
+    }
+
+    /**
+     * Finds the first position at or after a cursor whose slot is at least the target
+     * Gallops forward, then binary searches, so walking a long list costs O(log gap)
+     *
+     * @param list Posting list
+     * @param listSize Entries in use
+     * @param from Cursor to start at
+     * @param target Slot to look for
+     * @return Position of the first entry >= target, or listSize
+     */
+    private static int advance(int[] list, int listSize, int from, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < listSize && list[high] < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, listSize);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Lower-cases a name and reduces it to letter/digit words separated by single spaces
+     *
+     * @param text Raw text (may be null)
+     * @return Normalized text
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (code(c) == 0) {
+                pendingSpace = out.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    out.append(' ');
+                    pendingSpace = false;
+                }
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @param c Normalized character
+     * @return Alphabet symbol: 1-26 for a-z, 27-36 for 0-9, 0 for anything else
+     */
+    private static int code(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a' + 1;
+        }
+        if (c >= '0' && c <= '9') {
+            return c - '0' + 27;
+        }
+        return 0;
+    }
+
+    /**
+     * TopK - Keeps the best few (rank, length, slot) results in sorted order
+     */
+    private static final class TopK {
+        final int[] slots;            // Result slots, best first
+        final int[] ranks;            // Rank per result
+        final int[] lengths;          // Name length per result (shorter is better)
+        int count;                    // Results held
+
+        TopK(int capacity) {
+            slots = new int[capacity];
+            ranks = new int[capacity];
+            lengths = new int[capacity];
+        }
+
+        /**
+         * @param slot Candidate slot
+         * @param rank Candidate rank
+         * @param length Candidate name length
+         */
+        void offer(int slot, int rank, int length) {
+            int position = count;
+            while (position > 0 && worse(position - 1, rank, length, slot)) {
+                position--;
+            }
+            if (position == slots.length) {
+                return;
+            }
+            int end = Math.min(count, slots.length - 1);
+            System.arraycopy(slots, position, slots, position + 1, end - position);
+            System.arraycopy(ranks, position, ranks, position + 1, end - position);
+            System.arraycopy(lengths, position, lengths, position + 1, end - position);
+            slots[position] = slot;
+            ranks[position] = rank;
+            lengths[position] = length;
+            count = Math.min(count + 1, slots.length);
+        }
+
+        /**
+         * @param slot Slot to look for
+         * @return true if the slot is already a result
+         */
+        boolean contains(int slot) {
+            for (int i = 0; i < count; i++) {
+                if (slots[i] == slot) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return true if the held result at index i ranks below the candidate
+         */
+        private boolean worse(int i, int rank, int length, int slot) {
+            if (ranks[i] != rank) {
+                return ranks[i] > rank;
+            }
+            if (lengths[i] != length) {
+                return lengths[i] > length;
+            }
+            return slots[i] > slot;
+        }
+    }
+}
@@ -0,0 +1,1217 @@
+/**
+ * OffHeapMemberStore - Member storage outside the Java heap, for very large member sets
+ * Each member is one fixed-width record in 16 MB ByteBuffer slabs; variable-length strings
+ * (name, contact details, dates, removal reason) live in a separate off-heap string arena, and
+ * the member ID -> record index is an open-addressing table in a direct buffer. Tens of millions
+ * of members therefore cost the garbage collector nothing to trace: the heap holds the slab
+ * references, the lock stripes and a small symbol table, whatever the member count.
+ *
+ * Gender, regular plan, referral source and personal trainer are stored as codes into the
+ * store's own symbol table (MemberSymbols codes are per process, so they are not written to disk).
+ * For gender and plan the store also caches the matching MemberSymbols code per symbol, so a
+ * view's code getters are one array read.
+ *
+ * The store is either in memory (direct buffers) or mapped to a file, in which case opening an
+ * existing file maps it and rebuilds only the ID index, so restart does not decode any member.
+ * Changes are written straight into the mapped pages, so they survive the process stopping;
+ * force() flushes them to the device. Files are little-endian:
+ *   <file>          header (magic, version, record size, member count, string arena size,
+ *                   symbol table) in the first HEADER_SIZE bytes, then RECORD_SIZE-byte records
+ *   <file>.strings  string arena: int UTF-8 byte length followed by the bytes; no string
+ *                   crosses a slab boundary
+ *
+ * Flyweight views (MemberView) expose a record through the same getters as RegularMember and
+ * PremiumMember and read the slabs on every call. A view is a slab reference and an offset; it
+ * does not build a member, and one view can be moved from record to record (moveTo), so a scan
+ * allocates nothing. Hot operations (check-in, activation, payments) change records in place
+ * under a per-ID stripe lock and follow the same rules as MemberRegistry, through the store or
+ * through a view.
+ * Other changes (plan upgrades, discounts, reverts) are made on a heap copy from load() and
+ * written back with update(). Name, contact details, gender, dates and referral source are
+ * fixed when the member is added, as in the member classes.
+ */
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class OffHeapMemberStore implements AutoCloseable {
+    // Format identification
+    public static final int MAGIC = 0x47594D4F;          // "GYMO"
+    public static final short VERSION = 1;
+
+    // Member type tags
+    public static final byte TYPE_REGULAR = 1;
+    public static final byte TYPE_PREMIUM = 2;
+
+    // Slab geometry
+    private static final int SLAB_SHIFT = 24;
+    private static final int SLAB_SIZE = 1 << SLAB_SHIFT;            // 16 MB
+    private static final int RECORD_SIZE = 128;                      // Divides SLAB_SIZE, so no record spans two slabs
+    private static final int HEADER_SIZE = 1 << 18;                  // Multiple of RECORD_SIZE
+    private static final int MAX_STRING_BYTES = SLAB_SIZE - 4;
+    private static final long NULL_REF = -1;                         // String reference for null
+
+    // Header fields
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_RECORD_SIZE = 6;
+    private static final int H_COUNT = 8;                            // int member count
+    private static final int H_ARENA_USED = 16;                      // long bytes used in the string arena
+    private static final int H_SYMBOL_COUNT = 24;                    // int symbols in the table
+    private static final int H_SYMBOLS = 64;                         // long arena reference per symbol
+
+    // Most distinct genders, plans, referral sources and trainers together
+    public static final int MAX_SYMBOLS = (HEADER_SIZE - H_SYMBOLS) / 8;
+
+    // Most members; keeps the ID index (load factor 1/2, 8 bytes per slot) within one direct buffer
+    public static final int MAX_MEMBERS = 1 << 26;
+
+    // Record fields
+    private static final int R_ID = 0;                   // int
+    private static final int R_TYPE = 4;                 // byte TYPE_*
+    private static final int R_FLAGS = 5;                // byte FLAG_*
+    private static final int R_ATTENDANCE = 8;           // int
+    private static final int R_LOYALTY = 12;             // int
+    private static final int R_LAST_VISIT = 16;          // long epoch milliseconds
+    private static final int R_PRICE = 24;               // long regular plan price / premium charge, paise
+    private static final int R_PAID = 32;                // long premium amount paid, paise
+    private static final int R_DISCOUNT = 40;            // long premium discount, paise
+    private static final int R_DOB_DAY = 48;             // int epoch day
+    private static final int R_START_DAY = 52;           // int epoch day
+    private static final int R_GENDER = 56;              // int symbol
+    private static final int R_PLAN_OR_TRAINER = 60;     // int symbol: regular plan / premium trainer
+    private static final int R_REFERRAL = 64;            // int symbol, regular only
+    private static final int R_ATTENDANCE_LIMIT = 68;    // int, regular only
+    private static final int R_NAME = 72;                // long string references from here on
+    private static final int R_LOCATION = 80;
+    private static final int R_PHONE = 88;
+    private static final int R_EMAIL = 96;
+    private static final int R_DOB = 104;
+    private static final int R_START_DATE = 112;
+    private static final int R_REMOVAL_REASON = 120;     // Regular only
+
+    // Record flags
+    private static final byte FLAG_ACTIVE = 1;
+    private static final byte FLAG_ELIGIBLE = 2;         // Regular: eligible for upgrade
+
+    // Loyalty points per check-in, as awarded by RegularMember / PremiumMember.markAttendance
+    private static final int REGULAR_VISIT_POINTS = 5;
+    private static final int PREMIUM_VISIT_POINTS = 10;
+
+    // Paise per rupee
+    private static final int MINOR_UNITS = 100;
+
+    // Number of member lock stripes (power of two)
+    private static final int STRIPES = 64;
+
+    // memberCodes entry for a symbol whose MemberSymbols code has not been looked up
+    private static final int UNCODED = Integer.MIN_VALUE;
+
+    // Storage
+    private final Slabs records;                          // Header and member records
+    private final Slabs arena;                            // Strings
+    private long arenaUsed;                               // Bytes of the arena in use (guarded by arena)
+    private final StringDictionary symbols;               // Symbol code <-> string, same codes as on disk
+    private final int[] memberCodes;                      // Symbol code -> MemberSymbols code (gender, plan), UNCODED if not yet known
+    private final FileChannel[] channels;                 // Files backing the slabs, empty in memory
+
+    // ID index: slots of (int id, int record + 1), 0 marks an empty slot (guarded by structureLock)
+    private ByteBuffer index;
+    private int indexMask;                                // Slot count - 1
+    private volatile int size;                            // Members stored
+
+    // Locking: structure lock (read for lookups, write for adds) before a member's stripe lock
+    private final ReentrantReadWriteLock structureLock;
+    private final ReentrantLock[] stripes;
+
+    /**
+     * Slabs - A growable run of equal-sized direct or mapped buffers addressed by a long offset
+     * The slab array is replaced on growth, so readers never need a lock to reach a slab
+     */
+    private static final class Slabs {
+        private final FileChannel channel;                // Mapped file, or null for direct buffers
+        private volatile ByteBuffer[] slabs;              // Slab i covers [i * SLAB_SIZE, (i + 1) * SLAB_SIZE)
+
+        /**
+         * @param channel File to map (its existing length is mapped at once), or null for memory
+         * @throws IOException If the file cannot be mapped
+         */
+        Slabs(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.slabs = new ByteBuffer[0];
+            if (channel != null) {
+                ensure(channel.size());
+            }
+        }
+
+        /**
+         * Adds slabs until the given number of bytes is addressable
+         * A mapped file grows by whole slabs as they are mapped
+         *
+         * @param bytes Bytes needed from address 0
+         * @throws IOException If a slab cannot be mapped
+         */
+        synchronized void ensure(long bytes) throws IOException {
+            ByteBuffer[] current = slabs;
+            if ((long) current.length << SLAB_SHIFT >= bytes) {
+                return;
+            }
+            int count = (int) ((bytes + SLAB_SIZE - 1) >>> SLAB_SHIFT);
+            ByteBuffer[] grown = Arrays.copyOf(current, count);
+            for (int i = current.length; i < count; i++) {
+                ByteBuffer slab = channel == null
+                        ? ByteBuffer.allocateDirect(SLAB_SIZE)
+                        : channel.map(FileChannel.MapMode.READ_WRITE, (long) i << SLAB_SHIFT, SLAB_SIZE);
+                grown[i] = slab.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            slabs = grown;
+        }
+
+        /**
+         * @param address Byte address
+         * @return Slab holding it
+         */
+        ByteBuffer slab(long address) {
+            return slabs[(int) (address >>> SLAB_SHIFT)];
+        }
+
+        /**
+         * @param address Byte address
+         * @return Its offset within its slab
+         */
+        static int offset(long address) {
+            return (int) address & (SLAB_SIZE - 1);
+        }
+
+        /**
+         * Flushes mapped slabs to the device (no-op in memory)
+         */
+        void force() {
+            for (ByteBuffer slab : slabs) {
+                if (slab instanceof MappedByteBuffer) {
+                    ((MappedByteBuffer) slab).force();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty store in memory (direct buffers)
+     */
+    public OffHeapMemberStore() {
+        try {
+            this.records = new Slabs(null);
+            this.arena = new Slabs(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);    // Only mapping can fail
+        }
+        this.channels = new FileChannel[0];
+        this.symbols = new StringDictionary(MAX_SYMBOLS);
+        this.memberCodes = newMemberCodes();
+        this.structureLock = new ReentrantReadWriteLock();
+        this.stripes = newStripes();
+        initHeader();
+        rebuildIndex();
+    }
+
+    /**
+     * Maps a store file and its string arena
+     *
+     * @param records Channel of the record file
+     * @param strings Channel of the string arena file
+     * @param file Record file path, for error messages
+     * @throws IOException If the files cannot be mapped or are not a store of this version
+     */
+    private OffHeapMemberStore(FileChannel records, FileChannel strings, Path file) throws IOException {
+        // Check the header before mapping, since mapping a slab extends the file
+        boolean created = records.size() == 0;
+        if (!created) {
+            ByteBuffer prefix = ByteBuffer.allocate(H_COUNT).order(ByteOrder.LITTLE_ENDIAN);
+            while (prefix.hasRemaining() && records.read(prefix, prefix.position()) > 0) {
+                // Keep reading until the prefix is full or the file ends
+            }
+            if (prefix.hasRemaining() || prefix.getInt(H_MAGIC) != MAGIC) {
+                throw new IOException("Not a member store file: " + file);
+            }
+            if (prefix.getShort(H_VERSION) != VERSION || prefix.getShort(H_RECORD_SIZE) != RECORD_SIZE) {
+                throw new IOException("Unsupported member store version " + prefix.getShort(H_VERSION));
+            }
+        }
+
+        this.channels = new FileChannel[] {records, strings};
+        this.records = new Slabs(records);
+        this.arena = new Slabs(strings);
+        this.symbols = new StringDictionary(MAX_SYMBOLS);
+        this.memberCodes = newMemberCodes();
+        this.structureLock = new ReentrantReadWriteLock();
+        this.stripes = newStripes();
+
+        if (created) {
+            initHeader();
+        } else {
+            ByteBuffer header = header();
+            size = header.getInt(H_COUNT);
+            arenaUsed = header.getLong(H_ARENA_USED);
+            if (recordAddress(size) > (long) this.records.slabs.length << SLAB_SHIFT
+                    || arenaUsed > (long) arena.slabs.length << SLAB_SHIFT) {
+                throw new IOException("Member store file is truncated: " + file);
+            }
+            int symbolCount = header.getInt(H_SYMBOL_COUNT);
+            for (int code = 0; code < symbolCount; code++) {
+                symbols.encode(getString(header.getLong(H_SYMBOLS + 8 * code)));
+            }
+        }
+        rebuildIndex();
+    }
+
+    /**
+     * Opens a file-backed store, creating it if the file does not exist
+     * The string arena is kept next to it in <file>.strings
+     *
+     * @param file Record file
+     * @return The store, holding every member previously written to the file
+     * @throws IOException If the files cannot be opened or are not a member store
+     */
+    public static OffHeapMemberStore open(Path file) throws IOException {
+        Path stringsFile = file.resolveSibling(file.getFileName() + ".strings");
+        FileChannel records = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel strings = null;
+        try {
+            strings = FileChannel.open(stringsFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new OffHeapMemberStore(records, strings, file);
+        } catch (IOException | RuntimeException e) {
+            records.close();
+            if (strings != null) {
+                strings.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Builds an in-memory store holding a copy of every registry member
+     * Each member is copied while holding its registry lock
+     *
+     * @param registry Registry to copy
+     * @return Filled store
+     */
+    public static OffHeapMemberStore from(MemberRegistry registry) {
+        OffHeapMemberStore store = new OffHeapMemberStore();
+        registry.forEachMember(store::add);
+        return store;
+    }
+
+    /**
+     * Adds a copy of a member as a new record
+     *
+     * @param member Member to copy
+     * @return MemberRegistry.ADD_OK, or MemberRegistry.ADD_DUPLICATE_ID if the ID is already stored
+     * @throws IllegalStateException If the store already holds MAX_MEMBERS members or its symbol table is full
+     */
+    public byte add(GymMember member) {
+        structureLock.writeLock().lock();
+        try {
+            if (findRecord(member.getId()) >= 0) {
+                return MemberRegistry.ADD_DUPLICATE_ID;
+            }
+            int record = size;
+            if (record == MAX_MEMBERS) {
+                throw new IllegalStateException("Member store is full (" + MAX_MEMBERS + " members)");
+            }
+            long address = recordAddress(record);
+            ensure(records, address + RECORD_SIZE);
+            ByteBuffer slab = records.slab(address);
+            int at = Slabs.offset(address);
+
+            slab.putInt(at + R_ID, member.getId());
+            slab.putInt(at + R_DOB_DAY, member.getDobEpochDay());
+            slab.putInt(at + R_START_DAY, member.getStartEpochDay());
+            slab.putInt(at + R_GENDER, symbolCode(member.getGender(), true));
+            slab.putLong(at + R_NAME, putString(member.getName()));
+            slab.putLong(at + R_LOCATION, putString(member.getLocation()));
+            slab.putLong(at + R_PHONE, putString(member.getPhone()));
+            slab.putLong(at + R_EMAIL, putString(member.getEmail()));
+            slab.putLong(at + R_DOB, putString(member.getDob()));
+            slab.putLong(at + R_START_DATE, putString(member.getMembershipStartDate()));
+            if (member instanceof PremiumMember) {
+                slab.put(at + R_TYPE, TYPE_PREMIUM);
+                slab.putInt(at + R_REFERRAL, StringDictionary.NULL_CODE);
+                slab.putLong(at + R_REMOVAL_REASON, NULL_REF);
+            } else {
+                RegularMember regularMember = (RegularMember) member;
+                slab.put(at + R_TYPE, TYPE_REGULAR);
+                slab.putInt(at + R_REFERRAL, symbolCode(regularMember.getReferralSource(), false));
+                slab.putInt(at + R_ATTENDANCE_LIMIT, regularMember.getAttendanceLimit());
+                slab.putLong(at + R_REMOVAL_REASON, NULL_REF);
+            }
+            writeState(slab, at, member);
+
+            // The count is published last, so a record is only visible to a reopen once complete
+            indexPut(member.getId(), record);
+            size = record + 1;
+            header().putInt(H_COUNT, size);
+            return MemberRegistry.ADD_OK;
+        } finally {
+            structureLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a member's changeable state (activity, plan, payments, removal reason) over its record
+     * Used after changing a copy from load(); fields fixed at add time are left as they are
+     *
+     * @param member Member whose state to store
+     * @return Whether the member is in the store
+     */
+    public boolean update(GymMember member) {
+        int id = member.getId();
+        structureLock.readLock().lock();
+        try {
+            int record = findRecord(id);
+            if (record < 0) {
+                return false;
+            }
+            long address = recordAddress(record);
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                writeState(records.slab(address), Slabs.offset(address), member);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks attendance in place, with the same rules as MemberRegistry.markAttendance:
+     * the member must be active and regular members stop at their attendance limit
+     * Allocates nothing
+     *
+     * @param id Member ID
+     * @return A MemberRegistry.CHECKIN_* code
+     */
+    public byte markAttendance(int id) {
+        structureLock.readLock().lock();
+        try {
+            int record = findRecord(id);
+            if (record < 0) {
+                return MemberRegistry.CHECKIN_NOT_FOUND;
+            }
+            long address = recordAddress(record);
+            return markAttendanceAt(records.slab(address), Slabs.offset(address), id);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Marks attendance on a located record
+     *
+     * @param slab Slab holding the record
+     * @param at Offset of the record
+     * @param id Member ID of the record
+     * @return A MemberRegistry.CHECKIN_* code other than CHECKIN_NOT_FOUND
+     */
+    private byte markAttendanceAt(ByteBuffer slab, int at, int id) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            byte flags = slab.get(at + R_FLAGS);
+            if ((flags & FLAG_ACTIVE) == 0) {
+                return MemberRegistry.CHECKIN_INACTIVE;
+            }
+            boolean premium = slab.get(at + R_TYPE) == TYPE_PREMIUM;
+            int attendance = slab.getInt(at + R_ATTENDANCE);
+            int limit = slab.getInt(at + R_ATTENDANCE_LIMIT);
+            if (!premium && attendance >= limit) {
+                return MemberRegistry.CHECKIN_LIMIT_REACHED;
+            }
+            attendance++;
+            slab.putInt(at + R_ATTENDANCE, attendance);
+            slab.putInt(at + R_LOYALTY, slab.getInt(at + R_LOYALTY)
+                    + (premium ? PREMIUM_VISIT_POINTS : REGULAR_VISIT_POINTS));
+            if (!premium && attendance >= limit) {
+                slab.put(at + R_FLAGS, (byte) (flags | FLAG_ELIGIBLE));
+            }
+            // Visit times strictly increase per member, as in the registry
+            slab.putLong(at + R_LAST_VISIT, Math.max(System.currentTimeMillis(), slab.getLong(at + R_LAST_VISIT) + 1));
+            return MemberRegistry.CHECKIN_OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Activates or deactivates a membership in place
+     *
+     * @param id Member ID
+     * @param active New state
+     * @return Whether the member is in the store
+     */
+    public boolean setActive(int id, boolean active) {
+        structureLock.readLock().lock();
+        try {
+            int record = findRecord(id);
+            if (record < 0) {
+                return false;
+            }
+            long address = recordAddress(record);
+            setActiveAt(records.slab(address), Slabs.offset(address), id, active);
+            return true;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Activates or deactivates a located record
+     *
+     * @param slab Slab holding the record
+     * @param at Offset of the record
+     * @param id Member ID of the record
+     * @param active New state
+     */
+    private void setActiveAt(ByteBuffer slab, int at, int id, boolean active) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            byte flags = slab.get(at + R_FLAGS);
+            slab.put(at + R_FLAGS, (byte) (active ? flags | FLAG_ACTIVE : flags & ~FLAG_ACTIVE));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a premium payment in place, with the same rules as MemberRegistry.payDueAmountMinor
+     *
+     * @param id Member ID
+     * @param amountMinor Amount in paise
+     * @return A MemberRegistry.PAYMENT_* code
+     */
+    public byte payDueAmountMinor(int id, long amountMinor) {
+        structureLock.readLock().lock();
+        try {
+            int record = findRecord(id);
+            if (record < 0) {
+                return MemberRegistry.PAYMENT_NOT_FOUND;
+            }
+            long address = recordAddress(record);
+            return payDueAmountMinorAt(records.slab(address), Slabs.offset(address), id, amountMinor);
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records a premium payment on a located record
+     *
+     * @param slab Slab holding the record
+     * @param at Offset of the record
+     * @param id Member ID of the record
+     * @param amountMinor Amount in paise
+     * @return A MemberRegistry.PAYMENT_* code other than PAYMENT_NOT_FOUND
+     */
+    private byte payDueAmountMinorAt(ByteBuffer slab, int at, int id, long amountMinor) {
+        if (slab.get(at + R_TYPE) != TYPE_PREMIUM) {
+            return MemberRegistry.PAYMENT_NOT_PREMIUM;
+        }
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            long paid = slab.getLong(at + R_PAID);
+            long remaining = slab.getLong(at + R_PRICE) - paid;
+            if (remaining == 0) {
+                return MemberRegistry.PAYMENT_ALREADY_PAID;
+            }
+            if (amountMinor <= 0 || amountMinor > remaining) {
+                return MemberRegistry.PAYMENT_INVALID_AMOUNT;
+            }
+            slab.putLong(at + R_PAID, paid + amountMinor);
+            return MemberRegistry.PAYMENT_OK;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a flyweight view of a member's record
+     * For scans, create one view with newView() and move it with MemberView.moveTo instead
+     *
+     * @param id Member ID
+     * @return A view of the record, or null if the ID is not stored
+     */
+    public MemberView view(int id) {
+        MemberView view = new MemberView();
+        return view.moveTo(id) ? view : null;
+    }
+
+    /**
+     * @return A view positioned on no record; call moveTo before reading it
+     */
+    public MemberView newView() {
+        return new MemberView();
+    }
+
+    /**
+     * Copies a member's record into an ordinary heap member, read under its stripe lock
+     *
+     * @param id Member ID
+     * @return A new RegularMember or PremiumMember, or null if the ID is not stored
+     */
+    public GymMember load(int id) {
+        structureLock.readLock().lock();
+        try {
+            int record = findRecord(id);
+            if (record < 0) {
+                return null;
+            }
+            long address = recordAddress(record);
+            ByteBuffer slab = records.slab(address);
+            int at = Slabs.offset(address);
+            ReentrantLock lock = lockFor(id);
+            lock.lock();
+            try {
+                GymMember member;
+                byte flags = slab.get(at + R_FLAGS);
+                String name = getString(slab.getLong(at + R_NAME));
+                String location = getString(slab.getLong(at + R_LOCATION));
+                String phone = getString(slab.getLong(at + R_PHONE));
+                String email = getString(slab.getLong(at + R_EMAIL));
+                String gender = symbols.decode(slab.getInt(at + R_GENDER));
+                String dob = getString(slab.getLong(at + R_DOB));
+                String startDate = getString(slab.getLong(at + R_START_DATE));
+                if (slab.get(at + R_TYPE) == TYPE_PREMIUM) {
+                    PremiumMember premiumMember = new PremiumMember(id, name, location, phone, email, gender,
+                            dob, startDate, symbols.decode(slab.getInt(at + R_PLAN_OR_TRAINER)));
+                    premiumMember.restorePaymentState(slab.getLong(at + R_PAID),
+                            slab.getLong(at + R_DISCOUNT) / (double) MINOR_UNITS);
+                    member = premiumMember;
+                } else {
+                    RegularMember regularMember = new RegularMember(id, name, location, phone, email, gender,
+                            dob, startDate, symbols.decode(slab.getInt(at + R_REFERRAL)));
+                    regularMember.restoreRegularState((flags & FLAG_ELIGIBLE) != 0,
+                            symbols.decode(slab.getInt(at + R_PLAN_OR_TRAINER)),
+                            slab.getLong(at + R_PRICE) / (double) MINOR_UNITS,
+                            getString(slab.getLong(at + R_REMOVAL_REASON)));
+                    member = regularMember;
+                }
+                member.restoreActivity(slab.getInt(at + R_ATTENDANCE), slab.getInt(at + R_LOYALTY),
+                        (flags & FLAG_ACTIVE) != 0);
+                member.recordVisit(slab.getLong(at + R_LAST_VISIT));
+                return member;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param id Member ID
+     * @return Whether a member with that ID is stored
+     */
+    public boolean containsId(int id) {
+        structureLock.readLock().lock();
+        try {
+            return findRecord(id) >= 0;
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of members stored
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Bytes of string arena in use
+     */
+    public long getStringBytes() {
+        synchronized (arena) {
+            return arenaUsed;
+        }
+    }
+
+    /**
+     * @return Off-heap bytes reserved for records, strings and the ID index
+     */
+    public long getReservedBytes() {
+        structureLock.readLock().lock();
+        try {
+            return ((long) records.slabs.length + arena.slabs.length) * SLAB_SIZE + index.capacity();
+        } finally {
+            structureLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes a file-backed store to the device; changes already survive the process stopping
+     */
+    public void force() {
+        records.force();
+        arena.force();
+    }
+
+    /**
+     * Flushes and closes the backing files (no-op in memory)
+     * The mappings are released when the store is garbage collected; do not use it after closing
+     *
+     * @throws IOException If a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        force();
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the fields that member operations change
+     * Caller holds the structure write lock (adding) or the member's stripe lock
+     *
+     * @param slab Slab holding the record
+     * @param at Offset of the record
+     * @param member Source of the state
+     */
+    private void writeState(ByteBuffer slab, int at, GymMember member) {
+        byte flags = member.isActive() ? FLAG_ACTIVE : 0;
+        slab.putInt(at + R_ATTENDANCE, member.getAttendance());
+        slab.putInt(at + R_LOYALTY, member.getLoyaltyPoints());
+        slab.putLong(at + R_LAST_VISIT, member.getLastVisit());
+        if (member instanceof PremiumMember) {
+            PremiumMember premiumMember = (PremiumMember) member;
+            slab.putLong(at + R_PRICE, premiumMember.getPremiumChargeMinor());
+            slab.putLong(at + R_PAID, premiumMember.getPaidMinor());
+            slab.putLong(at + R_DISCOUNT, Math.round(premiumMember.getDiscountAmount() * MINOR_UNITS));
+            slab.putInt(at + R_PLAN_OR_TRAINER, symbolCode(premiumMember.getPersonalTrainer(), false));
+        } else {
+            RegularMember regularMember = (RegularMember) member;
+            if (regularMember.isEligibleForUpgrade()) {
+                flags |= FLAG_ELIGIBLE;
+            }
+            slab.putLong(at + R_PRICE, Math.round(regularMember.getPrice() * MINOR_UNITS));
+            slab.putInt(at + R_PLAN_OR_TRAINER, symbolCode(regularMember.getPlan(), true));
+            // Removal reasons rarely change; only a new one takes arena space
+            String reason = regularMember.getRemovalReason();
+            long ref = slab.getLong(at + R_REMOVAL_REASON);
+            if (reason == null ? ref != NULL_REF : !reason.equals(getString(ref))) {
+                slab.putLong(at + R_REMOVAL_REASON, putString(reason));
+            }
+        }
+        slab.put(at + R_FLAGS, flags);
+    }
+
+    /**
+     * @param record Record number
+     * @return Byte address of the record
+     */
+    private static long recordAddress(int record) {
+        return HEADER_SIZE + (long) record * RECORD_SIZE;
+    }
+
+    /**
+     * @return The header at the start of the record slabs
+     */
+    private ByteBuffer header() {
+        return records.slab(0);
+    }
+
+    /**
+     * Allocates and stamps the header of a new store
+     */
+    private void initHeader() {
+        ensure(records, HEADER_SIZE);
+        ByteBuffer header = header();
+        header.putInt(H_MAGIC, MAGIC);
+        header.putShort(H_VERSION, VERSION);
+        header.putShort(H_RECORD_SIZE, (short) RECORD_SIZE);
+        header.putInt(H_COUNT, 0);
+        header.putLong(H_ARENA_USED, 0);
+        header.putInt(H_SYMBOL_COUNT, 0);
+    }
+
+    /**
+     * Grows slabs, reporting a failed mapping as an unchecked exception
+     *
+     * @param slabs Slabs to grow
+     * @param bytes Bytes needed from address 0
+     */
+    private static void ensure(Slabs slabs, long bytes) {
+        try {
+            slabs.ensure(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a string to the arena
+     *
+     * @param value String to store (may be null)
+     * @return Its arena address, or NULL_REF for null
+     */
+    private long putString(String value) {
+        if (value == null) {
+            return NULL_REF;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("String too long for the member store: " + bytes.length + " bytes");
+        }
+        int needed = 4 + bytes.length;
+        synchronized (arena) {
+            long address = arenaUsed;
+            if (Slabs.offset(address) + needed > SLAB_SIZE) {
+                address = (address | (SLAB_SIZE - 1)) + 1;   // Start of the next slab
+            }
+            ensure(arena, address + needed);
+            ByteBuffer slab = arena.slab(address);
+            int at = Slabs.offset(address);
+            slab.put(at + 4, bytes);
+            slab.putInt(at, bytes.length);
+            arenaUsed = address + needed;
+            header().putLong(H_ARENA_USED, arenaUsed);
+            return address;
+        }
+    }
+
+    /**
+     * @param ref Arena address from putString
+     * @return The decoded string, or null for NULL_REF
+     */
+    private String getString(long ref) {
+        if (ref == NULL_REF) {
+            return null;
+        }
+        ByteBuffer slab = arena.slab(ref);
+        int at = Slabs.offset(ref);
+        byte[] bytes = new byte[slab.getInt(at)];
+        slab.get(at + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds a symbol's code, adding it to the symbol table (and the file) the first time
+     * For gender and plan also records the value's MemberSymbols code in memberCodes; referral
+     * sources and trainers are free text, so they are never added to MemberSymbols
+     *
+     * @param value Gender, plan, referral source or trainer (may be null)
+     * @param coded true for gender and plan
+     * @return Its code, or StringDictionary.NULL_CODE for null
+     * @throws IllegalStateException If the symbol is new and the table holds MAX_SYMBOLS values
+     */
+    private int symbolCode(String value, boolean coded) {
+        int code = symbols.codeOf(value);
+        if (code != StringDictionary.NULL_CODE || value == null) {
+            if (coded && code != StringDictionary.NULL_CODE && memberCodes[code] == UNCODED) {
+                memberCodes[code] = MemberSymbols.encode(value);
+            }
+            return code;
+        }
+        synchronized (symbols) {
+            code = symbols.codeOf(value);
+            if (code != StringDictionary.NULL_CODE) {
+                if (coded && memberCodes[code] == UNCODED) {
+                    memberCodes[code] = MemberSymbols.encode(value);
+                }
+                return code;
+            }
+            if (symbols.size() == MAX_SYMBOLS) {
+                throw new IllegalStateException("Member store symbol table is full (" + MAX_SYMBOLS + " values)");
+            }
+            long ref = putString(value);
+            code = symbols.size();
+            ByteBuffer header = header();
+            header.putLong(H_SYMBOLS + 8 * code, ref);
+            header.putInt(H_SYMBOL_COUNT, code + 1);
+            if (coded) {
+                memberCodes[code] = MemberSymbols.encode(value);
+            }
+            // Encoded last: other threads see the code only once it is on file
+            return symbols.encode(value);
+        }
+    }
+
+    /**
+     * Translates a gender or plan symbol to its MemberSymbols code
+     * Symbols read back from a reopened file are looked up on first use and cached
+     *
+     * @param code Store symbol code
+     * @return The MemberSymbols code, or StringDictionary.NULL_CODE for null
+     */
+    private int memberCode(int code) {
+        if (code == StringDictionary.NULL_CODE) {
+            return StringDictionary.NULL_CODE;
+        }
+        int memberCode = memberCodes[code];
+        if (memberCode == UNCODED) {
+            memberCode = MemberSymbols.encode(symbols.decode(code));
+            memberCodes[code] = memberCode;     // Racing threads store the same value
+        }
+        return memberCode;
+    }
+
+    /**
+     * @return An empty symbol -> MemberSymbols code table
+     */
+    private static int[] newMemberCodes() {
+        int[] codes = new int[MAX_SYMBOLS];
+        Arrays.fill(codes, UNCODED);
+        return codes;
+    }
+
+    /**
+     * Looks up a member's record
+     * Caller holds the structure lock
+     *
+     * @param id Member ID
+     * @return Record number, or -1 if absent
+     */
+    private int findRecord(int id) {
+        int slot = mix(id) & indexMask;
+        while (true) {
+            int base = slot << 3;
+            int value = index.getInt(base + 4);
+            if (value == 0) {
+                return -1;
+            }
+            if (index.getInt(base) == id) {
+                return value - 1;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+    }
+
+    /**
+     * Adds an ID to the index, doubling it when half full
+     * Caller holds the structure write lock (or is the constructor)
+     *
+     * @param id Member ID (not yet indexed)
+     * @param record Its record number
+     */
+    private void indexPut(int id, int record) {
+        if ((long) (size + 1) * 2 > indexMask + 1) {
+            ByteBuffer old = index;
+            allocateIndex((indexMask + 1) * 2);
+            for (int base = 0; base < old.capacity(); base += 8) {
+                int value = old.getInt(base + 4);
+                if (value != 0) {
+                    insertSlot(old.getInt(base), value);
+                }
+            }
+        }
+        insertSlot(id, record + 1);
+    }
+
+    /**
+     * @param id Member ID
+     * @param value Record number + 1
+     */
+    private void insertSlot(int id, int value) {
+        int slot = mix(id) & indexMask;
+        while (index.getInt((slot << 3) + 4) != 0) {
+            slot = (slot + 1) & indexMask;
+        }
+        index.putInt(slot << 3, id);
+        index.putInt((slot << 3) + 4, value);
+    }
+
+    /**
+     * @param slots Number of index slots (power of two)
+     */
+    private void allocateIndex(int slots) {
+        index = ByteBuffer.allocateDirect(slots * 8).order(ByteOrder.nativeOrder());
+        indexMask = slots - 1;
+    }
+
+    /**
+     * Builds the ID index from the records (empty for a new store)
+     */
+    private void rebuildIndex() {
+        int slots = 1024;
+        while (slots < (long) size * 2) {
+            slots <<= 1;
+        }
+        allocateIndex(slots);
+        for (int record = 0; record < size; record++) {
+            long address = recordAddress(record);
+            insertSlot(records.slab(address).getInt(Slabs.offset(address) + R_ID), record + 1);
+        }
+    }
+
+    /**
+     * @return A new set of member lock stripes
+     */
+    private static ReentrantLock[] newStripes() {
+        ReentrantLock[] locks = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * @param id Member ID
+     * @return Well-spread hash of the ID
+     */
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Picks the stripe lock guarding a member
+     *
+     * @param id Member ID
+     * @return Lock for that member's stripe
+     */
+    private ReentrantLock lockFor(int id) {
+        return stripes[mix(id) & (STRIPES - 1)];
+    }
+
+    /**
+     * MemberView - Flyweight over one off-heap record, readable through the member getters
+     * Holds only the record's slab and offset, so moving it to another member allocates nothing.
+     * Getters read the record on every call and always show its current state; getters for the
+     * other member type return that field's empty value. The check-in, activation and payment
+     * methods change the record in place under its stripe lock, with the same rules and result
+     * codes as the store's methods. Not thread-safe: use one view per thread.
+     */
+    public final class MemberView {
+        private ByteBuffer slab;          // Slab holding the record, null until moveTo succeeds
+        private int at;                   // Offset of the record in the slab
+        private int id;                   // Member ID of the record
+
+        /**
+         * Created through view or newView
+         */
+        private MemberView() {
+        }
+
+        /**
+         * Positions the view on a member's record
+         *
+         * @param memberId Member ID
+         * @return true if the member is stored; false leaves the view where it was
+         */
+        public boolean moveTo(int memberId) {
+            structureLock.readLock().lock();
+            try {
+                int record = findRecord(memberId);
+                if (record < 0) {
+                    return false;
+                }
+                long address = recordAddress(record);
+                slab = records.slab(address);
+                at = Slabs.offset(address);
+                id = memberId;
+                return true;
+            } finally {
+                structureLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return true for a premium member, false for a regular member
+         */
+        public boolean isPremium() {
+            return slab.get(at + R_TYPE) == TYPE_PREMIUM;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return getString(slab.getLong(at + R_NAME));
+        }
+
+        public String getLocation() {
+            return getString(slab.getLong(at + R_LOCATION));
+        }
+
+        public String getPhone() {
+            return getString(slab.getLong(at + R_PHONE));
+        }
+
+        public String getEmail() {
+            return getString(slab.getLong(at + R_EMAIL));
+        }
+
+        public String getGender() {
+            return symbols.decode(slab.getInt(at + R_GENDER));
+        }
+
+        /**
+         * @return Gender as a MemberSymbols code, as GymMember.getGenderCode returns it
+         */
+        public int getGenderCode() {
+            return memberCode(slab.getInt(at + R_GENDER));
+        }
+
+        public String getDob() {
+            return getString(slab.getLong(at + R_DOB));
+        }
+
+        public String getMembershipStartDate() {
+            return getString(slab.getLong(at + R_START_DATE));
+        }
+
+        public int getDobEpochDay() {
+            return slab.getInt(at + R_DOB_DAY);
+        }
+
+        public int getStartEpochDay() {
+            return slab.getInt(at + R_START_DAY);
+        }
+
+        public int getAttendance() {
+            return slab.getInt(at + R_ATTENDANCE);
+        }
+
+        public int getLoyaltyPoints() {
+            return slab.getInt(at + R_LOYALTY);
+        }
+
+        public boolean isActive() {
+            return (slab.get(at + R_FLAGS) & FLAG_ACTIVE) != 0;
+        }
+
+        public long getLastVisit() {
+            return slab.getLong(at + R_LAST_VISIT);
+        }
+
+        /**
+         * @return Visits required for upgrade eligibility (regular members only, 0 otherwise)
+         */
+        public int getAttendanceLimit() {
+            return isPremium() ? 0 : slab.getInt(at + R_ATTENDANCE_LIMIT);
+        }
+
+        public boolean isEligibleForUpgrade() {
+            return (slab.get(at + R_FLAGS) & FLAG_ELIGIBLE) != 0;
+        }
+
+        /**
+         * @return Removal reason (regular members only, null otherwise)
+         */
+        public String getRemovalReason() {
+            return getString(slab.getLong(at + R_REMOVAL_REASON));
+        }
+
+        /**
+         * @return Referral source (regular members only, null otherwise)
+         */
+        public String getReferralSource() {
+            return symbols.decode(slab.getInt(at + R_REFERRAL));
+        }
+
+        /**
+         * @return Plan (regular members only, null otherwise)
+         */
+        public String getPlan() {
+            return isPremium() ? null : symbols.decode(slab.getInt(at + R_PLAN_OR_TRAINER));
+        }
+
+        /**
+         * @return Plan as a MemberSymbols code, as RegularMember.getPlanCode returns it
+         *         (StringDictionary.NULL_CODE for premium members)
+         */
+        public int getPlanCode() {
+            return isPremium() ? StringDictionary.NULL_CODE : memberCode(slab.getInt(at + R_PLAN_OR_TRAINER));
+        }
+
+        /**
+         * @return Plan price in rupees (regular members only, 0 otherwise)
+         */
+        public double getPrice() {
+            return isPremium() ? 0 : slab.getLong(at + R_PRICE) / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Personal trainer (premium members only, null otherwise)
+         */
+        public String getPersonalTrainer() {
+            return isPremium() ? symbols.decode(slab.getInt(at + R_PLAN_OR_TRAINER)) : null;
+        }
+
+        /**
+         * @return Premium charge in rupees (premium members only, 0 otherwise)
+         */
+        public double getPremiumCharge() {
+            return getPremiumChargeMinor() / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Premium charge in paise (premium members only, 0 otherwise)
+         */
+        public long getPremiumChargeMinor() {
+            return isPremium() ? slab.getLong(at + R_PRICE) : 0;
+        }
+
+        public double getPaidAmount() {
+            return slab.getLong(at + R_PAID) / (double) MINOR_UNITS;
+        }
+
+        public long getPaidMinor() {
+            return slab.getLong(at + R_PAID);
+        }
+
+        public double getDiscountAmount() {
+            return slab.getLong(at + R_DISCOUNT) / (double) MINOR_UNITS;
+        }
+
+        /**
+         * Marks attendance in place, as the store's markAttendance does
+         *
+         * @return A MemberRegistry.CHECKIN_* code
+         */
+        public byte markAttendance() {
+            return markAttendanceAt(slab, at, id);
+        }
+
+        /**
+         * Activates the membership in place
+         */
+        public void activateMembership() {
+            setActiveAt(slab, at, id, true);
+        }
+
+        /**
+         * Deactivates the membership in place
+         */
+        public void deactivateMembership() {
+            setActiveAt(slab, at, id, false);
+        }
+
+        /**
+         * Records a premium payment in place, as the store's payDueAmountMinor does
+         *
+         * @param amountMinor Amount in paise
+         * @return A MemberRegistry.PAYMENT_* code
+         */
+        public byte payDueAmountMinor(long amountMinor) {
+            return payDueAmountMinorAt(slab, at, id, amountMinor);
+        }
+    }
+}
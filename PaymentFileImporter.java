@@ -0,0 +1,238 @@
+/**
+ * PaymentFileImporter - Posts a file of premium payments to the registry in batches
+ * Streams the file in order, parses each amount straight into paise (no floating point) and
+ * hands every DEFAULT_BATCH_SIZE payments to MemberRegistry.postPayments, so the journal
+ * records of a whole batch share one fsync
+ * Lines that cannot be parsed or that the registry rejects are written to an error file
+ *
+ * Expected columns (a header row starting with "memberId" is skipped):
+ *   memberId,amount
+ * amount is in rupees with at most two decimal places, e.g. 2500 or 2500.50
+ * Payments are posted in file order, so instalments for one member apply in the order listed
+ */
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class PaymentFileImporter {
+    // Column layout
+    public static final String HEADER = "memberId,amount";
+    private static final int FIELD_COUNT = 2;
+
+    // Rejection messages for lines that never reach the registry
+    private static final String INVALID_ID = "Member ID must be a whole number";
+    private static final String INVALID_AMOUNT = "Amount must be in rupees with at most two decimal places";
+
+    // Default number of payments posted per registry call
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private static final int MINOR_UNITS = 100;           // Paise per rupee
+    private static final int MAX_RUPEE_DIGITS = 15;       // Keeps the amount in paise within a long
+
+    private final MemberRegistry registry;    // Registry receiving the payments
+    private final int batchSize;              // Payments per postPayments call
+
+    /**
+     * Receives progress after each batch is posted and can cancel the import
+     */
+    public interface Progress {
+        /**
+         * @param bytesRead Bytes of the file consumed so far
+         * @param posted Payments posted so far
+         * @param rejected Lines rejected so far
+         * @return false to stop after the current batch
+         */
+        boolean update(long bytesRead, int posted, int rejected);
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static final class Result {
+        public final int posted;          // Payments added to the ledger
+        public final long postedMinor;    // Sum of the posted payments (paise)
+        public final int rejected;        // Lines written to the error file
+        public final boolean cancelled;   // Whether the import stopped before the end of the file
+
+        Result(int posted, long postedMinor, int rejected, boolean cancelled) {
+            this.posted = posted;
+            this.postedMinor = postedMinor;
+            this.rejected = rejected;
+            this.cancelled = cancelled;
+        }
+    }
+
+    /**
+     * Creates an importer posting DEFAULT_BATCH_SIZE payments at a time
+     *
+     * @param registry Registry receiving the payments
+     */
+    public PaymentFileImporter(MemberRegistry registry) {
+        this(registry, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates an importer
+     *
+     * @param registry Registry receiving the payments
+     * @param batchSize Payments per postPayments call
+     */
+    public PaymentFileImporter(MemberRegistry registry, int batchSize) {
+        this.registry = registry;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Posts every valid line of a payment file
+     * Batch arrays are reused, so files of any size stream through in constant memory.
+     * Payments posted before a cancellation or error stay posted.
+     *
+     * @param paymentFile File to post
+     * @param errorFile File receiving rejected lines; only created if a line is rejected
+     * @param progress Progress callback, or null
+     * @return Import counts
+     * @throws IOException If the file cannot be read or the error file cannot be written
+     */
+    public Result importFile(Path paymentFile, Path errorFile, Progress progress) throws IOException {
+        // One slot per line of the batch; parsed payments are packed into ids/amounts
+        String[] lines = new String[batchSize];
+        String[] errors = new String[batchSize];
+        int[] ids = new int[batchSize];
+        long[] amounts = new long[batchSize];
+        int[] slots = new int[batchSize];
+        byte[] results = new byte[batchSize];
+
+        MemberCsvImporter.ErrorLog errorLog = new MemberCsvImporter.ErrorLog(errorFile);
+        int posted = 0;
+        long postedMinor = 0;
+        int rejected = 0;
+        boolean cancelled = false;
+
+        try (MemberCsvImporter.CountingInputStream in = new MemberCsvImporter.CountingInputStream(
+                Files.newInputStream(paymentFile));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16)) {
+            long lineNumber = 0;
+            long firstLine = 1;
+            int used = 0;
+            int parsed = 0;
+            String line;
+            while (!cancelled) {
+                line = reader.readLine();
+                if (line != null) {
+                    lineNumber++;
+                    if (lineNumber == 1 && line.regionMatches(true, 0, "memberId", 0, 8)) {
+                        firstLine = 2;
+                        continue;
+                    }
+                    lines[used] = line;
+                    errors[used] = null;
+                    if (!line.trim().isEmpty()) {
+                        errors[used] = parse(line, ids, amounts, parsed);
+                        if (errors[used] == null) {
+                            slots[parsed++] = used;
+                        }
+                    }
+                    used++;
+                }
+                if (used == batchSize || (line == null && used > 0)) {
+                    posted += registry.postPayments(ids, amounts, 0, parsed, results);
+                    for (int i = 0; i < parsed; i++) {
+                        if (results[i] == MemberRegistry.PAYMENT_OK) {
+                            postedMinor += amounts[i];
+                        } else {
+                            errors[slots[i]] = MemberRegistry.paymentResultMessage(results[i]);
+                        }
+                    }
+                    for (int i = 0; i < used; i++) {
+                        if (errors[i] != null) {
+                            errorLog.write(firstLine + i, errors[i], lines[i]);
+                            rejected++;
+                        }
+                    }
+                    firstLine += used;
+                    used = 0;
+                    parsed = 0;
+                    cancelled = progress != null && !progress.update(in.count, posted, rejected);
+                }
+                if (line == null) {
+                    break;
+                }
+            }
+        } finally {
+            errorLog.close();
+        }
+        return new Result(posted, postedMinor, rejected, cancelled);
+    }
+
+    /**
+     * Parses one line into the batch arrays
+     *
+     * @param line Payment line
+     * @param ids Receives the member ID at index
+     * @param amounts Receives the amount in paise at index
+     * @param index Position in the batch arrays
+     * @return null if the line was parsed, otherwise the rejection message
+     */
+    private static String parse(String line, int[] ids, long[] amounts, int index) {
+        List<String> fields = MemberCsvImporter.splitLine(line);
+        if (fields == null) {
+            return "Unterminated quoted field";
+        }
+        if (fields.size() != FIELD_COUNT) {
+            return "Expected " + FIELD_COUNT + " fields but found " + fields.size();
+        }
+        try {
+            ids[index] = Integer.parseInt(fields.get(0));
+        } catch (NumberFormatException e) {
+            return INVALID_ID;
+        }
+        long amount = parseMinor(fields.get(1));
+        if (amount < 0) {
+            return INVALID_AMOUNT;
+        }
+        amounts[index] = amount;
+        return null;
+    }
+
+    /**
+     * Converts a rupee amount written in decimal to paise without going through a double
+     *
+     * @param text Amount such as "2500", "2500.5" or "0.01"
+     * @return The amount in paise, or -1 if the text is not a non-negative amount with at most
+     *         two decimal places
+     */
+    static long parseMinor(String text) {
+        int length = text.length();
+        int point = text.indexOf('.');
+        int integerEnd = point < 0 ? length : point;
+        if (integerEnd == 0 && (point < 0 || point == length - 1)) {
+            return -1;                                      // Empty, or just "."
+        }
+        if (integerEnd > MAX_RUPEE_DIGITS || (point >= 0 && length - point - 1 > 2)) {
+            return -1;
+        }
+        long rupees = 0;
+        for (int i = 0; i < integerEnd; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            rupees = rupees * 10 + (c - '0');
+        }
+        long paise = 0;
+        if (point >= 0) {
+            for (int i = point + 1, scale = MINOR_UNITS / 10; i < length; i++, scale /= 10) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return -1;
+                }
+                paise += (c - '0') * scale;
+            }
+        }
+        return rupees * MINOR_UNITS + paise;
+    }
+}
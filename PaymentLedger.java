@@ -0,0 +1,216 @@
+/**
+ * PaymentLedger - Append-only history of premium payments in fixed-point minor units
+ * Every entry is one row across parallel primitive columns (member ID, amount in paise,
+ * time, kind, link to the member's previous entry), about 29 bytes per payment
+ * Entries are never changed or removed; a revert is recorded as a reversal entry
+ *
+ * Each member's entries form a chain from its newest entry backwards, so one member's
+ * history is read without scanning the others. A premium member's paid amount is the sum
+ * of its chain; PremiumMember keeps that sum as a running total, so paid, remaining and
+ * full-payment status are O(1) reads.
+ *
+ * Entry numbers are dense and start at 0; the journal records them so replay can tell
+ * which entries a snapshot already holds.
+ *
+ * Thread-safe; MemberRegistry calls it while holding the member's stripe lock.
+ */
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class PaymentLedger {
+    // Entry kinds
+    public static final byte KIND_PAYMENT = 1;    // Payment towards the premium charge
+    public static final byte KIND_REVERSAL = 2;   // Paid amount cleared by a premium revert (negative)
+    public static final byte KIND_OPENING = 3;    // Balance carried over from a file without a ledger
+
+    // Returned by lastEntry for a member without entries
+    public static final int NO_ENTRY = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Entry columns (guarded by this)
+    private int size;                             // Number of entries
+    private int[] memberIds;                      // Member each entry belongs to
+    private long[] amounts;                       // Amount in paise (negative for reversals)
+    private long[] times;                         // Posting time (epoch milliseconds)
+    private byte[] kinds;                         // KIND_* code
+    private int[] previous;                       // Member's previous entry, NO_ENTRY if first
+    private final IntIntMap lastEntries;          // Member ID -> newest entry
+    private long total;                           // Sum of all amounts (paise)
+
+    /**
+     * Receives entries from forEachEntry
+     */
+    public interface EntryConsumer {
+        /**
+         * @param entry Entry number
+         * @param amountMinor Amount in paise (negative for reversals)
+         * @param timeMillis Posting time (epoch milliseconds, 0 for opening balances)
+         * @param kind KIND_* code
+         */
+        void accept(int entry, long amountMinor, long timeMillis, byte kind);
+    }
+
+    /**
+     * Creates an empty ledger
+     */
+    public PaymentLedger() {
+        this.lastEntries = new IntIntMap(INITIAL_CAPACITY, NO_ENTRY);
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Appends an entry
+     *
+     * @param memberId Premium member the amount belongs to
+     * @param amountMinor Amount in paise
+     * @param timeMillis Posting time (epoch milliseconds)
+     * @param kind KIND_* code
+     * @return Number of the new entry
+     */
+    public synchronized int post(int memberId, long amountMinor, long timeMillis, byte kind) {
+        if (size == memberIds.length) {
+            grow(size * 2);
+        }
+        int entry = size++;
+        memberIds[entry] = memberId;
+        amounts[entry] = amountMinor;
+        times[entry] = timeMillis;
+        kinds[entry] = kind;
+        previous[entry] = lastEntries.get(memberId);
+        lastEntries.put(memberId, entry);
+        total += amountMinor;
+        return entry;
+    }
+
+    /**
+     * @return Number of entries (also the number the next entry will get)
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return Sum of every entry (paise)
+     */
+    public synchronized long totalMinor() {
+        return total;
+    }
+
+    /**
+     * @param memberId Member ID
+     * @return The member's newest entry, or NO_ENTRY
+     */
+    public synchronized int lastEntry(int memberId) {
+        return lastEntries.get(memberId);
+    }
+
+    /**
+     * Visits a member's entries, newest first
+     * Costs one step per entry of that member
+     *
+     * @param memberId Member ID
+     * @param consumer Receives each entry
+     */
+    public synchronized void forEachEntry(int memberId, EntryConsumer consumer) {
+        for (int entry = lastEntries.get(memberId); entry != NO_ENTRY; entry = previous[entry]) {
+            consumer.accept(entry, amounts[entry], times[entry], kinds[entry]);
+        }
+    }
+
+    /**
+     * Sums a member's entries by walking its chain
+     * The member's own running total answers the same question in O(1); this is for checking it
+     *
+     * @param memberId Member ID
+     * @return Sum of the member's entries (paise)
+     */
+    public synchronized long sumMinor(int memberId) {
+        long sum = 0;
+        for (int entry = lastEntries.get(memberId); entry != NO_ENTRY; entry = previous[entry]) {
+            sum += amounts[entry];
+        }
+        return sum;
+    }
+
+    /**
+     * Removes every entry, e.g. before a ledger is restored
+     */
+    public synchronized void clear() {
+        size = 0;
+        total = 0;
+        lastEntries.clear();
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Encodes every entry for a snapshot
+     * Layout: int entry count, then per entry: int member ID, long amount, long time, byte kind
+     * (member chains are rebuilt on restore)
+     *
+     * @return Buffer positioned at the start of the encoded bytes
+     */
+    public synchronized ByteBuffer encode() {
+        ByteBuffer out = ByteBuffer.allocate(4 + size * (4 + 8 + 8 + 1));
+        out.putInt(size);
+        for (int i = 0; i < size; i++) {
+            out.putInt(memberIds[i]).putLong(amounts[i]).putLong(times[i]).put(kinds[i]);
+        }
+        return out.flip();
+    }
+
+    /**
+     * Replaces the contents with entries produced by encode
+     *
+     * @param in Encoded ledger, positioned at its start
+     */
+    public synchronized void restore(ByteBuffer in) {
+        clear();
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / (4 + 8 + 8 + 1)) {
+            throw new IndexOutOfBoundsException("Payment ledger entry count " + count);
+        }
+        grow(Math.max(INITIAL_CAPACITY, count));
+        for (int i = 0; i < count; i++) {
+            int memberId = in.getInt();
+            long amount = in.getLong();
+            long time = in.getLong();
+            post(memberId, amount, time, in.get());
+        }
+    }
+
+    /**
+     * Replaces the contents with a copy of another ledger's entries, e.g. one read from a snapshot
+     *
+     * @param source Ledger to copy
+     */
+    public void copyFrom(PaymentLedger source) {
+        restore(source.encode());
+    }
+
+    /**
+     * Allocates empty columns
+     *
+     * @param capacity Number of entries
+     */
+    private void allocate(int capacity) {
+        memberIds = new int[capacity];
+        amounts = new long[capacity];
+        times = new long[capacity];
+        kinds = new byte[capacity];
+        previous = new int[capacity];
+    }
+
+    /**
+     * Grows every column, keeping the entries
+     *
+     * @param capacity New number of entries (at least size)
+     */
+    private void grow(int capacity) {
+        memberIds = Arrays.copyOf(memberIds, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        times = Arrays.copyOf(times, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+    }
+}
@@ -4,15 +4,18 @@
  * Includes personal training, payment tracking, and discount management
  */
 public class PremiumMember extends GymMember {
+    // Money is held in paise (1/100 rupee) so instalments add up exactly
+    private static final int MINOR_UNITS = 100;
+
     // Premium membership fees
     private final double premiumCharge;     // Fixed premium membership fee (50000 Rs)
+    private final long premiumChargeMinor;  // The same fee in paise
 
     // Premium benefits
-    private String personalTrainer;         // Assigned personal trainer's name
+    private String personalTrainer;         // Assigned personal trainer's name (interned)
 
     // Payment tracking
-    private boolean isFullPayment;          // Whether full payment is completed
-    private double paidAmount;              // Total amount paid to date
+    private long paidMinor;                 // Total paid to date in paise (sum of the member's ledger entries)
     private double discountAmount;          // 10% discount after full payment
 
     /**
@@ -34,9 +37,9 @@ public class PremiumMember extends GymMember {
                          String gender, String DOB, String membershipStartDate, String personalTrainer) {
         super(id, name, location, phone, email, gender, DOB, membershipStartDate);
         this.premiumCharge = 50000;         // Set fixed premium fee
-        this.personalTrainer = personalTrainer;
-        this.isFullPayment = false;         // Payment not completed initially
-        this.paidAmount = 0;                // No payment made initially
+        this.premiumChargeMinor = Math.round(premiumCharge * MINOR_UNITS);
+        this.personalTrainer = MemberSymbols.internText(personalTrainer);
+        this.paidMinor = 0;                 // No payment made initially
         this.discountAmount = 0;            // No discount calculated initially
     }
 
@@ -54,18 +57,39 @@ public class PremiumMember extends GymMember {
         return personalTrainer;
     }
 
+    /**
+     * @return Fixed premium membership charge in paise
+     */
+    public long getPremiumChargeMinor() {
+        return premiumChargeMinor;
+    }
+
     /**
      * @return Whether full payment has been made
      */
     public boolean isFullPayment() {
-        return isFullPayment;
+        return getPaidMinor() == getPremiumChargeMinor();
     }
 
     /**
      * @return Total amount paid so far
      */
     public double getPaidAmount() {
-        return paidAmount;
+        return getPaidMinor() / (double) MINOR_UNITS;
+    }
+
+    /**
+     * @return Total amount paid so far in paise
+     */
+    public long getPaidMinor() {
+        return paidMinor;
+    }
+
+    /**
+     * @return Amount still to be paid in paise
+     */
+    public long getRemainingMinor() {
+        return getPremiumChargeMinor() - getPaidMinor();
     }
 
     /**
@@ -89,33 +113,44 @@ public class PremiumMember extends GymMember {
      * Processes a payment towards the premium membership fee
      * Tracks payment progress and updates payment status
      *
-     * @param payment Amount being paid in current transaction
+     * @param payment Amount being paid in current transaction (rounded to the nearest paisa)
      * @return Status message about payment and remaining balance
      */
     public String payDueAmount(double payment) {
+        return payDueAmountMinor(Math.round(payment * MINOR_UNITS));
+    }
+
+    /**
+     * Processes a payment given in paise
+     * Completion is an exact integer comparison, so any split of the charge into
+     * instalments ends in full payment
+     *
+     * @param payment Amount being paid in paise
+     * @return Status message about payment and remaining balance
+     */
+    public String payDueAmountMinor(long payment) {
         // Check if already paid in full
-        if (isFullPayment) {
+        if (isFullPayment()) {
             return "Payment already completed. No due amount.";
         }
 
-        double totalPaidAmount = this.paidAmount + payment;
-
-        // Prevent overpayment
-        if (totalPaidAmount > premiumCharge) {
+        // Reject empty payments and prevent overpayment
+        if (payment <= 0) {
+            return "Invalid payment amount. Must be at least Rs. 0.01";
+        }
+        if (payment > getRemainingMinor()) {
             return "Invalid payment amount. Exceeds premium charge of Rs. " + premiumCharge;
         }
 
         // Process payment
-        this.paidAmount = totalPaidAmount;
-        double remainingAmount = premiumCharge - this.paidAmount;
+        this.paidMinor += payment;
 
         // Check if payment is now complete
-        if (this.paidAmount == premiumCharge) {
-            this.isFullPayment = true;
+        if (isFullPayment()) {
             return "Payment successful. Payment completed in full!";
         }
 
-        return "Payment successful. Remaining amount to be paid: Rs. " + remainingAmount;
+        return "Payment successful. Remaining amount to be paid: Rs. " + getRemainingMinor() / (double) MINOR_UNITS;
     }
 
     /**
@@ -125,7 +160,7 @@ public class PremiumMember extends GymMember {
      * @return Status message with discount amount or eligibility requirement
      */
     public String calculateDiscount() {
-        if (isFullPayment) {
+        if (isFullPayment()) {
             this.discountAmount = premiumCharge * 0.10;    // Calculate 10% discount
             return "Discount calculated successfully. Discount amount: Rs. " + discountAmount;
         } else {
@@ -142,12 +177,23 @@ public class PremiumMember extends GymMember {
     public String revertPremiumMember() {
         super.resetMember();                // Reset base member attributes
         this.personalTrainer = "";          // Remove trainer assignment
-        this.isFullPayment = false;         // Reset payment status
-        this.paidAmount = 0;                // Clear payment history
+        this.paidMinor = 0;                 // Clear paid amount (the ledger keeps the history)
         this.discountAmount = 0;            // Remove any discounts
         return "Premium member reverted successfully.";
     }
 
+    /**
+     * Restores payment details saved in a snapshot or journal
+     * Full-payment status follows from the paid amount
+     *
+     * @param paidMinor Total amount paid so far in paise
+     * @param discountAmount Calculated discount amount
+     */
+    void restorePaymentState(long paidMinor, double discountAmount) {
+        this.paidMinor = paidMinor;
+        this.discountAmount = discountAmount;
+    }
+
     /**
      * Displays all member information
      * Shows base member details plus premium-specific information
@@ -158,17 +204,17 @@ public class PremiumMember extends GymMember {
         super.display();                    // Show base member info
 
         // Show premium member specific details
-        System.out.println("Personal Trainer: " + personalTrainer);
-        System.out.println("Paid Amount: Rs. " + paidAmount);
-        System.out.println("Payment Status: " + (isFullPayment ? "Completed" : "Pending"));
+        System.out.println("Personal Trainer: " + getPersonalTrainer());
+        System.out.println("Paid Amount: Rs. " + getPaidAmount());
+        System.out.println("Payment Status: " + (isFullPayment() ? "Completed" : "Pending"));
 
         // Show remaining balance
-        double remainingAmount = premiumCharge - paidAmount;
+        double remainingAmount = getPremiumCharge() - getPaidAmount();
         System.out.println("Remaining Amount: Rs. " + remainingAmount);
 
         // Show discount if payment is complete
-        if (isFullPayment) {
-            System.out.println("Discount Amount: Rs. " + discountAmount);
+        if (isFullPayment()) {
+            System.out.println("Discount Amount: Rs. " + getDiscountAmount());
         }
     }
 }
@@ -4,14 +4,17 @@
  * Includes plan management, attendance tracking, and upgrade eligibility
  */
 public class RegularMember extends GymMember {
+    // Code of the plan every regular member starts on
+    static final int BASIC_PLAN_CODE = MemberSymbols.encode("basic");
+
     // Membership constraints and status
     private final int attendanceLimit;          // Required visits for upgrade eligibility (default: 30)
     private boolean isEligibleForUpgrade;       // Whether member can upgrade to a higher plan
     private String removalReason;               // Documentation for membership cancellation
 
     // Membership details
-    private String referralSource;              // Marketing tracking - how member found the gym
-    private String plan;                        // Current plan level (basic/standard/deluxe)
+    private String referralSource;              // Marketing tracking - how member found the gym (interned)
+    private int planCode;                       // Current plan level (basic/standard/deluxe) as a MemberSymbols code
     private double price;                       // Current plan price in rupees
 
     /**
@@ -34,10 +37,10 @@ public class RegularMember extends GymMember {
         super(id, name, location, phone, email, gender, DOB, membershipStartDate);
         this.isEligibleForUpgrade = false;      // Not eligible for upgrade initially
         this.attendanceLimit = 30;              // Must visit 30 times before upgrade
-        this.plan = "basic";                    // Start with basic plan
+        this.planCode = BASIC_PLAN_CODE;        // Start with basic plan
         this.price = 6500;                      // Basic plan price
         this.removalReason = "";                // No removal reason initially
-        this.referralSource = referralSource;   // Track marketing source
+        this.referralSource = MemberSymbols.internText(referralSource);   // Track marketing source
     }
 
     /**
@@ -72,7 +75,14 @@ public class RegularMember extends GymMember {
      * @return Current membership plan level
      */
     public String getPlan() {
-        return plan;
+        return MemberSymbols.decode(planCode);
+    }
+
+    /**
+     * @return Current plan level as a MemberSymbols code (BASIC_PLAN_CODE until upgraded)
+     */
+    public int getPlanCode() {
+        return planCode;
     }
 
     /**
@@ -128,15 +138,16 @@ public class RegularMember extends GymMember {
         newPlan = newPlan.toLowerCase();    // Standardize plan name
 
         // Check if already on requested plan
-        if (newPlan.equals(this.plan.toLowerCase())) {
-            return "You are already subscribed to " + this.plan + " plan";
+        String plan = getPlan();
+        if (newPlan.equals(plan.toLowerCase())) {
+            return "You are already subscribed to " + plan + " plan";
         }
 
         // Process upgrade if eligible
         if (isEligibleForUpgrade) {
             double newPrice = getPlanPrice(newPlan);
             if (newPrice != -1) {
-                this.plan = newPlan;
+                this.planCode = MemberSymbols.encode(newPlan);
                 this.price = newPrice;
                 return "Plan upgraded to " + newPlan + " at price Rs. " + newPrice;
             } else {
@@ -158,12 +169,27 @@ public class RegularMember extends GymMember {
     public String revertRegularMember(String removalReason) {
         super.resetMember();                // Reset base member attributes
         this.isEligibleForUpgrade = false;  // Remove upgrade eligibility
-        this.plan = "basic";                // Reset to basic plan
+        this.planCode = BASIC_PLAN_CODE;    // Reset to basic plan
         this.price = 6500;                  // Reset to basic price
         this.removalReason = removalReason; // Record removal reason
         return "Member reverted successfully. Reason: " + removalReason;
     }
 
+    /**
+     * Restores regular membership details saved in a snapshot
+     *
+     * @param isEligibleForUpgrade Whether the member has reached the upgrade attendance
+     * @param plan Current plan level
+     * @param price Current plan price in rupees
+     * @param removalReason Recorded removal reason (empty if none)
+     */
+    void restoreRegularState(boolean isEligibleForUpgrade, String plan, double price, String removalReason) {
+        this.isEligibleForUpgrade = isEligibleForUpgrade;
+        this.planCode = MemberSymbols.encode(plan);
+        this.price = price;
+        this.removalReason = removalReason;
+    }
+
     /**
      * Displays all member information
      * Shows base member details plus regular-specific information
@@ -174,12 +200,12 @@ public class RegularMember extends GymMember {
         super.display();                     // Show base member info
 
         // Show regular member specific details
-        System.out.println("Plan: " + plan);
-        System.out.println("Price: " + price);
+        System.out.println("Plan: " + getPlan());
+        System.out.println("Price: " + getPrice());
 
         // Show removal reason if exists
-        if (!removalReason.isEmpty()) {
-            System.out.println("Removal Reason: " + removalReason);
+        if (!getRemovalReason().isEmpty()) {
+            System.out.println("Removal Reason: " + getRemovalReason());
         }
     }
 }
@@ -0,0 +1,282 @@
+/**
+ * RevenueTotals - Running financial totals over all registered members
+ * Keeps plan revenue per regular plan tier, premium charges, payments collected and
+ * discounts granted, so a finance summary never has to visit the members
+ *
+ * Each member's contribution is subtracted before a change and added back after it, so
+ * every update is constant time. Amounts are summed in minor units (paise) as longs, so
+ * adding and removing the same amount always cancels exactly.
+ *
+ * Thread-safe; MemberRegistry calls it while holding the member's stripe lock, and this
+ * class never takes another lock.
+ */
+import java.util.function.Supplier;
+
+public class RevenueTotals {
+    // Regular plan tiers, in upgrade order
+    public static final int TIER_BASIC = 0;
+    public static final int TIER_STANDARD = 1;
+    public static final int TIER_DELUXE = 2;
+    public static final int TIER_OTHER = 3;           // Plan name not recognised (e.g. from an old file)
+    public static final int TIERS = 4;
+
+    private static final int MINOR_UNITS = 100;       // Paise per rupee
+
+    private static final String[] TIER_NAMES = {"basic", "standard", "deluxe", "other"};
+
+    // MemberSymbols codes of the tier names, so the usual plan values are matched by integer comparison
+    private static final int[] TIER_CODES = {MemberSymbols.encode(TIER_NAMES[TIER_BASIC]),
+            MemberSymbols.encode(TIER_NAMES[TIER_STANDARD]), MemberSymbols.encode(TIER_NAMES[TIER_DELUXE])};
+
+    // Regular members (guarded by this)
+    private final int[] tierMembers;                  // Regular members on each tier
+    private final long[] tierRevenue;                 // Sum of their plan prices (paise)
+
+    // Premium members (guarded by this)
+    private int premiumMembers;                       // Premium members
+    private int fullyPaidMembers;                     // Premium members who paid the full charge
+    private int discountedMembers;                    // Premium members with a discount granted
+    private long premiumCharged;                      // Sum of premium charges (paise)
+    private long premiumCollected;                    // Sum of amounts paid (paise)
+    private long discountsGranted;                    // Sum of discounts (paise)
+
+    /**
+     * Consistent copy of the totals at one moment
+     */
+    public static final class Summary {
+        private final int[] tierMembers;
+        private final long[] tierRevenue;
+        private final int premiumMembers;
+        private final int fullyPaidMembers;
+        private final int discountedMembers;
+        private final long premiumCharged;
+        private final long premiumCollected;
+        private final long discountsGranted;
+
+        /**
+         * @param totals Totals to copy (caller holds its lock)
+         */
+        private Summary(RevenueTotals totals) {
+            this.tierMembers = totals.tierMembers.clone();
+            this.tierRevenue = totals.tierRevenue.clone();
+            this.premiumMembers = totals.premiumMembers;
+            this.fullyPaidMembers = totals.fullyPaidMembers;
+            this.discountedMembers = totals.discountedMembers;
+            this.premiumCharged = totals.premiumCharged;
+            this.premiumCollected = totals.premiumCollected;
+            this.discountsGranted = totals.discountsGranted;
+        }
+
+        /**
+         * @param tier TIER_* constant
+         * @return Number of regular members on that tier
+         */
+        public int getTierMembers(int tier) {
+            return tierMembers[tier];
+        }
+
+        /**
+         * @param tier TIER_* constant
+         * @return Sum of plan prices of regular members on that tier (rupees)
+         */
+        public double getTierRevenue(int tier) {
+            return tierRevenue[tier] / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Sum of plan prices over all regular members (rupees)
+         */
+        public double getPlanRevenue() {
+            long total = 0;
+            for (long revenue : tierRevenue) {
+                total += revenue;
+            }
+            return total / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Number of premium members
+         */
+        public int getPremiumMembers() {
+            return premiumMembers;
+        }
+
+        /**
+         * @return Number of premium members who paid the full charge
+         */
+        public int getFullyPaidMembers() {
+            return fullyPaidMembers;
+        }
+
+        /**
+         * @return Number of premium members with a discount granted
+         */
+        public int getDiscountedMembers() {
+            return discountedMembers;
+        }
+
+        /**
+         * @return Sum of premium charges (rupees)
+         */
+        public double getPremiumCharged() {
+            return premiumCharged / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Amount premium members have paid (rupees)
+         */
+        public double getPremiumCollected() {
+            return premiumCollected / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Amount premium members still owe (rupees)
+         */
+        public double getPremiumOutstanding() {
+            return (premiumCharged - premiumCollected) / (double) MINOR_UNITS;
+        }
+
+        /**
+         * @return Sum of discounts granted (rupees)
+         */
+        public double getDiscountsGranted() {
+            return discountsGranted / (double) MINOR_UNITS;
+        }
+    }
+
+    /**
+     * Creates empty totals
+     */
+    public RevenueTotals() {
+        this.tierMembers = new int[TIERS];
+        this.tierRevenue = new long[TIERS];
+    }
+
+    /**
+     * Adds a member's contribution, e.g. when it is registered
+     *
+     * @param member Member to count
+     */
+    public synchronized void add(GymMember member) {
+        apply(member, 1);
+    }
+
+    /**
+     * Runs a change to a member and moves its contribution from the old to the new values
+     * Caller must hold the member's stripe lock
+     *
+     * @param member Member about to change
+     * @param change Operation that changes the member
+     * @param <T> Result type of the operation
+     * @return The operation's result
+     */
+    public synchronized <T> T update(GymMember member, Supplier<T> change) {
+        apply(member, -1);
+        try {
+            return change.get();
+        } finally {
+            apply(member, 1);
+        }
+    }
+
+    /**
+     * Resets every total to zero, e.g. before the members are replaced
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < TIERS; i++) {
+            tierMembers[i] = 0;
+            tierRevenue[i] = 0;
+        }
+        premiumMembers = 0;
+        fullyPaidMembers = 0;
+        discountedMembers = 0;
+        premiumCharged = 0;
+        premiumCollected = 0;
+        discountsGranted = 0;
+    }
+
+    /**
+     * @return A consistent copy of the current totals
+     */
+    public synchronized Summary summary() {
+        return new Summary(this);
+    }
+
+    /**
+     * Maps a plan name to its tier
+     *
+     * @param plan Plan name (case-insensitive, may be null)
+     * @return TIER_BASIC, TIER_STANDARD, TIER_DELUXE or TIER_OTHER
+     */
+    public static int tierOf(String plan) {
+        if (plan != null) {
+            for (int tier = 0; tier < TIER_OTHER; tier++) {
+                if (TIER_NAMES[tier].equalsIgnoreCase(plan)) {
+                    return tier;
+                }
+            }
+        }
+        return TIER_OTHER;
+    }
+
+    /**
+     * Finds a regular member's tier from their plan code, falling back to a case-insensitive
+     * name match for plans stored in another case
+     *
+     * @param member Regular member
+     * @return TIER_BASIC, TIER_STANDARD, TIER_DELUXE or TIER_OTHER
+     */
+    private static int tierOf(RegularMember member) {
+        int code = member.getPlanCode();
+        for (int tier = 0; tier < TIER_CODES.length; tier++) {
+            if (TIER_CODES[tier] == code) {
+                return tier;
+            }
+        }
+        return tierOf(member.getPlan());
+    }
+
+    /**
+     * @param tier TIER_* constant
+     * @return Lower-case plan name of the tier ("other" for TIER_OTHER)
+     */
+    public static String tierName(int tier) {
+        return TIER_NAMES[tier];
+    }
+
+    /**
+     * Adds or subtracts a member's current values
+     *
+     * @param member Member whose fields are read
+     * @param sign 1 to add, -1 to subtract
+     */
+    private void apply(GymMember member, int sign) {
+        if (member instanceof RegularMember) {
+            RegularMember regularMember = (RegularMember) member;
+            int tier = tierOf(regularMember);
+            tierMembers[tier] += sign;
+            tierRevenue[tier] += sign * toMinor(regularMember.getPrice());
+        } else if (member instanceof PremiumMember) {
+            PremiumMember premiumMember = (PremiumMember) member;
+            premiumMembers += sign;
+            premiumCharged += sign * premiumMember.getPremiumChargeMinor();
+            premiumCollected += sign * premiumMember.getPaidMinor();
+            if (premiumMember.isFullPayment()) {
+                fullyPaidMembers += sign;
+            }
+            long discount = toMinor(premiumMember.getDiscountAmount());
+            if (discount != 0) {
+                discountedMembers += sign;
+                discountsGranted += sign * discount;
+            }
+        }
+    }
+
+    /**
+     * @param rupees Amount in rupees
+     * @return The amount in paise, rounded to the nearest paisa
+     */
+    private static long toMinor(double rupees) {
+        return Math.round(rupees * MINOR_UNITS);
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * RosterIndex - Groups member IDs by a string attribute such as trainer or referral source
+ * Each member belongs to at most one roster; adding, removing and counting are constant time
+ * IDs within a roster are held in a primitive array (order is not significant)
+ *
+ * Not thread-safe; MemberRegistry guards it with its structure lock.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+public class RosterIndex {
+    // Roster contents
+    private final HashMap<String, Roster> rosters;    // Attribute value -> member IDs
+    private final IntIntMap positions;                // Member ID -> slot in its roster, -1 if none
+
+    /**
+     * IDs of the members sharing one attribute value
+     */
+    private static final class Roster {
+        int[] ids = new int[8];       // Member IDs
+        int size;                     // Number of IDs in use
+    }
+
+    /**
+     * Creates an empty index
+     */
+    public RosterIndex() {
+        this.rosters = new HashMap<>();
+        this.positions = new IntIntMap(16, -1);
+    }
+
+    /**
+     * Adds a member to the roster for a value
+     * Null and empty values are not indexed
+     *
+     * @param value Attribute value
+     * @param id Member ID (must not already be in a roster of this index)
+     */
+    public void add(String value, int id) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        Roster roster = rosters.computeIfAbsent(value, key -> new Roster());
+        if (roster.size == roster.ids.length) {
+            roster.ids = Arrays.copyOf(roster.ids, roster.ids.length * 2);
+        }
+        positions.put(id, roster.size);
+        roster.ids[roster.size++] = id;
+    }
+
+    /**
+     * Removes a member from the roster for a value; does nothing if it is not there
+     *
+     * @param value Attribute value the member was added under
+     * @param id Member ID
+     */
+    public void remove(String value, int id) {
+        Roster roster = value == null ? null : rosters.get(value);
+        if (roster == null) {
+            return;
+        }
+        int slot = positions.get(id);
+        if (slot < 0 || slot >= roster.size || roster.ids[slot] != id) {
+            return;
+        }
+
+        // Move the last ID into the freed slot
+        int last = roster.ids[--roster.size];
+        roster.ids[slot] = last;
+        positions.put(last, slot);
+        positions.put(id, -1);
+        if (roster.size == 0) {
+            rosters.remove(value);
+        }
+    }
+
+    /**
+     * @param value Attribute value
+     * @return Number of members in the roster
+     */
+    public int count(String value) {
+        Roster roster = value == null ? null : rosters.get(value);
+        return roster == null ? 0 : roster.size;
+    }
+
+    /**
+     * Copies a page of member IDs from a roster
+     *
+     * @param value Attribute value
+     * @param skip Number of members to skip
+     * @param into Array to fill; filled up to its length or the end of the roster
+     * @return Number of IDs copied
+     */
+    public int collect(String value, int skip, int[] into) {
+        Roster roster = value == null ? null : rosters.get(value);
+        if (roster == null) {
+            return 0;
+        }
+        int count = Math.max(0, Math.min(into.length, roster.size - skip));
+        if (count > 0) {
+            System.arraycopy(roster.ids, skip, into, 0, count);
+        }
+        return count;
+    }
+
+    /**
+     * Visits every member ID in a roster
+     *
+     * @param value Attribute value
+     * @param action Callback receiving each member ID
+     */
+    public void forEach(String value, IntConsumer action) {
+        Roster roster = value == null ? null : rosters.get(value);
+        if (roster == null) {
+            return;
+        }
+        for (int i = 0; i < roster.size; i++) {
+            action.accept(roster.ids[i]);
+        }
+    }
+
+    /**
+     * @return Every value with at least one member, sorted
+     */
+    public List<String> values() {
+        List<String> values = new ArrayList<>(rosters.keySet());
+        Collections.sort(values);
+        return values;
+    }
+
+    /**
+     * Removes every roster
+     */
+    public void clear() {
+        rosters.clear();
+        positions.clear();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * StringDictionary - Maps a small set of repeating strings to dense int codes
+ * Used for low-cardinality member fields such as gender and plan, and (bounded) to intern free text
+ * Each distinct value is stored once; equality checks become int comparisons on codes
+ * Looking up a value already in the dictionary and decoding are lock-free; only adding a new
+ * value is synchronized, so many threads can encode the same few values without contending
+ */
+import java.util.concurrent.ConcurrentHashMap;
+
+public class StringDictionary {
+    // Code reserved for null values
+    public static final int NULL_CODE = -1;
+
+    // Dictionary contents
+    private final ConcurrentHashMap<String, Integer> codes;   // Value -> code
+    private volatile String[] values;                 // Code -> canonical value (published before its code)
+    private int size;                                 // Number of distinct values
+    private final int maxSize;                        // Most distinct values the dictionary will hold
+
+    /**
+     * Creates an empty dictionary with no limit on its size
+     */
+    public StringDictionary() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an empty dictionary holding at most maxSize values
+     *
+     * @param maxSize Most distinct values; encode fails and intern stops sharing beyond it
+     */
+    public StringDictionary(int maxSize) {
+        this.codes = new ConcurrentHashMap<>();
+        this.values = new String[16];
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the code for a value, assigning the next free code the first time it is seen
+     *
+     * @param value Value to encode (may be null)
+     * @return Dense code for the value, or NULL_CODE for null
+     * @throws IllegalStateException If the value is new and the dictionary is full
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        int added = add(value);
+        if (added == NULL_CODE) {
+            throw new IllegalStateException("Dictionary is full (" + maxSize + " values)");
+        }
+        return added;
+    }
+
+    /**
+     * Returns the canonical instance equal to a value, adding it while the dictionary has room
+     *
+     * @param value Value to intern (may be null)
+     * @return The shared instance, or value itself if it is new and the dictionary is full
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = add(value);
+            if (code == NULL_CODE) {
+                return value;
+            }
+        }
+        return values[code];
+    }
+
+    /**
+     * Assigns the next free code to a value unless another thread got there first
+     *
+     * @param value Value to add
+     * @return The value's code, or NULL_CODE if the dictionary is full
+     */
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == maxSize) {
+            return NULL_CODE;
+        }
+
+        int newCode = size;
+        String[] current = values;
+        if (newCode == current.length) {
+            current = java.util.Arrays.copyOf(current, current.length * 2);
+        }
+        current[newCode] = value;
+        values = current;                             // Publish the (possibly grown) array
+        codes.put(value, newCode);
+        size++;
+        return newCode;
+    }
+
+    /**
+     * Looks up the code of a value without adding it
+     *
+     * @param value Value to look up
+     * @return The value's code, or NULL_CODE if it has never been encoded
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? NULL_CODE : code;
+    }
+
+    /**
+     * Returns the canonical string for a code
+     *
+     * @param code Code returned by encode
+     * @return The shared string instance, or null for NULL_CODE
+     */
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values[code];
+    }
+
+    /**
+     * Returns the canonical instance equal to the given value, adding it if new
+     *
+     * @param value Value to canonicalize (may be null)
+     * @return Shared instance equal to value
+     */
+    public String canonical(String value) {
+        return decode(encode(value));
+    }
+
+    /**
+     * @return Number of distinct values in the dictionary
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * UpgradeEligibilityFeed - Live set of regular members the sales team can offer an upgrade to
+ * A member is a candidate while they are active, have reached their attendance limit and are
+ * still on the basic plan. MemberRegistry re-checks a member after every check-in, activation,
+ * deactivation, upgrade and revert, and the set changes in O(1): IDs are kept in a primitive
+ * array with an ID -> position map (order is not significant).
+ *
+ * Subscribers are told about every change (member ID and whether they became or stopped being a
+ * candidate), starting with one "became a candidate" event for each current candidate. Each
+ * subscription is delivered on its own daemon thread, so a slow subscriber never delays a
+ * check-in. Changes not yet delivered are coalesced per member: the backlog never exceeds the
+ * number of members, and a subscriber always ends up with each member's latest state.
+ *
+ * All methods are synchronized; MemberRegistry updates the feed inside a member's stripe lock.
+ */
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class UpgradeEligibilityFeed {
+    // Events handed to a listener per pass of its delivery thread
+    private static final int DELIVERY_BATCH = 256;
+
+    // Current candidates
+    private final IntIntMap positions;            // Member ID -> index in ids, -1 if not a candidate
+    private int[] ids;                            // Candidate member IDs
+    private int size;                             // Number of candidates
+
+    // Subscribers
+    private final List<Subscription> subscriptions;   // Open subscriptions
+    private int subscriptionsOpened;                  // Numbers delivery threads
+
+    /**
+     * Receives candidate changes on a subscription's delivery thread
+     */
+    public interface Listener {
+        /**
+         * @param memberId Member whose state changed
+         * @param candidate true if the member became a candidate, false if they stopped being one
+         */
+        void onChange(int memberId, boolean candidate);
+    }
+
+    /**
+     * One subscriber's queue of undelivered changes and the thread delivering them
+     * A listener that throws ends its subscription.
+     */
+    public static final class Subscription implements AutoCloseable {
+        private final UpgradeEligibilityFeed feed;    // Feed to leave on close
+        private final Listener listener;              // Receives the changes
+        private final IntIntMap pending;              // Member ID -> undelivered state (1 or 0), -1 if none
+        private int[] queue;                          // Members with an undelivered state, oldest first (ring)
+        private int head;                             // Index of the oldest queued member
+        private int queued;                           // Number of queued members
+        private boolean closed;                       // Set by close(); the thread stops delivering
+
+        /**
+         * @param feed Feed the subscription belongs to
+         * @param listener Receives the changes
+         */
+        private Subscription(UpgradeEligibilityFeed feed, Listener listener) {
+            this.feed = feed;
+            this.listener = listener;
+            this.pending = new IntIntMap(16, -1);
+            this.queue = new int[16];
+        }
+
+        /**
+         * Queues a change, replacing an undelivered change for the same member
+         *
+         * @param id Member ID
+         * @param candidate New state
+         */
+        private synchronized void offer(int id, boolean candidate) {
+            if (closed) {
+                return;
+            }
+            if (pending.containsKey(id)) {
+                pending.put(id, candidate ? 1 : 0);
+                return;
+            }
+            if (queued == queue.length) {
+                int[] grown = new int[queue.length * 2];
+                for (int i = 0; i < queued; i++) {
+                    grown[i] = queue[(head + i) % queue.length];
+                }
+                queue = grown;
+                head = 0;
+            }
+            queue[(head + queued) % queue.length] = id;
+            queued++;
+            pending.put(id, candidate ? 1 : 0);
+            if (queued == 1) {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Delivery loop: takes up to DELIVERY_BATCH changes at a time and hands them to the
+         * listener outside the lock
+         */
+        private void deliver() {
+            int[] batchIds = new int[DELIVERY_BATCH];
+            boolean[] batchStates = new boolean[DELIVERY_BATCH];
+            while (true) {
+                int count;
+                synchronized (this) {
+                    while (queued == 0 && !closed) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            closed = true;
+                        }
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    count = Math.min(queued, DELIVERY_BATCH);
+                    for (int i = 0; i < count; i++) {
+                        int id = queue[head];
+                        head = (head + 1) % queue.length;
+                        batchIds[i] = id;
+                        batchStates[i] = pending.remove(id) == 1;
+                    }
+                    queued -= count;
+                }
+                try {
+                    for (int i = 0; i < count; i++) {
+                        listener.onChange(batchIds[i], batchStates[i]);
+                    }
+                } catch (RuntimeException e) {
+                    close();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return Number of members with a change not yet delivered
+         */
+        public synchronized int backlog() {
+            return queued;
+        }
+
+        /**
+         * @return Whether the subscription has ended
+         */
+        public synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Waits for the subscription to end
+         *
+         * @param timeoutMillis Longest time to wait
+         * @return Whether the subscription has ended
+         * @throws InterruptedException If the waiting thread is interrupted
+         */
+        public synchronized boolean awaitClosed(long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!closed) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    break;
+                }
+                wait(remaining);
+            }
+            return closed;
+        }
+
+        /**
+         * Stops delivery and leaves the feed; undelivered changes are dropped
+         * A change already being delivered may still reach the listener
+         */
+        @Override
+        public void close() {
+            feed.unsubscribe(this);
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Creates an empty feed
+     */
+    public UpgradeEligibilityFeed() {
+        this.positions = new IntIntMap(16, -1);
+        this.ids = new int[16];
+        this.subscriptions = new ArrayList<>();
+    }
+
+    /**
+     * Records whether a member is a candidate, notifying subscribers if that changed
+     *
+     * @param id Member ID
+     * @param candidate Whether the member is active, eligible and still on the basic plan
+     */
+    public synchronized void update(int id, boolean candidate) {
+        int position = positions.get(id);
+        if (candidate == (position >= 0)) {
+            return;
+        }
+        if (candidate) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            positions.put(id, size);
+            ids[size++] = id;
+        } else {
+            positions.remove(id);
+            int last = ids[--size];
+            if (position != size) {
+                ids[position] = last;
+                positions.put(last, position);
+            }
+        }
+        for (int i = 0; i < subscriptions.size(); i++) {
+            subscriptions.get(i).offer(id, candidate);
+        }
+    }
+
+    /**
+     * Removes every candidate, telling subscribers each one is no longer a candidate
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < size; i++) {
+            for (int s = 0; s < subscriptions.size(); s++) {
+                subscriptions.get(s).offer(ids[i], false);
+            }
+        }
+        positions.clear();
+        size = 0;
+    }
+
+    /**
+     * @return Number of current candidates
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param id Member ID
+     * @return Whether the member is currently a candidate
+     */
+    public synchronized boolean contains(int id) {
+        return positions.containsKey(id);
+    }
+
+    /**
+     * Copies current candidates into an array (order is not significant)
+     *
+     * @param skip Number of candidates to skip (for paging)
+     * @param into Receives member IDs; at most into.length are written
+     * @return Number of IDs written
+     */
+    public synchronized int getCandidates(int skip, int[] into) {
+        if (skip < 0 || skip >= size) {
+            return 0;
+        }
+        int count = Math.min(into.length, size - skip);
+        System.arraycopy(ids, skip, into, 0, count);
+        return count;
+    }
+
+    /**
+     * Starts a subscription: the listener first receives every current candidate, then every
+     * later change, on a new daemon thread
+     *
+     * @param listener Receives the changes
+     * @return The subscription; close it to stop delivery
+     */
+    public synchronized Subscription subscribe(Listener listener) {
+        Subscription subscription = new Subscription(this, listener);
+        for (int i = 0; i < size; i++) {
+            subscription.offer(ids[i], true);
+        }
+        subscriptions.add(subscription);
+        Thread thread = new Thread(subscription::deliver, "upgrade-feed-" + (++subscriptionsOpened));
+        thread.setDaemon(true);
+        thread.start();
+        return subscription;
+    }
+
+    /**
+     * @return Number of open subscriptions
+     */
+    public synchronized int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Stops sending changes to a subscription
+     *
+     * @param subscription Subscription being closed
+     */
+    private synchronized void unsubscribe(Subscription subscription) {
+        subscriptions.remove(subscription);
+    }
+}
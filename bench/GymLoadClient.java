@@ -0,0 +1,201 @@
+/**
+ * GymLoadClient - Local load generator for the GymServer HTTP API
+ * Runs a fixed number of concurrent clients, each sending one request at a time in a loop
+ * (check-ins, lookups and small payments against random member IDs), and reports throughput,
+ * status counts and latency percentiles
+ *
+ * Usage (from the project directory, with the server running):
+ *   javac -d out/bench *.java bench/*.java
+ *   java -cp out/bench GymGUI --server 8080
+ *   java -cp out/bench GymLoadClient [baseUrl]
+ *
+ *   baseUrl  server address (default http://localhost:8080)
+ *
+ * System properties:
+ *   load.concurrency  concurrent clients (default 2000)
+ *   load.seconds      length of the run (default 10)
+ *   load.members      member IDs used are 1..load.members (default 10000)
+ *   load.seed         register and activate members 1..load.members before the run (default false)
+ *   load.mix          percentages of check-in, lookup and payment requests (default 70,25,5)
+ */
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class GymLoadClient {
+    // Run configuration
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 2000);
+    private static final int SECONDS = Integer.getInteger("load.seconds", 10);
+    private static final int MEMBERS = Integer.getInteger("load.members", 10000);
+    private static final boolean SEED = Boolean.getBoolean("load.seed");
+    private static final String MIX = System.getProperty("load.mix", "70,25,5");
+
+    // Latency histogram: bucket b counts durations in [2^(b-1), 2^b) ns, like MemberMetrics
+    private static final int BUCKETS = 40;
+
+    // Status classes counted per client
+    private static final int OK = 0;              // 2xx
+    private static final int CLIENT_ERROR = 1;    // 4xx (e.g. 409 for an inactive member)
+    private static final int SERVER_ERROR = 2;    // 5xx
+    private static final int FAILED = 3;          // No response (connection error or timeout)
+
+    /**
+     * Counts kept by one client thread, merged at the end
+     */
+    private static final class Stats {
+        final long[] histogram = new long[BUCKETS];
+        final long[] statuses = new long[4];
+        long requests;
+    }
+
+    /**
+     * Runs the load test and prints the report
+     *
+     * @param args Optional base URL
+     * @throws Exception If the run is interrupted or seeding fails
+     */
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        String[] mix = MIX.split(",");
+        int checkInShare = Integer.parseInt(mix[0].trim());
+        int lookupShare = checkInShare + Integer.parseInt(mix[1].trim());
+
+        ExecutorService executor = GymServer.newRequestExecutor();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(executor)
+                .build();
+
+        if (SEED) {
+            seed(client, baseUrl);
+        }
+
+        System.out.printf("%d clients, %d s, members 1..%d, mix check-in/lookup/payment %s%n",
+                CONCURRENCY, SECONDS, MEMBERS, MIX);
+        long deadline = System.nanoTime() + SECONDS * 1_000_000_000L;
+        List<Future<Stats>> clients = new ArrayList<>(CONCURRENCY);
+        long start = System.nanoTime();
+        for (int c = 0; c < CONCURRENCY; c++) {
+            clients.add(executor.submit(() -> runClient(client, baseUrl, deadline, checkInShare, lookupShare)));
+        }
+        Stats total = new Stats();
+        for (Future<Stats> future : clients) {
+            Stats stats = future.get();
+            total.requests += stats.requests;
+            for (int b = 0; b < BUCKETS; b++) {
+                total.histogram[b] += stats.histogram[b];
+            }
+            for (int s = 0; s < total.statuses.length; s++) {
+                total.statuses[s] += stats.statuses[s];
+            }
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        executor.shutdownNow();
+
+        System.out.printf("requests %d in %.1f s = %.0f req/s%n", total.requests, elapsed, total.requests / elapsed);
+        System.out.printf("status 2xx %d, 4xx %d, 5xx %d, failed %d%n", total.statuses[OK],
+                total.statuses[CLIENT_ERROR], total.statuses[SERVER_ERROR], total.statuses[FAILED]);
+        System.out.printf("latency p50 <= %.2f ms, p90 <= %.2f ms, p99 <= %.2f ms, max <= %.2f ms%n",
+                percentile(total, 0.50), percentile(total, 0.90), percentile(total, 0.99), percentile(total, 1.0));
+    }
+
+    /**
+     * One client: sends requests back to back until the deadline
+     *
+     * @param client Shared HTTP client
+     * @param baseUrl Server address
+     * @param deadline System.nanoTime() at which to stop
+     * @param checkInShare Percent of requests that are check-ins
+     * @param lookupShare checkInShare plus the percent that are lookups; the rest are payments
+     * @return This client's counts
+     */
+    private static Stats runClient(HttpClient client, String baseUrl, long deadline, int checkInShare,
+                                   int lookupShare) {
+        Stats stats = new Stats();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            int id = 1 + random.nextInt(MEMBERS);
+            int pick = random.nextInt(100);
+            HttpRequest request;
+            if (pick < checkInShare) {
+                request = post(baseUrl + "/members/" + id + "/check-in", "");
+            } else if (pick < lookupShare) {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/members/" + id))
+                        .timeout(Duration.ofSeconds(30)).GET().build();
+            } else {
+                request = post(baseUrl + "/members/" + id + "/payments", "{\"amount\":\"0.01\"}");
+            }
+
+            long begin = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                status = -1;
+            }
+            long nanos = System.nanoTime() - begin;
+            stats.histogram[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))]++;
+            stats.statuses[status < 0 ? FAILED : status >= 500 ? SERVER_ERROR : status >= 400 ? CLIENT_ERROR : OK]++;
+            stats.requests++;
+        }
+        return stats;
+    }
+
+    /**
+     * Registers and activates members 1..MEMBERS (every other one premium); existing IDs are skipped
+     *
+     * @param client HTTP client
+     * @param baseUrl Server address
+     * @throws Exception If a request fails
+     */
+    private static void seed(HttpClient client, String baseUrl) throws Exception {
+        long start = System.nanoTime();
+        for (int id = 1; id <= MEMBERS; id++) {
+            String body = String.format("{\"type\":\"%s\",\"id\":%d,\"name\":\"Load Member %d\",\"location\":\"Kathmandu\","
+                            + "\"phone\":\"9%09d\",\"email\":\"load%d@example.com\",\"gender\":\"Male\",\"dob\":\"1990/01/01\","
+                            + "\"membershipStartDate\":\"2024/01/01\",\"referralSourceOrTrainer\":\"Load Test\"}",
+                    id % 2 == 0 ? "Premium" : "Regular", id, id, id, id);
+            client.send(post(baseUrl + "/members", body), HttpResponse.BodyHandlers.discarding());
+            client.send(post(baseUrl + "/members/" + id + "/activate", ""), HttpResponse.BodyHandlers.discarding());
+        }
+        System.out.printf("seeded %d members in %.1f s%n", MEMBERS, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @param url Request URL
+     * @param json Request body
+     * @return POST request with a JSON body
+     */
+    private static HttpRequest post(String url, String json) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    /**
+     * @param stats Merged counts
+     * @param fraction Percentile as a fraction (1.0 for the maximum)
+     * @return Upper bound of the bucket holding that percentile, in milliseconds
+     */
+    private static double percentile(Stats stats, double fraction) {
+        long target = Math.max(1, (long) Math.ceil(stats.requests * fraction));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += stats.histogram[b];
+            if (seen >= target) {
+                return (1L << b) / 1e6;
+            }
+        }
+        return (1L << (BUCKETS - 1)) / 1e6;
+    }
+}
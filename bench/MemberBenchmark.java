@@ -0,0 +1,276 @@
+/**
+ * MemberBenchmark - Self-contained micro-benchmark harness for the member domain
+ * Measures ID lookup, duplicate-ID checks, check-in and payment throughput, text export
+ * formatting, text import parsing and building the Display table model
+ * Sweeps member counts and writes machine-readable JSON results for tracking over time
+ *
+ * Usage (from the project directory):
+ *   javac -d out/bench *.java bench/*.java
+ *   java -Xmx16g -cp out/bench MemberBenchmark [counts] [benchmarks]
+ *
+ *   counts      comma-separated member counts (default 1000,10000,100000,1000000,10000000)
+ *   benchmarks  comma-separated names to run (default: all)
+ *
+ * System properties:
+ *   bench.warmup      warmup iterations per benchmark (default 3)
+ *   bench.iterations  measured iterations per benchmark (default 5)
+ *   bench.millis      length of one iteration in milliseconds (default 1000)
+ *   bench.out         JSON result file (default bench-results.json)
+ */
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntToLongFunction;
+
+public class MemberBenchmark {
+    // Run configuration
+    private static final int WARMUP = Integer.getInteger("bench.warmup", 3);
+    private static final int ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("bench.millis", 1000) * 1_000_000L;
+
+    // Operations between clock reads, keeps timer overhead out of fast benchmarks
+    private static final int BATCH = 256;
+
+    // Number of pre-generated random IDs / lines cycled through by the benchmarks
+    private static final int SAMPLES = 1 << 16;
+
+    // Consumes benchmark results so the JIT cannot eliminate the measured work
+    private static volatile long sink;
+
+    /**
+     * Result of one benchmark at one member count
+     */
+    private static final class Result {
+        final String benchmark;       // Benchmark name
+        final int members;            // Member count parameter
+        final double score;           // Mean operations per second
+        final double error;           // Standard deviation across iterations
+        final double[] raw;           // Per-iteration operations per second
+
+        Result(String benchmark, int members, double[] raw) {
+            this.benchmark = benchmark;
+            this.members = members;
+            this.raw = raw;
+            double sum = 0;
+            for (double v : raw) {
+                sum += v;
+            }
+            this.score = sum / raw.length;
+            double squares = 0;
+            for (double v : raw) {
+                squares += (v - score) * (v - score);
+            }
+            this.error = raw.length > 1 ? Math.sqrt(squares / (raw.length - 1)) : 0;
+        }
+    }
+
+    /**
+     * Runs the selected benchmarks for each member count and writes the JSON report
+     *
+     * @param args Optional member counts and benchmark names (see class comment)
+     * @throws IOException If the result file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int[] counts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+        List<String> selected = args.length > 1 ? Arrays.asList(args[1].split(",")) : null;
+
+        List<Result> results = new ArrayList<>();
+        for (int count : counts) {
+            // Each size gets its own member set, collected before the next one is built
+            runAll(results, selected, count);
+        }
+
+        String out = System.getProperty("bench.out", "bench-results.json");
+        writeJson(results, out);
+        System.out.println("# Results written to " + Paths.get(out).toAbsolutePath());
+    }
+
+    /**
+     * Builds a member set of the given size and runs every selected benchmark on it
+     *
+     * @param results List receiving the results
+     * @param selected Benchmarks to run, or null for all
+     * @param count Number of members
+     */
+    private static void runAll(List<Result> results, List<String> selected, int count) {
+        System.out.printf("# Members: %,d%n", count);
+        MemberRegistry registry = populate(count);
+        int[] hitIds = randomIds(count, 0, count);
+        int[] missIds = randomIds(count, count, count + SAMPLES);
+        List<GymMember> members = registry.getMembers();
+        String[] exportLines = exportLines(members);
+
+        run(results, selected, "lookupById", count, i -> {
+            GymMember member = registry.findMember(hitIds[i & (SAMPLES - 1)]);
+            return member == null ? 0 : member.getAttendance();
+        });
+        run(results, selected, "isDuplicateIdHit", count,
+                i -> registry.containsId(hitIds[i & (SAMPLES - 1)]) ? 1 : 0);
+        run(results, selected, "isDuplicateIdMiss", count,
+                i -> registry.containsId(missIds[i & (SAMPLES - 1)]) ? 1 : 0);
+        run(results, selected, "markAttendance", count,
+                i -> registry.markAttendance(hitIds[i & (SAMPLES - 1)]).length());
+        run(results, selected, "payDueAmount", count,
+                i -> registry.payDueAmount(hitIds[i & (SAMPLES - 1)], 0.01).length());
+        run(results, selected, "exportFormatLine", count,
+                i -> MemberTextExporter.formatLine(members.get(hitIds[i & (SAMPLES - 1)])).length());
+        MemberTextExporter.Chunk exportChunk = new MemberTextExporter(null).newChunk();
+        run(results, selected, "exportStreamLine", count, i -> {
+            exportChunk.clear();
+            exportChunk.appendMember(members.get(hitIds[i & (SAMPLES - 1)]));
+            exportChunk.finish();
+            return exportChunk.byteCount();
+        });
+        run(results, selected, "importParseLine", count,
+                i -> exportLines[i & (exportLines.length - 1)].trim().split("\\s{2,}").length);
+        run(results, selected, "displayTableModel", count, i -> {
+            // Open the table model and render one screen of 40 rows
+            MemberTableModel model = new MemberTableModel(registry, (i & 1) == 0);
+            int rows = Math.min(40, model.getRowCount());
+            int first = model.getRowCount() > rows ? (hitIds[i & (SAMPLES - 1)] % (model.getRowCount() - rows)) : 0;
+            long cells = 0;
+            for (int row = first; row < first + rows; row++) {
+                for (int column = 0; column < model.getColumnCount(); column++) {
+                    cells += model.getValueAt(row, column) == null ? 0 : 1;
+                }
+            }
+            return cells;
+        });
+    }
+
+    /**
+     * Times one benchmark: warmup iterations, then measured iterations of fixed length
+     *
+     * @param results List receiving the result
+     * @param selected Benchmarks to run, or null for all
+     * @param name Benchmark name
+     * @param members Member count parameter
+     * @param op Operation under test; receives an increasing counter, returns a value to consume
+     */
+    private static void run(List<Result> results, List<String> selected, String name, int members, IntToLongFunction op) {
+        if (selected != null && !selected.contains(name)) {
+            return;
+        }
+
+        int counter = 0;
+        double[] raw = new double[ITERATIONS];
+        for (int iteration = -WARMUP; iteration < ITERATIONS; iteration++) {
+            long ops = 0;
+            long acc = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int i = 0; i < BATCH; i++) {
+                    acc += op.applyAsLong(counter++);
+                }
+                ops += BATCH;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < ITERATION_NANOS);
+            sink += acc;
+
+            if (iteration >= 0) {
+                raw[iteration] = ops * 1e9 / elapsed;
+            }
+        }
+
+        Result result = new Result(name, members, raw);
+        results.add(result);
+        System.out.printf("%-20s %,12d members  %,16.0f ops/s  +- %,.0f%n", name, members, result.score, result.error);
+    }
+
+    /**
+     * Builds a registry with alternating regular and premium members, all active
+     *
+     * @param count Number of members
+     * @return Filled registry (no journal attached)
+     */
+    private static MemberRegistry populate(int count) {
+        MemberRegistry registry = new MemberRegistry();
+        for (int id = 0; id < count; id++) {
+            GymMember member;
+            if (id % 2 == 0) {
+                member = new RegularMember(id, "Member " + id, "Kathmandu", "98" + String.format("%08d", id),
+                        "member" + id + "@gym.com", "Male", "1995/04/12", "2024/01/15", "Friend");
+            } else {
+                member = new PremiumMember(id, "Member " + id, "Pokhara", "98" + String.format("%08d", id),
+                        "member" + id + "@gym.com", "Female", "1992/09/30", "2024/02/01", "Trainer " + (id % 20));
+            }
+            member.activateMembership();
+            registry.addMember(member);
+        }
+        return registry;
+    }
+
+    /**
+     * @param count Number of members (seeds the generator so runs are repeatable)
+     * @param from Smallest ID (inclusive)
+     * @param to Largest ID (exclusive)
+     * @return SAMPLES random IDs in the range
+     */
+    private static int[] randomIds(int count, int from, int to) {
+        Random random = new Random(count);
+        int[] ids = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            ids[i] = from + random.nextInt(to - from);
+        }
+        return ids;
+    }
+
+    /**
+     * Formats a power-of-two sample of export lines for the parse benchmark
+     *
+     * @param members Members to format
+     * @return Export lines
+     */
+    private static String[] exportLines(List<GymMember> members) {
+        int size = Integer.highestOneBit(Math.min(members.size(), 4096));
+        String[] lines = new String[size];
+        for (int i = 0; i < size; i++) {
+            String line = MemberTextExporter.formatLine(members.get(i));
+            lines[i] = line.substring(0, line.length() - 1);
+        }
+        return lines;
+    }
+
+    /**
+     * Writes results as a JSON array in the same shape as JMH's JSON output
+     *
+     * @param results Benchmark results
+     * @param file Destination file
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeJson(List<Result> results, String file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8))) {
+            out.println("[");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.println("  {");
+                out.println("    \"benchmark\" : \"MemberBenchmark." + r.benchmark + "\",");
+                out.println("    \"mode\" : \"thrpt\",");
+                out.println("    \"warmupIterations\" : " + WARMUP + ",");
+                out.println("    \"measurementIterations\" : " + ITERATIONS + ",");
+                out.println("    \"params\" : { \"members\" : \"" + r.members + "\" },");
+                out.println("    \"primaryMetric\" : {");
+                out.println("      \"score\" : " + r.score + ",");
+                out.println("      \"scoreError\" : " + r.error + ",");
+                out.println("      \"scoreUnit\" : \"ops/s\",");
+                StringBuilder raw = new StringBuilder();
+                for (int j = 0; j < r.raw.length; j++) {
+                    raw.append(j == 0 ? "" : ", ").append(r.raw[j]);
+                }
+                out.println("      \"rawData\" : [ [ " + raw + " ] ]");
+                out.println("    }");
+                out.println(i == results.size() - 1 ? "  }" : "  },");
+            }
+            out.println("]");
+        }
+    }
+}
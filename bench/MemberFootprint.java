@@ -0,0 +1,93 @@
+/**
+ * MemberFootprint - Heap used per member by the repeated member strings
+ * Builds members the way an import does (every field a freshly decoded String) and measures
+ * the live heap after a full GC, twice: once as stored now (gender, plan, referral source and
+ * trainer as MemberSymbols codes, locations interned), and once also keeping the per-member
+ * copies of those strings that members held before they were coded, which is what the old
+ * layout retained.
+ *
+ * Usage (from the project directory):
+ *   javac -d out/bench *.java bench/*.java
+ *   java -Xmx4g -cp out/bench MemberFootprint [members]
+ *
+ *   members  number of members to build (default 1000000)
+ *
+ * Heap figures come from Runtime after System.gc(), so run with a single, otherwise idle JVM.
+ */
+import java.util.Random;
+
+public class MemberFootprint {
+    // Realistic value pools; every member gets its own String copy of a pool entry
+    private static final String[] GENDERS = {"Male", "Female", "Other"};
+    private static final String[] LOCATIONS = {"Kathmandu", "Lalitpur", "Bhaktapur", "Pokhara", "Chitwan",
+            "Biratnagar", "Butwal", "Dharan", "Hetauda", "Janakpur"};
+    private static final String[] REFERRALS = {"Friend", "Facebook", "Instagram", "Walk-in", "Flyer", "Website"};
+    private static final String[] TRAINERS = {"Ram Thapa", "Sita Gurung", "Hari Shrestha", "Gita Rai",
+            "Bikash Tamang", "Anita Karki", "Suman Magar", "Priya Lama"};
+
+    /**
+     * Builds the members, measures both layouts and prints the report
+     *
+     * @param args Optional member count
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long baseline = usedHeap();
+        GymMember[] members = new GymMember[count];
+        String[][] uncoded = new String[count][];
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            String gender = copy(GENDERS[random.nextInt(GENDERS.length)]);
+            String location = copy(LOCATIONS[random.nextInt(LOCATIONS.length)]);
+            String other = i % 2 == 0
+                    ? copy(REFERRALS[random.nextInt(REFERRALS.length)])
+                    : copy(TRAINERS[random.nextInt(TRAINERS.length)]);
+            members[i] = i % 2 == 0
+                    ? new RegularMember(i + 1, "Member " + i, location, "98" + (10000000 + i),
+                            "member" + i + "@example.com", gender, "1990/01/01", "2024/01/01", other)
+                    : new PremiumMember(i + 1, "Member " + i, location, "98" + (10000000 + i),
+                            "member" + i + "@example.com", gender, "1990/01/01", "2024/01/01", other);
+            uncoded[i] = new String[] {gender, location, other};
+        }
+
+        long withUncoded = usedHeap() - baseline;
+        long uncodedArrays = (long) count * (16 + 3 * 4);   // String[3] header and references (compressed oops)
+        uncoded = null;
+        long coded = usedHeap() - baseline;
+
+        // Before: members plus their own string copies, without the String[] holders used to keep them
+        long before = withUncoded - uncodedArrays;
+        System.out.printf("members            %d%n", count);
+        System.out.printf("before (per-member strings) %8.1f bytes/member%n", (double) before / count);
+        System.out.printf("after (codes, interned)     %8.1f bytes/member%n", (double) coded / count);
+        System.out.printf("saved                       %8.1f bytes/member (%.0f%%)%n",
+                (double) (before - coded) / count, 100.0 * (before - coded) / before);
+        System.out.printf("MemberSymbols codes %d, shared locations %d, shared texts %d%n",
+                MemberSymbols.codeCount(), MemberSymbols.locationCount(), MemberSymbols.textCount());
+        if (members[count - 1] == null) {
+            System.out.println();                 // Keeps members reachable until here
+        }
+    }
+
+    /**
+     * @param value Pool entry
+     * @return A distinct String equal to it, like one decoded from a file
+     */
+    private static String copy(String value) {
+        return new String(value.toCharArray());
+    }
+
+    /**
+     * @return Bytes of heap in use after a full collection
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * OffHeapBenchmark - Heap size and full-GC pause with members on the heap vs off-heap
+ * For each member count, fills a MemberRegistry (members as heap objects) and then a file-backed
+ * OffHeapMemberStore with the same members, and reports for each the live heap after a full
+ * GC, the time of one more full GC (System.gc(), which must trace every live object) and
+ * check-in throughput. For the store it also reports the time to reopen the file.
+ *
+ * Usage (from the project directory):
+ *   javac -d out/bench *.java bench/*.java
+ *   java -Xmx4g -cp out/bench OffHeapBenchmark [counts]
+ *
+ *   counts  comma-separated member counts (default 250000,500000,1000000,2000000)
+ *
+ * System properties:
+ *   offheap.dir  directory for the store files (default: a new temporary directory)
+ */
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+public class OffHeapBenchmark {
+    // Check-ins timed per measurement
+    private static final int CHECK_INS = 2_000_000;
+
+    /**
+     * Runs the comparison for each member count
+     *
+     * @param args Optional member counts
+     * @throws IOException If the store files cannot be created
+     */
+    public static void main(String[] args) throws IOException {
+        int[] counts = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(s -> Integer.parseInt(s.trim())).toArray()
+                : new int[] {250_000, 500_000, 1_000_000, 2_000_000};
+        String dirProperty = System.getProperty("offheap.dir");
+        Path dir = dirProperty != null ? Paths.get(dirProperty) : Files.createTempDirectory("offheap-bench");
+
+        System.out.printf("%-10s %-8s %12s %12s %14s %12s%n",
+                "members", "storage", "heap MB", "full GC ms", "check-ins/s", "reopen ms");
+        for (int count : counts) {
+            long baseline = usedHeap();
+
+            MemberRegistry registry = new MemberRegistry();    // Dropped once copied to the store
+            for (int i = 0; i < count; i++) {
+                GymMember member = newMember(i + 1);
+                registry.addMember(member);
+                member.activateMembership();
+            }
+            long heap = usedHeap() - baseline;
+            long pause = timeFullGc();
+            double rate = checkInRate(count, registry::markAttendance);
+            System.out.printf("%-10d %-8s %12.1f %12.1f %14.0f %12s%n", count, "heap", heap / 1e6, pause / 1e6, rate, "-");
+
+            Path file = dir.resolve("members-" + count + ".store");
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".strings"));
+            long reopen;
+            try (OffHeapMemberStore store = OffHeapMemberStore.open(file)) {
+                registry.forEachMember(store::add);
+                registry = null;
+                heap = usedHeap() - baseline;
+                pause = timeFullGc();
+                rate = checkInRate(count, store::markAttendance);
+            }
+            long start = System.nanoTime();
+            try (OffHeapMemberStore store = OffHeapMemberStore.open(file)) {
+                reopen = System.nanoTime() - start;
+                if (store.size() != count) {
+                    throw new IllegalStateException("Reopened store holds " + store.size() + " members");
+                }
+            }
+            System.out.printf("%-10d %-8s %12.1f %12.1f %14.0f %12.1f%n",
+                    count, "off-heap", heap / 1e6, pause / 1e6, rate, reopen / 1e6);
+        }
+    }
+
+    /**
+     * @param id Member ID
+     * @return A regular (odd ID) or premium (even ID) member with realistic field values
+     */
+    private static GymMember newMember(int id) {
+        String phone = "98" + (10_000_000 + id);
+        String email = "member" + id + "@example.com";
+        return id % 2 == 0
+                ? new PremiumMember(id, "Member " + id, "Kathmandu", phone, email, "Female",
+                        "1990/01/01", "2024/01/01", "Trainer " + (id % 20))
+                : new RegularMember(id, "Member " + id, "Lalitpur", phone, email, "Male",
+                        "1990/01/01", "2024/01/01", "Friend");
+    }
+
+    /**
+     * One timed check-in operation
+     */
+    private interface CheckIn {
+        /**
+         * @param id Member ID
+         */
+        void checkIn(int id);
+    }
+
+    /**
+     * @param count Member count (IDs are 1..count)
+     * @param operation Check-in to time
+     * @return Check-ins per second over CHECK_INS random IDs
+     */
+    private static double checkInRate(int count, CheckIn operation) {
+        Random random = new Random(42);
+        int[] ids = new int[CHECK_INS];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + random.nextInt(count);
+        }
+        long start = System.nanoTime();
+        for (int id : ids) {
+            operation.checkIn(id);
+        }
+        return CHECK_INS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * @return Bytes of heap in use after a full collection
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * @return Nanoseconds taken by one full collection
+     */
+    private static long timeFullGc() {
+        long start = System.nanoTime();
+        System.gc();
+        return System.nanoTime() - start;
+    }
+}